@@ -0,0 +1,37 @@
+package com.verong.demo.database.jdbc.persistence.dao;
+
+import com.verong.demo.database.jdbc.persistence.model.Student;
+
+import java.util.List;
+
+/**
+ * The outcome of a bulk operation of {@link StudentDao}.
+ *
+ * @param processed number of {@link Student} rows that have been stored in a database
+ * @param failures  rows that could not be stored together with a reason; the rest of the load is not affected by them
+ */
+public record BatchResult(
+        int processed,
+        List<Failure> failures
+) {
+
+    public BatchResult {
+        failures = List.copyOf(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * A row that has been rejected by a database during a bulk operation.
+     *
+     * @param student the {@link Student} that has not been stored (its id stays {@code null})
+     * @param cause   an exception that has been thrown by a database for this row
+     */
+    public record Failure(
+            Student student,
+            Exception cause
+    ) {
+    }
+}
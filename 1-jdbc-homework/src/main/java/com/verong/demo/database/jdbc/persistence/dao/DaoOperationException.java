@@ -0,0 +1,16 @@
+package com.verong.demo.database.jdbc.persistence.dao;
+
+/**
+ * An unchecked exception that is thrown by {@link StudentDao} implementations when an operation
+ * with a database cannot be performed (a row does not exist, an SQL error has happened and so on).
+ */
+public class DaoOperationException extends RuntimeException {
+
+    public DaoOperationException(String message) {
+        super(message);
+    }
+
+    public DaoOperationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,24 @@
+package com.verong.demo.database.jdbc.persistence.dao;
+
+import lombok.Getter;
+
+/**
+ * An exception that is thrown by {@link StudentDao} when a student is written using an outdated version:
+ * the row has been updated by someone else since the student was read, so the write has been rejected
+ * instead of silently overwriting that change. The student has to be read again before retrying.
+ */
+@Getter
+public class StaleStudentException extends DaoOperationException {
+
+    /**
+     * The id of the student, {@code null} if an upserted student has been matched by email.
+     */
+    private final Long id;
+    private final long expectedVersion;
+
+    public StaleStudentException(String message, Long id, long expectedVersion) {
+        super(message);
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+    }
+}
@@ -0,0 +1,129 @@
+package com.verong.demo.database.jdbc.persistence.dao;
+
+import com.verong.demo.database.jdbc.persistence.model.Student;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A forward-only cursor over a {@link ResultSet} that maps rows to {@link Student} lazily, one row per
+ * {@link #tryAdvance(Consumer)} call. It owns the connection it reads from: the connection is released as soon
+ * as the rows are exhausted, a row cannot be read or mapped, or the cursor is closed, whichever comes first.
+ */
+final class StudentCursor extends Spliterators.AbstractSpliterator<Student> implements AutoCloseable {
+
+    @FunctionalInterface
+    interface RowMapper {
+        Student map(ResultSet resultSet) throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface ParameterBinder {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+
+    private final Connection connection;
+    private final boolean autoCommit;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+    private final RowMapper rowMapper;
+    private boolean closed;
+
+    private StudentCursor(Connection connection, boolean autoCommit, PreparedStatement statement,
+                          ResultSet resultSet, RowMapper rowMapper) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.connection = connection;
+        this.autoCommit = autoCommit;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.rowMapper = rowMapper;
+    }
+
+    /**
+     * Executes the query on the passed connection and returns a cursor positioned before the first row.
+     * Auto-commit is switched off while the cursor is open, because some drivers (e.g. PostgreSQL) fetch
+     * rows by {@code fetchSize} portions only inside a transaction and read the whole result otherwise.
+     * If the query cannot be executed, the connection is closed before the exception is thrown.
+     */
+    static StudentCursor open(Connection connection, String sql, int fetchSize,
+                              ParameterBinder binder, RowMapper rowMapper) throws SQLException {
+        PreparedStatement statement = null;
+        boolean autoCommit = true;
+        try {
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            binder.bind(statement);
+            var resultSet = statement.executeQuery();
+            return new StudentCursor(connection, autoCommit, statement, resultSet, rowMapper);
+        } catch (SQLException | RuntimeException e) {
+            release(connection, autoCommit, statement, null, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps the cursor into a sequential {@link Stream} that closes the cursor when the stream is closed.
+     */
+    Stream<Student> stream() {
+        return StreamSupport.stream(this, false).onClose(this::close);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Student> action) {
+        if (closed) {
+            return false;
+        }
+        Student student;
+        try {
+            if (!resultSet.next()) {
+                close();
+                return false;
+            }
+            student = rowMapper.map(resultSet);
+        } catch (SQLException e) {
+            var exception = new DaoOperationException("Cannot read next student", e);
+            closed = true;
+            release(connection, autoCommit, statement, resultSet, exception);
+            throw exception;
+        } catch (RuntimeException e) {
+            closed = true;
+            release(connection, autoCommit, statement, resultSet, e);
+            throw e;
+        }
+        action.accept(student);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        var exception = new DaoOperationException("Cannot release student cursor");
+        release(connection, autoCommit, statement, resultSet, exception);
+        if (exception.getSuppressed().length > 0) {
+            throw exception;
+        }
+    }
+
+    private static void release(Connection connection, boolean autoCommit, PreparedStatement statement,
+                                ResultSet resultSet, Throwable failure) {
+        try (connection; statement; resultSet) {
+            // the read-only transaction has to be finished before auto-commit is restored
+            connection.rollback();
+            connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            failure.addSuppressed(e);
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.verong.demo.database.jdbc.persistence.dao;
 
 import com.verong.demo.database.jdbc.persistence.model.Student;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * The Data Access Object (DAO) pattern is used to isolate a logic of working
@@ -18,6 +20,18 @@ import java.util.Optional;
  */
 public interface StudentDao {
 
+    /**
+     * The number of rows that are sent to a database in one JDBC batch and committed together
+     * when a batch size is not passed explicitly.
+     */
+    int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * The number of rows that a driver fetches from a database per round trip while streaming
+     * when a fetch size is not passed explicitly.
+     */
+    int DEFAULT_FETCH_SIZE = 1000;
+
     /**
      * This method stores a new {@link Student} to a database and sets generated id
      * to {@link Student} object back.
@@ -26,6 +40,33 @@ public interface StudentDao {
      */
     void create(Student student);
 
+    /**
+     * This method stores all passed {@link Student} objects to a database using JDBC batches of
+     * {@link #DEFAULT_BATCH_SIZE} rows and sets generated ids to every stored {@link Student} back.
+     *
+     * @param students a collection of {@link Student} that have to be stored in a database
+     * @return a {@link BatchResult} with a number of stored rows and the rows that have been rejected
+     * @see #createAll(Collection, int)
+     */
+    default BatchResult createAll(Collection<Student> students) {
+        return createAll(students, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * This method stores all passed {@link Student} objects to a database and sets generated ids
+     * to every stored {@link Student} back.
+     * <br>
+     * Rows are sent using {@code addBatch()}/{@code executeBatch()} and each batch is committed in its
+     * own transaction, so an already committed batch is never rolled back by a later failure. When a database
+     * rejects a batch, that batch is retried row by row: every rejected row is reported in the
+     * {@link BatchResult#failures()} and the load continues with the next row.
+     *
+     * @param students  a collection of {@link Student} that have to be stored in a database
+     * @param batchSize a number of rows that are sent and committed together, must be positive
+     * @return a {@link BatchResult} with a number of stored rows and the rows that have been rejected
+     */
+    BatchResult createAll(Collection<Student> students, int batchSize);
+
     /**
      * This method returns {@code Optional} with {@link Student} that has been found
      * in a database by ID
@@ -43,13 +84,80 @@ public interface StudentDao {
      */
     List<Student> findAll();
 
+    /**
+     * This method returns a lazy {@link Stream} of all {@link Student} fetching {@link #DEFAULT_FETCH_SIZE}
+     * rows per round trip.
+     *
+     * @return a stream of {@link Student} that has to be closed
+     * @see #streamAll(int)
+     */
+    default Stream<Student> streamAll() {
+        return streamAll(DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * This method returns a lazy {@link Stream} of all {@link Student}. Unlike {@link #findAll()}, rows are read
+     * through a forward-only cursor and mapped one by one while the stream is consumed, so only about
+     * {@code fetchSize} rows are kept in memory at once regardless of the size of the table.
+     * <br>
+     * The stream holds an open database connection, so it has to be closed (e.g. using try-with-resources).
+     * The connection is also released as soon as all rows have been read or reading has failed.
+     *
+     * @param fetchSize a number of rows that a driver fetches per round trip, must be positive
+     * @return a stream of {@link Student} that has to be closed
+     */
+    Stream<Student> streamAll(int fetchSize);
+
+    /**
+     * This method returns a parallel {@link Stream} of all {@link Student} ordered by id, read in {@code partitions}
+     * ranges of ids concurrently and fetching {@link #DEFAULT_FETCH_SIZE} rows per round trip.
+     *
+     * @param partitions a number of ranges of ids the table is split into, must be positive
+     * @return a parallel stream of {@link Student} that has to be closed
+     * @see #streamAllPartitioned(int, int, boolean)
+     */
+    default Stream<Student> streamAllPartitioned(int partitions) {
+        return streamAllPartitioned(partitions, DEFAULT_FETCH_SIZE, true);
+    }
+
+    /**
+     * This method returns a parallel {@link Stream} of all {@link Student} for exports of large tables. The range
+     * from the lowest to the highest id is split into {@code partitions} ranges of the same width, and every range is
+     * read through its own forward-only cursor on its own connection, so the partitions are read and their rows
+     * mapped concurrently by the threads of the stream. Only about {@code fetchSize} rows are kept in memory per
+     * partition being read, and a stream does not read more partitions at once than it has threads; a connection
+     * pool should allow as many connections.
+     * <br>
+     * When {@code ordered} is {@code true}, the encounter order of the stream is by id, which ordered terminal
+     * operations (e.g. {@code forEachOrdered} or {@code toList}) keep at the price of buffering partitions that are
+     * read before the ones preceding them. Otherwise the rows of a partition are read in any order and the stream
+     * is unordered, which is the cheapest way to consume it with {@code forEach}.
+     * <br>
+     * Every partition is read in its own transaction, so the result is not one consistent snapshot of the table,
+     * and students added with ids greater than the highest id at the time of the call are not read. The stream
+     * holds open database connections, so it has to be closed (e.g. using try-with-resources).
+     *
+     * @param partitions a number of ranges of ids the table is split into, must be positive
+     * @param fetchSize  a number of rows that a driver fetches per round trip, must be positive
+     * @param ordered    whether the stream has to be ordered by id
+     * @return a parallel stream of {@link Student} that has to be closed
+     */
+    Stream<Student> streamAllPartitioned(int partitions, int fetchSize, boolean ordered);
+
     /**
      * This method updates all columns using values of fields of the passed object of {@link Student}.
      * The student passed into the method entity must already be stored in a database.
      * Otherwise, the method should throw an {@code Exception} (can be custom type) to notify that
      * an entity with such ID does not exist in a database.
+     * <br>
+     * When the version of the student is set, the row is updated only if it still has that version, and
+     * the incremented version is set to the student back; this check and the write are one statement, so no
+     * concurrent change can slip in between them. A student without a version overwrites the row whatever its
+     * version is, and gets the new version of the row, so its next update is checked.
      *
      * @param student an object of {@link Student} that has to be updated in a database
+     * @throws StudentNotFoundException if there is no student with such id
+     * @throws StaleStudentException    if the student has been updated since its version was read
      */
     void update(Student student);
 
@@ -58,8 +166,48 @@ public interface StudentDao {
      * The student passed into the method entity must already be stored in a database.
      * Otherwise, the method should throw an {@code Exception} (can be custom type) to notify that
      * an entity with such ID does not exist in a database.
+     * <br>
+     * When the version of the student is set, the row is deleted only if it still has that version.
      *
      * @param student an object of {@link Student} that has to be deleted from a database
+     * @throws StudentNotFoundException if there is no student with such id
+     * @throws StaleStudentException    if the student has been updated since its version was read
      */
     void remove(Student student);
+
+    /**
+     * This method stores the passed {@link Student} if there is no student with the same email in a database,
+     * otherwise it updates all other columns of that student; either way it is one statement, and the id and
+     * the version of the stored row are set to the student back.
+     * <br>
+     * When the version of the student is set, an existing row is updated only if it still has that version.
+     *
+     * @param student an object of {@link Student} that has to be stored in a database
+     * @throws StaleStudentException if the existing student has been updated since its version was read
+     */
+    void upsert(Student student);
+
+    /**
+     * This method upserts all passed {@link Student} objects using JDBC batches of {@link #DEFAULT_BATCH_SIZE} rows.
+     *
+     * @param students a collection of {@link Student} that have to be stored in a database
+     * @return a {@link BatchResult} with a number of stored rows and the rows that have been rejected
+     * @see #upsertAll(Collection, int)
+     */
+    default BatchResult upsertAll(Collection<Student> students) {
+        return upsertAll(students, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * This method does {@link #upsert(Student)} for all passed {@link Student} objects, sending them in JDBC batches
+     * that are committed in their own transactions like {@link #createAll(Collection, int)} does. A student whose
+     * version is outdated is reported in {@link BatchResult#failures()} with {@link StaleStudentException}
+     * and does not stop the rest of its batch. A batch never holds an email twice: where an email comes again,
+     * a new batch starts, so the later student is upserted over what the earlier one has written.
+     *
+     * @param students  a collection of {@link Student} that have to be stored in a database
+     * @param batchSize a number of rows that are sent and committed together, must be positive
+     * @return a {@link BatchResult} with a number of stored rows and the rows that have been rejected
+     */
+    BatchResult upsertAll(Collection<Student> students, int batchSize);
 }
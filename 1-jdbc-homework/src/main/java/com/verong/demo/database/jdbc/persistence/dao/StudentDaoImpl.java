@@ -0,0 +1,550 @@
+package com.verong.demo.database.jdbc.persistence.dao;
+
+import com.verong.demo.database.jdbc.persistence.model.Student;
+import com.verong.demo.database.jdbc.persistence.model.StudentStatus;
+import lombok.RequiredArgsConstructor;
+
+import javax.sql.DataSource;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * An implementation of {@link StudentDao} using JDBC API. It works with the table {@code students}
+ * that has the columns {@code id} (generated by a database), {@code email} (unique), {@code first_name},
+ * {@code last_name}, {@code birthday}, {@code scholarship}, {@code status} and {@code version}.
+ * <br>
+ * Every write is a single statement whose update count tells whether it has happened: an update or a removal
+ * matches the row by id and, if the student has a version, by version too. Only when nothing has been written,
+ * the version of the row is read to tell a missing student from a stale one. Upserts use
+ * {@code INSERT ... ON CONFLICT} on PostgreSQL and {@code MERGE} on H2, chosen by the product name of the database.
+ */
+@RequiredArgsConstructor
+public class StudentDaoImpl implements StudentDao {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO students(email, first_name, last_name, birthday, scholarship, status, version) VALUES (?, ?, ?, ?, ?, ?, 0)";
+    private static final String SELECT_BY_ID_SQL =
+            "SELECT id, email, first_name, last_name, birthday, scholarship, status, version FROM students WHERE id = ?";
+    private static final String SELECT_ALL_SQL =
+            "SELECT id, email, first_name, last_name, birthday, scholarship, status, version FROM students";
+    private static final String SELECT_ID_RANGE_SQL =
+            "SELECT MIN(id), MAX(id) FROM students";
+    private static final String SELECT_PARTITION_SQL = SELECT_ALL_SQL + " WHERE id BETWEEN ? AND ?";
+    private static final String SELECT_ORDERED_PARTITION_SQL = SELECT_PARTITION_SQL + " ORDER BY id";
+    private static final String SELECT_VERSION_SQL =
+            "SELECT version FROM students WHERE id = ?";
+    private static final String UPDATE_SQL =
+            "UPDATE students SET email = ?, first_name = ?, last_name = ?, birthday = ?, scholarship = ?, status = ?, version = version + 1 WHERE id = ?";
+    private static final String UPDATE_VERSION_SQL = UPDATE_SQL + " AND version = ?";
+    private static final String DELETE_SQL =
+            "DELETE FROM students WHERE id = ?";
+    private static final String DELETE_VERSION_SQL = DELETE_SQL + " AND version = ?";
+    private static final String H2_DATABASE_PRODUCT = "H2";
+    private static final String POSTGRESQL_UPSERT_SQL = """
+            INSERT INTO students(email, first_name, last_name, birthday, scholarship, status, version) VALUES (?, ?, ?, ?, ?, ?, 0)
+            ON CONFLICT (email) DO UPDATE SET first_name = EXCLUDED.first_name, last_name = EXCLUDED.last_name,
+                birthday = EXCLUDED.birthday, scholarship = EXCLUDED.scholarship, status = EXCLUDED.status,
+                version = students.version + 1
+            WHERE CAST(? AS BIGINT) IS NULL OR students.version = ?""";
+    private static final String H2_UPSERT_SQL = """
+            MERGE INTO students USING (SELECT CAST(? AS VARCHAR(255)) AS email, CAST(? AS VARCHAR(255)) AS first_name,
+                CAST(? AS VARCHAR(255)) AS last_name, CAST(? AS DATE) AS birthday, CAST(? AS BOOLEAN) AS scholarship,
+                CAST(? AS VARCHAR(32)) AS status) AS source ON students.email = source.email
+            WHEN MATCHED AND (CAST(? AS BIGINT) IS NULL OR students.version = ?) THEN UPDATE SET
+                first_name = source.first_name, last_name = source.last_name, birthday = source.birthday,
+                scholarship = source.scholarship, status = source.status, version = students.version + 1
+            WHEN NOT MATCHED THEN INSERT (email, first_name, last_name, birthday, scholarship, status, version)
+                VALUES (source.email, source.first_name, source.last_name, source.birthday, source.scholarship,
+                source.status, 0)""";
+    private static final String[] GENERATED_COLUMNS = {"id"};
+    private static final String[] VERSION_COLUMNS = {"version"};
+    private static final String[] UPSERT_RETURNED_COLUMNS = {"id", "version", "email"};
+
+    /**
+     * Chooses the SQL of a bulk operation for the database of the connection.
+     */
+    @FunctionalInterface
+    private interface SqlProvider {
+        String sql(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Writes one chunk of a bulk operation using a prepared statement and commits it. Written rows are counted by
+     * the progress once they are committed, rows that have not been written are added to its failures.
+     */
+    @FunctionalInterface
+    private interface ChunkWriter {
+        void write(Connection connection, PreparedStatement statement, List<Student> chunk,
+                   BatchProgress progress) throws SQLException;
+    }
+
+    /**
+     * The progress of a bulk operation. A row is counted only after the transaction that has written it is committed,
+     * so the count stays right when the operation fails halfway.
+     */
+    private static final class BatchProgress {
+
+        private final List<BatchResult.Failure> failures = new ArrayList<>();
+        private int processed;
+
+        void committed(int rows) {
+            processed += rows;
+        }
+
+        void failed(Student student, Exception cause) {
+            failures.add(new BatchResult.Failure(student, cause));
+        }
+
+        BatchResult result() {
+            return new BatchResult(processed, failures);
+        }
+    }
+
+    private final DataSource dataSource;
+
+    @Override
+    public void create(Student student) {
+        Objects.requireNonNull(student, "Student must not be null");
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_SQL, GENERATED_COLUMNS)) {
+            bindColumns(statement, student);
+            statement.executeUpdate();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new DaoOperationException("No id has been generated for student: %s".formatted(student));
+                }
+                student.setId(keys.getLong(1));
+                student.setVersion(0L);
+            }
+        } catch (SQLException e) {
+            throw new DaoOperationException("Cannot store student: %s".formatted(student), e);
+        }
+    }
+
+    @Override
+    public BatchResult createAll(Collection<Student> students, int batchSize) {
+        return writeAll(students, batchSize, connection -> INSERT_SQL, GENERATED_COLUMNS, this::insertChunk,
+                "Cannot store students, %d of them have been stored");
+    }
+
+    @Override
+    public BatchResult upsertAll(Collection<Student> students, int batchSize) {
+        return writeAll(students, batchSize, this::upsertSql, UPSERT_RETURNED_COLUMNS, this::upsertChunk,
+                "Cannot upsert students, %d of them have been stored");
+    }
+
+    private BatchResult writeAll(Collection<Student> students, int batchSize, SqlProvider sqlProvider,
+                                 String[] returnedColumns, ChunkWriter chunkWriter, String errorMessage) {
+        Objects.requireNonNull(students, "Students must not be null");
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive, but was %d".formatted(batchSize));
+        }
+        var progress = new BatchProgress();
+        try (Connection connection = dataSource.getConnection()) {
+            var autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sqlProvider.sql(connection), returnedColumns)) {
+                var chunk = new ArrayList<Student>(Math.min(batchSize, students.size()));
+                for (Student student : students) {
+                    chunk.add(student);
+                    if (chunk.size() == batchSize) {
+                        chunkWriter.write(connection, statement, chunk, progress);
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    chunkWriter.write(connection, statement, chunk, progress);
+                }
+            } catch (SQLException | RuntimeException e) {
+                // restoring auto-commit would commit whatever the failed chunk has written so far
+                rollback(connection, e);
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DaoOperationException(errorMessage.formatted(progress.processed), e);
+        }
+        return progress.result();
+    }
+
+    private static void rollback(Connection connection, Throwable failure) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Sends the chunk as one JDBC batch and commits it. Ids are set back only after a successful commit,
+     * so a rolled back chunk never leaves ids of rows that do not exist.
+     */
+    private void insertChunk(Connection connection, PreparedStatement statement, List<Student> chunk,
+                             BatchProgress progress) throws SQLException {
+        for (Student student : chunk) {
+            bindColumns(statement, student);
+            statement.addBatch();
+        }
+        long[] ids;
+        try {
+            statement.executeBatch();
+            ids = fetchGeneratedIds(statement, chunk.size());
+            connection.commit();
+        } catch (BatchUpdateException e) {
+            connection.rollback();
+            statement.clearBatch();
+            insertOneByOne(connection, statement, chunk, progress);
+            return;
+        }
+        progress.committed(chunk.size());
+        for (int i = 0; i < ids.length; i++) {
+            chunk.get(i).setId(ids[i]);
+            chunk.get(i).setVersion(0L);
+        }
+    }
+
+    private void insertOneByOne(Connection connection, PreparedStatement statement, List<Student> chunk,
+                                BatchProgress progress) throws SQLException {
+        for (Student student : chunk) {
+            try {
+                bindColumns(statement, student);
+                statement.executeUpdate();
+                var id = fetchGeneratedIds(statement, 1)[0];
+                connection.commit();
+                progress.committed(1);
+                student.setId(id);
+                student.setVersion(0L);
+            } catch (SQLException e) {
+                connection.rollback();
+                progress.failed(student, e);
+            }
+        }
+    }
+
+    private long[] fetchGeneratedIds(PreparedStatement statement, int expected) throws SQLException {
+        var ids = new long[expected];
+        var count = 0;
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            while (keys.next() && count < expected) {
+                ids[count++] = keys.getLong(1);
+            }
+        }
+        if (count != expected) {
+            throw new SQLException("Expected %d generated ids, but a database returned %d".formatted(expected, count));
+        }
+        return ids;
+    }
+
+    /**
+     * Sends the chunk as JDBC batches and commits each of them. A batch holds every email once, so the chunk is split
+     * where an email comes again: a later upsert of a student then sees what the earlier one has written.
+     */
+    private void upsertChunk(Connection connection, PreparedStatement statement, List<Student> chunk,
+                             BatchProgress progress) throws SQLException {
+        var emails = new HashSet<String>();
+        var from = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            if (!emails.add(chunk.get(i).getEmail())) {
+                upsertBatch(connection, statement, chunk.subList(from, i), progress);
+                emails.clear();
+                emails.add(chunk.get(i).getEmail());
+                from = i;
+            }
+        }
+        upsertBatch(connection, statement, chunk.subList(from, chunk.size()), progress);
+    }
+
+    /**
+     * Sends students with distinct emails as one JDBC batch and commits it. A stale student is skipped by its
+     * statement, so it has no returned row: the returned rows are matched to the students by email.
+     */
+    private void upsertBatch(Connection connection, PreparedStatement statement, List<Student> batch,
+                             BatchProgress progress) throws SQLException {
+        for (Student student : batch) {
+            bindUpsert(statement, student);
+            statement.addBatch();
+        }
+        var returned = new HashMap<String, UpsertedRow>(batch.size() * 4 / 3 + 1);
+        try {
+            statement.executeBatch();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                while (keys.next()) {
+                    var row = new UpsertedRow(keys.getLong(1), keys.getLong(2), keys.getString(3));
+                    if (returned.put(row.email(), row) != null) {
+                        throw new SQLException("More than one row has been returned for email = %s".formatted(row.email()));
+                    }
+                }
+            }
+            connection.commit();
+        } catch (BatchUpdateException e) {
+            connection.rollback();
+            statement.clearBatch();
+            upsertOneByOne(connection, statement, batch, progress);
+            return;
+        }
+        progress.committed(returned.size());
+        for (Student student : batch) {
+            var row = returned.get(student.getEmail());
+            if (row != null) {
+                row.setTo(student);
+            } else if (student.getVersion() != null) {
+                progress.failed(student, staleUpsert(student));
+            } else {
+                progress.failed(student,
+                        new DaoOperationException("No row has been returned for student: %s".formatted(student)));
+            }
+        }
+    }
+
+    private void upsertOneByOne(Connection connection, PreparedStatement statement, List<Student> chunk,
+                                BatchProgress progress) throws SQLException {
+        for (Student student : chunk) {
+            try {
+                var row = executeUpsert(statement, student);
+                connection.commit();
+                progress.committed(1);
+                row.setTo(student);
+            } catch (StaleStudentException | SQLException e) {
+                connection.rollback();
+                progress.failed(student, e);
+            }
+        }
+    }
+
+    @Override
+    public void upsert(Student student) {
+        Objects.requireNonNull(student, "Student must not be null");
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(upsertSql(connection), UPSERT_RETURNED_COLUMNS)) {
+            executeUpsert(statement, student).setTo(student);
+        } catch (SQLException e) {
+            throw new DaoOperationException("Cannot upsert student: %s".formatted(student), e);
+        }
+    }
+
+    private String upsertSql(Connection connection) throws SQLException {
+        return H2_DATABASE_PRODUCT.equals(connection.getMetaData().getDatabaseProductName())
+                ? H2_UPSERT_SQL
+                : POSTGRESQL_UPSERT_SQL;
+    }
+
+    private UpsertedRow executeUpsert(PreparedStatement statement, Student student) throws SQLException {
+        bindUpsert(statement, student);
+        if (statement.executeUpdate() == 0) {
+            throw staleUpsert(student);
+        }
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            if (!keys.next()) {
+                throw new SQLException("No id has been returned for student: %s".formatted(student));
+            }
+            return new UpsertedRow(keys.getLong(1), keys.getLong(2), keys.getString(3));
+        }
+    }
+
+    private StaleStudentException staleUpsert(Student student) {
+        return new StaleStudentException("Student with email = %s has been updated since version %d"
+                .formatted(student.getEmail(), student.getVersion()), student.getId(), student.getVersion());
+    }
+
+    /**
+     * The columns returned by an upsert; they are set to the student only after its transaction is committed.
+     */
+    private record UpsertedRow(long id, long version, String email) {
+
+        void setTo(Student student) {
+            student.setId(id);
+            student.setVersion(version);
+        }
+    }
+
+    @Override
+    public Optional<Student> findById(Long id) {
+        Objects.requireNonNull(id, "Id must not be null");
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_BY_ID_SQL)) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? Optional.of(mapRow(resultSet)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new DaoOperationException("Cannot find student by id = %d".formatted(id), e);
+        }
+    }
+
+    @Override
+    public List<Student> findAll() {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_ALL_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            var students = new ArrayList<Student>();
+            while (resultSet.next()) {
+                students.add(mapRow(resultSet));
+            }
+            return students;
+        } catch (SQLException e) {
+            throw new DaoOperationException("Cannot find all students", e);
+        }
+    }
+
+    @Override
+    public Stream<Student> streamAll(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive, but was %d".formatted(fetchSize));
+        }
+        try {
+            var cursor = StudentCursor.open(dataSource.getConnection(), SELECT_ALL_SQL, fetchSize,
+                    statement -> {
+                    }, this::mapRow);
+            return cursor.stream();
+        } catch (SQLException e) {
+            throw new DaoOperationException("Cannot stream all students", e);
+        }
+    }
+
+    @Override
+    public Stream<Student> streamAllPartitioned(int partitions, int fetchSize, boolean ordered) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Number of partitions must be positive, but was %d".formatted(partitions));
+        }
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive, but was %d".formatted(fetchSize));
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_ID_RANGE_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            long lowestId = resultSet.getLong(1);
+            if (resultSet.wasNull()) {
+                return Stream.<Student>empty().parallel();
+            }
+            long highestId = resultSet.getLong(2);
+            return StudentPartitionSpliterator.stream(dataSource,
+                    ordered ? SELECT_ORDERED_PARTITION_SQL : SELECT_PARTITION_SQL, fetchSize, ordered, this::mapRow,
+                    lowestId, highestId, partitions);
+        } catch (SQLException e) {
+            throw new DaoOperationException("Cannot stream all students by %d partitions".formatted(partitions), e);
+        }
+    }
+
+    @Override
+    public void update(Student student) {
+        var id = requireId(student);
+        var version = student.getVersion();
+        long updatedVersion;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = version == null
+                     ? connection.prepareStatement(UPDATE_SQL, VERSION_COLUMNS)
+                     : connection.prepareStatement(UPDATE_VERSION_SQL)) {
+            bindColumns(statement, student);
+            statement.setLong(7, id);
+            if (version != null) {
+                statement.setLong(8, version);
+            }
+            if (statement.executeUpdate() == 0) {
+                throw nothingWritten(connection, id, version);
+            }
+            // an unversioned update does not know the version it leaves behind, so the statement returns it
+            updatedVersion = version == null ? fetchUpdatedVersion(statement, student) : version + 1;
+        } catch (SQLException e) {
+            throw new DaoOperationException("Cannot update student: %s".formatted(student), e);
+        }
+        student.setVersion(updatedVersion);
+    }
+
+    private long fetchUpdatedVersion(PreparedStatement statement, Student student) throws SQLException {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            if (!keys.next()) {
+                throw new SQLException("No version has been returned for student: %s".formatted(student));
+            }
+            return keys.getLong(1);
+        }
+    }
+
+    @Override
+    public void remove(Student student) {
+        var id = requireId(student);
+        var version = student.getVersion();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(version == null ? DELETE_SQL : DELETE_VERSION_SQL)) {
+            statement.setLong(1, id);
+            if (version != null) {
+                statement.setLong(2, version);
+            }
+            if (statement.executeUpdate() == 0) {
+                throw nothingWritten(connection, id, version);
+            }
+        } catch (SQLException e) {
+            throw new DaoOperationException("Cannot remove student: %s".formatted(student), e);
+        }
+    }
+
+    /**
+     * Tells why a write matched no row. It runs only after a failed write, so the write path stays one statement.
+     */
+    private DaoOperationException nothingWritten(Connection connection, long id, Long version) throws SQLException {
+        if (version == null) {
+            return new StudentNotFoundException(id);
+        }
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_VERSION_SQL)) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return new StudentNotFoundException(id);
+                }
+                return new StaleStudentException("Student with id = %d has version %d, but version %d has been expected"
+                        .formatted(id, resultSet.getLong(1), version), id, version);
+            }
+        }
+    }
+
+    private Long requireId(Student student) {
+        Objects.requireNonNull(student, "Student must not be null");
+        if (student.getId() == null) {
+            throw new DaoOperationException("Student id must not be null: %s".formatted(student));
+        }
+        return student.getId();
+    }
+
+    private void bindColumns(PreparedStatement statement, Student student) throws SQLException {
+        statement.setString(1, student.getEmail());
+        statement.setString(2, student.getFirstName());
+        statement.setString(3, student.getLastName());
+        statement.setObject(4, student.getBirthday());
+        statement.setObject(5, student.getScholarship());
+        statement.setString(6, student.getStatus() == null ? null : student.getStatus().name());
+    }
+
+    private void bindUpsert(PreparedStatement statement, Student student) throws SQLException {
+        bindColumns(statement, student);
+        statement.setObject(7, student.getVersion(), Types.BIGINT);
+        statement.setObject(8, student.getVersion(), Types.BIGINT);
+    }
+
+    private Student mapRow(ResultSet resultSet) throws SQLException {
+        var status = resultSet.getString("status");
+        return Student.builder()
+                .id(resultSet.getLong("id"))
+                .email(resultSet.getString("email"))
+                .firstName(resultSet.getString("first_name"))
+                .lastName(resultSet.getString("last_name"))
+                .birthday(resultSet.getObject("birthday", LocalDate.class))
+                .scholarship(resultSet.getObject("scholarship", Boolean.class))
+                .status(status == null ? null : StudentStatus.valueOf(status))
+                .version(resultSet.getLong("version"))
+                .build();
+    }
+}
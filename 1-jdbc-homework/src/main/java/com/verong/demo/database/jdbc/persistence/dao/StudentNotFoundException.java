@@ -0,0 +1,18 @@
+package com.verong.demo.database.jdbc.persistence.dao;
+
+import lombok.Getter;
+
+/**
+ * An exception that is thrown by {@link StudentDao} when a student that has to be updated or removed
+ * does not exist in a database.
+ */
+@Getter
+public class StudentNotFoundException extends DaoOperationException {
+
+    private final long id;
+
+    public StudentNotFoundException(long id) {
+        super("Student with id = %d does not exist".formatted(id));
+        this.id = id;
+    }
+}
@@ -0,0 +1,173 @@
+package com.verong.demo.database.jdbc.persistence.dao;
+
+import com.verong.demo.database.jdbc.persistence.model.Student;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads students by partitions, ranges of ids of the same width that are read one after another, each by its own
+ * {@link StudentCursor} and so on its own connection. {@link #trySplit()} hands the first half of the partitions
+ * that have not been started to a new spliterator, so a parallel stream reads and maps partitions on several threads
+ * and connections at once, while every open partition keeps only about {@code fetchSize} rows in memory.
+ * <p>
+ * All spliterators of one scan share a {@link Scan} that closes the cursors left open when the stream is closed,
+ * e.g. after a short-circuiting operation has stopped reading in the middle of a partition.
+ */
+final class StudentPartitionSpliterator implements Spliterator<Student> {
+
+    private final Scan scan;
+    private int fromPartition;
+    private final int toPartition;
+    private StudentCursor cursor;
+
+    private StudentPartitionSpliterator(Scan scan, int fromPartition, int toPartition) {
+        this.scan = scan;
+        this.fromPartition = fromPartition;
+        this.toPartition = toPartition;
+    }
+
+    /**
+     * Returns a parallel stream of the students with ids from {@code lowestId} to {@code highestId} inclusive, split
+     * into at most {@code partitions} partitions. The query has to select the rows with ids between its two
+     * parameters inclusive; when the stream is ordered, the query has to order them by id as well.
+     */
+    static Stream<Student> stream(DataSource dataSource, String sql, int fetchSize, boolean ordered,
+                                  StudentCursor.RowMapper rowMapper, long lowestId, long highestId, int partitions) {
+        long width = Math.addExact(Math.subtractExact(highestId, lowestId), 1);
+        int count = (int) Math.min(partitions, width);
+        long step = width / count;
+        long remainder = width % count;
+        // partition i holds the ids from lowestIds[i] to lowestIds[i + 1] - 1
+        var lowestIds = new long[count + 1];
+        for (int i = 0; i <= count; i++) {
+            lowestIds[i] = lowestId + step * i + Math.min(i, remainder);
+        }
+        var scan = new Scan(dataSource, sql, fetchSize, ordered, rowMapper, lowestIds);
+        var stream = StreamSupport.stream(new StudentPartitionSpliterator(scan, 0, count), true).onClose(scan::close);
+        return ordered ? stream : stream.unordered();
+    }
+
+    @Override
+    public synchronized boolean tryAdvance(Consumer<? super Student> action) {
+        while (true) {
+            if (cursor == null) {
+                if (fromPartition == toPartition || scan.closed) {
+                    return false;
+                }
+                // registered before the cursor is opened, so a scan closed meanwhile either sees this spliterator
+                // and waits for it to close its cursor, or is seen closed here
+                scan.openSpliterators.add(this);
+                if (scan.closed) {
+                    scan.openSpliterators.remove(this);
+                    return false;
+                }
+                cursor = scan.open(fromPartition);
+            }
+            if (cursor.tryAdvance(action)) {
+                return true;
+            }
+            // the cursor has released its connection after the last row
+            scan.openSpliterators.remove(this);
+            cursor = null;
+            fromPartition++;
+        }
+    }
+
+    /**
+     * Splits off the first half of the partitions; a spliterator that has started reading is not split, because
+     * the partitions it has left are not a prefix of its students any more.
+     */
+    @Override
+    public synchronized Spliterator<Student> trySplit() {
+        int partitions = toPartition - fromPartition;
+        if (cursor != null || partitions < 2) {
+            return null;
+        }
+        int middle = fromPartition + partitions / 2;
+        var prefix = new StudentPartitionSpliterator(scan, fromPartition, middle);
+        fromPartition = middle;
+        return prefix;
+    }
+
+    /**
+     * Returns the number of ids in the partitions that have not been finished; it is greater than the number of
+     * students when some ids are not used.
+     */
+    @Override
+    public synchronized long estimateSize() {
+        return scan.lowestIds[toPartition] - scan.lowestIds[fromPartition];
+    }
+
+    @Override
+    public int characteristics() {
+        return scan.ordered ? Spliterator.ORDERED | Spliterator.NONNULL : Spliterator.NONNULL;
+    }
+
+    private synchronized void close() {
+        if (cursor != null) {
+            try {
+                cursor.close();
+            } finally {
+                cursor = null;
+            }
+        }
+    }
+
+    private static final class Scan {
+
+        private final DataSource dataSource;
+        private final String sql;
+        private final int fetchSize;
+        private final boolean ordered;
+        private final StudentCursor.RowMapper rowMapper;
+        private final long[] lowestIds;
+        private final Set<StudentPartitionSpliterator> openSpliterators = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed;
+
+        private Scan(DataSource dataSource, String sql, int fetchSize, boolean ordered,
+                     StudentCursor.RowMapper rowMapper, long[] lowestIds) {
+            this.dataSource = dataSource;
+            this.sql = sql;
+            this.fetchSize = fetchSize;
+            this.ordered = ordered;
+            this.rowMapper = rowMapper;
+            this.lowestIds = lowestIds;
+        }
+
+        private StudentCursor open(int partition) {
+            long fromId = lowestIds[partition];
+            long toId = lowestIds[partition + 1] - 1;
+            try {
+                return StudentCursor.open(dataSource.getConnection(), sql, fetchSize, statement -> {
+                    statement.setLong(1, fromId);
+                    statement.setLong(2, toId);
+                }, rowMapper);
+            } catch (SQLException e) {
+                throw new DaoOperationException("Cannot read students with ids from %d to %d".formatted(fromId, toId), e);
+            }
+        }
+
+        private void close() {
+            closed = true;
+            var exception = new DaoOperationException("Cannot release partitioned student scan");
+            for (var spliterator : openSpliterators) {
+                try {
+                    spliterator.close();
+                } catch (RuntimeException e) {
+                    exception.addSuppressed(e);
+                }
+            }
+            openSpliterators.clear();
+            if (exception.getSuppressed().length > 0) {
+                throw exception;
+            }
+        }
+    }
+}
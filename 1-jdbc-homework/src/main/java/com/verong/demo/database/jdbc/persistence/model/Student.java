@@ -17,4 +17,10 @@ public class Student {
     private LocalDate birthday;
     private Boolean scholarship;
     private StudentStatus status;
+    /**
+     * The number of times the row has been updated; it is set by {@code StudentDao} and checked on every write,
+     * so a write based on an outdated copy of a student fails instead of overwriting a newer change.
+     * {@code null} means that the row is written whatever its version is.
+     */
+    private Long version;
 }
@@ -0,0 +1,149 @@
+package com.verong.demo.database.jdbc.persistence.pool;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A low-contention container of {@link PoolEntry} objects.
+ * <br>
+ * A borrower looks for a free entry in the following order:
+ * <ul>
+ *     <li>entries that the current platform thread has returned recently (no contention at all);</li>
+ *     <li>the shared copy-on-write list of all entries, claiming one by a compare-and-set of its state;</li>
+ *     <li>a {@link SynchronousQueue} that returners use to hand an entry over to waiting borrowers directly.</li>
+ * </ul>
+ * Virtual threads skip the thread-local step, since they are usually short-lived and rarely borrow twice.
+ */
+final class ConnectionBag {
+
+    private static final int THREAD_LIST_LIMIT = 16;
+
+    private final CopyOnWriteArrayList<PoolEntry> sharedList = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<ArrayDeque<WeakReference<PoolEntry>>> threadList =
+            ThreadLocal.withInitial(() -> new ArrayDeque<>(THREAD_LIST_LIMIT));
+    private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<>(true);
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * Claims a free entry without waiting.
+     *
+     * @return a claimed entry (in state {@link PoolEntry#IN_USE}) or {@code null} if all entries are in use
+     */
+    PoolEntry poll() {
+        if (!Thread.currentThread().isVirtual()) {
+            var recent = threadList.get();
+            WeakReference<PoolEntry> reference;
+            while ((reference = recent.pollLast()) != null) {
+                var entry = reference.get();
+                if (entry != null && entry.compareAndSet(PoolEntry.NOT_IN_USE, PoolEntry.IN_USE)) {
+                    return entry;
+                }
+            }
+        }
+        return scanShared();
+    }
+
+    /**
+     * Waits for an entry that is returned or added by another thread.
+     *
+     * @return a claimed entry or {@code null} if the timeout has elapsed
+     */
+    PoolEntry await(long timeoutNanos) throws InterruptedException {
+        waiters.incrementAndGet();
+        try {
+            // an entry may have been returned between poll() and registering as a waiter
+            var entry = scanShared();
+            if (entry != null) {
+                return entry;
+            }
+            var deadline = System.nanoTime() + timeoutNanos;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (entry == null || entry.compareAndSet(PoolEntry.NOT_IN_USE, PoolEntry.IN_USE)) {
+                    return entry;
+                }
+            }
+            return null;
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Makes a returned entry available again and hands it over to a waiting borrower if there is one.
+     */
+    void requite(PoolEntry entry) {
+        entry.setState(PoolEntry.NOT_IN_USE);
+        if (offerToWaiters(entry)) {
+            return;
+        }
+        if (!Thread.currentThread().isVirtual()) {
+            var recent = threadList.get();
+            if (recent.size() == THREAD_LIST_LIMIT) {
+                recent.pollFirst();
+            }
+            recent.addLast(new WeakReference<>(entry));
+        }
+    }
+
+    /**
+     * Adds a new entry to the bag. An entry that is added in state {@link PoolEntry#NOT_IN_USE} is offered
+     * to waiting borrowers right away.
+     */
+    void add(PoolEntry entry) {
+        sharedList.add(entry);
+        if (entry.state() == PoolEntry.NOT_IN_USE) {
+            offerToWaiters(entry);
+        }
+    }
+
+    void remove(PoolEntry entry) {
+        entry.setState(PoolEntry.REMOVED);
+        sharedList.remove(entry);
+    }
+
+    List<PoolEntry> entries() {
+        return sharedList;
+    }
+
+    int waiters() {
+        return waiters.get();
+    }
+
+    /**
+     * Tries to claim an idle entry on behalf of the pool itself (e.g. to close it by the housekeeper).
+     */
+    boolean reserve(PoolEntry entry) {
+        return entry.compareAndSet(PoolEntry.NOT_IN_USE, PoolEntry.IN_USE);
+    }
+
+    private PoolEntry scanShared() {
+        for (PoolEntry entry : sharedList) {
+            if (entry.compareAndSet(PoolEntry.NOT_IN_USE, PoolEntry.IN_USE)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private boolean offerToWaiters(PoolEntry entry) {
+        for (int i = 0; waiters.get() > 0; i++) {
+            if (entry.state() != PoolEntry.NOT_IN_USE || handoffQueue.offer(entry)) {
+                return true;
+            }
+            if ((i & 0xff) == 0xff) {
+                LockSupport.parkNanos(10_000);
+            } else {
+                Thread.yield();
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,71 @@
+package com.verong.demo.database.jdbc.persistence.pool;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Settings of {@link PooledDataSource}. Only {@code url} (or a target {@link javax.sql.DataSource} passed to the pool)
+ * is required, all other settings have defaults that suit a small application.
+ */
+@Value
+@Builder
+public class PoolConfig {
+
+    /**
+     * JDBC URL that is used to open physical connections using {@link java.sql.DriverManager}.
+     */
+    String url;
+
+    String username;
+
+    String password;
+
+    /**
+     * The maximum number of physical connections (both idle and in use) that the pool can hold.
+     */
+    @Builder.Default
+    int maximumPoolSize = 10;
+
+    /**
+     * How long {@link PooledDataSource#getConnection()} waits for a free connection before it fails.
+     */
+    @Builder.Default
+    Duration connectionTimeout = Duration.ofSeconds(30);
+
+    /**
+     * A connection that has been idle for longer than this is checked with {@link java.sql.Connection#isValid(int)}
+     * before it is handed out. Connections that have just been returned are handed out without the check.
+     */
+    @Builder.Default
+    Duration validationIdleThreshold = Duration.ofMillis(500);
+
+    /**
+     * How long a validation query may take.
+     */
+    @Builder.Default
+    Duration validationTimeout = Duration.ofSeconds(5);
+
+    /**
+     * The maximum time a physical connection lives in the pool. A connection that reaches it is closed
+     * as soon as it is not in use. {@link Duration#ZERO} means that connections live forever.
+     */
+    @Builder.Default
+    Duration maxLifetime = Duration.ofMinutes(30);
+
+    /**
+     * A connection that is not returned to the pool in this time is reported as a possible leak together
+     * with the stack trace of the code that has borrowed it. {@link Duration#ZERO} disables leak detection.
+     */
+    @Builder.Default
+    Duration leakDetectionThreshold = Duration.ZERO;
+
+    /**
+     * The maximum number of prepared statements cached per physical connection (least recently used ones are
+     * closed first). Only statements prepared by SQL text (optionally with generated keys) are cached.
+     * {@code 0} disables the cache.
+     */
+    @Builder.Default
+    int statementCacheSize = 32;
+}
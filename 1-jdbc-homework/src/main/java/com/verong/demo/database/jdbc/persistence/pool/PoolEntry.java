@@ -0,0 +1,67 @@
+package com.verong.demo.database.jdbc.persistence.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A physical connection held by {@link PooledDataSource} together with its pool state. The state is changed
+ * only by compare-and-set, so a borrower that wins the CAS owns the entry without taking any lock.
+ */
+final class PoolEntry {
+
+    static final int NOT_IN_USE = 0;
+    static final int IN_USE = 1;
+    static final int REMOVED = -1;
+
+    final Connection connection;
+    final long expiresAtNanos;
+    final boolean defaultAutoCommit;
+    final boolean defaultReadOnly;
+    final int defaultTransactionIsolation;
+    final StatementCache statementCache;
+
+    private final AtomicInteger state;
+    volatile long lastAccessedNanos;
+    volatile boolean evicted;
+    ScheduledFuture<?> leakTask;
+
+    PoolEntry(Connection connection, long expiresAtNanos, int initialState, StatementCache statementCache)
+            throws SQLException {
+        this.connection = connection;
+        this.statementCache = statementCache;
+        this.expiresAtNanos = expiresAtNanos;
+        this.defaultAutoCommit = connection.getAutoCommit();
+        this.defaultReadOnly = connection.isReadOnly();
+        this.defaultTransactionIsolation = connection.getTransactionIsolation();
+        this.state = new AtomicInteger(initialState);
+        this.lastAccessedNanos = System.nanoTime();
+    }
+
+    boolean compareAndSet(int expected, int newState) {
+        return state.compareAndSet(expected, newState);
+    }
+
+    int state() {
+        return state.get();
+    }
+
+    void setState(int newState) {
+        state.set(newState);
+    }
+
+    /**
+     * Closes cached statements and the physical connection.
+     */
+    void closeConnection() throws SQLException {
+        if (statementCache != null) {
+            statementCache.closeAll();
+        }
+        connection.close();
+    }
+
+    boolean isExpired(long nowNanos) {
+        return evicted || (expiresAtNanos != 0 && nowNanos - expiresAtNanos >= 0);
+    }
+}
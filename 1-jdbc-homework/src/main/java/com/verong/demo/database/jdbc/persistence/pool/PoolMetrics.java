@@ -0,0 +1,44 @@
+package com.verong.demo.database.jdbc.persistence.pool;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of the state of {@link PooledDataSource}. Gauges ({@code active}, {@code idle}, {@code total},
+ * {@code pending}) describe the moment the snapshot has been taken, counters are accumulated since the pool
+ * has been created.
+ *
+ * @param active             connections that are currently borrowed
+ * @param idle               connections that are ready to be borrowed
+ * @param total              all physical connections held by the pool
+ * @param pending            threads that are currently waiting for a connection
+ * @param borrowed           number of successful {@code getConnection()} calls
+ * @param connectionTimeouts number of {@code getConnection()} calls that have failed by timeout
+ * @param leaksDetected      number of connections that have been reported as possible leaks
+ * @param totalWaitTime      sum of the time that all successful borrowers have waited for a connection
+ * @param maxWaitTime        the longest time a successful borrower has waited for a connection
+ * @param statementCacheHits   number of prepared statements that have been taken from a statement cache
+ * @param statementCacheMisses number of prepared statements that have been prepared by a driver
+ */
+public record PoolMetrics(
+        int active,
+        int idle,
+        int total,
+        int pending,
+        long borrowed,
+        long connectionTimeouts,
+        long leaksDetected,
+        Duration totalWaitTime,
+        Duration maxWaitTime,
+        long statementCacheHits,
+        long statementCacheMisses
+) {
+
+    public double statementCacheHitRatio() {
+        var requests = statementCacheHits + statementCacheMisses;
+        return requests == 0 ? 0 : (double) statementCacheHits / requests;
+    }
+
+    public Duration averageWaitTime() {
+        return borrowed == 0 ? Duration.ZERO : totalWaitTime.dividedBy(borrowed);
+    }
+}
@@ -0,0 +1,364 @@
+package com.verong.demo.database.jdbc.persistence.pool;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * A {@link DataSource} that keeps a bounded number of physical connections open and hands them out again and again,
+ * so a DAO call does not pay for a new connection handshake.
+ * <br>
+ * <br>
+ * Borrowing is lock-free in the common case (see {@link ConnectionBag}) and never pins a virtual thread,
+ * so the pool can be used by hundreds of virtual threads at once. Physical connections are:
+ * <ul>
+ *     <li>opened on demand up to {@link PoolConfig#getMaximumPoolSize()};</li>
+ *     <li>validated on borrow only if they have been idle longer than {@link PoolConfig#getValidationIdleThreshold()};</li>
+ *     <li>closed when they reach {@link PoolConfig#getMaxLifetime()} or report a connection error;</li>
+ *     <li>reported as possible leaks when held longer than {@link PoolConfig#getLeakDetectionThreshold()};</li>
+ *     <li>caching up to {@link PoolConfig#getStatementCacheSize()} prepared statements (see {@link StatementCache}).</li>
+ * </ul>
+ * The pool has to be closed when an application stops.
+ */
+public class PooledDataSource implements DataSource, AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(PooledDataSource.class.getName());
+    private static final Duration HOUSEKEEPING_PERIOD = Duration.ofSeconds(30);
+
+    private final DataSource target;
+    private final PoolConfig config;
+    private final ConnectionBag bag = new ConnectionBag();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder connectionTimeouts = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    private volatile boolean closed;
+    private volatile Duration connectionTimeout;
+    private PrintWriter logWriter;
+
+    /**
+     * Creates a pool that opens physical connections using {@link DriverManager} and
+     * {@link PoolConfig#getUrl()}, {@link PoolConfig#getUsername()}, {@link PoolConfig#getPassword()}.
+     */
+    public PooledDataSource(PoolConfig config) {
+        this(null, config);
+    }
+
+    /**
+     * Creates a pool that opens physical connections using the passed (not pooled) {@link DataSource}.
+     * If {@code target} is {@code null}, {@link DriverManager} is used.
+     */
+    public PooledDataSource(DataSource target, PoolConfig config) {
+        Objects.requireNonNull(config, "Pool config must not be null");
+        if (target == null && (config.getUrl() == null || config.getUrl().isBlank())) {
+            throw new IllegalArgumentException("Either a target DataSource or a JDBC URL has to be configured");
+        }
+        if (config.getStatementCacheSize() < 0) {
+            throw new IllegalArgumentException("Statement cache size must not be negative, but was %d"
+                    .formatted(config.getStatementCacheSize()));
+        }
+        if (config.getMaximumPoolSize() <= 0) {
+            throw new IllegalArgumentException("Maximum pool size must be positive, but was %d"
+                    .formatted(config.getMaximumPoolSize()));
+        }
+        this.target = target;
+        this.config = config;
+        this.connectionTimeout = config.getConnectionTimeout();
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "pooled-data-source-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::retireExpiredIdle, HOUSEKEEPING_PERIOD.toMillis(),
+                HOUSEKEEPING_PERIOD.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        var startNanos = System.nanoTime();
+        var deadline = startNanos + connectionTimeout.toNanos();
+        while (!closed) {
+            var entry = bag.poll();
+            if (entry == null) {
+                entry = createEntryIfPossible(PoolEntry.IN_USE);
+            }
+            if (entry == null) {
+                entry = awaitEntry(deadline - System.nanoTime());
+            }
+            if (entry == null) {
+                connectionTimeouts.increment();
+                throw new SQLTransientConnectionException("Connection is not available, request timed out after %d ms (%s)"
+                        .formatted(Duration.ofNanos(System.nanoTime() - startNanos).toMillis(), getMetrics()));
+            }
+            if (isUsable(entry)) {
+                return handOut(entry, startNanos);
+            }
+            retire(entry);
+        }
+        throw new SQLException("Pool has been closed");
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The pool uses credentials from its configuration only");
+    }
+
+    /**
+     * Returns a snapshot of the current state and accumulated statistics of the pool.
+     */
+    public PoolMetrics getMetrics() {
+        var active = 0;
+        var idle = 0;
+        for (PoolEntry entry : bag.entries()) {
+            switch (entry.state()) {
+                case PoolEntry.IN_USE -> active++;
+                case PoolEntry.NOT_IN_USE -> idle++;
+                default -> {
+                }
+            }
+        }
+        return new PoolMetrics(active, idle, totalConnections.get(), bag.waiters(),
+                borrowed.sum(), connectionTimeouts.sum(), leaksDetected.sum(),
+                Duration.ofNanos(totalWaitNanos.sum()), Duration.ofNanos(maxWaitNanos.get()),
+                statementCacheHits.sum(), statementCacheMisses.sum());
+    }
+
+    /**
+     * Closes all idle connections and stops housekeeping. Connections that are in use are closed
+     * when they are returned.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        housekeeper.shutdownNow();
+        for (PoolEntry entry : bag.entries()) {
+            if (bag.reserve(entry)) {
+                retire(entry);
+            }
+        }
+    }
+
+    /**
+     * Takes back a connection that has been closed by a borrower.
+     */
+    void release(PoolEntry entry) {
+        if (entry.leakTask != null) {
+            entry.leakTask.cancel(false);
+            entry.leakTask = null;
+        }
+        var now = System.nanoTime();
+        entry.lastAccessedNanos = now;
+        if (closed || entry.isExpired(now)) {
+            retire(entry);
+            return;
+        }
+        bag.requite(entry);
+    }
+
+    private PoolEntry awaitEntry(long timeoutNanos) throws SQLException {
+        if (timeoutNanos <= 0) {
+            return null;
+        }
+        try {
+            return bag.await(timeoutNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+    }
+
+    private boolean isUsable(PoolEntry entry) {
+        var now = System.nanoTime();
+        if (entry.isExpired(now)) {
+            return false;
+        }
+        if (now - entry.lastAccessedNanos < config.getValidationIdleThreshold().toNanos()) {
+            return true;
+        }
+        try {
+            return entry.connection.isValid((int) Math.max(1, config.getValidationTimeout().toSeconds()));
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection handOut(PoolEntry entry, long startNanos) {
+        var waited = System.nanoTime() - startNanos;
+        borrowed.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        var leakThreshold = config.getLeakDetectionThreshold();
+        if (!leakThreshold.isZero()) {
+            var trace = new Exception("Apparent connection leak, the connection has been borrowed here");
+            entry.leakTask = housekeeper.schedule(() -> reportLeak(trace), leakThreshold.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return ProxyConnectionHandler.newProxy(this, entry);
+    }
+
+    private void reportLeak(Exception trace) {
+        leaksDetected.increment();
+        LOGGER.log(System.Logger.Level.WARNING, "Connection has not been returned to the pool in %d ms"
+                .formatted(config.getLeakDetectionThreshold().toMillis()), trace);
+    }
+
+    /**
+     * Opens a new physical connection if the pool has not reached its maximum size yet.
+     */
+    private PoolEntry createEntryIfPossible(int initialState) throws SQLException {
+        int total;
+        do {
+            total = totalConnections.get();
+            if (total >= config.getMaximumPoolSize()) {
+                return null;
+            }
+        } while (!totalConnections.compareAndSet(total, total + 1));
+        Connection connection = null;
+        try {
+            connection = target != null
+                    ? target.getConnection()
+                    : DriverManager.getConnection(config.getUrl(), config.getUsername(), config.getPassword());
+            var statementCache = config.getStatementCacheSize() > 0
+                    ? new StatementCache(config.getStatementCacheSize(), statementCacheHits, statementCacheMisses)
+                    : null;
+            var entry = new PoolEntry(connection, expirationOf(System.nanoTime()), initialState, statementCache);
+            bag.add(entry);
+            return entry;
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            if (connection != null) {
+                // the connection has been opened, but it has not become an entry of the pool
+                closeQuietly(connection, e);
+            }
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(Connection connection, Exception failure) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Connections get a slightly shorter lifetime at random, so connections opened together are not closed together.
+     */
+    private long expirationOf(long createdNanos) {
+        var maxLifetime = config.getMaxLifetime().toNanos();
+        if (maxLifetime <= 0) {
+            return 0;
+        }
+        var variance = ThreadLocalRandom.current().nextLong(maxLifetime / 40 + 1);
+        var expiresAt = createdNanos + maxLifetime - variance;
+        return expiresAt == 0 ? 1 : expiresAt;
+    }
+
+    private void retire(PoolEntry entry) {
+        bag.remove(entry);
+        totalConnections.decrementAndGet();
+        try {
+            entry.closeConnection();
+        } catch (SQLException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Cannot close a physical connection", e);
+        }
+        if (!closed && bag.waiters() > 0) {
+            housekeeper.execute(this::replenish);
+        }
+    }
+
+    /**
+     * Opens connections for threads that are waiting while the pool is below its maximum size
+     * (e.g. after expired connections have been closed).
+     */
+    private void replenish() {
+        try {
+            while (!closed && bag.waiters() > 0 && createEntryIfPossible(PoolEntry.NOT_IN_USE) != null) {
+                // a new entry has been offered to the waiters by the bag
+            }
+        } catch (SQLException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Cannot open a physical connection", e);
+        }
+    }
+
+    private void retireExpiredIdle() {
+        var now = System.nanoTime();
+        for (PoolEntry entry : bag.entries()) {
+            if (entry.isExpired(now) && bag.reserve(entry)) {
+                retire(entry);
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    /**
+     * Sets how long {@link #getConnection()} waits for a free connection, the same as
+     * {@link PoolConfig#getConnectionTimeout()}; zero restores the configured timeout.
+     */
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        if (seconds < 0) {
+            throw new SQLException("Login timeout must not be negative, but was %d".formatted(seconds));
+        }
+        connectionTimeout = seconds == 0 ? config.getConnectionTimeout() : Duration.ofSeconds(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return (int) connectionTimeout.toSeconds();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        if (target != null) {
+            return target.unwrap(iface);
+        }
+        throw new SQLException("The pool is not a wrapper of %s".formatted(iface.getName()));
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || (target != null && target.isWrapperFor(iface));
+    }
+}
@@ -0,0 +1,171 @@
+package com.verong.demo.database.jdbc.persistence.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handles calls of a {@link Connection} handed out by {@link PooledDataSource}. All calls are delegated to
+ * the physical connection except {@code close()} that returns the connection to the pool. A connection that has
+ * changed its transactional settings is reset to the defaults before it is returned.
+ * <br>
+ * Every statement is handed out wrapped by {@link StatementProxyHandler}, so the physical connection cannot be reached
+ * through it. Statements handed out during a borrow and still open on {@code close()} are closed first: cached ones
+ * go back to the {@link StatementCache}, and none can be used through the connection once another thread has
+ * borrowed it.
+ */
+final class ProxyConnectionHandler implements InvocationHandler {
+
+    private static final String CONNECTION_ERROR_SQL_STATE_PREFIX = "08";
+
+    private final PooledDataSource pool;
+    private final PoolEntry entry;
+    private final List<Statement> openStatements = new ArrayList<>();
+    private boolean closed;
+    private boolean dirty;
+
+    private ProxyConnectionHandler(PooledDataSource pool, PoolEntry entry) {
+        this.pool = pool;
+        this.entry = entry;
+    }
+
+    static Connection newProxy(PooledDataSource pool, PoolEntry entry) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ProxyConnectionHandler(pool, entry));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close" -> {
+                close();
+                return null;
+            }
+            case "isClosed" -> {
+                return closed;
+            }
+            case "equals" -> {
+                return proxy == args[0];
+            }
+            case "hashCode" -> {
+                return System.identityHashCode(proxy);
+            }
+            case "toString" -> {
+                return "PooledConnection[%s]".formatted(entry.connection);
+            }
+            case "setAutoCommit", "setReadOnly", "setTransactionIsolation" -> dirty = true;
+            default -> {
+            }
+        }
+        if (closed) {
+            throw new SQLException("Connection is closed");
+        }
+        if (entry.statementCache != null && "prepareStatement".equals(method.getName())) {
+            var key = cacheKeyOf(args);
+            if (key != null) {
+                return entry.statementCache.prepare(key, entry.connection, (Connection) proxy, openStatements);
+            }
+        }
+        try {
+            var result = method.invoke(entry.connection, args);
+            if (result instanceof Statement statement) {
+                return wrapStatement(statement, method.getReturnType(), (Connection) proxy);
+            }
+            return result;
+        } catch (InvocationTargetException e) {
+            var cause = e.getCause();
+            if (cause instanceof SQLException sqlException && isConnectionError(sqlException)) {
+                entry.evicted = true;
+            }
+            throw cause;
+        }
+    }
+
+    /**
+     * Wraps a statement returned by {@code createStatement}, {@code prepareCall} or a not cached
+     * {@code prepareStatement} as the interface the method has declared.
+     */
+    @SuppressWarnings("unchecked")
+    private Statement wrapStatement(Statement statement, Class<?> type, Connection proxy) {
+        return StatementProxyHandler.newProxy(statement, (Class<Statement>) type, proxy, openStatements);
+    }
+
+    private void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            closeStatements();
+            if (dirty && !entry.evicted) {
+                resetState();
+            }
+        } catch (SQLException e) {
+            entry.evicted = true;
+            throw e;
+        } finally {
+            pool.release(entry);
+        }
+    }
+
+    /**
+     * Closes the statements the borrower has not closed; every statement is closed even if closing another one fails.
+     */
+    private void closeStatements() throws SQLException {
+        SQLException exception = null;
+        // a statement removes itself from the list when it is closed
+        for (var statement : List.copyOf(openStatements)) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        openStatements.clear();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private void resetState() throws SQLException {
+        var connection = entry.connection;
+        if (!connection.getAutoCommit()) {
+            connection.rollback();
+        }
+        connection.setAutoCommit(entry.defaultAutoCommit);
+        connection.setReadOnly(entry.defaultReadOnly);
+        connection.setTransactionIsolation(entry.defaultTransactionIsolation);
+    }
+
+    /**
+     * Returns a cache key for the cacheable variants of {@code prepareStatement} or {@code null} for the others
+     * (e.g. scrollable or updatable statements).
+     */
+    private static StatementCache.Key cacheKeyOf(Object[] args) {
+        if (args.length == 1) {
+            return StatementCache.Key.of((String) args[0]);
+        }
+        if (args.length == 2 && args[1] instanceof Integer autoGeneratedKeys) {
+            return StatementCache.Key.of((String) args[0], autoGeneratedKeys);
+        }
+        if (args.length == 2 && args[1] instanceof String[] columnNames) {
+            return StatementCache.Key.of((String) args[0], columnNames);
+        }
+        return null;
+    }
+
+    private static boolean isConnectionError(SQLException e) {
+        var sqlState = e.getSQLState();
+        return sqlState != null && sqlState.startsWith(CONNECTION_ERROR_SQL_STATE_PREFIX);
+    }
+}
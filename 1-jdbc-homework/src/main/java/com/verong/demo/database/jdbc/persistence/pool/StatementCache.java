@@ -0,0 +1,158 @@
+package com.verong.demo.database.jdbc.persistence.pool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An LRU cache of {@link PreparedStatement} objects of one physical connection keyed by SQL text.
+ * <br>
+ * A cached statement is handed out wrapped by {@link StatementProxyHandler}: closing the wrapper returns the statement
+ * to the cache instead of closing it. The cache is used only by the thread that currently holds the connection,
+ * so it needs no synchronization; the pool hands a connection over to another thread with a happens-before edge.
+ */
+final class StatementCache {
+
+    private final Map<Key, CachedStatement> statements;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    StatementCache(int maxSize, LongAdder hits, LongAdder misses) {
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(maxSize * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedStatement> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached statement for the key or prepares and caches a new one. A statement that is already in use
+     * (e.g. the same query is executed while iterating over its own result) is not shared: a separate not cached
+     * statement is prepared for the caller instead.
+     */
+    PreparedStatement prepare(Key key, Connection physical, Connection proxy, List<Statement> openStatements)
+            throws SQLException {
+        var cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            hits.increment();
+            cached.inUse = true;
+            return StatementProxyHandler.newProxy(cached, proxy, openStatements);
+        }
+        misses.increment();
+        var statement = key.prepare(physical);
+        if (cached != null) {
+            return StatementProxyHandler.newProxy(new CachedStatement(this, key, statement, false), proxy,
+                    openStatements);
+        }
+        var entry = new CachedStatement(this, key, statement, true);
+        entry.inUse = true;
+        statements.put(key, entry);
+        return StatementProxyHandler.newProxy(entry, proxy, openStatements);
+    }
+
+    /**
+     * Removes the statement from the cache, e.g. because its settings have been changed by a caller.
+     */
+    void discard(CachedStatement statement) {
+        statements.remove(statement.key, statement);
+    }
+
+    /**
+     * Closes all cached statements; it is called right before the physical connection is closed.
+     */
+    void closeAll() {
+        var all = new ArrayList<>(statements.values());
+        statements.clear();
+        for (CachedStatement statement : all) {
+            statement.evict();
+        }
+    }
+
+    /**
+     * Identifies a prepared statement by its SQL text and the way generated keys are requested.
+     */
+    record Key(String sql, int autoGeneratedKeys, List<String> columnNames) {
+
+        static Key of(String sql) {
+            return new Key(sql, -1, null);
+        }
+
+        static Key of(String sql, int autoGeneratedKeys) {
+            return new Key(sql, autoGeneratedKeys, null);
+        }
+
+        static Key of(String sql, String[] columnNames) {
+            return new Key(sql, -1, List.copyOf(Arrays.asList(columnNames)));
+        }
+
+        PreparedStatement prepare(Connection connection) throws SQLException {
+            if (columnNames != null) {
+                return connection.prepareStatement(sql, columnNames.toArray(String[]::new));
+            }
+            if (autoGeneratedKeys != -1) {
+                return connection.prepareStatement(sql, autoGeneratedKeys);
+            }
+            return connection.prepareStatement(sql);
+        }
+    }
+
+    /**
+     * A physical statement together with its cache state.
+     */
+    static final class CachedStatement {
+
+        final StatementCache cache;
+        final Key key;
+        final PreparedStatement statement;
+        final boolean cached;
+        boolean inUse;
+        private boolean evicted;
+
+        CachedStatement(StatementCache cache, Key key, PreparedStatement statement, boolean cached) {
+            this.cache = cache;
+            this.key = key;
+            this.statement = statement;
+            this.cached = cached;
+        }
+
+        /**
+         * Called when a caller closes its wrapper. Returns {@code true} if the statement stays in the cache.
+         */
+        boolean release() throws SQLException {
+            inUse = false;
+            if (!cached || evicted) {
+                statement.close();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * The statement has left the cache: it is closed now or, if a caller still uses it, when it is released.
+         */
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    // the statement is not usable anyway, the physical connection will release its resources
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.verong.demo.database.jdbc.persistence.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Handles calls of a statement handed out by a connection of {@link PooledDataSource}, so that
+ * {@code getConnection()} returns the connection proxy and the pool can close the statement when the connection
+ * is returned.
+ * <br>
+ * For a {@link PreparedStatement} handed out by {@link StatementCache}, {@code close()} closes the result sets opened
+ * by the caller and clears parameters, so the next caller gets the statement in a clean state. A statement whose
+ * settings have been changed by a caller is removed from the cache and closed instead. Any other statement
+ * is closed by {@code close()}. Result sets are wrapped as well, so that the physical statement cannot be reached
+ * through them.
+ */
+final class StatementProxyHandler implements InvocationHandler {
+
+    private static final Set<String> SETTING_METHODS = Set.of("setFetchSize", "setFetchDirection", "setMaxRows",
+            "setLargeMaxRows", "setMaxFieldSize", "setQueryTimeout", "setEscapeProcessing", "setPoolable",
+            "setCursorName", "closeOnCompletion");
+
+    private final Statement statement;
+    /**
+     * The cache state of the statement, {@code null} if it has not been handed out by {@link StatementCache}.
+     */
+    private final StatementCache.CachedStatement cached;
+    private final Connection connectionProxy;
+    private final List<Statement> openStatements;
+    private final List<ResultSet> openResultSets = new ArrayList<>(2);
+    private Statement proxy;
+    private boolean closed;
+    private boolean dirty;
+
+    private StatementProxyHandler(Statement statement, StatementCache.CachedStatement cached,
+                                  Connection connectionProxy, List<Statement> openStatements) {
+        this.statement = statement;
+        this.cached = cached;
+        this.connectionProxy = connectionProxy;
+        this.openStatements = openStatements;
+    }
+
+    /**
+     * Wraps the cached statement and adds the wrapper to {@code openStatements}, the wrappers handed out during
+     * the current borrow of the connection; the wrapper removes itself from the list when it is closed.
+     */
+    static PreparedStatement newProxy(StatementCache.CachedStatement cached, Connection connectionProxy,
+                                      List<Statement> openStatements) {
+        return newProxy(cached.statement, PreparedStatement.class, cached, connectionProxy, openStatements);
+    }
+
+    /**
+     * Wraps a statement that is not cached, e.g. one created by {@code createStatement()} or {@code prepareCall},
+     * the same way; closing the wrapper closes the statement.
+     *
+     * @param type the interface of the statement the wrapper implements
+     */
+    static <T extends Statement> T newProxy(T statement, Class<T> type, Connection connectionProxy,
+                                            List<Statement> openStatements) {
+        return newProxy(statement, type, null, connectionProxy, openStatements);
+    }
+
+    private static <T extends Statement> T newProxy(Statement statement, Class<T> type,
+                                                    StatementCache.CachedStatement cached, Connection connectionProxy,
+                                                    List<Statement> openStatements) {
+        var handler = new StatementProxyHandler(statement, cached, connectionProxy, openStatements);
+        var proxy = type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        handler.proxy = proxy;
+        openStatements.add(proxy);
+        return proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        var name = method.getName();
+        switch (name) {
+            case "close" -> {
+                close();
+                return null;
+            }
+            case "isClosed" -> {
+                return closed;
+            }
+            case "equals" -> {
+                return proxy == args[0];
+            }
+            case "hashCode" -> {
+                return System.identityHashCode(proxy);
+            }
+            case "toString" -> {
+                return (cached == null ? "PooledStatement[%s]" : "CachedStatement[%s]").formatted(statement);
+            }
+            default -> {
+            }
+        }
+        if (closed) {
+            throw new SQLException("Statement is closed");
+        }
+        if ("getConnection".equals(name)) {
+            return connectionProxy;
+        }
+        if (SETTING_METHODS.contains(name)) {
+            dirty = true;
+        }
+        try {
+            var result = method.invoke(statement, args);
+            if (result instanceof ResultSet resultSet) {
+                forgetClosedResultSets();
+                openResultSets.add(resultSet);
+                return wrapResultSet(resultSet);
+            }
+            return result;
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Drops the result sets that are closed already, e.g. by the driver when the statement has been executed again,
+     * so a statement that stays in the cache for long holds only the result sets that are still open.
+     */
+    private void forgetClosedResultSets() throws SQLException {
+        for (var iterator = openResultSets.iterator(); iterator.hasNext(); ) {
+            if (iterator.next().isClosed()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Wraps a result set so that {@link ResultSet#getStatement()} returns the statement proxy: a caller that closes
+     * the statement of a result set (e.g. Hibernate for generated keys) must not close the cached physical statement.
+     * Closing the wrapper forgets the result set.
+     */
+    private ResultSet wrapResultSet(ResultSet resultSet) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (resultSetProxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getStatement" -> {
+                            return proxy;
+                        }
+                        case "close" -> openResultSets.remove(resultSet);
+                        default -> {
+                        }
+                    }
+                    try {
+                        return method.invoke(resultSet, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        openStatements.remove(proxy);
+        if (cached == null) {
+            // closing the statement closes its result sets
+            openResultSets.clear();
+            statement.close();
+            return;
+        }
+        try {
+            for (ResultSet resultSet : openResultSets) {
+                resultSet.close();
+            }
+            openResultSets.clear();
+            if (dirty && cached.cached) {
+                cached.cache.discard(cached);
+                cached.evict();
+            }
+            if (!cached.statement.isClosed()) {
+                cached.statement.clearParameters();
+                cached.statement.clearBatch();
+            }
+        } catch (SQLException e) {
+            cached.cache.discard(cached);
+            cached.evict();
+            throw e;
+        } finally {
+            cached.release();
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.verong.demo.database.jdbc.persistence.dao;
+
+import com.verong.demo.database.jdbc.persistence.model.Student;
+import com.verong.demo.database.jdbc.persistence.model.StudentStatus;
+import com.verong.demo.database.jdbc.persistence.pool.PoolConfig;
+import com.verong.demo.database.jdbc.persistence.pool.PooledDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Streams students of an in-memory H2 database through {@link StudentDaoImpl} on top of {@link PooledDataSource} and
+ * checks that every stream, partitioned or not, returns its connections to the pool with auto-commit restored, however
+ * it ends. Connections are observed above the pool, so the pool resetting a returned connection does not hide what
+ * the stream has left.
+ */
+class StudentDaoImplStreamTest {
+
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE students (
+                id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                email       VARCHAR(255) NOT NULL UNIQUE,
+                first_name  VARCHAR(255),
+                last_name   VARCHAR(255),
+                birthday    DATE,
+                scholarship BOOLEAN,
+                status      VARCHAR(32),
+                version     BIGINT DEFAULT 0 NOT NULL
+            )""";
+
+    private static final int STUDENTS = 10;
+    private static final int POOL_SIZE = 4;
+
+    private JdbcDataSource target;
+    private PooledDataSource pool;
+    private StudentDao studentDao;
+    /**
+     * The auto-commit mode of every connection at the moment it has been closed by the DAO.
+     */
+    private final Queue<Boolean> autoCommitOnClose = new ConcurrentLinkedQueue<>();
+    private final Queue<Integer> fetchSizes = new ConcurrentLinkedQueue<>();
+    /**
+     * The number of rows a result set returns before {@code next()} fails, or a negative number if it never fails.
+     */
+    private final AtomicInteger rowsBeforeFailure = new AtomicInteger(-1);
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        target = new JdbcDataSource();
+        target.setURL("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID()));
+        try (Connection connection = target.getConnection();
+             var statement = connection.createStatement()) {
+            statement.execute(CREATE_TABLE_SQL);
+        }
+        new StudentDaoImpl(target).createAll(newStudents(STUDENTS), STUDENTS);
+        pool = new PooledDataSource(target, PoolConfig.builder().maximumPoolSize(POOL_SIZE).build());
+        studentDao = new StudentDaoImpl(observed(pool));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void fullyConsumedStreamReturnsItsConnectionBeforeItIsClosed() {
+        try (var students = studentDao.streamAll(3)) {
+            assertEquals(STUDENTS, students.count());
+            assertEquals(0, pool.getMetrics().active());
+        }
+
+        assertEquals(List.of(true), List.copyOf(autoCommitOnClose));
+    }
+
+    @Test
+    void streamClosedEarlyReturnsItsConnection() {
+        try (var students = studentDao.streamAll(3)) {
+            var iterator = students.iterator();
+            iterator.next();
+            iterator.next();
+            assertEquals(1, pool.getMetrics().active());
+        }
+
+        assertEquals(0, pool.getMetrics().active());
+        assertEquals(List.of(true), List.copyOf(autoCommitOnClose));
+    }
+
+    @Test
+    void databaseErrorInTheMiddleOfAStreamReturnsItsConnection() {
+        rowsBeforeFailure.set(4);
+
+        try (var students = studentDao.streamAll(3)) {
+            var exception = assertThrows(DaoOperationException.class, students::toList);
+            assertEquals("Cannot read next student", exception.getMessage());
+            assertEquals(0, pool.getMetrics().active());
+        }
+
+        assertEquals(0, pool.getMetrics().active());
+        assertEquals(List.of(true), List.copyOf(autoCommitOnClose));
+    }
+
+    @Test
+    void rowThatCannotBeMappedInTheMiddleOfAStreamReturnsItsConnection() throws SQLException {
+        execute("UPDATE students SET status = 'UNKNOWN' WHERE id = 5");
+
+        try (var students = studentDao.streamAll(3)) {
+            assertThrows(IllegalArgumentException.class, students::toList);
+            assertEquals(0, pool.getMetrics().active());
+        }
+
+        assertEquals(0, pool.getMetrics().active());
+        assertEquals(List.of(true), List.copyOf(autoCommitOnClose));
+    }
+
+    @Test
+    void fetchSizeIsSetOnTheStatement() {
+        try (var students = studentDao.streamAll(7)) {
+            students.findFirst();
+        }
+        try (var students = studentDao.streamAll()) {
+            students.findFirst();
+        }
+
+        assertEquals(List.of(7, StudentDao.DEFAULT_FETCH_SIZE), List.copyOf(fetchSizes));
+        assertEquals(0, pool.getMetrics().active());
+    }
+
+    @Test
+    void partitionedStreamReturnsEveryStudentOnce() throws SQLException {
+        execute("DELETE FROM students WHERE id IN (2, 3, 7)");
+        execute("UPDATE students SET id = 1000 WHERE id = 10");
+        var ids = List.of(1L, 4L, 5L, 6L, 8L, 9L, 1000L);
+
+        for (int partitions : new int[]{1, 2, 3, 7, 64, 5000}) {
+            for (boolean ordered : new boolean[]{true, false}) {
+                try (var students = studentDao.streamAllPartitioned(partitions, 2, ordered)) {
+                    assertEquals(ids, students.map(Student::getId).sorted().toList(),
+                            () -> "%d partitions, ordered: %s".formatted(partitions, ordered));
+                }
+                assertEquals(0, pool.getMetrics().active());
+            }
+        }
+        assertFalse(autoCommitOnClose.contains(false));
+    }
+
+    @Test
+    void partitionedStreamOfAnEmptyTableIsEmpty() throws SQLException {
+        execute("DELETE FROM students");
+
+        try (var students = studentDao.streamAllPartitioned(4)) {
+            assertEquals(List.of(), students.toList());
+        }
+
+        assertEquals(0, pool.getMetrics().active());
+        assertEquals(List.of(true), List.copyOf(autoCommitOnClose));
+    }
+
+    @Test
+    void orderedPartitionedStreamReturnsStudentsByAscendingId() throws SQLException {
+        execute("DELETE FROM students WHERE id IN (4, 5)");
+        var ids = List.of(1L, 2L, 3L, 6L, 7L, 8L, 9L, 10L);
+
+        try (var students = studentDao.streamAllPartitioned(4, 1, true)) {
+            assertTrue(students.isParallel());
+            assertEquals(ids, students.map(Student::getId).toList());
+        }
+        try (var students = studentDao.streamAllPartitioned(3, 2, true)) {
+            var forEachOrdered = new ArrayList<Long>();
+            students.forEachOrdered(student -> forEachOrdered.add(student.getId()));
+            assertEquals(ids, forEachOrdered);
+        }
+
+        assertEquals(0, pool.getMetrics().active());
+    }
+
+    @Test
+    void partitionedStreamClosedEarlyReturnsEveryConnection() {
+        try (var students = studentDao.streamAllPartitioned(4, 1, true)) {
+            var iterator = students.iterator();
+            iterator.next();
+            assertEquals(1, pool.getMetrics().active());
+        }
+        assertEquals(0, pool.getMetrics().active());
+
+        try (var students = studentDao.streamAllPartitioned(5, 1, false)) {
+            assertTrue(students.anyMatch(student -> student.getId() % 2 == 0));
+        }
+        assertEquals(0, pool.getMetrics().active());
+        try (var students = studentDao.streamAllPartitioned(5, 1, true)) {
+            assertEquals(3, students.limit(3).count());
+        }
+
+        assertEquals(0, pool.getMetrics().active());
+        assertFalse(autoCommitOnClose.contains(false));
+    }
+
+    @Test
+    void failureInOnePartitionReturnsEveryConnection() throws SQLException {
+        execute("UPDATE students SET status = 'UNKNOWN' WHERE id = 9");
+
+        try (var students = studentDao.streamAllPartitioned(5, 1, false)) {
+            assertThrows(IllegalArgumentException.class, students::toList);
+        }
+
+        assertEquals(0, pool.getMetrics().active());
+        assertFalse(autoCommitOnClose.contains(false));
+    }
+
+    @Test
+    void databaseErrorInEveryPartitionReturnsEveryConnection() {
+        // the query of the id range reads its only row; every partition fails on its second row
+        rowsBeforeFailure.set(1);
+
+        try (var students = studentDao.streamAllPartitioned(POOL_SIZE, 1, true)) {
+            var exception = assertThrows(DaoOperationException.class, students::toList);
+            assertEquals("Cannot read next student", exception.getMessage());
+        }
+
+        assertEquals(0, pool.getMetrics().active());
+        assertFalse(autoCommitOnClose.contains(false));
+    }
+
+    private static List<Student> newStudents(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(index -> Student.builder()
+                        .email("student%d@mail.com".formatted(index))
+                        .firstName("Roberto")
+                        .lastName("Nash")
+                        .birthday(LocalDate.of(2001, 1, 1))
+                        .scholarship(true)
+                        .status(StudentStatus.ACTIVE)
+                        .build())
+                .toList();
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = target.getConnection();
+             var statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+
+    /**
+     * Returns a data source whose connections record their auto-commit mode when they are closed and whose prepared
+     * statements record their fetch size and fail after {@link #rowsBeforeFailure} rows.
+     */
+    private DataSource observed(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource, (method, args) -> {
+            var result = invoke(dataSource, method, args);
+            return result instanceof Connection connection ? observed(connection) : result;
+        });
+    }
+
+    private Connection observed(Connection connection) {
+        return proxy(Connection.class, connection, (method, args) -> {
+            if (method.getName().equals("close")) {
+                autoCommitOnClose.add(connection.getAutoCommit());
+            }
+            var result = invoke(connection, method, args);
+            return result instanceof PreparedStatement statement ? observed(statement) : result;
+        });
+    }
+
+    private PreparedStatement observed(PreparedStatement statement) {
+        return proxy(PreparedStatement.class, statement, (method, args) -> {
+            if (method.getName().equals("setFetchSize")) {
+                fetchSizes.add((Integer) args[0]);
+            }
+            var result = invoke(statement, method, args);
+            return result instanceof ResultSet resultSet ? failing(resultSet) : result;
+        });
+    }
+
+    private ResultSet failing(ResultSet resultSet) {
+        var rows = new AtomicInteger();
+        return proxy(ResultSet.class, resultSet, (method, args) -> {
+            if (method.getName().equals("next") && rowsBeforeFailure.get() >= 0
+                    && rows.getAndIncrement() == rowsBeforeFailure.get()) {
+                throw new SQLException("Connection reset");
+            }
+            return invoke(resultSet, method, args);
+        });
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> method.getDeclaringClass() == Object.class
+                        ? invoke(target, method, args)
+                        : handler.handle(method, args)));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.verong.demo.database.jdbc.persistence.dao;
+
+import com.verong.demo.database.jdbc.persistence.model.Student;
+import com.verong.demo.database.jdbc.persistence.model.StudentStatus;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs {@link StudentDaoImpl} against an in-memory H2 database.
+ */
+class StudentDaoImplTest {
+
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE students (
+                id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                email       VARCHAR(255) NOT NULL UNIQUE,
+                first_name  VARCHAR(255),
+                last_name   VARCHAR(255),
+                birthday    DATE,
+                scholarship BOOLEAN,
+                status      VARCHAR(32),
+                version     BIGINT DEFAULT 0 NOT NULL
+            )""";
+
+    private JdbcDataSource dataSource;
+    private StudentDao studentDao;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID()));
+        try (Connection connection = dataSource.getConnection();
+             var statement = connection.createStatement()) {
+            statement.execute(CREATE_TABLE_SQL);
+        }
+        studentDao = new StudentDaoImpl(dataSource);
+    }
+
+    @Test
+    void createAllRollsBackAChunkWhoseCommitFails() {
+        var students = newStudents(5);
+        var failingDao = new StudentDaoImpl(failingCommit(dataSource, 1));
+
+        var exception = assertThrows(DaoOperationException.class, () -> failingDao.createAll(students, 2));
+
+        assertEquals("Cannot store students, 2 of them have been stored", exception.getMessage());
+        assertEquals(2, studentDao.findAll().size());
+        assertEquals(List.of(true, true, false, false, false),
+                students.stream().map(student -> student.getId() != null).toList());
+    }
+
+    @Test
+    void upsertAllRollsBackAChunkWhoseCommitFails() {
+        var students = newStudents(3);
+        var failingDao = new StudentDaoImpl(failingCommit(dataSource, 0));
+
+        var exception = assertThrows(DaoOperationException.class, () -> failingDao.upsertAll(students, 10));
+
+        assertEquals("Cannot upsert students, 0 of them have been stored", exception.getMessage());
+        assertEquals(0, studentDao.findAll().size());
+        students.forEach(student -> assertNull(student.getId()));
+    }
+
+    @Test
+    void createAllCountsEveryStoredStudent() {
+        var students = newStudents(7);
+        students.get(4).setEmail(students.get(1).getEmail());
+
+        var result = studentDao.createAll(students, 3);
+
+        assertEquals(6, result.processed());
+        assertEquals(1, result.failures().size());
+        assertEquals(students.get(4), result.failures().getFirst().student());
+        assertEquals(6, studentDao.findAll().size());
+    }
+
+    @Test
+    void upsertInsertsANewStudentAndUpdatesAnExistingOne() {
+        var student = newStudents(1).getFirst();
+
+        studentDao.upsert(student);
+        assertEquals(0L, student.getVersion());
+
+        var sameEmail = newStudents(1).getFirst();
+        sameEmail.setStatus(StudentStatus.GRADUATED);
+        studentDao.upsert(sameEmail);
+
+        assertEquals(student.getId(), sameEmail.getId());
+        assertEquals(1L, sameEmail.getVersion());
+        assertEquals(StudentStatus.GRADUATED, studentDao.findById(student.getId()).orElseThrow().getStatus());
+        assertThrows(StaleStudentException.class, () -> studentDao.upsert(student));
+        assertEquals(1, studentDao.findAll().size());
+    }
+
+    @Test
+    void upsertAllInsertsNewStudentsAndUpdatesExistingOnes() {
+        var existing = newStudents(2);
+        studentDao.createAll(existing, 10);
+        var changed = newStudents(4);
+        changed.forEach(student -> student.setStatus(StudentStatus.GRADUATED));
+        changed.get(1).setVersion(0L);
+
+        var result = studentDao.upsertAll(changed, 10);
+
+        assertEquals(4, result.processed());
+        assertEquals(List.of(), result.failures());
+        // an updated row returns the id and the version it already had, not new generated keys
+        assertEquals(existing.get(0).getId(), changed.get(0).getId());
+        assertEquals(existing.get(1).getId(), changed.get(1).getId());
+        assertEquals(List.of(1L, 1L, 0L, 0L), changed.stream().map(Student::getVersion).toList());
+        for (var student : changed) {
+            var stored = studentDao.findById(student.getId()).orElseThrow();
+            assertEquals(student.getEmail(), stored.getEmail());
+            assertEquals(StudentStatus.GRADUATED, stored.getStatus());
+            assertEquals(student.getVersion(), stored.getVersion());
+        }
+    }
+
+    @Test
+    void upsertAllSkipsAStaleStudentAndStoresTheRestOfItsBatch() {
+        var existing = newStudents(3);
+        studentDao.createAll(existing, 10);
+        studentDao.update(existing.get(1));
+        var changed = newStudents(4);
+        changed.forEach(student -> student.setVersion(0L));
+
+        var result = studentDao.upsertAll(changed, 10);
+
+        assertEquals(3, result.processed());
+        assertEquals(1, result.failures().size());
+        var failure = result.failures().getFirst();
+        assertSame(changed.get(1), failure.student());
+        assertEquals(0L, assertInstanceOf(StaleStudentException.class, failure.cause()).getExpectedVersion());
+        assertNull(changed.get(1).getId());
+        assertEquals(existing.get(0).getId(), changed.get(0).getId());
+        assertEquals(existing.get(2).getId(), changed.get(2).getId());
+        assertEquals(Arrays.asList(1L, 0L, 1L, 0L), changed.stream().map(Student::getVersion).toList());
+        assertEquals(1L, studentDao.findById(existing.get(1).getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void upsertAllAppliesAnEmailThatComesAgainInItsChunkInOrder() {
+        var students = newStudents(3);
+        var again = newStudents(1).getFirst();
+        again.setStatus(StudentStatus.GRADUATED);
+        var stale = newStudents(1).getFirst();
+        stale.setVersion(0L);
+        var all = List.of(students.get(0), students.get(1), again, students.get(2), stale);
+
+        var result = studentDao.upsertAll(all, 10);
+
+        assertEquals(4, result.processed());
+        assertEquals(1, result.failures().size());
+        assertSame(stale, result.failures().getFirst().student());
+        assertEquals(students.get(0).getId(), again.getId());
+        assertEquals(0L, students.get(0).getVersion());
+        assertEquals(1L, again.getVersion());
+        assertNull(stale.getId());
+        assertEquals(3, studentDao.findAll().size());
+        var stored = studentDao.findById(again.getId()).orElseThrow();
+        assertEquals(StudentStatus.GRADUATED, stored.getStatus());
+        assertEquals(1L, stored.getVersion());
+    }
+
+    @Test
+    void unversionedUpdateSetsTheNewVersion() {
+        var student = newStudents(1).getFirst();
+        studentDao.create(student);
+        var stale = studentDao.findById(student.getId()).orElseThrow();
+        student.setVersion(null);
+
+        studentDao.update(student);
+        assertEquals(1L, student.getVersion());
+        studentDao.update(student);
+        assertEquals(2L, student.getVersion());
+
+        stale.setStatus(StudentStatus.GRADUATED);
+        assertThrows(StaleStudentException.class, () -> studentDao.update(stale));
+        assertEquals(2L, studentDao.findById(student.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void versionedUpdateRejectsAStaleStudent() {
+        var student = newStudents(1).getFirst();
+        studentDao.create(student);
+        var stale = studentDao.findById(student.getId()).orElseThrow();
+
+        studentDao.update(student);
+        assertEquals(1L, student.getVersion());
+
+        var exception = assertThrows(StaleStudentException.class, () -> studentDao.update(stale));
+        assertEquals(0L, exception.getExpectedVersion());
+
+        studentDao.remove(student);
+        assertThrows(StudentNotFoundException.class, () -> studentDao.update(student));
+    }
+
+    private static List<Student> newStudents(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(index -> Student.builder()
+                        .email("student%d@mail.com".formatted(index))
+                        .firstName("Roberto")
+                        .lastName("Nash")
+                        .birthday(LocalDate.of(2001, 1, 1))
+                        .scholarship(true)
+                        .status(StudentStatus.ACTIVE)
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Returns a data source whose connections fail to commit after the given number of successful commits.
+     */
+    private static DataSource failingCommit(DataSource dataSource, int successfulCommits) {
+        var commits = new AtomicInteger();
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (dataSourceProxy, dataSourceMethod, dataSourceArgs) -> {
+                    var result = invoke(dataSource, dataSourceMethod, dataSourceArgs);
+                    if (!(result instanceof Connection connection)) {
+                        return result;
+                    }
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                            (proxy, method, args) -> {
+                                if ("commit".equals(method.getName()) && commits.getAndIncrement() >= successfulCommits) {
+                                    throw new SQLException("Commit has failed");
+                                }
+                                return invoke(connection, method, args);
+                            });
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.verong.demo.database.jdbc.persistence.pool;
+
+import com.verong.demo.database.jdbc.persistence.dao.StudentDao;
+import com.verong.demo.database.jdbc.persistence.dao.StudentDaoImpl;
+import com.verong.demo.database.jdbc.persistence.model.Student;
+import com.verong.demo.database.jdbc.persistence.model.StudentStatus;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link StudentDao} on top of {@link PooledDataSource} with hundreds of virtual threads against an in-memory H2
+ * database and checks that the pool stays within its bounds and ends up with every connection returned. The life cycle
+ * of a single connection is checked as well: leak detection, max lifetime and validation of idle connections.
+ */
+class PooledDataSourceStressTest {
+
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE students (
+                id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                email       VARCHAR(255) NOT NULL UNIQUE,
+                first_name  VARCHAR(255),
+                last_name   VARCHAR(255),
+                birthday    DATE,
+                scholarship BOOLEAN,
+                status      VARCHAR(32),
+                version     BIGINT DEFAULT 0 NOT NULL
+            )""";
+
+    private static final int MAXIMUM_POOL_SIZE = 10;
+    private static final int THREADS = 500;
+    private static final int OPERATIONS_PER_THREAD = 20;
+
+    private PooledDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new PooledDataSource(PoolConfig.builder()
+                .url(newDatabaseUrl())
+                .maximumPoolSize(MAXIMUM_POOL_SIZE)
+                .build());
+        try (Connection connection = dataSource.getConnection();
+             var statement = connection.createStatement()) {
+            statement.execute(CREATE_TABLE_SQL);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void hundredsOfVirtualThreadsShareTheDao() throws InterruptedException {
+        var studentDao = new StudentDaoImpl(dataSource);
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        var start = new CountDownLatch(1);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int thread = 0; thread < THREADS; thread++) {
+                var threadIndex = thread;
+                executor.submit(() -> {
+                    try {
+                        start.await();
+                        for (int operation = 0; operation < OPERATIONS_PER_THREAD; operation++) {
+                            var student = newStudent("student%d.%d@mail.com".formatted(threadIndex, operation));
+                            studentDao.create(student);
+                            var found = studentDao.findById(student.getId()).orElseThrow();
+                            found.setStatus(StudentStatus.GRADUATED);
+                            studentDao.update(found);
+                        }
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+
+        assertTrue(failures.isEmpty(), () -> "Failures: " + failures);
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, studentDao.findAll().size());
+        var metrics = dataSource.getMetrics();
+        assertTrue(metrics.total() <= MAXIMUM_POOL_SIZE, () -> "Too many connections: " + metrics);
+        assertEquals(0, metrics.active(), () -> "Connections are still borrowed: " + metrics);
+        assertEquals(metrics.total(), metrics.idle());
+        assertEquals(0, metrics.pending());
+        assertEquals(0, metrics.connectionTimeouts());
+    }
+
+    @Test
+    void borrowersNeverShareAConnection() throws InterruptedException {
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        var holders = new ConcurrentHashMap<Connection, Thread>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int thread = 0; thread < THREADS; thread++) {
+                executor.submit(() -> {
+                    for (int operation = 0; operation < OPERATIONS_PER_THREAD; operation++) {
+                        try (Connection connection = dataSource.getConnection()) {
+                            var physical = connection.unwrap(Connection.class);
+                            var previous = holders.putIfAbsent(physical, Thread.currentThread());
+                            if (previous != null) {
+                                failures.add(new AssertionError("%s is held by %s and %s"
+                                        .formatted(physical, previous, Thread.currentThread())));
+                            }
+                            Thread.yield();
+                            holders.remove(physical, Thread.currentThread());
+                        } catch (Throwable e) {
+                            failures.add(e);
+                        }
+                    }
+                });
+            }
+        }
+
+        assertTrue(failures.isEmpty(), () -> "Failures: " + failures);
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, dataSource.getMetrics().borrowed() - 1);
+    }
+
+    @Test
+    void borrowerTimesOutWhenThePoolIsExhausted() throws SQLException {
+        try (var pool = new PooledDataSource(PoolConfig.builder()
+                .url(newDatabaseUrl())
+                .maximumPoolSize(2)
+                .connectionTimeout(Duration.ofMillis(100))
+                .build())) {
+            List<Connection> held = new ArrayList<>();
+            held.add(pool.getConnection());
+            held.add(pool.getConnection());
+
+            assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+            assertEquals(1, pool.getMetrics().connectionTimeouts());
+
+            pool.setLoginTimeout(1);
+            var startNanos = System.nanoTime();
+            assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+            assertTrue(Duration.ofNanos(System.nanoTime() - startNanos).compareTo(Duration.ofSeconds(1)) >= 0);
+            assertEquals(2, pool.getMetrics().connectionTimeouts());
+
+            held.getFirst().close();
+            try (Connection connection = pool.getConnection()) {
+                assertFalse(connection.isClosed());
+            }
+            held.getLast().close();
+            assertEquals(0, pool.getMetrics().active());
+        }
+    }
+
+    @Test
+    void loginTimeoutIsTheConnectionTimeout() throws SQLException {
+        assertEquals(30, dataSource.getLoginTimeout());
+
+        dataSource.setLoginTimeout(5);
+        assertEquals(5, dataSource.getLoginTimeout());
+
+        dataSource.setLoginTimeout(0);
+        assertEquals(30, dataSource.getLoginTimeout());
+
+        assertThrows(SQLException.class, () -> dataSource.setLoginTimeout(-1));
+    }
+
+    @Test
+    void connectionHeldLongerThanTheThresholdIsReportedAsLeak() throws Exception {
+        try (var pool = new PooledDataSource(PoolConfig.builder()
+                .url(newDatabaseUrl())
+                .leakDetectionThreshold(Duration.ofMillis(100))
+                .build())) {
+            try (Connection connection = pool.getConnection()) {
+                assertFalse(connection.isClosed());
+            }
+            Thread.sleep(200);
+            assertEquals(0, pool.getMetrics().leaksDetected());
+
+            try (Connection connection = pool.getConnection()) {
+                Thread.sleep(300);
+                assertEquals(1, pool.getMetrics().leaksDetected());
+            }
+            assertEquals(0, pool.getMetrics().active());
+        }
+    }
+
+    @Test
+    void connectionIsClosedWhenItReachesMaxLifetime() throws Exception {
+        try (var pool = new PooledDataSource(PoolConfig.builder()
+                .url(newDatabaseUrl())
+                .maxLifetime(Duration.ofMillis(200))
+                .build())) {
+            Connection physical;
+            try (Connection connection = pool.getConnection()) {
+                physical = connection.unwrap(Connection.class);
+                Thread.sleep(300);
+            }
+            assertTrue(physical.isClosed());
+            assertEquals(0, pool.getMetrics().total());
+
+            try (Connection connection = pool.getConnection()) {
+                assertNotSame(physical, connection.unwrap(Connection.class));
+            }
+            assertEquals(1, pool.getMetrics().total());
+        }
+    }
+
+    @Test
+    void connectionIsValidatedOnlyAfterItHasBeenIdleLongerThanTheThreshold() throws Exception {
+        try (var pool = new PooledDataSource(PoolConfig.builder()
+                .url(newDatabaseUrl())
+                .maximumPoolSize(1)
+                .validationIdleThreshold(Duration.ofMillis(200))
+                .build())) {
+            Connection physical;
+            try (Connection connection = pool.getConnection()) {
+                physical = connection.unwrap(Connection.class);
+                // the connection breaks behind the back of the pool
+                physical.close();
+            }
+
+            // just returned, so the broken connection is handed out without a check
+            try (Connection connection = pool.getConnection()) {
+                assertSame(physical, connection.unwrap(Connection.class));
+            }
+
+            Thread.sleep(300);
+            try (Connection connection = pool.getConnection();
+                 var statement = connection.createStatement()) {
+                assertNotSame(physical, connection.unwrap(Connection.class));
+                assertTrue(statement.execute("SELECT 1"));
+            }
+            assertEquals(1, pool.getMetrics().total());
+        }
+    }
+
+    @Test
+    void connectionIsClosedWhenItCannotBecomeAnEntryOfThePool() throws SQLException {
+        var h2 = new JdbcDataSource();
+        h2.setURL(newDatabaseUrl());
+        Queue<Connection> opened = new ConcurrentLinkedQueue<>();
+        var target = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    if (!"getConnection".equals(method.getName())) {
+                        return method.invoke(h2, args);
+                    }
+                    var connection = h2.getConnection();
+                    opened.add(connection);
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                            (connectionProxy, connectionMethod, connectionArgs) -> {
+                                if ("getTransactionIsolation".equals(connectionMethod.getName())) {
+                                    throw new SQLException("Transaction isolation is not available");
+                                }
+                                return connectionMethod.invoke(connection, connectionArgs);
+                            });
+                });
+
+        try (var pool = new PooledDataSource(target, PoolConfig.builder().build())) {
+            assertThrows(SQLException.class, pool::getConnection);
+            assertThrows(SQLException.class, pool::getConnection);
+
+            assertEquals(2, opened.size());
+            for (var connection : opened) {
+                assertTrue(connection.isClosed());
+            }
+            assertEquals(0, pool.getMetrics().total());
+        }
+    }
+
+    private static String newDatabaseUrl() {
+        return "jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID());
+    }
+
+    private static Student newStudent(String email) {
+        return Student.builder()
+                .email(email)
+                .firstName("Roberto")
+                .lastName("Nash")
+                .birthday(LocalDate.of(2001, 1, 1))
+                .scholarship(true)
+                .status(StudentStatus.ACTIVE)
+                .build();
+    }
+}
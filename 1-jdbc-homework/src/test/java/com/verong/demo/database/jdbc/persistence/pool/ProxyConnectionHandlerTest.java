@@ -0,0 +1,119 @@
+package com.verong.demo.database.jdbc.persistence.pool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the statements that are not taken from {@link StatementCache}: they are wrapped like cached ones, so the
+ * physical connection cannot be reached through them and the pool closes them when the connection is returned.
+ * Physical statements are reached with {@code unwrap}.
+ */
+class ProxyConnectionHandlerTest {
+
+    private static final String SQL = "SELECT 1";
+
+    private PooledDataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void everyStatementReturnsTheConnectionProxy() throws SQLException {
+        dataSource = newDataSource(2);
+        try (Connection connection = dataSource.getConnection()) {
+            var statements = uncachedStatements(connection);
+            assertInstanceOf(CallableStatement.class, statements.get(1));
+            for (var statement : statements) {
+                assertSame(connection, statement.getConnection());
+                try (var resultSet = execute(statement)) {
+                    assertSame(statement, resultSet.getStatement());
+                }
+                statement.close();
+            }
+        }
+    }
+
+    @Test
+    void uncachedStatementsLeftOpenAreClosedWhenTheConnectionIsClosed() throws SQLException {
+        dataSource = newDataSource(2);
+        List<Statement> statements;
+        List<Statement> physical;
+        try (Connection connection = dataSource.getConnection()) {
+            statements = uncachedStatements(connection);
+            physical = statements.stream().map(ProxyConnectionHandlerTest::unwrap).toList();
+            execute(statements.getFirst());
+        }
+
+        for (int i = 0; i < statements.size(); i++) {
+            assertTrue(statements.get(i).isClosed());
+            assertTrue(physical.get(i).isClosed());
+        }
+        var exception = assertThrows(SQLException.class, () -> execute(statements.getFirst()));
+        assertEquals("Statement is closed", exception.getMessage());
+    }
+
+    @Test
+    void closingAStatementOfAConnectionWithoutCacheClosesIt() throws SQLException {
+        dataSource = newDataSource(0);
+        try (Connection connection = dataSource.getConnection()) {
+            var statement = connection.prepareStatement(SQL);
+            var physical = statement.unwrap(Statement.class);
+            assertSame(connection, statement.getConnection());
+
+            statement.close();
+
+            assertTrue(physical.isClosed());
+            assertFalse(connection.isClosed());
+        }
+    }
+
+    private static PooledDataSource newDataSource(int statementCacheSize) {
+        return new PooledDataSource(PoolConfig.builder()
+                .url("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID()))
+                .maximumPoolSize(1)
+                .statementCacheSize(statementCacheSize)
+                .build());
+    }
+
+    /**
+     * Returns a statement of every kind that the statement cache does not hold.
+     */
+    private static List<Statement> uncachedStatements(Connection connection) throws SQLException {
+        return List.of(
+                connection.createStatement(),
+                connection.prepareCall(SQL),
+                connection.prepareStatement(SQL, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY));
+    }
+
+    private static ResultSet execute(Statement statement) throws SQLException {
+        return statement instanceof PreparedStatement preparedStatement
+                ? preparedStatement.executeQuery()
+                : statement.executeQuery(SQL);
+    }
+
+    private static Statement unwrap(Statement statement) {
+        try {
+            return statement.unwrap(Statement.class);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.verong.demo.database.jdbc.persistence.pool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link StatementCache} through {@link PooledDataSource} with a single connection, so every borrow gets the
+ * same physical connection and its cache. Physical statements are reached with {@code unwrap}.
+ */
+class StatementCacheTest {
+
+    private static final int STATEMENT_CACHE_SIZE = 2;
+    private static final String FIRST_SQL = "SELECT 1";
+    private static final String SECOND_SQL = "SELECT 2";
+    private static final String THIRD_SQL = "SELECT 3";
+
+    private PooledDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new PooledDataSource(PoolConfig.builder()
+                .url("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID()))
+                .maximumPoolSize(1)
+                .statementCacheSize(STATEMENT_CACHE_SIZE)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void statementIsTakenFromTheCacheOnTheNextBorrow() throws SQLException {
+        var physical = executeAndClose(FIRST_SQL);
+        assertEquals(0, dataSource.getMetrics().statementCacheHits());
+        assertEquals(1, dataSource.getMetrics().statementCacheMisses());
+
+        assertSame(physical, executeAndClose(FIRST_SQL));
+        assertFalse(physical.isClosed());
+        assertEquals(1, dataSource.getMetrics().statementCacheHits());
+        assertEquals(1, dataSource.getMetrics().statementCacheMisses());
+    }
+
+    @Test
+    void leastRecentlyUsedStatementIsClosedWhenItIsEvicted() throws SQLException {
+        var first = executeAndClose(FIRST_SQL);
+        var second = executeAndClose(SECOND_SQL);
+        assertSame(first, executeAndClose(FIRST_SQL));
+
+        var third = executeAndClose(THIRD_SQL);
+
+        assertTrue(second.isClosed());
+        assertFalse(first.isClosed());
+        assertFalse(third.isClosed());
+        assertNotSame(second, executeAndClose(SECOND_SQL));
+        assertEquals(1, dataSource.getMetrics().statementCacheHits());
+        assertEquals(4, dataSource.getMetrics().statementCacheMisses());
+    }
+
+    @Test
+    void statementInUseIsNotShared() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(FIRST_SQL);
+             var resultSet = statement.executeQuery()) {
+            var cached = statement.unwrap(PreparedStatement.class);
+            PreparedStatement sibling;
+            try (var siblingStatement = connection.prepareStatement(FIRST_SQL)) {
+                sibling = siblingStatement.unwrap(PreparedStatement.class);
+                assertNotSame(cached, sibling);
+                siblingStatement.executeQuery().close();
+            }
+            assertTrue(sibling.isClosed());
+            assertTrue(resultSet.next());
+            assertEquals(1, resultSet.getInt(1));
+        }
+        assertEquals(0, dataSource.getMetrics().statementCacheHits());
+        assertEquals(2, dataSource.getMetrics().statementCacheMisses());
+
+        executeAndClose(FIRST_SQL);
+        assertEquals(1, dataSource.getMetrics().statementCacheHits());
+    }
+
+    @Test
+    void statementsLeftOpenAreReleasedWhenTheConnectionIsClosed() throws SQLException {
+        PreparedStatement leaked;
+        PreparedStatement cached;
+        PreparedStatement sibling;
+        try (Connection connection = dataSource.getConnection()) {
+            leaked = connection.prepareStatement(FIRST_SQL);
+            leaked.executeQuery();
+            var leakedSibling = connection.prepareStatement(FIRST_SQL);
+            cached = leaked.unwrap(PreparedStatement.class);
+            sibling = leakedSibling.unwrap(PreparedStatement.class);
+        }
+
+        assertTrue(leaked.isClosed());
+        var exception = assertThrows(SQLException.class, leaked::executeQuery);
+        assertEquals("Statement is closed", exception.getMessage());
+        assertTrue(sibling.isClosed());
+        assertFalse(cached.isClosed());
+        assertSame(cached, executeAndClose(FIRST_SQL));
+        assertEquals(1, dataSource.getMetrics().statementCacheHits());
+    }
+
+    @Test
+    void resultSetReturnsTheStatementProxy() throws SQLException {
+        PreparedStatement physical;
+        try (Connection connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(FIRST_SQL)) {
+            physical = statement.unwrap(PreparedStatement.class);
+            var resultSet = statement.executeQuery();
+            assertSame(statement, resultSet.getStatement());
+            // e.g. Hibernate closes the statement of a result set of generated keys
+            resultSet.getStatement().close();
+            assertTrue(statement.isClosed());
+        }
+        assertFalse(physical.isClosed());
+        assertSame(physical, executeAndClose(FIRST_SQL));
+    }
+
+    @Test
+    void resultSetsOfACachedStatementAreClosedWhenItIsExecutedAgainOrReturned() throws SQLException {
+        PreparedStatement physical;
+        ResultSet last;
+        try (Connection connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(FIRST_SQL)) {
+            physical = statement.unwrap(PreparedStatement.class);
+            statement.executeQuery().close();
+            last = statement.executeQuery();
+            for (int i = 0; i < 1_000; i++) {
+                var next = statement.executeQuery();
+                assertTrue(last.isClosed());
+                assertTrue(next.next());
+                last = next;
+            }
+            assertFalse(last.isClosed());
+        }
+        assertTrue(last.isClosed());
+
+        try (Connection connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(FIRST_SQL);
+             var resultSet = statement.executeQuery()) {
+            assertSame(physical, statement.unwrap(PreparedStatement.class));
+            assertTrue(last.isClosed());
+            assertTrue(resultSet.next());
+            assertEquals(1, resultSet.getInt(1));
+        }
+    }
+
+    @Test
+    void statementWithChangedSettingsIsNotCached() throws SQLException {
+        PreparedStatement physical;
+        try (Connection connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(FIRST_SQL)) {
+            physical = statement.unwrap(PreparedStatement.class);
+            statement.setMaxRows(1);
+        }
+        assertTrue(physical.isClosed());
+        assertNotSame(physical, executeAndClose(FIRST_SQL));
+        assertEquals(2, dataSource.getMetrics().statementCacheMisses());
+    }
+
+    @Test
+    void cachedStatementsAreClosedWithThePool() throws SQLException {
+        var first = executeAndClose(FIRST_SQL);
+        var second = executeAndClose(SECOND_SQL);
+
+        dataSource.close();
+
+        assertTrue(first.isClosed());
+        assertTrue(second.isClosed());
+    }
+
+    /**
+     * Borrows a connection, executes the query and closes everything; returns the physical statement that has been used.
+     */
+    private PreparedStatement executeAndClose(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(sql);
+             var resultSet = statement.executeQuery()) {
+            assertTrue(resultSet.next());
+            return statement.unwrap(PreparedStatement.class);
+        }
+    }
+}
@@ -10,7 +10,7 @@ import java.time.LocalDate;
 
 public class Application {
 
-    private static final String PERSISTENCE_UNIT_NAME = "";
+    private static final String PERSISTENCE_UNIT_NAME = "students";
 
     public static void main(String[] args) {
 
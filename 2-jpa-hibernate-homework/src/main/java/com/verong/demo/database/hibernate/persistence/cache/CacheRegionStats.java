@@ -0,0 +1,23 @@
+package com.verong.demo.database.hibernate.persistence.cache;
+
+/**
+ * Statistics of one second-level or query cache region since the start of the application.
+ *
+ * @param region    the name of the region
+ * @param hits      the number of lookups that have found an entry
+ * @param misses    the number of lookups that have not found an entry
+ * @param puts      the number of entries stored to the region
+ * @param evictions the number of entries removed by the cache because of its size or expiry,
+ *                  or {@code -1} if the cache provider does not publish it
+ * @param size      the current number of entries, or {@code -1} if it is unknown
+ */
+public record CacheRegionStats(String region, long hits, long misses, long puts, long evictions, long size) {
+
+    /**
+     * Returns the share of lookups that have found an entry, 0 if there has been no lookup.
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,69 @@
+package com.verong.demo.database.hibernate.persistence.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads {@link CacheRegionStats} of the cache regions of an {@link EntityManagerFactory}. Hits, misses and puts
+ * are taken from Hibernate statistics ({@code hibernate.generate_statistics}), evictions from the JCache statistics
+ * MBean of the region's cache ({@code monitoring.statistics} of the Caffeine configuration).
+ */
+public final class CacheRegions {
+
+    private static final String JCACHE_STATISTICS_MBEAN = "javax.cache:type=CacheStatistics,CacheManager=*,Cache=%s";
+
+    private CacheRegions() {
+    }
+
+    /**
+     * Returns statistics of all second-level cache regions including the query cache regions.
+     */
+    public static List<CacheRegionStats> statisticsOf(EntityManagerFactory entityManagerFactory) {
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .map(region -> toStats(region, statistics.getCacheRegionStatistics(region)))
+                .toList();
+    }
+
+    /**
+     * Returns statistics of the passed region or an empty {@link Optional} if there is no such region
+     * or nothing has been cached in it yet.
+     */
+    public static Optional<CacheRegionStats> statisticsOf(EntityManagerFactory entityManagerFactory, String region) {
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return Optional.ofNullable(statistics.getCacheRegionStatistics(region))
+                .map(regionStatistics -> toStats(region, regionStatistics));
+    }
+
+    private static CacheRegionStats toStats(String region, CacheRegionStatistics statistics) {
+        long size = statistics.getElementCountInMemory();
+        if (size == CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN) {
+            size = -1;
+        }
+        return new CacheRegionStats(region, statistics.getHitCount(), statistics.getMissCount(),
+                statistics.getPutCount(), evictionsOf(region), size);
+    }
+
+    private static long evictionsOf(String region) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            var names = server.queryNames(new ObjectName(JCACHE_STATISTICS_MBEAN.formatted(region)), null);
+            long evictions = -1;
+            for (ObjectName name : names) {
+                evictions = Math.max(evictions, 0) + (Long) server.getAttribute(name, "CacheEvictions");
+            }
+            return evictions;
+        } catch (JMException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.verong.demo.database.hibernate.persistence.dao;
+
+/**
+ * An unchecked exception that is thrown by {@link StudentDao} implementations when an operation
+ * with a database cannot be performed.
+ */
+public class DaoOperationException extends RuntimeException {
+
+    public DaoOperationException(String message) {
+        super(message);
+    }
+
+    public DaoOperationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
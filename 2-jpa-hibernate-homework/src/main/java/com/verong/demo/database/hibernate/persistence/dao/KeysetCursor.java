@@ -0,0 +1,88 @@
+package com.verong.demo.database.hibernate.persistence.dao;
+
+import com.verong.demo.database.hibernate.persistence.model.Student;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * The position of the last student of a page in a {@link StudentSort} order. The token is the Base64 of
+ * {@code sort|id|value}, where {@code value} is missing if the sort attribute of the student is {@code null}.
+ * <p>
+ * The nulls last order is read as two segments, so each of them is a plain range scan of the
+ * {@code (attribute, id)} index: the students with a value ordered by {@code (attribute, id)} and then
+ * the students without it ordered by {@code id}. A single {@code ORDER BY attribute NULLS LAST} query
+ * with an {@code OR attribute IS NULL} seek predicate would make most databases sort the whole table.
+ */
+record KeysetCursor(StudentSort sort, Long id, Object value) {
+
+    private static final String SEPARATOR = "|";
+
+    static KeysetCursor of(StudentSort sort, Student student) {
+        return new KeysetCursor(sort, Objects.requireNonNull(student.getId(), "Student id must not be null"),
+                sort.valueOf(student));
+    }
+
+    static KeysetCursor decode(StudentSort sort, String token) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", 3);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor %s".formatted(token), e);
+        }
+        if (parts.length < 2 || !parts[0].equals(sort.name())) {
+            throw new IllegalArgumentException("Cursor %s does not belong to sort %s".formatted(token, sort));
+        }
+        try {
+            return new KeysetCursor(sort, Long.valueOf(parts[1]), parts.length == 3 ? sort.parse(parts[2]) : null);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cursor %s".formatted(token), e);
+        }
+    }
+
+    String encode() {
+        var token = sort.name() + SEPARATOR + id + (value == null ? "" : SEPARATOR + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Builds the predicate of the students with a non-null sort attribute that come after the cursor, i.e.
+     * {@code (attribute, id) > (value, id)}. Must not be called for a cursor with a {@code null} value,
+     * as such a cursor is already past that segment.
+     */
+    static Predicate valuesAfter(KeysetCursor cursor, CriteriaBuilder criteriaBuilder, Root<Student> student) {
+        var sort = cursor.sort();
+        Path<Long> id = student.get("id");
+        if (sort.attribute() == null) {
+            return criteriaBuilder.greaterThan(id, cursor.id());
+        }
+        Path<Comparable<Object>> attribute = student.get(sort.attribute());
+        var value = comparable(cursor.value());
+        // the redundant "attribute >= value" gives the database the start of the index range to seek to
+        return criteriaBuilder.and(
+                criteriaBuilder.greaterThanOrEqualTo(attribute, value),
+                criteriaBuilder.or(
+                        criteriaBuilder.greaterThan(attribute, value),
+                        criteriaBuilder.greaterThan(id, cursor.id())));
+    }
+
+    /**
+     * Builds the predicate of the students with a {@code null} sort attribute that come after the cursor.
+     */
+    static Predicate nullsAfter(KeysetCursor cursor, CriteriaBuilder criteriaBuilder, Root<Student> student) {
+        var isNull = criteriaBuilder.isNull(student.get(cursor.sort().attribute()));
+        return cursor.value() == null
+                ? criteriaBuilder.and(isNull, criteriaBuilder.greaterThan(student.get("id"), cursor.id()))
+                : isNull;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Object value) {
+        return (Comparable<Object>) value;
+    }
+}
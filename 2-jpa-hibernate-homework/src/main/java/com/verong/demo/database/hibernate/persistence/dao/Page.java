@@ -0,0 +1,30 @@
+package com.verong.demo.database.hibernate.persistence.dao;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of a keyset (seek) pagination.
+ *
+ * @param content    the elements of the page, at most the requested limit
+ * @param nextCursor an opaque token to pass to get the next page, or {@code null} if this page is the last one
+ * @param <T>        the type of the elements
+ */
+public record Page<T>(List<T> content, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Creates a page from the result of a query that has requested {@code limit + 1} rows: the extra row only
+     * tells that there is a next page and is not included into the content.
+     */
+    static <T> Page<T> of(List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() <= limit) {
+            return new Page<>(List.copyOf(rows), null);
+        }
+        var content = List.copyOf(rows.subList(0, limit));
+        return new Page<>(content, cursorOf.apply(content.get(limit - 1)));
+    }
+}
@@ -4,8 +4,10 @@ import com.verong.demo.database.hibernate.persistence.dto.StudentIdAndNameDto;
 import com.verong.demo.database.hibernate.persistence.model.Student;
 import com.verong.demo.database.hibernate.persistence.model.StudentStatus;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * The Data Access Object (DAO) pattern is used to isolate a logic of working
@@ -20,6 +22,8 @@ import java.util.Optional;
  */
 public interface StudentDao {
 
+    int DEFAULT_IMPORT_BATCH_SIZE = 1000;
+
     /**
      * This method stores a new {@link Student} to a database and sets generated id
      * to {@link Student} object back.
@@ -28,6 +32,28 @@ public interface StudentDao {
      */
     void create(Student student);
 
+    /**
+     * This method stores all {@link Student} of the passed stream like {@link #importAll(Stream, int)}
+     * with the {@link #DEFAULT_IMPORT_BATCH_SIZE}.
+     */
+    default long importAll(Stream<Student> students) {
+        return importAll(students, DEFAULT_IMPORT_BATCH_SIZE);
+    }
+
+    /**
+     * This method stores all {@link Student} of the passed stream and sets generated ids back. Unlike
+     * {@link #create(Student)} in a loop, stored students are not kept in a persistence context, so the memory used
+     * does not depend on the number of students and the stream can be read lazily, e.g. from a file.
+     * Every {@code batchSize} students are committed in their own transaction, so a failure rolls back only
+     * the current batch and leaves the previous ones stored.
+     *
+     * @param students  a stream of students to store, it is not closed by this method
+     * @param batchSize the number of students per transaction
+     * @return the number of stored students
+     * @throws DaoOperationException if a batch cannot be stored
+     */
+    long importAll(Stream<Student> students, int batchSize);
+
     /**
      * This method returns {@code Optional} with {@link Student} that has been found
      * in a database by ID
@@ -45,6 +71,29 @@ public interface StudentDao {
      */
     List<Student> findAll();
 
+    /**
+     * This method returns a page of {@link Student} ordered by ID using keyset (seek) pagination: instead of
+     * skipping rows with OFFSET it starts right after the passed ID, so the cost of a page does not depend on
+     * how deep it is. IMPORTANT: this method has to be implemented using EntityManager and JPQL;
+     *
+     * @param afterId the ID of the last student of the previous page, or {@code null} for the first page
+     * @param limit   the maximum number of students in the page
+     * @return a list of {@link Student} with IDs greater than {@code afterId}
+     */
+    List<Student> findPage(Long afterId, int limit);
+
+    /**
+     * This method returns a page of {@link Student} in the passed order using keyset (seek) pagination.
+     * The returned {@link Page#nextCursor()} has to be passed to get the next page.
+     * IMPORTANT: this method has to be implemented using Criteria API;
+     *
+     * @param sort   the order of students
+     * @param cursor the cursor of the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of students in the page
+     * @throws IllegalArgumentException if the cursor is malformed or has been created for another order
+     */
+    Page<Student> findPage(StudentSort sort, String cursor, int limit);
+
     /**
      * This method returns {@link List} of all {@link Student} which have the column 'scholarship' with passed value.
      * IMPORTANT: this method has to be implemented using EntityManager and JPQL;
@@ -72,6 +121,33 @@ public interface StudentDao {
      */
     void updateStatus(Long id, StudentStatus status);
 
+    /**
+     * This method changes the status of all {@link Student} that have the status {@code from} and match the filter
+     * to the status {@code to} with a single bulk update, without loading the students.
+     * IMPORTANT: this method has to be implemented using Criteria API;
+     *
+     * @param from   the current status of the students to update
+     * @param to     the new status
+     * @param filter an additional condition, {@link StudentFilter#ALL} to update all students with the status
+     *               {@code from}
+     * @return the number of updated students
+     */
+    int updateStatusWhere(StudentStatus from, StudentStatus to, StudentFilter filter);
+
+    /**
+     * This method sets the status of all {@link Student} with the passed IDs with bulk updates, without loading
+     * the students. All students are updated in one transaction: if any of the IDs does not exist, no student
+     * is updated.
+     * IMPORTANT: this method has to be implemented using EntityManager and JPQL;
+     *
+     * @throws java.util.NoSuchElementException if a student is not found by any of the passed IDs.
+     *
+     * @param ids    student IDs
+     * @param status {@link StudentStatus} that has to be set to the requested students
+     * @return the number of updated students, i.e. the number of distinct IDs
+     */
+    int updateStatusForIds(Collection<Long> ids, StudentStatus status);
+
     /**
      * This method deletes all student's data from a database using the value of ID of the passed {@link Student}.
      * The student passed into the method entity must already be stored in a database.
@@ -0,0 +1,314 @@
+package com.verong.demo.database.hibernate.persistence.dao;
+
+import com.verong.demo.database.hibernate.persistence.dto.StudentIdAndNameDto;
+import com.verong.demo.database.hibernate.persistence.model.Student;
+import com.verong.demo.database.hibernate.persistence.model.StudentStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.criteria.Predicate;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.AvailableHints;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * An implementation of {@link StudentDao} using JPA (Hibernate implementation). Every method creates its own
+ * {@link EntityManager}, performs its work within a transaction and closes the {@link EntityManager} at the end.
+ */
+@RequiredArgsConstructor
+public class StudentDaoImpl implements StudentDao {
+
+    private static final String SELECT_ALL_JPQL = "select s from Student s";
+    private static final String SELECT_FIRST_PAGE_JPQL = "select s from Student s order by s.id";
+    private static final String SELECT_PAGE_AFTER_ID_JPQL = "select s from Student s where s.id > :afterId order by s.id";
+    private static final String UPDATE_STATUS_FOR_IDS_JPQL = "update Student s set s.status = :status where s.id in :ids";
+    private static final String SELECT_EXISTING_IDS_JPQL = "select s.id from Student s where s.id in :ids";
+    private static final String SELECT_BY_SCHOLARSHIP_JPQL = """
+            select new com.verong.demo.database.hibernate.persistence.dto.StudentIdAndNameDto(s.id, s.firstName, s.lastName)
+            from Student s
+            where s.scholarship = :scholarship""";
+
+    static final String SCHOLARSHIP_QUERY_CACHE_REGION = "students-by-scholarship";
+    /**
+     * The maximum number of IDs in one IN list: some databases limit it (e.g. Oracle to 1000),
+     * and the cost of parsing a statement grows with it.
+     */
+    static final int MAX_IDS_PER_STATEMENT = 1000;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void create(Student student) {
+        Objects.requireNonNull(student, "Student must not be null");
+        performWithinPersistenceContext(entityManager -> entityManager.persist(student));
+    }
+
+    @Override
+    public long importAll(Stream<Student> students, int batchSize) {
+        Objects.requireNonNull(students, "Students must not be null");
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive, but was %d".formatted(batchSize));
+        }
+        try (var session = entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession()) {
+            session.setJdbcBatchSize(batchSize);
+            long imported = 0;
+            int inBatch = 0;
+            var transaction = session.beginTransaction();
+            try {
+                for (var iterator = students.iterator(); iterator.hasNext(); ) {
+                    session.insert(Objects.requireNonNull(iterator.next(), "Student must not be null"));
+                    if (++inBatch == batchSize) {
+                        transaction.commit();
+                        evictQueryCache();
+                        imported += inBatch;
+                        inBatch = 0;
+                        transaction = session.beginTransaction();
+                    }
+                }
+                transaction.commit();
+                evictQueryCache();
+                return imported + inBatch;
+            } catch (PersistenceException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw new DaoOperationException(
+                        "Cannot import students, %d students have been imported before the failure".formatted(imported), e);
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Optional<Student> findById(Long id) {
+        Objects.requireNonNull(id, "Id must not be null");
+        return performReturningWithinPersistenceContext(entityManager ->
+                Optional.ofNullable(entityManager.find(Student.class, id)));
+    }
+
+    @Override
+    public List<Student> findAll() {
+        return performReturningWithinPersistenceContext(entityManager ->
+                entityManager.createQuery(SELECT_ALL_JPQL, Student.class).getResultList());
+    }
+
+    @Override
+    public List<Student> findPage(Long afterId, int limit) {
+        checkLimit(limit);
+        return performReturningWithinPersistenceContext(entityManager -> {
+            var query = afterId == null
+                    ? entityManager.createQuery(SELECT_FIRST_PAGE_JPQL, Student.class)
+                    : entityManager.createQuery(SELECT_PAGE_AFTER_ID_JPQL, Student.class).setParameter("afterId", afterId);
+            return query.setMaxResults(limit).getResultList();
+        });
+    }
+
+    @Override
+    public Page<Student> findPage(StudentSort sort, String cursor, int limit) {
+        Objects.requireNonNull(sort, "Sort must not be null");
+        checkLimit(limit);
+        var after = cursor == null ? null : KeysetCursor.decode(sort, cursor);
+        var students = performReturningWithinPersistenceContext(entityManager -> {
+            var rows = new ArrayList<Student>(limit + 1);
+            if (after == null || after.value() != null || sort.attribute() == null) {
+                rows.addAll(findValuesSegment(entityManager, sort, after, limit + 1));
+            }
+            if (sort.attribute() != null && rows.size() <= limit) {
+                rows.addAll(findNullsSegment(entityManager, sort, after, limit + 1 - rows.size()));
+            }
+            return rows;
+        });
+        return Page.of(students, limit, sort::cursorOf);
+    }
+
+    @Override
+    public List<StudentIdAndNameDto> findByScholarshipUsingJPQL(Boolean scholarship) {
+        return performReturningWithinPersistenceContext(entityManager ->
+                entityManager.createQuery(SELECT_BY_SCHOLARSHIP_JPQL, StudentIdAndNameDto.class)
+                        .setParameter("scholarship", scholarship)
+                        .setHint(AvailableHints.HINT_CACHEABLE, true)
+                        .setHint(AvailableHints.HINT_CACHE_REGION, SCHOLARSHIP_QUERY_CACHE_REGION)
+                        .getResultList());
+    }
+
+    @Override
+    public List<StudentIdAndNameDto> findByScholarshipUsingCriteriaApi(Boolean scholarship) {
+        return performReturningWithinPersistenceContext(entityManager -> {
+            var criteriaBuilder = entityManager.getCriteriaBuilder();
+            var query = criteriaBuilder.createQuery(StudentIdAndNameDto.class);
+            var student = query.from(Student.class);
+            query.select(criteriaBuilder.construct(StudentIdAndNameDto.class,
+                            student.get("id"), student.get("firstName"), student.get("lastName")))
+                    .where(criteriaBuilder.equal(student.get("scholarship"), scholarship));
+            return entityManager.createQuery(query)
+                    .setHint(AvailableHints.HINT_CACHEABLE, true)
+                    .setHint(AvailableHints.HINT_CACHE_REGION, SCHOLARSHIP_QUERY_CACHE_REGION)
+                    .getResultList();
+        });
+    }
+
+    @Override
+    public void updateStatus(Long id, StudentStatus status) {
+        Objects.requireNonNull(id, "Id must not be null");
+        performWithinPersistenceContext(entityManager -> {
+            var student = entityManager.find(Student.class, id);
+            if (student == null) {
+                throw new NoSuchElementException("Student with id = %d does not exist".formatted(id));
+            }
+            student.setStatus(status);
+        });
+    }
+
+    @Override
+    public int updateStatusWhere(StudentStatus from, StudentStatus to, StudentFilter filter) {
+        Objects.requireNonNull(from, "Status from must not be null");
+        Objects.requireNonNull(to, "Status to must not be null");
+        Objects.requireNonNull(filter, "Filter must not be null");
+        return performReturningWithinPersistenceContext(entityManager -> {
+            var criteriaBuilder = entityManager.getCriteriaBuilder();
+            var update = criteriaBuilder.createCriteriaUpdate(Student.class);
+            var student = update.from(Student.class);
+            update.set(student.<StudentStatus>get("status"), to)
+                    .where(criteriaBuilder.equal(student.get("status"), from), filter.toPredicate(criteriaBuilder, student));
+            return entityManager.createQuery(update).executeUpdate();
+        });
+    }
+
+    @Override
+    public int updateStatusForIds(Collection<Long> ids, StudentStatus status) {
+        Objects.requireNonNull(ids, "Ids must not be null");
+        Objects.requireNonNull(status, "Status must not be null");
+        var distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+        if (distinctIds.isEmpty()) {
+            return 0;
+        }
+        return performReturningWithinPersistenceContext(entityManager -> {
+            int updated = 0;
+            for (int from = 0; from < distinctIds.size(); from += MAX_IDS_PER_STATEMENT) {
+                var chunk = distinctIds.subList(from, Math.min(from + MAX_IDS_PER_STATEMENT, distinctIds.size()));
+                int chunkUpdated = entityManager.createQuery(UPDATE_STATUS_FOR_IDS_JPQL)
+                        .setParameter("status", status)
+                        .setParameter("ids", chunk)
+                        .executeUpdate();
+                if (chunkUpdated != chunk.size()) {
+                    throw new NoSuchElementException("Students with ids = %s do not exist"
+                            .formatted(findMissingIds(entityManager, chunk)));
+                }
+                updated += chunkUpdated;
+            }
+            return updated;
+        });
+    }
+
+    @Override
+    public void remove(Student student) {
+        Objects.requireNonNull(student, "Student must not be null");
+        Objects.requireNonNull(student.getId(), "Student id must not be null");
+        performWithinPersistenceContext(entityManager -> {
+            var managed = entityManager.find(Student.class, student.getId());
+            if (managed == null) {
+                throw new DaoOperationException("Student with id = %d does not exist".formatted(student.getId()));
+            }
+            entityManager.remove(managed);
+        });
+    }
+
+    private List<Long> findMissingIds(EntityManager entityManager, List<Long> ids) {
+        var existing = new HashSet<>(entityManager.createQuery(SELECT_EXISTING_IDS_JPQL, Long.class)
+                .setParameter("ids", ids)
+                .getResultList());
+        return ids.stream().filter(id -> !existing.contains(id)).toList();
+    }
+
+    private List<Student> findValuesSegment(EntityManager entityManager, StudentSort sort, KeysetCursor after, int limit) {
+        var criteriaBuilder = entityManager.getCriteriaBuilder();
+        var query = criteriaBuilder.createQuery(Student.class);
+        var student = query.from(Student.class);
+        var predicates = new ArrayList<Predicate>();
+        if (sort.attribute() == null) {
+            query.orderBy(criteriaBuilder.asc(student.get("id")));
+        } else {
+            predicates.add(criteriaBuilder.isNotNull(student.get(sort.attribute())));
+            query.orderBy(criteriaBuilder.asc(student.get(sort.attribute())), criteriaBuilder.asc(student.get("id")));
+        }
+        if (after != null) {
+            predicates.add(KeysetCursor.valuesAfter(after, criteriaBuilder, student));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private List<Student> findNullsSegment(EntityManager entityManager, StudentSort sort, KeysetCursor after, int limit) {
+        var criteriaBuilder = entityManager.getCriteriaBuilder();
+        var query = criteriaBuilder.createQuery(Student.class);
+        var student = query.from(Student.class);
+        query.where(after == null
+                        ? criteriaBuilder.isNull(student.get(sort.attribute()))
+                        : KeysetCursor.nullsAfter(after, criteriaBuilder, student))
+                .orderBy(criteriaBuilder.asc(student.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * A {@link org.hibernate.StatelessSession} bypasses the caches, so the results of the cached queries must be
+     * evicted explicitly after its changes are committed. The entity region needs no eviction as only inserts are done.
+     */
+    private void evictQueryCache() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive, but was %d".formatted(limit));
+        }
+    }
+
+    private void performWithinPersistenceContext(Consumer<EntityManager> operation) {
+        performReturningWithinPersistenceContext(entityManager -> {
+            operation.accept(entityManager);
+            return null;
+        });
+    }
+
+    private <T> T performReturningWithinPersistenceContext(Function<EntityManager, T> operation) {
+        var entityManager = entityManagerFactory.createEntityManager();
+        var transaction = entityManager.getTransaction();
+        transaction.begin();
+        try {
+            var result = operation.apply(entityManager);
+            transaction.commit();
+            return result;
+        } catch (PersistenceException e) {
+            rollback(entityManager);
+            throw new DaoOperationException("Error performing JPA operation. Transaction is rolled back", e);
+        } catch (RuntimeException e) {
+            rollback(entityManager);
+            throw e;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private void rollback(EntityManager entityManager) {
+        var transaction = entityManager.getTransaction();
+        if (transaction.isActive()) {
+            transaction.rollback();
+        }
+    }
+}
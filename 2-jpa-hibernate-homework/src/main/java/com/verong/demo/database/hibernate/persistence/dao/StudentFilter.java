@@ -0,0 +1,22 @@
+package com.verong.demo.database.hibernate.persistence.dao;
+
+import com.verong.demo.database.hibernate.persistence.model.Student;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * A condition on {@link Student} expressed with the Criteria API, e.g. to select students for a bulk update
+ * without loading them:
+ * <pre>{@code
+ * StudentFilter withoutScholarship = (criteriaBuilder, student) ->
+ *         criteriaBuilder.isFalse(student.get("scholarship"));
+ * }</pre>
+ */
+@FunctionalInterface
+public interface StudentFilter {
+
+    StudentFilter ALL = (criteriaBuilder, student) -> criteriaBuilder.conjunction();
+
+    Predicate toPredicate(CriteriaBuilder criteriaBuilder, Root<Student> student);
+}
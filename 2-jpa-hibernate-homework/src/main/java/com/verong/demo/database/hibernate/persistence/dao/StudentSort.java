@@ -0,0 +1,53 @@
+package com.verong.demo.database.hibernate.persistence.dao;
+
+import com.verong.demo.database.hibernate.persistence.model.Student;
+
+import java.time.LocalDate;
+import java.util.function.Function;
+
+/**
+ * An order of a keyset pagination of {@link Student}. Every order is ascending by the sort attribute
+ * with nulls last and then by {@code id}, so the position of a student is always unique.
+ * The sort attribute should be indexed together with {@code id}, e.g. {@code (last_name, id)},
+ * otherwise every page is a full scan.
+ */
+public enum StudentSort {
+
+    ID(null, Student::getId, Long::valueOf),
+    EMAIL("email", Student::getEmail, Function.identity()),
+    FIRST_NAME("firstName", Student::getFirstName, Function.identity()),
+    LAST_NAME("lastName", Student::getLastName, Function.identity()),
+    BIRTHDAY("birthday", Student::getBirthday, LocalDate::parse);
+
+    private final String attribute;
+    private final Function<Student, Object> getter;
+    private final Function<String, Object> parser;
+
+    StudentSort(String attribute, Function<Student, ?> getter, Function<String, ?> parser) {
+        this.attribute = attribute;
+        this.getter = getter::apply;
+        this.parser = parser::apply;
+    }
+
+    /**
+     * Returns a cursor pointing right after the passed student, e.g. to start paging from a known student.
+     */
+    public String cursorOf(Student student) {
+        return KeysetCursor.of(this, student).encode();
+    }
+
+    /**
+     * The name of the sort attribute of {@link Student}, or {@code null} if students are sorted by {@code id} only.
+     */
+    String attribute() {
+        return attribute;
+    }
+
+    Object valueOf(Student student) {
+        return attribute == null ? null : getter.apply(student);
+    }
+
+    Object parse(String value) {
+        return parser.apply(value);
+    }
+}
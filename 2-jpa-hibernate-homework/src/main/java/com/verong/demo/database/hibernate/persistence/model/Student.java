@@ -1,6 +1,9 @@
 package com.verong.demo.database.hibernate.persistence.model;
 
+import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 
@@ -9,12 +12,32 @@ import java.time.LocalDate;
 @AllArgsConstructor
 @EqualsAndHashCode(of = "id")
 @Builder
+@Entity
+@Table(name = "students")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Student.CACHE_REGION)
 public class Student {
+    public static final String CACHE_REGION = "students";
+
+    /**
+     * Taken from a sequence in blocks of 50, its increment, rather than generated by an identity column, so Hibernate
+     * knows the id before the insert and can send inserts in JDBC batches.
+     * <p>
+     * The schema has to have the sequence {@code students_id_seq} with an increment of 50, and inserts made without
+     * Hibernate have to take their ids from it too (see {@code V4__create_students_id_sequence.sql} of the
+     * benchmarks). The persistence unit fails to start when the sequence is missing or has another increment.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "students_id_seq")
+    @SequenceGenerator(name = "students_id_seq", sequenceName = "students_id_seq", allocationSize = 50)
     private Long id;
     private String email;
+    @Column(name = "first_name")
     private String firstName;
+    @Column(name = "last_name")
     private String lastName;
     private LocalDate birthday;
     private Boolean scholarship;
+    @Enumerated(EnumType.STRING)
     private StudentStatus status;
 }
@@ -0,0 +1,218 @@
+package com.verong.demo.database.hibernate.persistence.dao;
+
+import com.verong.demo.database.hibernate.persistence.model.Student;
+import com.verong.demo.database.hibernate.persistence.model.StudentStatus;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pages through students with {@link StudentDao#findPage(StudentSort, String, int)} on an in-memory H2 database and
+ * compares every order with the same order computed in memory: sort values ascending with nulls last, then ids.
+ */
+class KeysetPaginationTest {
+
+    private static final String CREATE_SCHEMA_SQL = """
+            CREATE SEQUENCE students_id_seq START WITH 50 INCREMENT BY 50;
+            CREATE TABLE students (
+                id          BIGINT DEFAULT NEXT VALUE FOR students_id_seq PRIMARY KEY,
+                email       VARCHAR(255) NOT NULL UNIQUE,
+                first_name  VARCHAR(255),
+                last_name   VARCHAR(255),
+                birthday    DATE,
+                scholarship BOOLEAN,
+                status      VARCHAR(32)
+            );
+            CREATE INDEX students_last_name_id_idx ON students (last_name, id)""";
+    /**
+     * Names with the separator of the cursor token, an empty one and duplicates, so ties are broken by id.
+     */
+    private static final String[] NAMES = {"Nash", "a|b", "|", "x||y", "", "Nash|", "Smith", null};
+    private static final int[] LIMITS = {1, 7, 50};
+    private static final int LATENCY_STUDENTS = 20_000;
+    private static final int LATENCY_RUNS = 30;
+
+    private EntityManagerFactory entityManagerFactory;
+    private StudentDao studentDao;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID()));
+        try (Connection connection = dataSource.getConnection();
+             var statement = connection.createStatement()) {
+            statement.execute(CREATE_SCHEMA_SQL);
+        }
+        entityManagerFactory = Persistence.createEntityManagerFactory("students", Map.of(
+                "jakarta.persistence.nonJtaDataSource", dataSource));
+        studentDao = new StudentDaoImpl(entityManagerFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    void everyStudentIsReturnedOnceInTheOrderOfTheSort() {
+        var students = importStudents(250);
+
+        for (var sort : StudentSort.values()) {
+            var expected = sorted(students, sort);
+            for (int limit : LIMITS) {
+                var ids = pageThrough(sort, null, limit);
+                assertEquals(expected, ids, "%s by %d".formatted(sort, limit));
+                assertEquals(ids.size(), new HashSet<>(ids).size(), "%s by %d".formatted(sort, limit));
+            }
+        }
+    }
+
+    @Test
+    void pagingStartsRightAfterTheStudentOfACursor() {
+        var students = importStudents(100);
+
+        for (var sort : StudentSort.values()) {
+            var expected = sorted(students, sort);
+            for (var start : students) { // including the last one with a value and those without one
+                var cursor = sort.cursorOf(start);
+                int position = expected.indexOf(start.getId());
+                assertEquals(expected.subList(position + 1, expected.size()), pageThrough(sort, cursor, 7),
+                        "%s after %s".formatted(sort, sort.valueOf(start)));
+            }
+        }
+    }
+
+    @Test
+    void cursorKeepsAValueWithTheSeparator() {
+        var student = Student.builder().id(42L).lastName("x||y|").build();
+
+        var cursor = KeysetCursor.decode(StudentSort.LAST_NAME, StudentSort.LAST_NAME.cursorOf(student));
+
+        assertEquals(new KeysetCursor(StudentSort.LAST_NAME, 42L, "x||y|"), cursor);
+        assertEquals(new KeysetCursor(StudentSort.LAST_NAME, 42L, ""),
+                KeysetCursor.decode(StudentSort.LAST_NAME, StudentSort.LAST_NAME.cursorOf(
+                        Student.builder().id(42L).lastName("").build())));
+        assertNull(KeysetCursor.decode(StudentSort.LAST_NAME, StudentSort.LAST_NAME.cursorOf(
+                Student.builder().id(42L).build())).value());
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        importStudents(10);
+
+        var page = studentDao.findPage(StudentSort.LAST_NAME, null, 10);
+
+        assertEquals(10, page.content().size());
+        assertFalse(page.hasNext());
+        assertTrue(studentDao.findPage(StudentSort.LAST_NAME, null, 9).hasNext());
+    }
+
+    @Test
+    void cursorOfAnotherSortOrAMalformedOneIsRejected() {
+        var student = Student.builder().id(1L).lastName("Nash").birthday(LocalDate.of(2001, 1, 1)).build();
+        var lastNameCursor = StudentSort.LAST_NAME.cursorOf(student);
+        var malformedDate = Base64.getUrlEncoder().encodeToString("BIRTHDAY|1|yesterday".getBytes());
+
+        assertThrows(IllegalArgumentException.class, () -> studentDao.findPage(StudentSort.EMAIL, lastNameCursor, 10));
+        assertThrows(IllegalArgumentException.class, () -> studentDao.findPage(StudentSort.LAST_NAME, "%%%", 10));
+        assertThrows(IllegalArgumentException.class, () -> studentDao.findPage(StudentSort.BIRTHDAY, malformedDate, 10));
+    }
+
+    /**
+     * A page deep in the table seeks to its cursor in the {@code (last_name, id)} index, so it takes about as long
+     * as the first page; an offset would make it read every row before it.
+     */
+    @Test
+    void deepPageTakesAboutAsLongAsTheFirstOne() {
+        var students = importStudents(LATENCY_STUDENTS);
+        var deepStudent = students.stream()
+                .filter(student -> "Smith".equals(student.getLastName()))
+                .max(Comparator.comparing(Student::getId))
+                .orElseThrow();
+        var deepCursor = StudentSort.LAST_NAME.cursorOf(deepStudent);
+
+        for (int i = 0; i < LATENCY_RUNS; i++) {
+            studentDao.findPage(StudentSort.LAST_NAME, null, 20);
+            studentDao.findPage(StudentSort.LAST_NAME, deepCursor, 20);
+        }
+        long first = medianNanos(() -> studentDao.findPage(StudentSort.LAST_NAME, null, 20));
+        long deep = medianNanos(() -> studentDao.findPage(StudentSort.LAST_NAME, deepCursor, 20));
+
+        assertTrue(deep < first * 3 + 1_000_000,
+                "deep page took %d µs, the first one %d µs".formatted(deep / 1_000, first / 1_000));
+    }
+
+    private List<Long> pageThrough(StudentSort sort, String cursor, int limit) {
+        var ids = new ArrayList<Long>();
+        Page<Student> page;
+        do {
+            page = studentDao.findPage(sort, cursor, limit);
+            assertTrue(page.content().size() <= limit);
+            page.content().forEach(student -> ids.add(student.getId()));
+            cursor = page.nextCursor();
+        } while (page.hasNext());
+        return ids;
+    }
+
+    private List<Student> importStudents(int count) {
+        var students = IntStream.range(0, count)
+                .mapToObj(index -> Student.builder()
+                        .email("student%03d@mail.com".formatted(index * 37 % count))
+                        .firstName(NAMES[index * 5 % NAMES.length])
+                        .lastName(NAMES[index % NAMES.length])
+                        .birthday(index % 6 == 0 ? null : LocalDate.of(2000, 1, 1).plusDays(index % 13))
+                        .scholarship(index % 2 == 0)
+                        .status(StudentStatus.ACTIVE)
+                        .build())
+                .toList();
+        studentDao.importAll(students.stream());
+        return students;
+    }
+
+    /**
+     * Returns the ids of the students in the order of the sort.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Long> sorted(List<Student> students, StudentSort sort) {
+        Function<Student, Comparable<Object>> value = student -> (Comparable<Object>) sort.valueOf(student);
+        return students.stream()
+                .sorted(Comparator.comparing(value, Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparing(Student::getId))
+                .map(Student::getId)
+                .toList();
+    }
+
+    private static long medianNanos(Runnable page) {
+        var nanos = new long[LATENCY_RUNS];
+        for (int i = 0; i < LATENCY_RUNS; i++) {
+            long start = System.nanoTime();
+            page.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[LATENCY_RUNS / 2];
+    }
+}
@@ -0,0 +1,221 @@
+package com.verong.demo.database.hibernate.persistence.dao;
+
+import com.verong.demo.database.hibernate.persistence.cache.CacheRegionStats;
+import com.verong.demo.database.hibernate.persistence.cache.CacheRegions;
+import com.verong.demo.database.hibernate.persistence.model.Student;
+import com.verong.demo.database.hibernate.persistence.model.StudentStatus;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs the bulk status updates of {@link StudentDaoImpl} against an in-memory H2 database and checks what they
+ * return, how many {@code UPDATE} statements reach the database, and that entities and query results read from
+ * the second-level and query caches afterwards are not stale.
+ */
+class StudentDaoImplBulkUpdateTest {
+
+    private static final String CREATE_SCHEMA_SQL = """
+            CREATE SEQUENCE students_id_seq START WITH 50 INCREMENT BY 50;
+            CREATE TABLE students (
+                id          BIGINT DEFAULT NEXT VALUE FOR students_id_seq PRIMARY KEY,
+                email       VARCHAR(255) NOT NULL UNIQUE,
+                first_name  VARCHAR(255),
+                last_name   VARCHAR(255),
+                birthday    DATE,
+                scholarship BOOLEAN,
+                status      VARCHAR(32)
+            )""";
+
+    private final AtomicInteger updates = new AtomicInteger();
+
+    private EntityManagerFactory entityManagerFactory;
+    private StudentDao studentDao;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID()));
+        try (Connection connection = dataSource.getConnection();
+             var statement = connection.createStatement()) {
+            statement.execute(CREATE_SCHEMA_SQL);
+        }
+        entityManagerFactory = Persistence.createEntityManagerFactory("students", Map.of(
+                "jakarta.persistence.nonJtaDataSource", counting(dataSource)));
+        studentDao = new StudentDaoImpl(entityManagerFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    void idsAreUpdatedByStatementsOfAtMostOneThousandIds() {
+        var ids = importStudents(2_500);
+        var withDuplicates = new ArrayList<>(ids);
+        withDuplicates.addAll(ids.subList(0, 10));
+
+        assertEquals(2_500, studentDao.updateStatusForIds(withDuplicates, StudentStatus.GRADUATED));
+
+        assertEquals(3, updates.get());
+        assertEquals(List.of(StudentStatus.GRADUATED), statuses());
+    }
+
+    @Test
+    void missingIdUpdatesNoStudent() {
+        var ids = new ArrayList<>(importStudents(1_500));
+        long missingId = ids.getLast() + 1;
+        // the first statement has updated its thousand students when the second one finds the missing id
+        ids.add(1_200, missingId);
+
+        var exception = assertThrows(NoSuchElementException.class,
+                () -> studentDao.updateStatusForIds(ids, StudentStatus.GRADUATED));
+
+        assertEquals("Students with ids = [%d] do not exist".formatted(missingId), exception.getMessage());
+        assertEquals(2, updates.get());
+        assertEquals(List.of(StudentStatus.ACTIVE), statuses());
+    }
+
+    @Test
+    void updatesReturnTheNumberOfUpdatedStudents() {
+        var ids = importStudents(10);
+        studentDao.updateStatusForIds(ids.subList(0, 4), StudentStatus.SUSPENDED);
+        StudentFilter withScholarship = (criteriaBuilder, student) ->
+                criteriaBuilder.isTrue(student.get("scholarship"));
+
+        assertEquals(0, studentDao.updateStatusForIds(List.of(), StudentStatus.GRADUATED));
+        assertEquals(3, studentDao.updateStatusWhere(StudentStatus.ACTIVE, StudentStatus.GRADUATED, withScholarship));
+        assertEquals(3, studentDao.updateStatusWhere(StudentStatus.ACTIVE, StudentStatus.GRADUATED, StudentFilter.ALL));
+        assertEquals(0, studentDao.updateStatusWhere(StudentStatus.ACTIVE, StudentStatus.GRADUATED, StudentFilter.ALL));
+        assertEquals(4, studentDao.updateStatusWhere(StudentStatus.SUSPENDED, StudentStatus.ACTIVE, StudentFilter.ALL));
+        assertEquals(2, studentDao.updateStatusForIds(List.of(ids.get(0), ids.get(9), ids.get(0)),
+                StudentStatus.SUSPENDED));
+
+        assertEquals(List.of(StudentStatus.SUSPENDED, StudentStatus.ACTIVE, StudentStatus.ACTIVE, StudentStatus.ACTIVE,
+                        StudentStatus.GRADUATED, StudentStatus.GRADUATED, StudentStatus.GRADUATED,
+                        StudentStatus.GRADUATED, StudentStatus.GRADUATED, StudentStatus.SUSPENDED),
+                ids.stream().map(id -> studentDao.findById(id).orElseThrow().getStatus()).toList());
+    }
+
+    @Test
+    void cachedStudentsAndQueryResultsAreReadAgainAfterABulkUpdate() {
+        var ids = importStudents(4);
+        var id = ids.getFirst();
+        studentDao.findById(id);
+        studentDao.findByScholarshipUsingJPQL(true);
+        var entities = statisticsOf(Student.CACHE_REGION);
+        var queries = statisticsOf(StudentDaoImpl.SCHOLARSHIP_QUERY_CACHE_REGION);
+        // both are served by the caches before the update
+        assertEquals(StudentStatus.ACTIVE, studentDao.findById(id).orElseThrow().getStatus());
+        assertEquals(2, studentDao.findByScholarshipUsingJPQL(true).size());
+        assertEquals(entities.hits() + 1, statisticsOf(Student.CACHE_REGION).hits());
+        assertEquals(queries.hits() + 1, statisticsOf(StudentDaoImpl.SCHOLARSHIP_QUERY_CACHE_REGION).hits());
+
+        studentDao.updateStatusForIds(List.of(id), StudentStatus.GRADUATED);
+        assertEquals(StudentStatus.GRADUATED, studentDao.findById(id).orElseThrow().getStatus());
+        assertEquals(2, studentDao.findByScholarshipUsingJPQL(true).size());
+        studentDao.updateStatusWhere(StudentStatus.GRADUATED, StudentStatus.DROPPED, StudentFilter.ALL);
+        assertEquals(StudentStatus.DROPPED, studentDao.findById(id).orElseThrow().getStatus());
+        assertEquals(2, studentDao.findByScholarshipUsingJPQL(true).size());
+
+        // after each update the student and the query result have been read from the database and cached again
+        var entitiesAfter = statisticsOf(Student.CACHE_REGION);
+        var queriesAfter = statisticsOf(StudentDaoImpl.SCHOLARSHIP_QUERY_CACHE_REGION);
+        assertEquals(entities.hits() + 1, entitiesAfter.hits());
+        assertEquals(entities.misses() + 2, entitiesAfter.misses());
+        assertEquals(entities.puts() + 2, entitiesAfter.puts());
+        assertEquals(queries.hits() + 1, queriesAfter.hits());
+        assertEquals(queries.misses() + 2, queriesAfter.misses());
+        assertEquals(queries.puts() + 2, queriesAfter.puts());
+    }
+
+    private CacheRegionStats statisticsOf(String region) {
+        return CacheRegions.statisticsOf(entityManagerFactory, region).orElseThrow();
+    }
+
+    /**
+     * Imports students whose every second one has a scholarship and returns their ids.
+     */
+    private List<Long> importStudents(int count) {
+        var students = IntStream.range(0, count)
+                .mapToObj(index -> Student.builder()
+                        .email("student%d@mail.com".formatted(index))
+                        .firstName("Roberto")
+                        .lastName("Nash")
+                        .birthday(LocalDate.of(2001, 1, 1))
+                        .scholarship(index % 2 == 0)
+                        .status(StudentStatus.ACTIVE)
+                        .build())
+                .toList();
+        studentDao.importAll(students.stream(), 500);
+        return students.stream().map(Student::getId).toList();
+    }
+
+    private List<StudentStatus> statuses() {
+        return studentDao.findAll().stream().map(Student::getStatus).distinct().toList();
+    }
+
+    /**
+     * Returns a data source whose statements count the executions of bulk updates.
+     */
+    private DataSource counting(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (dataSourceProxy, dataSourceMethod, dataSourceArgs) -> {
+                    var result = invoke(dataSource, dataSourceMethod, dataSourceArgs);
+                    if (!(result instanceof Connection connection)) {
+                        return result;
+                    }
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                            (connectionProxy, method, args) -> {
+                                var statement = invoke(connection, method, args);
+                                if (!(statement instanceof PreparedStatement preparedStatement)
+                                        || !((String) args[0]).toLowerCase(Locale.ROOT).startsWith("update")) {
+                                    return statement;
+                                }
+                                return counting(preparedStatement);
+                            });
+                });
+    }
+
+    private PreparedStatement counting(PreparedStatement statement) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("executeUpdate")) {
+                        updates.incrementAndGet();
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.verong.demo.database.hibernate.persistence.dao;
+
+import com.verong.demo.database.hibernate.persistence.cache.CacheRegionStats;
+import com.verong.demo.database.hibernate.persistence.cache.CacheRegions;
+import com.verong.demo.database.hibernate.persistence.dto.StudentIdAndNameDto;
+import com.verong.demo.database.hibernate.persistence.model.Student;
+import com.verong.demo.database.hibernate.persistence.model.StudentStatus;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Warms the entity region and the {@code students-by-scholarship} query region of {@link StudentDaoImpl} on an
+ * in-memory H2 database, changes students in every way the DAO offers and checks that the next reads return the
+ * changes. The statistics of the regions show whether a read has been served by the cache or by the database.
+ */
+class StudentDaoImplCacheTest {
+
+    private static final String CREATE_SCHEMA_SQL = """
+            CREATE SEQUENCE students_id_seq START WITH 50 INCREMENT BY 50;
+            CREATE TABLE students (
+                id          BIGINT DEFAULT NEXT VALUE FOR students_id_seq PRIMARY KEY,
+                email       VARCHAR(255) NOT NULL UNIQUE,
+                first_name  VARCHAR(255),
+                last_name   VARCHAR(255),
+                birthday    DATE,
+                scholarship BOOLEAN,
+                status      VARCHAR(32)
+            )""";
+
+    private EntityManagerFactory entityManagerFactory;
+    private StudentDao studentDao;
+    private Student student;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID()));
+        try (Connection connection = dataSource.getConnection();
+             var statement = connection.createStatement()) {
+            statement.execute(CREATE_SCHEMA_SQL);
+        }
+        entityManagerFactory = Persistence.createEntityManagerFactory("students", Map.of(
+                "jakarta.persistence.nonJtaDataSource", dataSource));
+        studentDao = new StudentDaoImpl(entityManagerFactory);
+        student = newStudent("first");
+        studentDao.create(student);
+        studentDao.create(newStudent("second"));
+        // the first reads put the student and the query result to the caches, the others hit them
+        for (int i = 0; i < 2; i++) {
+            studentDao.findById(student.getId());
+            studentDao.findByScholarshipUsingJPQL(true);
+            studentDao.findByScholarshipUsingCriteriaApi(true);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    void warmedCachesServeRepeatedReads() {
+        var entities = statisticsOf(Student.CACHE_REGION);
+        var queries = statisticsOf(StudentDaoImpl.SCHOLARSHIP_QUERY_CACHE_REGION);
+
+        assertEquals(StudentStatus.ACTIVE, studentDao.findById(student.getId()).orElseThrow().getStatus());
+        assertEquals(List.of("first", "second"), scholarshipFirstNames());
+
+        assertEquals(changes(1, 0, 0), changesOf(entities));
+        assertEquals(changes(2, 0, 0), changesOf(queries));
+    }
+
+    @Test
+    void createdStudentIsFoundByTheCachedQueries() {
+        var queries = statisticsOf(StudentDaoImpl.SCHOLARSHIP_QUERY_CACHE_REGION);
+
+        studentDao.create(newStudent("third"));
+
+        assertEquals(List.of("first", "second", "third"), scholarshipFirstNames());
+        assertEquals(changes(1, 1, 1), changesOf(queries));
+    }
+
+    @Test
+    void importedStudentsAreFoundByTheCachedQueries() {
+        var queries = statisticsOf(StudentDaoImpl.SCHOLARSHIP_QUERY_CACHE_REGION);
+
+        studentDao.importAll(Stream.of(newStudent("third"), newStudent("fourth")), 1);
+
+        assertEquals(List.of("first", "fourth", "second", "third"), scholarshipFirstNames());
+        assertEquals(changes(1, 1, 1), changesOf(queries));
+    }
+
+    @Test
+    void updatedStatusIsReadFromTheEntityCache() {
+        var entities = statisticsOf(Student.CACHE_REGION);
+        var queries = statisticsOf(StudentDaoImpl.SCHOLARSHIP_QUERY_CACHE_REGION);
+
+        studentDao.updateStatus(student.getId(), StudentStatus.GRADUATED);
+
+        // the update finds the student in the cache and puts the changed one back
+        assertEquals(StudentStatus.GRADUATED, studentDao.findById(student.getId()).orElseThrow().getStatus());
+        assertEquals(changes(2, 0, 1), changesOf(entities));
+        // the students table has changed, so the cached query results are not used any more
+        assertEquals(List.of("first", "second"), scholarshipFirstNames());
+        assertEquals(changes(1, 1, 1), changesOf(queries));
+    }
+
+    @Test
+    void removedStudentIsNeitherFoundNorReturnedByTheCachedQueries() {
+        var entities = statisticsOf(Student.CACHE_REGION);
+        var queries = statisticsOf(StudentDaoImpl.SCHOLARSHIP_QUERY_CACHE_REGION);
+
+        studentDao.remove(student);
+
+        assertEquals(Optional.empty(), studentDao.findById(student.getId()));
+        assertEquals(List.of("second"), scholarshipFirstNames());
+        // the removal has found the student in the cache, the read after it has not
+        assertEquals(changes(1, 1, 0), changesOf(entities));
+        assertEquals(changes(1, 1, 1), changesOf(queries));
+    }
+
+    @Test
+    void hitRateOfARegionWithoutLookupsIsZero() {
+        assertEquals(0, new CacheRegionStats("empty", 0, 0, 0, 0, 0).hitRate());
+        assertEquals(0.25, new CacheRegionStats("warm", 1, 3, 3, 0, 3).hitRate());
+    }
+
+    /**
+     * Returns the first names of the students with a scholarship by both cached queries, which must agree. Both
+     * queries have the same SQL, so they share one cached result: when the first one misses and puts it, the second
+     * one hits.
+     */
+    private List<String> scholarshipFirstNames() {
+        var byJpql = studentDao.findByScholarshipUsingJPQL(true).stream()
+                .map(StudentIdAndNameDto::firstName).sorted().toList();
+        var byCriteria = studentDao.findByScholarshipUsingCriteriaApi(true).stream()
+                .map(StudentIdAndNameDto::firstName).sorted().toList();
+        assertEquals(byJpql, byCriteria);
+        return byJpql;
+    }
+
+    private CacheRegionStats statisticsOf(String region) {
+        return CacheRegions.statisticsOf(entityManagerFactory, region).orElseThrow();
+    }
+
+    /**
+     * Returns how many hits, misses and puts a region has had since the passed statistics.
+     */
+    private List<Long> changesOf(CacheRegionStats before) {
+        var after = statisticsOf(before.region());
+        return changes(after.hits() - before.hits(), after.misses() - before.misses(), after.puts() - before.puts());
+    }
+
+    private static List<Long> changes(long hits, long misses, long puts) {
+        return List.of(hits, misses, puts);
+    }
+
+    private static Student newStudent(String firstName) {
+        return Student.builder()
+                .email("%s@mail.com".formatted(firstName))
+                .firstName(firstName)
+                .lastName("Nash")
+                .birthday(LocalDate.of(2001, 1, 1))
+                .scholarship(true)
+                .status(StudentStatus.ACTIVE)
+                .build();
+    }
+}
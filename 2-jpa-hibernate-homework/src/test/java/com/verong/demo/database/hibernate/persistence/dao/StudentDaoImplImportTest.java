@@ -0,0 +1,187 @@
+package com.verong.demo.database.hibernate.persistence.dao;
+
+import com.verong.demo.database.hibernate.persistence.model.Student;
+import com.verong.demo.database.hibernate.persistence.model.StudentStatus;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs {@link StudentDaoImpl#importAll(Stream, int)} against an in-memory H2 database with the schema of the
+ * benchmarks, and counts the statements that reach the database.
+ */
+class StudentDaoImplImportTest {
+
+    private static final String CREATE_SCHEMA_SQL = """
+            CREATE SEQUENCE students_id_seq START WITH 50 INCREMENT BY 50;
+            CREATE TABLE students (
+                id          BIGINT DEFAULT NEXT VALUE FOR students_id_seq PRIMARY KEY,
+                email       VARCHAR(255) NOT NULL UNIQUE,
+                first_name  VARCHAR(255),
+                last_name   VARCHAR(255),
+                birthday    DATE,
+                scholarship BOOLEAN,
+                status      VARCHAR(32)
+            )""";
+    private static final String INSERT_WITH_DEFAULT_ID_SQL = "INSERT INTO students(email) VALUES ('sql@mail.com')";
+
+    private final AtomicInteger insertBatches = new AtomicInteger();
+    private final AtomicInteger singleInserts = new AtomicInteger();
+    private final AtomicInteger sequenceCalls = new AtomicInteger();
+
+    private JdbcDataSource dataSource;
+    private EntityManagerFactory entityManagerFactory;
+    private StudentDao studentDao;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID()));
+        try (Connection connection = dataSource.getConnection();
+             var statement = connection.createStatement()) {
+            statement.execute(CREATE_SCHEMA_SQL);
+        }
+        entityManagerFactory = Persistence.createEntityManagerFactory("students", Map.of(
+                "jakarta.persistence.nonJtaDataSource", counting(dataSource)));
+        studentDao = new StudentDaoImpl(entityManagerFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    void importSendsInsertsInJdbcBatches() {
+        var students = newStudents(0, 1_000);
+
+        assertEquals(1_000, studentDao.importAll(students.stream(), 100));
+
+        assertEquals(10, insertBatches.get());
+        assertEquals(0, singleInserts.get());
+        // the pooled generator reserves 50 ids per call of the sequence
+        assertEquals(20, sequenceCalls.get());
+        assertEquals(LongStream.rangeClosed(1, 1_000).boxed().toList(), students.stream().map(Student::getId).toList());
+        assertEquals(1_000, studentDao.findAll().size());
+    }
+
+    @Test
+    void idsReservedByHibernateAreNotTakenByOtherInserts() throws SQLException {
+        var first = newStudents(0, 30);
+        var second = newStudents(30, 30);
+
+        studentDao.importAll(first.stream(), 100);
+        long sqlId = insertWithDefaultId();
+        studentDao.importAll(second.stream(), 100);
+
+        var ids = new HashSet<Long>();
+        Stream.concat(first.stream(), second.stream()).forEach(student -> ids.add(student.getId()));
+        ids.add(sqlId);
+        assertEquals(61, ids.size());
+        assertEquals(61, studentDao.findAll().size());
+    }
+
+    private long insertWithDefaultId() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(INSERT_WITH_DEFAULT_ID_SQL, new String[]{"id"})) {
+            statement.executeUpdate();
+            try (var keys = statement.getGeneratedKeys()) {
+                keys.next();
+                return keys.getLong(1);
+            }
+        }
+    }
+
+    private static List<Student> newStudents(int from, int count) {
+        return IntStream.range(from, from + count)
+                .mapToObj(index -> Student.builder()
+                        .email("student%d@mail.com".formatted(index))
+                        .firstName("Roberto")
+                        .lastName("Nash")
+                        .birthday(LocalDate.of(2001, 1, 1))
+                        .scholarship(true)
+                        .status(StudentStatus.ACTIVE)
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Returns a data source whose statements count inserts sent one by one, batches of inserts and calls of
+     * the id sequence.
+     */
+    private DataSource counting(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (dataSourceProxy, dataSourceMethod, dataSourceArgs) -> {
+                    var result = invoke(dataSource, dataSourceMethod, dataSourceArgs);
+                    if (!(result instanceof Connection connection)) {
+                        return result;
+                    }
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                            (connectionProxy, method, args) -> {
+                                var statement = invoke(connection, method, args);
+                                if (!(statement instanceof PreparedStatement preparedStatement)) {
+                                    return statement;
+                                }
+                                return counting(preparedStatement, ((String) args[0]).toLowerCase(Locale.ROOT));
+                            });
+                });
+    }
+
+    private PreparedStatement counting(PreparedStatement statement, String sql) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    boolean insert = sql.startsWith("insert");
+                    switch (method.getName()) {
+                        case "executeBatch" -> {
+                            if (insert) {
+                                insertBatches.incrementAndGet();
+                            }
+                        }
+                        case "executeUpdate", "execute" -> {
+                            if (insert) {
+                                singleInserts.incrementAndGet();
+                            }
+                        }
+                        case "executeQuery" -> {
+                            if (sql.contains("students_id_seq")) {
+                                sequenceCalls.incrementAndGet();
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.verong.demo.database.hibernate.persistence.dao;
+
+import com.verong.demo.database.hibernate.persistence.model.Student;
+import jakarta.persistence.Persistence;
+import jakarta.persistence.PersistenceException;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that the persistence unit starts only on a schema whose id sequence suits the pooled generator of
+ * {@link Student}, rather than failing on the first insert or handing out duplicate ids.
+ */
+class StudentIdSequenceTest {
+
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE students (
+                id          BIGINT PRIMARY KEY,
+                email       VARCHAR(255) NOT NULL UNIQUE,
+                first_name  VARCHAR(255),
+                last_name   VARCHAR(255),
+                birthday    DATE,
+                scholarship BOOLEAN,
+                status      VARCHAR(32)
+            )""";
+
+    @Test
+    void startsWhenTheIncrementIsTheAllocationSize() throws SQLException {
+        var dataSource = schema("CREATE SEQUENCE students_id_seq INCREMENT BY 50");
+
+        try (var entityManagerFactory = Persistence.createEntityManagerFactory("students", Map.of(
+                "jakarta.persistence.nonJtaDataSource", dataSource))) {
+            var student = Student.builder().email("roberto.nash@mail.com").build();
+            new StudentDaoImpl(entityManagerFactory).create(student);
+            assertEquals(1, student.getId());
+        }
+    }
+
+    @Test
+    void failsToStartWhenTheSequenceIsMissing() throws SQLException {
+        var dataSource = schema(null);
+
+        var exception = assertThrows(PersistenceException.class, () -> Persistence.createEntityManagerFactory(
+                "students", Map.of("jakarta.persistence.nonJtaDataSource", dataSource)));
+        assertEquals("Schema-validation: missing sequence [students_id_seq]", exception.getCause().getMessage());
+    }
+
+    @Test
+    void failsToStartWhenTheIncrementIsNotTheAllocationSize() throws SQLException {
+        // e.g. the sequence of a PostgreSQL bigserial column
+        var dataSource = schema("CREATE SEQUENCE students_id_seq INCREMENT BY 1");
+
+        assertThrows(PersistenceException.class, () -> Persistence.createEntityManagerFactory(
+                "students", Map.of("jakarta.persistence.nonJtaDataSource", dataSource)));
+    }
+
+    private static DataSource schema(String createSequenceSql) throws SQLException {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID()));
+        try (var connection = dataSource.getConnection();
+             var statement = connection.createStatement()) {
+            if (createSequenceSql != null) {
+                statement.execute(createSequenceSql);
+            }
+            statement.execute(CREATE_TABLE_SQL);
+        }
+        return dataSource;
+    }
+}
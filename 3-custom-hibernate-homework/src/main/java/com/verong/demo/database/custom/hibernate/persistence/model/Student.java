@@ -1,6 +1,8 @@
 package com.verong.demo.database.custom.hibernate.persistence.model;
 
 import com.verong.demo.database.custom.hibernate.persistence.orm.annotation.MyEntity;
+import com.verong.demo.database.custom.hibernate.persistence.orm.annotation.MyId;
+import com.verong.demo.database.custom.hibernate.persistence.orm.annotation.MyTable;
 import lombok.*;
 
 import java.time.LocalDate;
@@ -11,7 +13,9 @@ import java.time.LocalDate;
 @EqualsAndHashCode(of = "id")
 @Builder
 @MyEntity
+@MyTable("students")
 public class Student {
+    @MyId
     private Long id;
     private String email;
     private String firstName;
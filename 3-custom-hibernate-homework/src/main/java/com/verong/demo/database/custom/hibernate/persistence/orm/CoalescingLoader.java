@@ -0,0 +1,117 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Merges concurrent loads of single entities by id into batches (the DataLoader pattern).
+ * <br>
+ * The first thread that asks for an id becomes the leader of a new batch: it waits until the coalescing window
+ * elapses or the batch gets full, then loads all collected ids at once and completes the futures of the other
+ * threads. No background threads are involved, and waiting never pins a virtual thread.
+ * <br>
+ * Threads that ask for the same id share what the batch has loaded for it, but not an entity: every thread turns
+ * the shared state into an entity of its own, so callers never share mutable entities.
+ *
+ * @param <S> refers to the type of the loaded state, which is never modified
+ * @param <T> refers to {@code Entity} type
+ */
+final class CoalescingLoader<S, T> {
+
+    private final Function<List<Long>, Map<Long, S>> batchLoader;
+    private final Function<S, T> materializer;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Batch<S> current;
+
+    /**
+     * @param batchLoader  loads the states of the passed ids, omitting ids that do not exist
+     * @param materializer creates a new entity from a loaded state for every caller
+     */
+    CoalescingLoader(Function<List<Long>, Map<Long, S>> batchLoader, Function<S, T> materializer, int maxBatchSize,
+                     long windowNanos) {
+        this.batchLoader = batchLoader;
+        this.materializer = materializer;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = windowNanos;
+    }
+
+    /**
+     * @return the entity with the passed id or {@code null} if it does not exist
+     */
+    T load(Long id) {
+        Batch<S> batch;
+        CompletableFuture<S> future;
+        boolean leader = false;
+        lock.lock();
+        try {
+            if (current == null) {
+                current = new Batch<>();
+                leader = true;
+            }
+            batch = current;
+            future = batch.futures.computeIfAbsent(id, key -> new CompletableFuture<>());
+            if (batch.futures.size() >= maxBatchSize) {
+                current = null;
+                batch.full.countDown();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (leader) {
+            runAsLeader(batch);
+        }
+        S state;
+        try {
+            state = future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return state == null ? null : materializer.apply(state);
+    }
+
+    private void runAsLeader(Batch<S> batch) {
+        try {
+            batch.full.await(windowNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            if (current == batch) {
+                current = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // the batch is sealed now: no other thread can add an id to it
+        try {
+            var found = batchLoader.apply(new ArrayList<>(batch.futures.keySet()));
+            batch.futures.forEach((id, future) -> future.complete(found.get(id)));
+        } catch (Throwable e) {
+            // the other callers wait for their futures without a timeout, so they must be completed whatever is thrown
+            batch.futures.values().forEach(future -> future.completeExceptionally(e));
+            throw e;
+        }
+    }
+
+    private static final class Batch<S> {
+        final Map<Long, CompletableFuture<S>> futures = new LinkedHashMap<>();
+        final CountDownLatch full = new CountDownLatch(1);
+    }
+}
@@ -0,0 +1,10 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm;
+
+/**
+ * Identifies an entity by its type and primary key in identity maps and caches.
+ */
+record EntityKey(
+        Class<?> type,
+        Long id
+) {
+}
@@ -2,6 +2,9 @@ package com.verong.demo.database.custom.hibernate.persistence.orm;
 
 import com.verong.demo.database.custom.hibernate.persistence.orm.annotation.MyEntity;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface MyEntityManager {
 
     /**
@@ -13,8 +16,24 @@ public interface MyEntityManager {
      *
      * @param type class of the entity that has to be returned
      * @param id primary key to search by
-     * @return an instance of {@code entity} that is filled by values from a database
+     * @return an instance of {@code entity} that is filled by values from a database or {@code null}
+     * if an entity with such id does not exist
      * @param <T> refers to {@code Entity} type
      */
     <T> T findById(Class<T> type, Long id);
+
+    /**
+     * This method searches entities by the passed ids to return instances of them (using type parameter) filled
+     * with all data from a database. Unlike calling {@link #findById(Class, Long)} in a loop, ids are sent to
+     * a database in batches, so loading N entities takes about N / batch size queries instead of N.
+     * <br>
+     * This method can work only with those types of entity that are annotated with {@link MyEntity} annotation.
+     * If the passed entity type is not annotated, the method throws an exception to notify about it.
+     *
+     * @param type class of the entity that has to be returned
+     * @param ids primary keys to search by (duplicates are ignored)
+     * @return found entities in the order of the passed ids; ids that do not exist are skipped
+     * @param <T> refers to {@code Entity} type
+     */
+    <T> List<T> findAllById(Class<T> type, Collection<Long> ids);
 }
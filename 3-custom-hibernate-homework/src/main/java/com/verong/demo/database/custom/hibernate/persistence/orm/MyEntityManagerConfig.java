@@ -0,0 +1,50 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Settings of {@link MyEntityManagerImpl}. All settings have defaults, so {@code MyEntityManagerConfig.builder().build()}
+ * gives a manager that loads every entity by its own query.
+ */
+@Value
+@Builder
+public class MyEntityManagerConfig {
+
+    /**
+     * The maximum number of ids sent in one {@code WHERE id IN (...)} query.
+     */
+    @Builder.Default
+    int batchSize = 100;
+
+    /**
+     * If enabled, calls of {@link MyEntityManager#findById(Class, Long)} that arrive from different threads within
+     * {@link #coalescingWindow} are merged into one {@code IN (...)} query.
+     */
+    @Builder.Default
+    boolean coalescing = false;
+
+    /**
+     * How long the first of concurrent {@code findById} calls waits for others before the merged query is sent.
+     * It is the latency that every coalesced call pays at most, so it should be much shorter than a query itself.
+     */
+    @Builder.Default
+    Duration coalescingWindow = Duration.ofMillis(2);
+
+    /**
+     * The maximum number of entities kept in the second-level cache shared by all callers of the manager
+     * (see {@link com.verong.demo.database.custom.hibernate.persistence.orm.cache.TinyLfuCache}).
+     * {@code 0} disables the cache.
+     */
+    @Builder.Default
+    long secondLevelCacheSize = 0;
+
+    /**
+     * How long an entity stays in the second-level cache after it has been loaded. {@link Duration#ZERO} means
+     * until it is evicted or invalidated.
+     */
+    @Builder.Default
+    Duration secondLevelCacheTtl = Duration.ofMinutes(10);
+}
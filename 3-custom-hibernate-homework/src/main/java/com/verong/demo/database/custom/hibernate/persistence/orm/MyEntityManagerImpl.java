@@ -1,31 +1,250 @@
 package com.verong.demo.database.custom.hibernate.persistence.orm;
 
-import lombok.RequiredArgsConstructor;
+import com.verong.demo.database.custom.hibernate.persistence.orm.cache.CacheStats;
+import com.verong.demo.database.custom.hibernate.persistence.orm.cache.TinyLfuCache;
+import com.verong.demo.database.custom.hibernate.persistence.orm.mapper.EntityMapper;
+import com.verong.demo.database.custom.hibernate.persistence.orm.mapper.EntityMappers;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
-@RequiredArgsConstructor
+/**
+ * An implementation of {@link MyEntityManager} using JDBC API. Table, columns, SQL and setters of an entity type
+ * are resolved once and cached (see {@link EntityMappers}), so a call of {@link #findById(Class, Long)} does not use
+ * Reflection API at all.
+ * <br>
+ * Ids passed to {@link #findAllById(Class, Collection)} are sent by {@code IN (...)} queries of at most
+ * {@link MyEntityManagerConfig#getBatchSize()} ids. The number of placeholders is rounded up to a power of two
+ * (the list is padded by repeating the last id), so a database and a statement cache see only a few distinct
+ * statement shapes instead of one per list size.
+ * <br>
+ * If {@link MyEntityManagerConfig#getSecondLevelCacheSize()} is set, the state of loaded entities is kept in a shared
+ * {@link TinyLfuCache} and every lookup returns a new instance hydrated from it. The manager does not write to
+ * a database, so entities changed by other code have to be invalidated by {@link #evict(Class, Long)}; otherwise
+ * they are refreshed when their time to live elapses. Use {@link #openSession()} to get the same instance for
+ * repeated lookups within a unit of work.
+ */
 public class MyEntityManagerImpl implements MyEntityManager {
 
     private final DataSource dataSource;
+    private final MyEntityManagerConfig config;
+    private final Map<Class<?>, CoalescingLoader<?, ?>> loaders = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Map<Integer, String>> selectByIdsSql = new ConcurrentHashMap<>();
+    private final TinyLfuCache<EntityKey, Object[]> secondLevelCache;
+
+    public MyEntityManagerImpl(DataSource dataSource) {
+        this(dataSource, MyEntityManagerConfig.builder().build());
+    }
+
+    public MyEntityManagerImpl(DataSource dataSource, MyEntityManagerConfig config) {
+        this.dataSource = Objects.requireNonNull(dataSource, "DataSource must not be null");
+        this.config = Objects.requireNonNull(config, "Config must not be null");
+        if (config.getBatchSize() <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive, but was %d".formatted(config.getBatchSize()));
+        }
+        this.secondLevelCache = config.getSecondLevelCacheSize() > 0
+                ? new TinyLfuCache<>(config.getSecondLevelCacheSize(), config.getSecondLevelCacheTtl())
+                : null;
+    }
+
+    /**
+     * Opens a unit of work with its own identity map on top of this manager.
+     */
+    public MySession openSession() {
+        return new MySession(this);
+    }
+
+    /**
+     * Removes an entity from the second-level cache, e.g. after it has been changed in a database.
+     */
+    public void evict(Class<?> type, Long id) {
+        if (secondLevelCache != null) {
+            secondLevelCache.invalidate(new EntityKey(type, id));
+        }
+    }
+
+    /**
+     * Removes all entities of the passed type from the second-level cache.
+     */
+    public void evictAll(Class<?> type) {
+        if (secondLevelCache != null) {
+            secondLevelCache.invalidateIf(key -> key.type() == type);
+        }
+    }
+
+    /**
+     * Removes all entities from the second-level cache.
+     */
+    public void evictAll() {
+        if (secondLevelCache != null) {
+            secondLevelCache.invalidateAll();
+        }
+    }
+
+    /**
+     * @return statistics of the second-level cache or an empty {@code Optional} if the cache is disabled
+     */
+    public Optional<CacheStats> secondLevelCacheStats() {
+        return Optional.ofNullable(secondLevelCache).map(TinyLfuCache::stats);
+    }
 
     @Override
     public <T> T findById(Class<T> type, Long id) {
+        Objects.requireNonNull(type, "Entity type must not be null");
+        Objects.requireNonNull(id, "Id must not be null");
+        var mapper = EntityMappers.forType(type);
+        if (secondLevelCache != null) {
+            var state = secondLevelCache.get(new EntityKey(type, id));
+            if (state != null) {
+                return mapper.hydrate(state);
+            }
+        }
+        if (config.isCoalescing()) {
+            return loaderFor(mapper).load(id);
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(mapper.selectByIdSql())) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? mapRow(mapper, id, resultSet) : null;
+            }
+        } catch (SQLException e) {
+            throw new OrmException("Cannot find %s by id = %d".formatted(type.getSimpleName(), id), e);
+        }
+    }
+
+    @Override
+    public <T> List<T> findAllById(Class<T> type, Collection<Long> ids) {
+        Objects.requireNonNull(type, "Entity type must not be null");
+        Objects.requireNonNull(ids, "Ids must not be null");
+        var mapper = EntityMappers.forType(type);
+        var uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (uniqueIds.contains(null)) {
+            throw new NullPointerException("Ids must not contain null");
+        }
+        var found = new HashMap<Long, T>(uniqueIds.size() * 4 / 3 + 1);
+        var missing = uniqueIds;
+        if (secondLevelCache != null) {
+            missing = new ArrayList<>();
+            for (Long id : uniqueIds) {
+                var state = secondLevelCache.get(new EntityKey(type, id));
+                if (state != null) {
+                    found.put(id, mapper.hydrate(state));
+                } else {
+                    missing.add(id);
+                }
+            }
+        }
+        found.putAll(loadAll(mapper, missing));
+        var result = new ArrayList<T>(found.size());
+        for (Long id : uniqueIds) {
+            var entity = found.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CoalescingLoader<Object[], T> loaderFor(EntityMapper<T> mapper) {
+        // the loader shares states between the callers of an id, and every caller hydrates an entity of its own
+        return (CoalescingLoader<Object[], T>) loaders.computeIfAbsent(mapper.entityType(),
+                type -> new CoalescingLoader<>(ids -> loadAll(mapper, ids, this::readState), mapper::hydrate,
+                        config.getBatchSize(), config.getCoalescingWindow().toNanos()));
+    }
+
+    /**
+     * Loads entities by unique ids using one connection and as few {@code IN (...)} queries as the batch size allows.
+     */
+    private <T> Map<Long, T> loadAll(EntityMapper<T> mapper, List<Long> ids) {
+        return loadAll(mapper, ids, this::mapRow);
+    }
+
+    /**
+     * Does the same as {@link #loadAll(EntityMapper, List)}, but turns every row into a value by the passed reader.
+     */
+    private <T, R> Map<Long, R> loadAll(EntityMapper<T> mapper, List<Long> ids, RowReader<T, R> reader) {
+        var found = new HashMap<Long, R>(ids.size() * 4 / 3 + 1);
+        if (ids.isEmpty()) {
+            return found;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            for (int from = 0; from < ids.size(); from += config.getBatchSize()) {
+                var chunk = ids.subList(from, Math.min(from + config.getBatchSize(), ids.size()));
+                var shape = shapeOf(chunk.size());
+                try (PreparedStatement statement = connection.prepareStatement(selectByIdsSql(mapper, shape))) {
+                    for (int i = 0; i < shape; i++) {
+                        statement.setLong(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            var id = resultSet.getLong(1);
+                            found.put(id, reader.read(mapper, id, resultSet));
+                        }
+                    }
+                }
+            }
+            return found;
+        } catch (SQLException e) {
+            throw new OrmException("Cannot find %s by %d ids".formatted(mapper.entityType().getSimpleName(), ids.size()), e);
+        }
+    }
+
+    /**
+     * Maps the current row to an entity, keeping its state in the second-level cache if the cache is enabled.
+     */
+    private <T> T mapRow(EntityMapper<T> mapper, Long id, ResultSet resultSet) throws SQLException {
+        if (secondLevelCache == null) {
+            return mapper.mapRow(resultSet);
+        }
+        return mapper.hydrate(readState(mapper, id, resultSet));
+    }
+
+    /**
+     * Reads the state of the current row, keeping it in the second-level cache if the cache is enabled.
+     */
+    private Object[] readState(EntityMapper<?> mapper, Long id, ResultSet resultSet) throws SQLException {
+        var state = mapper.readState(resultSet);
+        if (secondLevelCache != null) {
+            secondLevelCache.put(new EntityKey(mapper.entityType(), id), state);
+        }
+        return state;
+    }
+
+    /**
+     * Rounds the number of ids up to the next power of two, but not above the batch size.
+     */
+    private int shapeOf(int count) {
+        var shape = Integer.highestOneBit(count);
+        if (shape < count) {
+            shape <<= 1;
+        }
+        return Math.min(shape, config.getBatchSize());
+    }
+
+    private String selectByIdsSql(EntityMapper<?> mapper, int shape) {
+        return selectByIdsSql.computeIfAbsent(mapper.entityType(), type -> new ConcurrentHashMap<>())
+                .computeIfAbsent(shape, size -> "SELECT %s FROM %s WHERE %s IN (%s)".formatted(
+                        String.join(", ", mapper.columns()), mapper.tableName(), mapper.idColumn(),
+                        String.join(", ", Collections.nCopies(size, "?"))));
+    }
 
-        /*
-            TODO: implement this method to be able to send an SQL query to find entity in database by id and return an instance of entity back;
-
-            The implementation of this method has to include the following steps:
-            - create more annotation to be able to set table name, ID and column names (The annotation MyEntity has been already created);
-            - use Reflection API to get necessary information of the passed entity type using annotation;
-            - create a string with SQL query to find an entity by id:
-                * set proper list of columns in "select" statement;
-                * set proper table name;
-            - execute your query using PreparedStatement of JDBC API;
-            - create an instance of the passed entity type using Reflection API and no-args constructor;
-            - set all fields using Reflection API;
-        */
-
-        return null;
+    @FunctionalInterface
+    private interface RowReader<T, R> {
+        R read(EntityMapper<T> mapper, Long id, ResultSet resultSet) throws SQLException;
     }
 }
@@ -0,0 +1,86 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm;
+
+import com.verong.demo.database.custom.hibernate.persistence.orm.mapper.EntityMappers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A unit of work on top of a {@link MyEntityManager} that keeps an identity map: an entity is loaded from a database
+ * (or a second-level cache) only the first time it is requested, and every later lookup in the session returns
+ * the same instance. Changes made to an entity are therefore visible to the whole unit of work.
+ * <br>
+ * A session is meant to be used by one thread for a short piece of work and then closed; it is not thread-safe.
+ */
+public class MySession implements MyEntityManager, AutoCloseable {
+
+    private final MyEntityManager entityManager;
+    private final Map<EntityKey, Object> identityMap = new HashMap<>();
+
+    public MySession(MyEntityManager entityManager) {
+        this.entityManager = Objects.requireNonNull(entityManager, "Entity manager must not be null");
+    }
+
+    @Override
+    public <T> T findById(Class<T> type, Long id) {
+        var key = new EntityKey(type, id);
+        var entity = identityMap.get(key);
+        if (entity == null) {
+            entity = entityManager.findById(type, id);
+            if (entity != null) {
+                identityMap.put(key, entity);
+            }
+        }
+        return type.cast(entity);
+    }
+
+    @Override
+    public <T> List<T> findAllById(Class<T> type, Collection<Long> ids) {
+        var uniqueIds = new LinkedHashSet<>(ids);
+        var missing = uniqueIds.stream()
+                .filter(id -> !identityMap.containsKey(new EntityKey(type, id)))
+                .toList();
+        if (!missing.isEmpty()) {
+            var mapper = EntityMappers.forType(type);
+            for (T entity : entityManager.findAllById(type, missing)) {
+                identityMap.putIfAbsent(new EntityKey(type, mapper.idOf(entity)), entity);
+            }
+        }
+        var result = new ArrayList<T>(uniqueIds.size());
+        for (Long id : uniqueIds) {
+            var entity = identityMap.get(new EntityKey(type, id));
+            if (entity != null) {
+                result.add(type.cast(entity));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes an entity from the identity map, so the next lookup loads a fresh instance.
+     */
+    public void evict(Class<?> type, Long id) {
+        identityMap.remove(new EntityKey(type, id));
+    }
+
+    /**
+     * Removes all entities from the identity map.
+     */
+    public void clear() {
+        identityMap.clear();
+    }
+
+    public boolean contains(Class<?> type, Long id) {
+        return identityMap.containsKey(new EntityKey(type, id));
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+}
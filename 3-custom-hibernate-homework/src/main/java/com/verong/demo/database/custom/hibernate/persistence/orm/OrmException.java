@@ -0,0 +1,16 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm;
+
+/**
+ * An unchecked exception that is thrown by {@link MyEntityManager} when an entity type cannot be mapped
+ * or a query cannot be executed.
+ */
+public class OrmException extends RuntimeException {
+
+    public OrmException(String message) {
+        super(message);
+    }
+
+    public OrmException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
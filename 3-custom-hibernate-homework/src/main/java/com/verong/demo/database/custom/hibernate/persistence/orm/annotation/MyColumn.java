@@ -0,0 +1,17 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the name of a column for a field of an entity. If it is absent, the name of the field in snake case
+ * is used (e.g. {@code firstName} -> {@code first_name}).
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface MyColumn {
+
+    String value();
+}
@@ -0,0 +1,14 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the field that holds the primary key of an entity. If no field is marked, the field {@code id} is used.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface MyId {
+}
@@ -0,0 +1,17 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the name of a table for an entity annotated with {@link MyEntity}. If it is absent, the name of the class
+ * in snake case is used (e.g. {@code StudentGroup} -> {@code student_group}).
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface MyTable {
+
+    String value();
+}
@@ -0,0 +1,28 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm.cache;
+
+/**
+ * A snapshot of statistics of {@link TinyLfuCache} accumulated since the cache has been created.
+ *
+ * @param size        number of entries at the moment the snapshot has been taken
+ * @param hits        lookups that have found a live entry
+ * @param misses      lookups that have found nothing or an expired entry
+ * @param puts        calls of {@code put}
+ * @param evictions   entries that have been removed to make room for a new one
+ * @param rejections  new entries that have not been admitted, because they are accessed less often than the victim
+ * @param expirations entries that have been removed because their time to live has elapsed
+ */
+public record CacheStats(
+        long size,
+        long hits,
+        long misses,
+        long puts,
+        long evictions,
+        long rejections,
+        long expirations
+) {
+
+    public double hitRate() {
+        var requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,108 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm.cache;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Count-Min sketch with 4-bit counters that estimates how often a key has been accessed recently.
+ * <br>
+ * Every key increments four counters chosen by different hash functions, and the estimate is the minimum of them.
+ * After {@code 10 * width} increments all counters are halved, so old popularity fades out and the sketch follows
+ * changes of the workload.
+ * <br>
+ * The sketch is updated by readers without a lock, so 16 counters share a long of an {@link AtomicLongArray} and
+ * every counter is changed by compare-and-set of its long: a counter never grows past {@value #MAX_COUNTER} into
+ * its neighbour, and halving does not lose increments made at the same time. An increment that brings {@code size}
+ * to the sample size or past it halves the counters, unless another thread is already halving them. If increments
+ * made during a halving leave {@code size} above the sample size, the next increment halves again.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNTER = 15;
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean resetting = new AtomicBoolean();
+
+    FrequencySketch(long maximumSize) {
+        var width = (int) Math.min(1 << 30, Math.max(16, Long.highestOneBit(Math.max(1, maximumSize - 1)) << 1));
+        this.table = new AtomicLongArray(width);
+        this.tableMask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    int frequency(Object key) {
+        var hash = spread(key.hashCode());
+        var frequency = MAX_COUNTER;
+        for (int i = 0; i < SEEDS.length; i++) {
+            var offset = counterOffset(hash, i);
+            var count = (int) ((table.get(indexOf(hash, i)) >>> offset) & MAX_COUNTER);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        var hash = spread(key.hashCode());
+        var added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            added |= incrementAt(indexOf(hash, i), counterOffset(hash, i));
+        }
+        if (added && size.incrementAndGet() >= sampleSize && resetting.compareAndSet(false, true)) {
+            try {
+                reset();
+            } finally {
+                resetting.set(false);
+            }
+        }
+    }
+
+    private boolean incrementAt(int index, int offset) {
+        var mask = (long) MAX_COUNTER << offset;
+        while (true) {
+            var value = table.get(index);
+            if ((value & mask) == mask) {
+                return false;
+            }
+            if (table.compareAndSet(index, value, value + (1L << offset))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Halves all counters; increments made in the meantime are counted in {@code size}, so only half of the sample
+     * size is taken back.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length(); i++) {
+            table.getAndUpdate(i, value -> (value >>> 1) & RESET_MASK);
+        }
+        size.addAndGet(-sampleSize / 2);
+    }
+
+    private int indexOf(int hash, int i) {
+        var value = (hash + SEEDS[i]) * SEEDS[i];
+        value += value >>> 32;
+        return (int) value & tableMask;
+    }
+
+    /**
+     * Every long holds 16 counters; each hash function picks a different counter of its long.
+     */
+    private static int counterOffset(int hash, int i) {
+        return ((hash >>> (i << 3)) & 0xF) << 2;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,219 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm.cache;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * A bounded in-memory cache with TinyLFU admission and an optional time to live.
+ * <br>
+ * <br>
+ * Entries are ordered by recency, but unlike a plain LRU cache a new entry does not push out the least recently used
+ * one unconditionally: when the cache is full, the new key is admitted only if a {@link FrequencySketch} says it has
+ * been requested more often than the victim. A burst of one-off keys therefore cannot flush out hot entries, which
+ * keeps the hit rate high for skewed workloads.
+ * <br>
+ * <br>
+ * Reads are lock-free: the recency order is updated only if the eviction lock is free at that moment, so readers
+ * never wait for each other. Writes and invalidations take the lock.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values, they have to be immutable since they are shared between threads
+ */
+public final class TinyLfuCache<K, V> {
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final long maximumSize;
+    private final long ttlNanos;
+    private final FrequencySketch sketch;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Node<K, V> head = new Node<>(null, null, 0);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param maximumSize the maximum number of entries, must be positive
+     * @param ttl         time to live of an entry since it has been put, {@link Duration#ZERO} means forever
+     */
+    public TinyLfuCache(long maximumSize, Duration ttl) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive, but was %d".formatted(maximumSize));
+        }
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl.toNanos();
+        this.sketch = new FrequencySketch(maximumSize);
+        head.prev = head;
+        head.next = head;
+    }
+
+    /**
+     * @return a cached value or {@code null} if there is no live entry for the key
+     */
+    public V get(K key) {
+        sketch.increment(key);
+        var node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (isExpired(node, System.nanoTime())) {
+            misses.increment();
+            evictionLock.lock();
+            try {
+                if (data.remove(key, node)) {
+                    unlink(node);
+                    expirations.increment();
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+            return null;
+        }
+        hits.increment();
+        if (evictionLock.tryLock()) {
+            try {
+                if (node.prev != null) {
+                    unlink(node);
+                    linkLast(node);
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    /**
+     * Puts a value to the cache. If the cache is full and the key is not more popular than the least recently used
+     * entry, the value is not cached at all.
+     */
+    public void put(K key, V value) {
+        Objects.requireNonNull(key, "Key must not be null");
+        Objects.requireNonNull(value, "Value must not be null");
+        puts.increment();
+        var expiresAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+        evictionLock.lock();
+        try {
+            sketch.increment(key);
+            var existing = data.get(key);
+            if (existing != null) {
+                existing.value = value;
+                existing.expiresAtNanos = expiresAt;
+                unlink(existing);
+                linkLast(existing);
+                return;
+            }
+            if (data.size() >= maximumSize && !evictFor(key)) {
+                rejections.increment();
+                return;
+            }
+            var node = new Node<>(key, value, expiresAt);
+            data.put(key, node);
+            linkLast(node);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        evictionLock.lock();
+        try {
+            var node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void invalidateIf(Predicate<? super K> predicate) {
+        evictionLock.lock();
+        try {
+            for (var node = head.next; node != head; ) {
+                var next = node.next;
+                if (predicate.test(node.key)) {
+                    data.remove(node.key, node);
+                    unlink(node);
+                }
+                node = next;
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        invalidateIf(key -> true);
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(data.size(), hits.sum(), misses.sum(), puts.sum(),
+                evictions.sum(), rejections.sum(), expirations.sum());
+    }
+
+    /**
+     * Removes the least recently used entry if it has expired or is less popular than the candidate.
+     *
+     * @return {@code true} if room has been made for the candidate
+     */
+    private boolean evictFor(K candidate) {
+        var victim = head.next;
+        if (isExpired(victim, System.nanoTime())) {
+            expirations.increment();
+        } else if (sketch.frequency(candidate) > sketch.frequency(victim.key)) {
+            evictions.increment();
+        } else {
+            return false;
+        }
+        data.remove(victim.key, victim);
+        unlink(victim);
+        return true;
+    }
+
+    private boolean isExpired(Node<K, V> node, long nowNanos) {
+        return node.expiresAtNanos != 0 && nowNanos - node.expiresAtNanos >= 0;
+    }
+
+    private void linkLast(Node<K, V> node) {
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.prev == null) {
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    /**
+     * An entry of the cache; {@code prev} and {@code next} link it into the recency list guarded by the eviction lock.
+     */
+    private static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        volatile long expiresAtNanos;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, long expiresAtNanos) {
+            this.key = key;
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Everything {@link com.verong.demo.database.custom.hibernate.persistence.orm.MyEntityManager} needs to know
+ * about an entity type: its table, columns, SQL and a way to turn a row into an instance.
+ * An instance is resolved once per entity type (see {@link EntityMappers}) and is safe to share between threads.
+ *
+ * @param <T> refers to {@code Entity} type
+ */
+public interface EntityMapper<T> {
+
+    Class<T> entityType();
+
+    String tableName();
+
+    String idColumn();
+
+    /**
+     * @return names of all mapped columns in the order they are selected, the id column is the first one
+     */
+    List<String> columns();
+
+    /**
+     * @return {@code SELECT <all columns> FROM <table> WHERE <id column> = ?}
+     */
+    String selectByIdSql();
+
+    /**
+     * Creates an entity and fills it with the values of the current row of the passed {@link ResultSet}.
+     * The result set has to be produced by {@link #selectByIdSql()} (or any query with the same column list).
+     * A value of an enum column that is not a constant of the enum fails with {@link java.sql.SQLDataException}
+     * that names the column.
+     */
+    T mapRow(ResultSet resultSet) throws SQLException;
+
+    /**
+     * @return the value of the id field of the passed entity
+     */
+    Long idOf(T entity);
+
+    /**
+     * Reads the values of the current row without creating an entity. Values are converted to the types of
+     * the fields and placed in the order of {@link #columns()}, so the array can be cached and turned into
+     * an entity later by {@link #hydrate(Object[])}.
+     */
+    Object[] readState(ResultSet resultSet) throws SQLException;
+
+    /**
+     * Creates a new entity filled with the passed state produced by {@link #readState(ResultSet)}.
+     * The state is not modified and can be hydrated many times.
+     */
+    T hydrate(Object[] state);
+}
@@ -0,0 +1,53 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm.mapper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * A registry of {@link EntityMapper} objects.
+ * <br>
+ * Mappers generated at compile time by the {@code @MyEntity} annotation processor are listed in
+ * {@code META-INF/services} and loaded once by {@link ServiceLoader}; they need neither class scanning nor
+ * Reflection API. For an entity type without a generated mapper a {@link RuntimeEntityMapper} is built the first time
+ * the type is requested and is kept for the lifetime of the class.
+ */
+public final class EntityMappers {
+
+    private static final Map<Class<?>, EntityMapper<?>> GENERATED = loadGenerated();
+
+    private static final ClassValue<EntityMapper<?>> MAPPERS = new ClassValue<>() {
+        @Override
+        protected EntityMapper<?> computeValue(Class<?> type) {
+            var generated = GENERATED.get(type);
+            return generated != null ? generated : RuntimeEntityMapper.of(type);
+        }
+    };
+
+    private EntityMappers() {
+    }
+
+    /**
+     * @throws com.verong.demo.database.custom.hibernate.persistence.orm.OrmException if the type cannot be mapped
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityMapper<T> forType(Class<T> type) {
+        return (EntityMapper<T>) MAPPERS.get(type);
+    }
+
+    /**
+     * @return {@code true} if the type is mapped by a mapper generated at compile time
+     */
+    public static boolean isGenerated(Class<?> type) {
+        return GENERATED.containsKey(type);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Map<Class<?>, EntityMapper<?>> loadGenerated() {
+        var mappers = new HashMap<Class<?>, EntityMapper<?>>();
+        for (EntityMapper mapper : ServiceLoader.load(EntityMapper.class, EntityMappers.class.getClassLoader())) {
+            mappers.put(mapper.entityType(), mapper);
+        }
+        return Map.copyOf(mappers);
+    }
+}
@@ -0,0 +1,296 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm.mapper;
+
+import com.verong.demo.database.custom.hibernate.persistence.orm.OrmException;
+import com.verong.demo.database.custom.hibernate.persistence.orm.annotation.MyColumn;
+import com.verong.demo.database.custom.hibernate.persistence.orm.annotation.MyEntity;
+import com.verong.demo.database.custom.hibernate.persistence.orm.annotation.MyId;
+import com.verong.demo.database.custom.hibernate.persistence.orm.annotation.MyTable;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * An {@link EntityMapper} that is built from the annotations of an entity type at runtime.
+ * <br>
+ * Reflection API is used only once, while the mapper is being built: the table, columns and SQL are resolved and
+ * every field gets a precompiled setter. A setter is a {@link BiConsumer} spun by {@link LambdaMetafactory} around
+ * the public setter method of a field, or a {@link MethodHandle} of the field itself if there is no such method.
+ * Mapping a row afterwards is plain calls of these functions without any {@link Field#set(Object, Object)}.
+ *
+ * @param <T> refers to {@code Entity} type
+ */
+public final class RuntimeEntityMapper<T> implements EntityMapper<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<T> entityType;
+    private final String tableName;
+    private final String idColumn;
+    private final List<String> columns;
+    private final String selectByIdSql;
+    private final Supplier<T> constructor;
+    private final MethodHandle idGetter;
+    private final ColumnReader[] readers;
+    private final BiConsumer<Object, Object>[] setters;
+
+    private RuntimeEntityMapper(Class<T> entityType, String tableName, List<Field> fields, Field idField) {
+        this.entityType = entityType;
+        this.tableName = tableName;
+        this.idColumn = columnName(idField);
+        this.columns = fields.stream().map(RuntimeEntityMapper::columnName).toList();
+        this.selectByIdSql = "SELECT %s FROM %s WHERE %s = ?".formatted(String.join(", ", columns), tableName, idColumn);
+        var lookup = privateLookup(entityType);
+        this.constructor = constructorOf(lookup, entityType);
+        this.idGetter = idGetterOf(lookup, idField);
+        this.readers = fields.stream()
+                .map(field -> ColumnReader.of(field.getType(), columnName(field)))
+                .toArray(ColumnReader[]::new);
+        @SuppressWarnings("unchecked")
+        BiConsumer<Object, Object>[] fieldSetters = fields.stream()
+                .map(field -> setterOf(lookup, entityType, field))
+                .toArray(BiConsumer[]::new);
+        this.setters = fieldSetters;
+    }
+
+    /**
+     * Builds a mapper for the passed entity type.
+     *
+     * @throws OrmException if the type is not annotated with {@link MyEntity} or cannot be mapped
+     */
+    public static <T> RuntimeEntityMapper<T> of(Class<T> entityType) {
+        if (!entityType.isAnnotationPresent(MyEntity.class)) {
+            throw new OrmException("Class %s is not annotated with @%s"
+                    .formatted(entityType.getName(), MyEntity.class.getSimpleName()));
+        }
+        var fields = Arrays.stream(entityType.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers()))
+                .toList();
+        var idField = fields.stream()
+                .filter(field -> field.isAnnotationPresent(MyId.class))
+                .findFirst()
+                .or(() -> fields.stream().filter(field -> field.getName().equals("id")).findFirst())
+                .orElseThrow(() -> new OrmException("Class %s has neither a field annotated with @%s nor a field 'id'"
+                        .formatted(entityType.getName(), MyId.class.getSimpleName())));
+        var orderedFields = new ArrayList<Field>(fields.size());
+        orderedFields.add(idField);
+        fields.stream().filter(field -> field != idField).forEach(orderedFields::add);
+        var table = entityType.getAnnotation(MyTable.class);
+        var tableName = table != null ? table.value() : toSnakeCase(entityType.getSimpleName());
+        return new RuntimeEntityMapper<>(entityType, tableName, orderedFields, idField);
+    }
+
+    @Override
+    public Class<T> entityType() {
+        return entityType;
+    }
+
+    @Override
+    public String tableName() {
+        return tableName;
+    }
+
+    @Override
+    public String idColumn() {
+        return idColumn;
+    }
+
+    @Override
+    public List<String> columns() {
+        return columns;
+    }
+
+    @Override
+    public String selectByIdSql() {
+        return selectByIdSql;
+    }
+
+    @Override
+    public T mapRow(ResultSet resultSet) throws SQLException {
+        var entity = constructor.get();
+        for (int i = 0; i < setters.length; i++) {
+            setters[i].accept(entity, readers[i].read(resultSet, i + 1));
+        }
+        return entity;
+    }
+
+    @Override
+    public Long idOf(T entity) {
+        try {
+            return (Long) idGetter.invokeExact(entity);
+        } catch (Throwable e) {
+            throw new OrmException("Cannot read id of %s".formatted(entityType.getName()), e);
+        }
+    }
+
+    @Override
+    public Object[] readState(ResultSet resultSet) throws SQLException {
+        var state = new Object[readers.length];
+        for (int i = 0; i < readers.length; i++) {
+            state[i] = readers[i].read(resultSet, i + 1);
+        }
+        return state;
+    }
+
+    @Override
+    public T hydrate(Object[] state) {
+        var entity = constructor.get();
+        for (int i = 0; i < setters.length; i++) {
+            setters[i].accept(entity, state[i]);
+        }
+        return entity;
+    }
+
+    static String columnName(Field field) {
+        var column = field.getAnnotation(MyColumn.class);
+        return column != null ? column.value() : toSnakeCase(field.getName());
+    }
+
+    static String toSnakeCase(String name) {
+        var result = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            var c = name.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0) {
+                    result.append('_');
+                }
+                result.append(Character.toLowerCase(c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static MethodHandles.Lookup privateLookup(Class<?> entityType) {
+        try {
+            return MethodHandles.privateLookupIn(entityType, LOOKUP);
+        } catch (IllegalAccessException e) {
+            throw new OrmException("Class %s is not accessible".formatted(entityType.getName()), e);
+        }
+    }
+
+    private static MethodHandle idGetterOf(MethodHandles.Lookup lookup, Field idField) {
+        var idType = MethodType.methodType(idField.getType()).wrap().returnType();
+        if (!Long.class.equals(idType)) {
+            throw new OrmException("Id field %s.%s must be of type Long"
+                    .formatted(idField.getDeclaringClass().getName(), idField.getName()));
+        }
+        try {
+            return lookup.unreflectGetter(idField).asType(MethodType.methodType(Long.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new OrmException("Cannot access id field %s.%s"
+                    .formatted(idField.getDeclaringClass().getName(), idField.getName()), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> constructorOf(MethodHandles.Lookup lookup, Class<T> entityType) {
+        try {
+            var handle = lookup.findConstructor(entityType, MethodType.methodType(void.class));
+            if (Modifier.isPublic(entityType.getModifiers())
+                    && Modifier.isPublic(entityType.getDeclaredConstructor().getModifiers())) {
+                return (Supplier<T>) LambdaMetafactory.metafactory(lookup, "get",
+                        MethodType.methodType(Supplier.class), MethodType.methodType(Object.class),
+                        handle, MethodType.methodType(entityType)).getTarget().invokeExact();
+            }
+            var generic = handle.asType(MethodType.methodType(Object.class));
+            return () -> {
+                try {
+                    return (T) generic.invokeExact();
+                } catch (Throwable e) {
+                    throw new OrmException("Cannot create an instance of %s".formatted(entityType.getName()), e);
+                }
+            };
+        } catch (Throwable e) {
+            throw new OrmException("Class %s must have a no-args constructor".formatted(entityType.getName()), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setterOf(MethodHandles.Lookup lookup, Class<?> entityType, Field field) {
+        try {
+            var setter = findPublicSetter(entityType, field);
+            if (setter != null) {
+                var handle = lookup.unreflect(setter);
+                return (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(lookup, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        handle, MethodType.methodType(void.class, entityType, MethodType.methodType(field.getType()).wrap().returnType()))
+                        .getTarget().invokeExact();
+            }
+            var handle = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+            return (entity, value) -> {
+                try {
+                    handle.invokeExact(entity, value);
+                } catch (Throwable e) {
+                    throw new OrmException("Cannot set field %s.%s".formatted(entityType.getName(), field.getName()), e);
+                }
+            };
+        } catch (OrmException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new OrmException("Cannot access field %s.%s".formatted(entityType.getName(), field.getName()), e);
+        }
+    }
+
+    private static Method findPublicSetter(Class<?> entityType, Field field) {
+        if (!Modifier.isPublic(entityType.getModifiers())) {
+            return null;
+        }
+        var name = "set" + Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+        try {
+            var method = entityType.getMethod(name, field.getType());
+            return Modifier.isStatic(method.getModifiers()) ? null : method;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a value of one column converting it to the type of the field. A value of an enum column that is not
+     * a constant of the enum fails with {@link SQLDataException}, the same way as in a generated mapper.
+     */
+    @FunctionalInterface
+    interface ColumnReader {
+
+        Object read(ResultSet resultSet, int index) throws SQLException;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        static ColumnReader of(Class<?> fieldType, String column) {
+            if (fieldType.isEnum()) {
+                Map<String, Object> constants = Arrays.stream(fieldType.getEnumConstants())
+                        .collect(Collectors.toUnmodifiableMap(constant -> ((Enum) constant).name(), Function.identity()));
+                return (resultSet, index) -> {
+                    var name = resultSet.getString(index);
+                    if (name == null) {
+                        return null;
+                    }
+                    var constant = constants.get(name);
+                    if (constant == null) {
+                        throw new SQLDataException("Column %s has value '%s' that is not a constant of %s"
+                                .formatted(column, name, fieldType.getSimpleName()));
+                    }
+                    return constant;
+                };
+            }
+            var type = MethodType.methodType(fieldType).wrap().returnType();
+            return (resultSet, index) -> resultSet.getObject(index, type);
+        }
+    }
+}
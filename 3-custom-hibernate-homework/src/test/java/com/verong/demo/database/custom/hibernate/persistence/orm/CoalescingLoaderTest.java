@@ -0,0 +1,175 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoalescingLoaderTest {
+
+    private static final long LONG_WINDOW_NANOS = Duration.ofSeconds(10).toNanos();
+
+    private final Queue<List<Long>> batches = new ConcurrentLinkedQueue<>();
+
+    @Test
+    void concurrentLoadsAreMergedIntoOneBatch() throws Exception {
+        var loader = new CoalescingLoader<>(recordingLoader(), Function.identity(), 100,
+                Duration.ofMillis(300).toNanos());
+
+        var results = loadConcurrently(loader, List.of(1L, 2L, 3L, 4L, 5L));
+
+        assertEquals(List.of("student1", "student2", "student3", "student4", "student5"), results);
+        assertEquals(1, batches.size());
+        assertEquals(5, batches.peek().size());
+    }
+
+    @Test
+    void fullBatchIsLoadedWithoutWaitingForTheWindow() throws Exception {
+        var loader = new CoalescingLoader<>(recordingLoader(), Function.identity(), 3, LONG_WINDOW_NANOS);
+
+        var startNanos = System.nanoTime();
+        var results = loadConcurrently(loader, List.of(1L, 2L, 3L));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNanos).compareTo(Duration.ofSeconds(5)) < 0);
+        assertEquals(List.of("student1", "student2", "student3"), results);
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void sameIdIsLoadedOnce() throws Exception {
+        var loader = new CoalescingLoader<>(recordingLoader(), Function.identity(), 100,
+                Duration.ofMillis(300).toNanos());
+
+        var results = loadConcurrently(loader, List.of(7L, 7L, 7L));
+
+        assertEquals(List.of("student7", "student7", "student7"), results);
+        assertEquals(List.of(List.of(7L)), new ArrayList<>(batches));
+    }
+
+    @Test
+    void callersOfTheSameIdGetInstancesOfTheirOwn() throws Exception {
+        var loader = new CoalescingLoader<String, StringBuilder>(recordingLoader(), StringBuilder::new, 100,
+                Duration.ofMillis(300).toNanos());
+
+        var results = loadConcurrently(loader, List.of(7L, 7L));
+
+        assertEquals(List.of(List.of(7L)), new ArrayList<>(batches));
+        assertNotSame(results.get(0), results.get(1));
+        results.get(0).append(" changed");
+        assertEquals("student7", results.get(1).toString());
+    }
+
+    @Test
+    void missingIdIsLoadedAsNull() {
+        var loader = new CoalescingLoader<>(recordingLoader(), Function.identity(), 100, 0);
+
+        assertNull(loader.load(-1L));
+        assertEquals("student1", loader.load(1L));
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    void failureOfABatchIsThrownToEveryCaller() throws Exception {
+        var failure = new IllegalStateException("Database is not available");
+        var loader = new CoalescingLoader<String, String>(ids -> {
+            throw failure;
+        }, Function.identity(), 100, Duration.ofMillis(300).toNanos());
+
+        var start = new CountDownLatch(1);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = new ArrayList<Future<?>>();
+            for (long id = 1; id <= 3; id++) {
+                var loadedId = id;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return loader.load(loadedId);
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                var exception = assertThrows(Exception.class, future::get);
+                assertSame(failure, exception.getCause());
+            }
+        }
+    }
+
+    @Test
+    void errorOfABatchIsThrownToEveryCallerAndDoesNotBlockTheNextBatch() throws Exception {
+        var failure = new StackOverflowError("Batch loader has recursed");
+        var failing = new AtomicBoolean(true);
+        var recording = recordingLoader();
+        var loader = new CoalescingLoader<String, String>(ids -> {
+            if (failing.get()) {
+                throw failure;
+            }
+            return recording.apply(ids);
+        }, Function.identity(), 100, Duration.ofMillis(300).toNanos());
+
+        var start = new CountDownLatch(1);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = new ArrayList<Future<?>>();
+            for (long id = 1; id <= 3; id++) {
+                var loadedId = id;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return loader.load(loadedId);
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                var exception = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+                assertSame(failure, exception.getCause());
+            }
+        }
+
+        failing.set(false);
+        assertEquals("student1", loader.load(1L));
+    }
+
+    private Function<List<Long>, Map<Long, String>> recordingLoader() {
+        return ids -> {
+            batches.add(List.copyOf(ids));
+            return ids.stream()
+                    .filter(id -> id > 0)
+                    .collect(Collectors.toMap(Function.identity(), id -> "student" + id));
+        };
+    }
+
+    private static <T> List<T> loadConcurrently(CoalescingLoader<String, T> loader, List<Long> ids) throws Exception {
+        var start = new CountDownLatch(1);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = new ArrayList<Future<T>>();
+            for (var id : ids) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return loader.load(id);
+                }));
+            }
+            start.countDown();
+            var results = new ArrayList<T>();
+            for (var future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        }
+    }
+}
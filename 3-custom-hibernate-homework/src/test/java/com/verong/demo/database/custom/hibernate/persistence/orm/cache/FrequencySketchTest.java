@@ -0,0 +1,97 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrequencySketchTest {
+
+    private static final int MAXIMUM_SIZE = 64;
+    /**
+     * The sketch of {@link #MAXIMUM_SIZE} entries has a table of 64 longs, so it ages after 640 increments.
+     */
+    private static final int SAMPLE_SIZE = 640;
+
+    @Test
+    void counterSaturatesAtFifteen() {
+        var sketch = new FrequencySketch(MAXIMUM_SIZE);
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("hot");
+        }
+        assertEquals(5, sketch.frequency("hot"));
+
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("hot");
+        }
+        assertEquals(15, sketch.frequency("hot"));
+        assertEquals(0, sketch.frequency("cold"));
+    }
+
+    @Test
+    void countersAreHalvedAfterTheSampleSize() {
+        var sketch = new FrequencySketch(MAXIMUM_SIZE);
+        for (int i = 0; i < 12; i++) {
+            sketch.increment("hot");
+        }
+
+        incrementOneOffKeys(sketch, SAMPLE_SIZE);
+
+        assertTrue(sketch.frequency("hot") <= 6, () -> "Frequency has not been halved: " + sketch.frequency("hot"));
+    }
+
+    @Test
+    void agingGoesOnWhenIncrementsOvershootTheSampleSize() throws ReflectiveOperationException {
+        var sketch = new FrequencySketch(MAXIMUM_SIZE);
+        for (int i = 0; i < 12; i++) {
+            sketch.increment("hot");
+        }
+        // increments made by other threads while one thread is halving can leave the size past the sample size
+        var size = FrequencySketch.class.getDeclaredField("size");
+        size.setAccessible(true);
+        ((AtomicInteger) size.get(sketch)).set(SAMPLE_SIZE + SAMPLE_SIZE / 2);
+
+        sketch.increment("other");
+
+        assertTrue(sketch.frequency("hot") <= 6, () -> "Frequency has not been halved: " + sketch.frequency("hot"));
+        assertTrue(((AtomicInteger) size.get(sketch)).get() < SAMPLE_SIZE + SAMPLE_SIZE / 2);
+    }
+
+    @Test
+    void concurrentIncrementsKeepCountersWithinTheirBits() throws InterruptedException {
+        var sketch = new FrequencySketch(1 << 12);
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            var thread = t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    sketch.increment("hot" + (i % 16));
+                    sketch.increment("key" + thread + "." + i);
+                }
+            }));
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < 16; i++) {
+            var frequency = sketch.frequency("hot" + i);
+            assertTrue(frequency >= 1 && frequency <= 15, "Frequency of a hot key is " + frequency);
+        }
+        for (int i = 0; i < 16; i++) {
+            sketch.increment("late" + i);
+        }
+        for (int i = 0; i < 16; i++) {
+            assertTrue(sketch.frequency("late" + i) >= 1);
+        }
+    }
+
+    private static void incrementOneOffKeys(FrequencySketch sketch, int count) {
+        for (int i = 0; i < count; i++) {
+            sketch.increment("one-off" + i);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TinyLfuCacheTest {
+
+    @Test
+    void hitsAndMissesAreCounted() {
+        var cache = new TinyLfuCache<Long, String>(10, Duration.ZERO);
+        cache.put(1L, "one");
+
+        assertEquals("one", cache.get(1L));
+        assertNull(cache.get(2L));
+
+        var stats = cache.stats();
+        assertEquals(1, stats.size());
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.puts());
+        assertEquals(0.5, stats.hitRate());
+    }
+
+    @Test
+    void putReplacesTheValueOfACachedKey() {
+        var cache = new TinyLfuCache<Long, String>(1, Duration.ZERO);
+        cache.put(1L, "one");
+        cache.put(1L, "uno");
+
+        assertEquals("uno", cache.get(1L));
+        assertEquals(1, cache.stats().size());
+    }
+
+    @Test
+    void keyThatIsNotMorePopularThanTheVictimIsNotAdmitted() {
+        var cache = new TinyLfuCache<Long, String>(2, Duration.ZERO);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        for (int i = 0; i < 5; i++) {
+            cache.get(1L);
+            cache.get(2L);
+        }
+
+        cache.put(3L, "three");
+
+        assertNull(cache.get(3L));
+        assertEquals("one", cache.get(1L));
+        assertEquals("two", cache.get(2L));
+        assertEquals(1, cache.stats().rejections());
+        assertEquals(0, cache.stats().evictions());
+    }
+
+    @Test
+    void popularKeyEvictsTheLeastRecentlyUsedEntry() {
+        var cache = new TinyLfuCache<Long, String>(2, Duration.ZERO);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        // 1 becomes the most recently used entry, so 2 is the victim
+        cache.get(1L);
+        for (int i = 0; i < 5; i++) {
+            cache.get(3L);
+        }
+
+        cache.put(3L, "three");
+
+        assertEquals("three", cache.get(3L));
+        assertEquals("one", cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(2, cache.stats().size());
+    }
+
+    @Test
+    void entryExpiresAfterItsTimeToLive() throws InterruptedException {
+        var cache = new TinyLfuCache<Long, String>(10, Duration.ofMillis(50));
+        cache.put(1L, "one");
+        assertEquals("one", cache.get(1L));
+
+        Thread.sleep(100);
+
+        assertNull(cache.get(1L));
+        assertEquals(1, cache.stats().expirations());
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void expiredVictimMakesRoomWithoutAFrequencyCheck() throws InterruptedException {
+        var cache = new TinyLfuCache<Long, String>(1, Duration.ofMillis(50));
+        cache.put(1L, "one");
+        for (int i = 0; i < 5; i++) {
+            cache.get(1L);
+        }
+
+        Thread.sleep(100);
+        cache.put(2L, "two");
+
+        assertEquals("two", cache.get(2L));
+        assertEquals(1, cache.stats().expirations());
+        assertEquals(0, cache.stats().rejections());
+    }
+
+    @Test
+    void entriesAreInvalidated() {
+        var cache = new TinyLfuCache<Long, String>(10, Duration.ZERO);
+        for (long key = 1; key <= 6; key++) {
+            cache.put(key, "value" + key);
+        }
+
+        cache.invalidate(1L);
+        cache.invalidateIf(key -> key % 2 == 0);
+
+        assertNull(cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals("value3", cache.get(3L));
+        assertEquals(2, cache.stats().size());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.stats().size());
+        assertNull(cache.get(3L));
+    }
+}
@@ -0,0 +1,124 @@
+package com.verong.demo.database.custom.hibernate.persistence.orm.mapper;
+
+import com.verong.demo.database.custom.hibernate.persistence.model.Student;
+import com.verong.demo.database.custom.hibernate.persistence.model.StudentStatus;
+import com.verong.demo.database.custom.hibernate.persistence.model.Student_MyMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the mapper built at runtime and the one generated at compile time against the same rows: switching between
+ * them must not change how a row is mapped.
+ */
+class EntityMapperTest {
+
+    private Connection connection;
+
+    static List<EntityMapper<Student>> mappers() {
+        return List.of(RuntimeEntityMapper.of(Student.class), new Student_MyMapper());
+    }
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:%s".formatted(UUID.randomUUID()));
+        try (var statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE students (
+                        id          BIGINT PRIMARY KEY,
+                        email       VARCHAR(255),
+                        first_name  VARCHAR(255),
+                        last_name   VARCHAR(255),
+                        birthday    DATE,
+                        scholarship BOOLEAN,
+                        status      VARCHAR(32)
+                    )""");
+            statement.execute("""
+                    INSERT INTO students VALUES
+                        (1, 'roberto@mail.com', 'Roberto', 'Nash', DATE '2001-01-01', TRUE, 'ACTIVE'),
+                        (2, 'nobody@mail.com', NULL, NULL, NULL, NULL, NULL),
+                        (3, 'unknown@mail.com', 'Roberto', 'Nash', NULL, FALSE, 'ON_LEAVE')""");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void studentIsMappedByTheGeneratedMapper() {
+        // the service file of the processor has to be on the class path, or the runtime mapper would be used silently
+        assertTrue(EntityMappers.isGenerated(Student.class));
+        assertInstanceOf(Student_MyMapper.class, EntityMappers.forType(Student.class));
+    }
+
+    @ParameterizedTest
+    @MethodSource("mappers")
+    void rowIsMappedToAnEntity(EntityMapper<Student> mapper) throws SQLException {
+        var student = selectById(mapper, 1, mapper::mapRow);
+
+        assertEquals(1L, student.getId());
+        assertEquals("roberto@mail.com", student.getEmail());
+        assertEquals("Roberto", student.getFirstName());
+        assertEquals("Nash", student.getLastName());
+        assertEquals(LocalDate.of(2001, 1, 1), student.getBirthday());
+        assertEquals(true, student.getScholarship());
+        assertEquals(StudentStatus.ACTIVE, student.getStatus());
+        assertEquals(student, mapper.hydrate(selectById(mapper, 1, mapper::readState)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("mappers")
+    void nullColumnsAreMappedToNull(EntityMapper<Student> mapper) throws SQLException {
+        var student = selectById(mapper, 2, mapper::mapRow);
+
+        assertNull(student.getFirstName());
+        assertNull(student.getScholarship());
+        assertNull(student.getStatus());
+    }
+
+    @ParameterizedTest
+    @MethodSource("mappers")
+    void unknownEnumValueFailsWithTheColumnName(EntityMapper<Student> mapper) {
+        var expectedMessage = "Column status has value 'ON_LEAVE' that is not a constant of StudentStatus";
+
+        var exception = assertThrows(SQLDataException.class, () -> selectById(mapper, 3, mapper::mapRow));
+        assertEquals(expectedMessage, exception.getMessage());
+
+        exception = assertThrows(SQLDataException.class, () -> selectById(mapper, 3, mapper::readState));
+        assertEquals(expectedMessage, exception.getMessage());
+    }
+
+    @FunctionalInterface
+    private interface RowReader<R> {
+        R read(ResultSet resultSet) throws SQLException;
+    }
+
+    private <R> R selectById(EntityMapper<Student> mapper, long id, RowReader<R> reader) throws SQLException {
+        try (var statement = connection.prepareStatement(mapper.selectByIdSql())) {
+            statement.setLong(1, id);
+            try (var resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return reader.read(resultSet);
+            }
+        }
+    }
+}
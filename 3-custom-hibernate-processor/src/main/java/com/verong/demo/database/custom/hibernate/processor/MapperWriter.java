@@ -0,0 +1,128 @@
+package com.verong.demo.database.custom.hibernate.processor;
+
+import java.io.PrintWriter;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the source of a mapper for one {@link MyEntityProcessor.EntityModel}.
+ */
+final class MapperWriter {
+
+    private final MyEntityProcessor.EntityModel model;
+    private final PrintWriter out;
+
+    MapperWriter(MyEntityProcessor.EntityModel model, PrintWriter out) {
+        this.model = model;
+        this.out = out;
+    }
+
+    void write() {
+        var entity = model.simpleName();
+        var columns = model.fields().stream().map(MyEntityProcessor.FieldModel::column).toList();
+        var selectByIdSql = "SELECT %s FROM %s WHERE %s = ?"
+                .formatted(String.join(", ", columns), model.tableName(), model.id().column());
+
+        if (!model.packageName().isEmpty()) {
+            out.printf("package %s;%n%n", model.packageName());
+        }
+        out.printf("@javax.annotation.processing.Generated(\"%s\")%n", MyEntityProcessor.class.getName());
+        out.printf("public final class %s implements %s<%s> {%n%n", model.mapperSimpleName(),
+                MyEntityProcessor.ENTITY_MAPPER, entity);
+        out.printf("    private static final java.util.List<String> COLUMNS = java.util.List.of(%s);%n",
+                columns.stream().map(MapperWriter::literal).collect(Collectors.joining(", ")));
+        out.printf("    private static final String SELECT_BY_ID_SQL = %s;%n%n", literal(selectByIdSql));
+
+        method("Class<%s> entityType()".formatted(entity), "return %s.class;".formatted(entity));
+        method("String tableName()", "return %s;".formatted(literal(model.tableName())));
+        method("String idColumn()", "return %s;".formatted(literal(model.id().column())));
+        method("java.util.List<String> columns()", "return COLUMNS;");
+        method("String selectByIdSql()", "return SELECT_BY_ID_SQL;");
+        method("Long idOf(%s entity)".formatted(entity), "return %s;".formatted(read(model.id())));
+
+        out.printf("    @Override%n");
+        out.printf("    public %s mapRow(java.sql.ResultSet resultSet) throws java.sql.SQLException {%n", entity);
+        out.printf("        var entity = new %s();%n", entity);
+        for (int i = 0; i < model.fields().size(); i++) {
+            var field = model.fields().get(i);
+            out.printf("        %s%n", write(field, readColumn(field, i + 1)));
+        }
+        out.printf("        return entity;%n");
+        out.printf("    }%n%n");
+
+        out.printf("    @Override%n");
+        out.printf("    public Object[] readState(java.sql.ResultSet resultSet) throws java.sql.SQLException {%n");
+        out.printf("        var state = new Object[%d];%n", model.fields().size());
+        for (int i = 0; i < model.fields().size(); i++) {
+            out.printf("        state[%d] = %s;%n", i, readColumn(model.fields().get(i), i + 1));
+        }
+        out.printf("        return state;%n");
+        out.printf("    }%n%n");
+
+        out.printf("    @Override%n");
+        out.printf("    public %s hydrate(Object[] state) {%n", entity);
+        out.printf("        var entity = new %s();%n", entity);
+        for (int i = 0; i < model.fields().size(); i++) {
+            var field = model.fields().get(i);
+            out.printf("        %s%n", write(field, "(%s) state[%d]".formatted(field.boxedType(), i)));
+        }
+        out.printf("        return entity;%n");
+        out.printf("    }%n");
+
+        for (MyEntityProcessor.FieldModel field : model.fields()) {
+            if (field.enumType()) {
+                var enumName = field.type().substring(field.type().lastIndexOf('.') + 1);
+                out.printf("%n    private static %s %s(String name) throws java.sql.SQLException {%n", field.type(),
+                        enumConverter(field));
+                out.printf("        if (name == null) {%n");
+                out.printf("            return null;%n");
+                out.printf("        }%n");
+                out.printf("        try {%n");
+                out.printf("            return %s.valueOf(name);%n", field.type());
+                out.printf("        } catch (IllegalArgumentException e) {%n");
+                out.printf("            throw new java.sql.SQLDataException(%s + name + %s, e);%n",
+                        literal("Column %s has value '".formatted(field.column())),
+                        literal("' that is not a constant of %s".formatted(enumName)));
+                out.printf("        }%n");
+                out.printf("    }%n");
+            }
+        }
+        out.printf("}%n");
+    }
+
+    private void method(String signature, String body) {
+        out.printf("    @Override%n");
+        out.printf("    public %s {%n", signature);
+        out.printf("        %s%n", body);
+        out.printf("    }%n%n");
+    }
+
+    /**
+     * An expression that reads the column of the field from {@code resultSet} converted to the field type.
+     */
+    private static String readColumn(MyEntityProcessor.FieldModel field, int index) {
+        if (field.enumType()) {
+            return "%s(resultSet.getString(%d))".formatted(enumConverter(field), index);
+        }
+        return "resultSet.getObject(%d, %s.class)".formatted(index, field.boxedType());
+    }
+
+    private static String enumConverter(MyEntityProcessor.FieldModel field) {
+        return "to" + Character.toUpperCase(field.name().charAt(0)) + field.name().substring(1);
+    }
+
+    private static String write(MyEntityProcessor.FieldModel field, String value) {
+        return field.directAccess()
+                ? "entity.%s = %s;".formatted(field.name(), value)
+                : "entity.%s(%s);".formatted(field.setter(), value);
+    }
+
+    private static String read(MyEntityProcessor.FieldModel field) {
+        return field.directAccess()
+                ? "entity.%s".formatted(field.name())
+                : "entity.%s()".formatted(field.getter());
+    }
+
+    private static String literal(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
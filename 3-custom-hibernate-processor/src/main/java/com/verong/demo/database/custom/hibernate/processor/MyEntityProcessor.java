@@ -0,0 +1,339 @@
+package com.verong.demo.database.custom.hibernate.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates an implementation of {@code EntityMapper} for every class annotated with {@code @MyEntity} at compile time.
+ * <br>
+ * <br>
+ * A generated mapper ({@code <Entity>_MyMapper} in the package of the entity) contains the table name, columns and
+ * SQL as constants and fills an entity by direct calls of its setters (or direct field access for not private fields),
+ * so neither Reflection API nor method handles are used at runtime. All generated mappers are listed in
+ * {@code META-INF/services}, where {@code EntityMappers} finds them by {@link java.util.ServiceLoader}; the list
+ * written by a previous compilation is merged with the new mappers, so an incremental build that processes only
+ * some entities keeps the others.
+ * <br>
+ * <br>
+ * Mapping rules are the same as the runtime ones: {@code @MyTable}, {@code @MyId} and {@code @MyColumn} are used if
+ * present, otherwise names are converted to snake case and the field {@code id} is the id. Private fields need
+ * JavaBeans setters and getters (e.g. generated by Lombok).
+ */
+public class MyEntityProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION_PACKAGE = "com.verong.demo.database.custom.hibernate.persistence.orm.annotation";
+    static final String MY_ENTITY = ANNOTATION_PACKAGE + ".MyEntity";
+    static final String MY_TABLE = ANNOTATION_PACKAGE + ".MyTable";
+    static final String MY_ID = ANNOTATION_PACKAGE + ".MyId";
+    static final String MY_COLUMN = ANNOTATION_PACKAGE + ".MyColumn";
+    static final String ENTITY_MAPPER = "com.verong.demo.database.custom.hibernate.persistence.orm.mapper.EntityMapper";
+    static final String MAPPER_SUFFIX = "_MyMapper";
+
+    private final Set<String> generatedMappers = new TreeSet<>();
+    private Filer filer;
+    private Messager messager;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.filer = processingEnv.getFiler();
+        this.messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Set.of(MY_ENTITY);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        var myEntity = processingEnv.getElementUtils().getTypeElement(MY_ENTITY);
+        if (myEntity != null) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(myEntity)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, "@MyEntity can be used only on classes", element);
+                    continue;
+                }
+                generateMapper((TypeElement) element);
+            }
+        }
+        if (roundEnv.processingOver() && !generatedMappers.isEmpty()) {
+            writeServiceFile();
+        }
+        return false;
+    }
+
+    private void generateMapper(TypeElement entity) {
+        var model = EntityModel.of(entity, messager);
+        if (model == null) {
+            return;
+        }
+        var mapperName = model.mapperQualifiedName();
+        try (var out = new PrintWriter(filer.createSourceFile(mapperName, entity).openWriter())) {
+            new MapperWriter(model, out).write();
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Cannot generate %s: %s".formatted(mapperName, e), entity);
+            return;
+        }
+        generatedMappers.add(mapperName);
+    }
+
+    private void writeServiceFile() {
+        var serviceFile = "META-INF/services/" + ENTITY_MAPPER;
+        var mappers = new TreeSet<>(previousMappers(serviceFile));
+        mappers.addAll(generatedMappers);
+        try (var out = new PrintWriter(filer.createResource(StandardLocation.CLASS_OUTPUT, "", serviceFile)
+                .openWriter())) {
+            mappers.forEach(out::println);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the mappers listed in the service file of a previous compilation that can still be found; a mapper whose
+     * class has been removed (e.g. together with its entity) is dropped, so {@code ServiceLoader} does not fail on it.
+     */
+    private Set<String> previousMappers(String serviceFile) {
+        var mappers = new TreeSet<String>();
+        try (var reader = new BufferedReader(filer.getResource(StandardLocation.CLASS_OUTPUT, "", serviceFile)
+                .openReader(true))) {
+            var elements = processingEnv.getElementUtils();
+            reader.lines()
+                    .map(String::strip)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .filter(mapper -> elements.getTypeElement(mapper) != null)
+                    .forEach(mappers::add);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            // the first compilation, there is nothing to merge
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.WARNING,
+                    "Cannot read %s, it will list only the mappers of this compilation: %s".formatted(serviceFile, e));
+        }
+        return mappers;
+    }
+
+    /**
+     * What the processor knows about an entity: everything a mapper needs, resolved from the source model.
+     */
+    record EntityModel(
+            String packageName,
+            String simpleName,
+            String tableName,
+            FieldModel id,
+            List<FieldModel> fields
+    ) {
+
+        String mapperSimpleName() {
+            return simpleName.replace('.', '_') + MAPPER_SUFFIX;
+        }
+
+        String mapperQualifiedName() {
+            return packageName.isEmpty() ? mapperSimpleName() : packageName + "." + mapperSimpleName();
+        }
+
+        static EntityModel of(TypeElement entity, Messager messager) {
+            var fields = new ArrayList<FieldModel>();
+            FieldModel id = null;
+            FieldModel fieldNamedId = null;
+            for (VariableElement field : ElementFilter.fieldsIn(entity.getEnclosedElements())) {
+                var modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                var model = FieldModel.of(field);
+                if (hasAnnotation(field, MY_ID)) {
+                    id = model;
+                }
+                if (model.name().equals("id")) {
+                    fieldNamedId = model;
+                }
+                fields.add(model);
+            }
+            id = id != null ? id : fieldNamedId;
+            if (id == null) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Class has neither a field annotated with @MyId nor a field 'id'", entity);
+                return null;
+            }
+            if (!id.boxedType().equals("java.lang.Long")) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Id field must be of type Long", entity);
+                return null;
+            }
+            if (entity.getModifiers().contains(Modifier.PRIVATE) || entity.getNestingKind().isNested()
+                    && !entity.getModifiers().contains(Modifier.STATIC)) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "@MyEntity class must be a top-level or static nested, not private class", entity);
+                return null;
+            }
+            var ordered = new ArrayList<FieldModel>(fields.size());
+            ordered.add(id);
+            for (FieldModel field : fields) {
+                if (field != id) {
+                    ordered.add(field);
+                }
+            }
+            var packageName = packageOf(entity);
+            var simpleName = entity.getQualifiedName().toString();
+            simpleName = packageName.isEmpty() ? simpleName : simpleName.substring(packageName.length() + 1);
+            var table = annotationValue(entity, MY_TABLE);
+            var tableName = table != null ? table : toSnakeCase(entity.getSimpleName().toString());
+            return new EntityModel(packageName, simpleName, tableName, id, List.copyOf(ordered));
+        }
+
+        private static String packageOf(Element element) {
+            var current = element;
+            while (current.getKind() != ElementKind.PACKAGE) {
+                current = current.getEnclosingElement();
+            }
+            return current.toString().equals("unnamed package") ? "" : current.toString();
+        }
+    }
+
+    /**
+     * A mapped field of an entity.
+     *
+     * @param name        name of the field
+     * @param column      name of the column
+     * @param type        source form of the field type
+     * @param boxedType   source form of the type used to read a value from JDBC (primitives are boxed)
+     * @param enumType    {@code true} if the field is an enum read from its name
+     * @param directAccess {@code true} if the field is not private and can be accessed without getters and setters
+     * @param primitiveBoolean {@code true} if the getter of the field starts with {@code is}
+     */
+    record FieldModel(
+            String name,
+            String column,
+            String type,
+            String boxedType,
+            boolean enumType,
+            boolean directAccess,
+            boolean primitiveBoolean
+    ) {
+
+        static FieldModel of(VariableElement field) {
+            var name = field.getSimpleName().toString();
+            var column = annotationValue(field, MY_COLUMN);
+            var type = field.asType();
+            var primitive = type.getKind().isPrimitive();
+            var boxed = primitive ? boxedName(type) : erasure(type);
+            var enumType = type.getKind() == TypeKind.DECLARED
+                    && ((DeclaredType) type).asElement().getKind() == ElementKind.ENUM;
+            return new FieldModel(name, column != null ? column : toSnakeCase(name), erasure(type), boxed, enumType,
+                    !field.getModifiers().contains(Modifier.PRIVATE), type.getKind() == TypeKind.BOOLEAN);
+        }
+
+        String setter() {
+            return "set" + capitalize(name);
+        }
+
+        String getter() {
+            return (primitiveBoolean ? "is" : "get") + capitalize(name);
+        }
+
+        private static String boxedName(TypeMirror type) {
+            return switch (type.getKind()) {
+                case BOOLEAN -> "java.lang.Boolean";
+                case BYTE -> "java.lang.Byte";
+                case SHORT -> "java.lang.Short";
+                case INT -> "java.lang.Integer";
+                case LONG -> "java.lang.Long";
+                case CHAR -> "java.lang.Character";
+                case FLOAT -> "java.lang.Float";
+                case DOUBLE -> "java.lang.Double";
+                default -> throw new IllegalArgumentException("Not a primitive type: " + type);
+            };
+        }
+
+        private static String erasure(TypeMirror type) {
+            if (type.getKind() == TypeKind.DECLARED) {
+                return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+            }
+            return type.toString();
+        }
+
+        private static String capitalize(String name) {
+            return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+
+    static boolean hasAnnotation(Element element, String annotation) {
+        return findAnnotation(element, annotation) != null;
+    }
+
+    /**
+     * @return the {@code value} of the annotation or {@code null} if the element is not annotated with it
+     */
+    static String annotationValue(Element element, String annotation) {
+        var mirror = findAnnotation(element, annotation);
+        if (mirror == null) {
+            return null;
+        }
+        for (var entry : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                return entry.getValue().getValue().toString();
+            }
+        }
+        return null;
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            var type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The same conversion as the runtime mapper uses: {@code firstName} -> {@code first_name}.
+     */
+    static String toSnakeCase(String name) {
+        var result = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            var c = name.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0) {
+                    result.append('_');
+                }
+                result.append(Character.toLowerCase(c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,293 @@
+package com.verong.demo.database.custom.hibernate.processor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link MyEntityProcessor} by the compiler of the JDK on sample entities and checks the generated mappers and
+ * the {@code META-INF/services} file that lists them. The annotations and {@code EntityMapper} are compiled from
+ * minimal copies, so the processor is tested without the module that uses it.
+ */
+class MyEntityProcessorTest {
+
+    private static final String SERVICE_FILE = "META-INF/services/" + MyEntityProcessor.ENTITY_MAPPER;
+
+    private static final Map<String, String> API = Map.of(
+            MyEntityProcessor.MY_ENTITY, """
+                    package com.verong.demo.database.custom.hibernate.persistence.orm.annotation;
+                    @java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)
+                    public @interface MyEntity {
+                    }""",
+            MyEntityProcessor.MY_TABLE, """
+                    package com.verong.demo.database.custom.hibernate.persistence.orm.annotation;
+                    @java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)
+                    public @interface MyTable {
+                        String value();
+                    }""",
+            MyEntityProcessor.MY_ID, """
+                    package com.verong.demo.database.custom.hibernate.persistence.orm.annotation;
+                    @java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)
+                    public @interface MyId {
+                    }""",
+            MyEntityProcessor.MY_COLUMN, """
+                    package com.verong.demo.database.custom.hibernate.persistence.orm.annotation;
+                    @java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)
+                    public @interface MyColumn {
+                        String value();
+                    }""",
+            MyEntityProcessor.ENTITY_MAPPER, """
+                    package com.verong.demo.database.custom.hibernate.persistence.orm.mapper;
+                    public interface EntityMapper<T> {
+                        Class<T> entityType();
+                        String tableName();
+                        String idColumn();
+                        java.util.List<String> columns();
+                        String selectByIdSql();
+                        T mapRow(java.sql.ResultSet resultSet) throws java.sql.SQLException;
+                        Long idOf(T entity);
+                        Object[] readState(java.sql.ResultSet resultSet) throws java.sql.SQLException;
+                        T hydrate(Object[] state);
+                    }""");
+
+    private static final String COURSE = """
+            package sample;
+
+            import com.verong.demo.database.custom.hibernate.persistence.orm.annotation.*;
+
+            @MyEntity
+            @MyTable("courses")
+            public class Course {
+
+                public enum Level { BASIC, ADVANCED }
+
+                @MyId
+                @MyColumn("course_id")
+                private Long code;
+                private String courseName;
+                private boolean active;
+                Level level;
+                private static int instances;
+                private transient String description;
+
+                public Long getCode() { return code; }
+                public void setCode(Long code) { this.code = code; }
+                public String getCourseName() { return courseName; }
+                public void setCourseName(String courseName) { this.courseName = courseName; }
+                public boolean isActive() { return active; }
+                public void setActive(boolean active) { this.active = active; }
+                public Level getLevel() { return level; }
+            }""";
+
+    private static final String TEACHER = """
+            package sample;
+
+            @com.verong.demo.database.custom.hibernate.persistence.orm.annotation.MyEntity
+            public class Teacher {
+
+                Long id;
+                String lastName;
+            }""";
+
+    @TempDir
+    Path directory;
+    private Path sources;
+    private Path classes;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        sources = Files.createDirectories(directory.resolve("sources"));
+        classes = Files.createDirectories(directory.resolve("classes"));
+        for (var type : API.entrySet()) {
+            writeSource(type.getKey(), type.getValue());
+        }
+    }
+
+    @Test
+    void generatedMapperHasTheTableColumnsAndSqlOfTheEntity() throws Exception {
+        assertEquals(List.of(), compile(writeSource("sample.Course", COURSE)));
+
+        var mapper = mapper("sample.Course");
+        assertEquals("courses", mapper.call("tableName"));
+        assertEquals("course_id", mapper.call("idColumn"));
+        assertEquals(List.of("course_id", "course_name", "active", "level"), mapper.call("columns"));
+        assertEquals("SELECT course_id, course_name, active, level FROM courses WHERE course_id = ?",
+                mapper.call("selectByIdSql"));
+        assertEquals(mapper.loader.loadClass("sample.Course"), mapper.call("entityType"));
+        var source = Files.readString(directory.resolve("generated/sample/Course_MyMapper.java"));
+        assertTrue(source.contains("@javax.annotation.processing.Generated(\"%s\")"
+                .formatted(MyEntityProcessor.class.getName())), source);
+        assertFalse(source.contains("java.lang.reflect"), source);
+    }
+
+    @Test
+    void generatedMapperFillsAnEntityFromARow() throws Exception {
+        compile(writeSource("sample.Course", COURSE));
+        var mapper = mapper("sample.Course");
+
+        var course = mapper.call("mapRow", row(7L, "Databases", true, "ADVANCED"));
+
+        assertEquals(7L, mapper.call("idOf", course));
+        assertEquals("Databases", property(course, "getCourseName"));
+        assertEquals(true, property(course, "isActive"));
+        assertEquals("ADVANCED", property(course, "getLevel").toString());
+        var state = (Object[]) mapper.call("readState", row(8L, null, false, null));
+        assertArrayEquals(new Object[]{8L, null, false, null}, state);
+        var hydrated = mapper.call("hydrate", (Object) state);
+        assertEquals(8L, mapper.call("idOf", hydrated));
+        assertEquals(null, property(hydrated, "getLevel"));
+    }
+
+    @Test
+    void unknownEnumValueFailsWithTheNameOfTheColumn() throws Exception {
+        compile(writeSource("sample.Course", COURSE));
+        var mapper = mapper("sample.Course");
+
+        var exception = assertThrows(SQLDataException.class,
+                () -> mapper.call("mapRow", row(7L, "Databases", true, "EXPERT")));
+
+        assertEquals("Column level has value 'EXPERT' that is not a constant of Level", exception.getMessage());
+    }
+
+    @Test
+    void entityWithoutIdIsACompilationError() throws IOException {
+        var errors = compile(writeSource("sample.Student", """
+                package sample;
+
+                @com.verong.demo.database.custom.hibernate.persistence.orm.annotation.MyEntity
+                public class Student {
+
+                    private String email;
+                }"""));
+
+        assertEquals(List.of("Class has neither a field annotated with @MyId nor a field 'id'"), errors);
+    }
+
+    @Test
+    void serviceFileListsTheMappersOfEveryCompilation() throws Exception {
+        compile(writeSource("sample.Course", COURSE));
+        assertEquals(List.of("sample.Course_MyMapper"), Files.readAllLines(classes.resolve(SERVICE_FILE)));
+        // a mapper whose entity has been removed since the previous compilation
+        Files.writeString(classes.resolve(SERVICE_FILE), "sample.Removed_MyMapper\n", StandardOpenOption.APPEND);
+
+        // an incremental compilation processes only the changed entity
+        assertEquals(List.of(), compile(writeSource("sample.Teacher", TEACHER)));
+
+        assertEquals(List.of("sample.Course_MyMapper", "sample.Teacher_MyMapper"),
+                Files.readAllLines(classes.resolve(SERVICE_FILE)));
+        var teacher = mapper("sample.Teacher");
+        assertEquals("teacher", teacher.call("tableName"));
+        assertEquals(List.of("id", "last_name"), teacher.call("columns"));
+    }
+
+    private Path writeSource(String className, String source) throws IOException {
+        var file = sources.resolve(className.replace('.', '/') + ".java");
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, source);
+    }
+
+    /**
+     * Compiles the passed sources together with the API ones into {@link #classes}, which is also the class path, as
+     * it is in an incremental build, and returns the error messages.
+     */
+    private List<String> compile(Path... entities) throws IOException {
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try (var fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            fileManager.setLocationFromPaths(StandardLocation.CLASS_OUTPUT, List.of(classes));
+            fileManager.setLocationFromPaths(StandardLocation.SOURCE_OUTPUT,
+                    List.of(Files.createDirectories(directory.resolve("generated"))));
+            fileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, List.of(classes));
+            var files = new ArrayList<Path>();
+            for (var type : API.keySet()) {
+                files.add(sources.resolve(type.replace('.', '/') + ".java"));
+            }
+            files.addAll(List.of(entities));
+            var task = compiler.getTask(null, fileManager, diagnostics, List.of(), null,
+                    fileManager.getJavaFileObjectsFromPaths(files));
+            task.setProcessors(List.of(new MyEntityProcessor()));
+            task.call();
+        }
+        return diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .map(diagnostic -> diagnostic.getMessage(null))
+                .toList();
+    }
+
+    private Mapper mapper(String entity) throws Exception {
+        var loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, getClass().getClassLoader());
+        var instance = loader.loadClass(entity + MyEntityProcessor.MAPPER_SUFFIX).getConstructor().newInstance();
+        assertInstanceOf(loader.loadClass(MyEntityProcessor.ENTITY_MAPPER), instance);
+        return new Mapper(loader, instance);
+    }
+
+    /**
+     * A generated mapper loaded from {@link #classes}, whose methods are called by name.
+     */
+    private record Mapper(ClassLoader loader, Object instance) {
+
+        Object call(String name, Object... args) throws Exception {
+            for (Method method : loader.loadClass(MyEntityProcessor.ENTITY_MAPPER).getMethods()) {
+                if (method.getName().equals(name)) {
+                    return invoke(instance, method, args);
+                }
+            }
+            throw new NoSuchMethodException(name);
+        }
+    }
+
+    private static Object property(Object entity, String getter) throws Exception {
+        return invoke(entity, entity.getClass().getMethod(getter));
+    }
+
+    /**
+     * Returns a result set positioned on one row with the passed values, which supports only the methods a
+     * generated mapper uses.
+     */
+    private static ResultSet row(Object... values) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    var value = values[(Integer) args[0] - 1];
+                    return switch (method.getName()) {
+                        case "getString" -> (String) value;
+                        case "getObject" -> ((Class<?>) args[1]).cast(value);
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object... args) throws Exception {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+}
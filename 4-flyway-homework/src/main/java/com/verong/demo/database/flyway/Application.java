@@ -1,10 +1,20 @@
 package com.verong.demo.database.flyway;
 
+import com.verong.demo.database.flyway.profiling.MigrationProfiling;
+import org.flywaydb.core.Flyway;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Arrays;
+
 public class Application {
 
     private static final String DATASOURCE_URL = "";
     private static final String DATASOURCE_USER = "";
     private static final String DATASOURCE_PASSWORD = "";
+    private static final Path REPORT_FILE = Path.of("target", "migration-report.json");
+    static final int SEED_STUDENTS = 100_000;
 
     public static void main(String[] args) {
 
@@ -27,7 +37,37 @@ public class Application {
                         since they have been already run by Flyway.
         */
 
-        //TODO: create the Flyway instance and run migrations
+        var configuration = Flyway.configure()
+                .dataSource(DATASOURCE_URL, DATASOURCE_USER, DATASOURCE_PASSWORD);
+        if (Arrays.asList(args).contains("--dry-run")) {
+            MigrationProfiling.dryRun(configuration, Application::seedStudents, REPORT_FILE);
+        } else {
+            MigrationProfiling.migrate(configuration, REPORT_FILE);
+        }
+
+    }
 
+    /**
+     * Fills the students table of a dry run with {@value #SEED_STUDENTS} generated students, a third of them without
+     * a status and a scholarship, so pending migrations are timed on a table of a realistic size rather than on
+     * an empty one. The table exists only if the configured database has already been migrated past V1; otherwise
+     * the migrations that create and fill it are profiled with the rows they insert themselves.
+     */
+    static void seedStudents(DataSource dataSource) {
+        try (var connection = dataSource.getConnection();
+             var tables = connection.getMetaData().getTables(null, null, "students", null);
+             var statement = connection.createStatement()) {
+            if (!tables.next()) {
+                return;
+            }
+            statement.executeUpdate("""
+                    INSERT INTO students (email, first_name, last_name, birthday, scholarship, status)
+                    SELECT 'seed.student' || x || '@mail.com', 'Roberto', 'Nash', DATE '2001-01-01',
+                           CASE WHEN MOD(x, 3) = 0 THEN NULL ELSE MOD(x, 2) = 0 END,
+                           CASE WHEN MOD(x, 3) = 0 THEN NULL ELSE 'ACTIVE' END
+                    FROM SYSTEM_RANGE(1, %d) AS seed(x)""".formatted(SEED_STUDENTS));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot seed the dry-run database", e);
+        }
     }
 }
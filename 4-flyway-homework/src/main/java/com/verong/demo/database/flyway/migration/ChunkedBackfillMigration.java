@@ -0,0 +1,219 @@
+package com.verong.demo.database.flyway.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Java migration that changes the rows of a table in chunks ordered by the primary key. Every chunk is a short
+ * transaction, so row locks are held for one chunk instead of the whole migration and the table stays available.
+ * <p>
+ * Every chunk is committed together with a checkpoint in the {@value #PROGRESS_TABLE} table. When the migration is
+ * interrupted, the next run continues after the last committed chunk instead of starting over (if Flyway has recorded
+ * the migration as failed, run {@code Flyway.repair()} first). The checkpoint is removed when the migration finishes.
+ * <p>
+ * The chunk size and the rate limit are set with the Flyway placeholders {@value #BATCH_SIZE_PLACEHOLDER}
+ * (default {@value #DEFAULT_BATCH_SIZE} rows) and {@value #MAX_ROWS_PER_SECOND_PLACEHOLDER} (default 0, unlimited).
+ * The progress and the rate in rows per second are logged while the migration runs.
+ */
+public abstract class ChunkedBackfillMigration extends BaseJavaMigration {
+
+    public static final String PROGRESS_TABLE = "flyway_backfill_progress";
+    public static final String BATCH_SIZE_PLACEHOLDER = "backfillBatchSize";
+    public static final String MAX_ROWS_PER_SECOND_PLACEHOLDER = "backfillMaxRowsPerSecond";
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final System.Logger LOGGER = System.getLogger(ChunkedBackfillMigration.class.getName());
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final String CREATE_PROGRESS_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS %s (
+                migration    VARCHAR(255) PRIMARY KEY,
+                last_id      BIGINT NOT NULL,
+                rows_scanned BIGINT NOT NULL,
+                rows_changed BIGINT NOT NULL
+            )""".formatted(PROGRESS_TABLE);
+    private static final String SELECT_PROGRESS_SQL =
+            "SELECT last_id, rows_scanned, rows_changed FROM %s WHERE migration = ?".formatted(PROGRESS_TABLE);
+    private static final String INSERT_PROGRESS_SQL =
+            "INSERT INTO %s (last_id, rows_scanned, rows_changed, migration) VALUES (?, ?, ?, ?)".formatted(PROGRESS_TABLE);
+    private static final String UPDATE_PROGRESS_SQL =
+            "UPDATE %s SET last_id = ?, rows_scanned = ?, rows_changed = ? WHERE migration = ?".formatted(PROGRESS_TABLE);
+    private static final String DELETE_PROGRESS_SQL = "DELETE FROM %s WHERE migration = ?".formatted(PROGRESS_TABLE);
+
+    /**
+     * The table whose rows are changed.
+     */
+    protected abstract String tableName();
+
+    /**
+     * A numeric primary key column of {@link #tableName()}; chunks are ranges of its values.
+     */
+    protected String idColumn() {
+        return "id";
+    }
+
+    /**
+     * The statement that changes the rows of one chunk. Its two parameters are the exclusive lower bound and
+     * the inclusive upper bound of the ids of the chunk, e.g.
+     * {@code UPDATE students SET status = 'ACTIVE' WHERE id > ? AND id <= ? AND status IS NULL}.
+     */
+    protected abstract String chunkSql();
+
+    /**
+     * Chunks are committed one by one, so the migration cannot run in a single transaction.
+     */
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        var placeholders = context.getConfiguration().getPlaceholders();
+        int batchSize = intPlaceholder(placeholders, BATCH_SIZE_PLACEHOLDER, DEFAULT_BATCH_SIZE, 1);
+        int maxRowsPerSecond = intPlaceholder(placeholders, MAX_ROWS_PER_SECOND_PLACEHOLDER, 0, 0);
+        var connection = context.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            migrateInChunks(connection, batchSize, maxRowsPerSecond);
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } catch (InterruptedException e) {
+            connection.rollback();
+            Thread.currentThread().interrupt();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void migrateInChunks(Connection connection, int batchSize, int maxRowsPerSecond)
+            throws SQLException, InterruptedException {
+        var migration = checkpointKey();
+        try (var statement = connection.createStatement()) {
+            statement.execute(CREATE_PROGRESS_TABLE_SQL);
+        }
+        connection.commit();
+
+        var checkpoint = loadProgress(connection, migration);
+        var progress = checkpoint != null ? checkpoint : new Progress(Long.MIN_VALUE, 0, 0);
+        if (checkpoint != null) {
+            LOGGER.log(System.Logger.Level.INFO, "Migration %s resumes after %s = %d (%d rows scanned before)"
+                    .formatted(migration, idColumn(), progress.lastId(), progress.rowsScanned()));
+        }
+        long startNanos = System.nanoTime();
+        long nextReportNanos = startNanos + REPORT_INTERVAL_NANOS;
+        long rowsScannedNow = 0;
+        for (var chunk = nextChunk(connection, progress.lastId(), batchSize); chunk != null;
+             chunk = nextChunk(connection, progress.lastId(), batchSize)) {
+            int rowsChanged = migrateChunk(connection, progress.lastId(), chunk.lastId());
+            progress = new Progress(chunk.lastId(), progress.rowsScanned() + chunk.rows(),
+                    progress.rowsChanged() + rowsChanged);
+            saveProgress(connection, migration, progress, checkpoint == null);
+            connection.commit();
+            checkpoint = progress;
+            rowsScannedNow += chunk.rows();
+
+            long now = System.nanoTime();
+            if (now - nextReportNanos >= 0) {
+                report(migration, progress, rowsScannedNow, now - startNanos);
+                nextReportNanos = now + REPORT_INTERVAL_NANOS;
+            }
+            if (maxRowsPerSecond > 0) {
+                long dueNanos = startNanos + rowsScannedNow * TimeUnit.SECONDS.toNanos(1) / maxRowsPerSecond;
+                TimeUnit.NANOSECONDS.sleep(dueNanos - System.nanoTime());
+            }
+        }
+        try (var delete = connection.prepareStatement(DELETE_PROGRESS_SQL)) {
+            delete.setString(1, migration);
+            delete.executeUpdate();
+        }
+        connection.commit();
+        report(migration, progress, rowsScannedNow, System.nanoTime() - startNanos);
+    }
+
+    private Chunk nextChunk(Connection connection, long afterId, int batchSize) throws SQLException {
+        var sql = "SELECT MAX(%1$s), COUNT(*) FROM (SELECT %1$s FROM %2$s WHERE %1$s > ? ORDER BY %1$s LIMIT ?) chunk"
+                .formatted(idColumn(), tableName());
+        try (var select = connection.prepareStatement(sql)) {
+            select.setLong(1, afterId);
+            select.setInt(2, batchSize);
+            try (var resultSet = select.executeQuery()) {
+                resultSet.next();
+                long lastId = resultSet.getLong(1);
+                return resultSet.wasNull() ? null : new Chunk(lastId, resultSet.getLong(2));
+            }
+        }
+    }
+
+    private int migrateChunk(Connection connection, long afterId, long lastId) throws SQLException {
+        try (var update = connection.prepareStatement(chunkSql())) {
+            update.setLong(1, afterId);
+            update.setLong(2, lastId);
+            return update.executeUpdate();
+        }
+    }
+
+    private String checkpointKey() {
+        return getVersion() != null ? getVersion().getVersion() : getDescription();
+    }
+
+    private static Progress loadProgress(Connection connection, String migration) throws SQLException {
+        try (var select = connection.prepareStatement(SELECT_PROGRESS_SQL)) {
+            select.setString(1, migration);
+            try (var resultSet = select.executeQuery()) {
+                return resultSet.next()
+                        ? new Progress(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3))
+                        : null;
+            }
+        }
+    }
+
+    private static void saveProgress(Connection connection, String migration, Progress progress, boolean insert)
+            throws SQLException {
+        try (var save = connection.prepareStatement(insert ? INSERT_PROGRESS_SQL : UPDATE_PROGRESS_SQL)) {
+            save.setLong(1, progress.lastId());
+            save.setLong(2, progress.rowsScanned());
+            save.setLong(3, progress.rowsChanged());
+            save.setString(4, migration);
+            save.executeUpdate();
+        }
+    }
+
+    private void report(String migration, Progress progress, long rowsScannedNow, long elapsedNanos) {
+        double rowsPerSecond = elapsedNanos > 0 ? rowsScannedNow * 1e9 / elapsedNanos : 0;
+        LOGGER.log(System.Logger.Level.INFO, "Migration %s: %d rows scanned, %d changed, last %s = %d, %.0f rows/s"
+                .formatted(migration, progress.rowsScanned(), progress.rowsChanged(), idColumn(), progress.lastId(),
+                        rowsPerSecond));
+    }
+
+    private static int intPlaceholder(Map<String, String> placeholders, String name, int defaultValue, int minValue) {
+        var value = placeholders.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed >= minValue) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Placeholder %s must be a number not less than %d, but was '%s'"
+                .formatted(name, minValue, value));
+    }
+
+    private record Chunk(long lastId, long rows) {
+    }
+
+    private record Progress(long lastId, long rowsScanned, long rowsChanged) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.verong.demo.database.flyway.profiling;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A migration applied by Flyway and the statements it has executed.
+ *
+ * @param version     the version of the migration, or {@code null} for a repeatable one
+ * @param description the description of the migration
+ * @param script      the script or the class of the migration
+ * @param nanos       the wall time of the migration
+ * @param success     whether the migration has been applied
+ * @param statements  the statements of the migration in the order of their first execution
+ */
+public record MigrationProfile(String version, String description, String script, long nanos, boolean success,
+                               List<StatementProfile> statements) {
+
+    /**
+     * Returns the number of rows changed by all statements of the migration.
+     */
+    public long rows() {
+        return statements.stream().mapToLong(StatementProfile::rows).filter(rows -> rows > 0).sum();
+    }
+
+    /**
+     * Returns the risks of all statements of the migration.
+     */
+    public Set<StatementRisk> risks() {
+        return statements.stream().flatMap(statement -> statement.risks().stream()).collect(Collectors.toSet());
+    }
+}
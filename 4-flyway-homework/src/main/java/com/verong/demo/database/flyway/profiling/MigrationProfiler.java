@@ -0,0 +1,180 @@
+package com.verong.demo.database.flyway.profiling;
+
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A Flyway {@link Callback} that records the wall time of every applied migration and of every statement it executes.
+ * <p>
+ * Flyway reports single statements to callbacks only in its commercial editions, so statements are recorded by
+ * the data source returned from {@link #profile(DataSource)}; it has to be the data source Flyway migrates with.
+ * It sees the statements of SQL and Java migrations alike. Statements outside of migrations and statements on
+ * the schema history table are not recorded.
+ * <p>
+ * A profiler records one run of Flyway and is not thread-safe.
+ */
+public class MigrationProfiler implements Callback {
+
+    private final boolean dryRun;
+    private final String historyTable;
+    private final List<MigrationProfile> migrations = new ArrayList<>();
+    private String database;
+    private Instant startedAt;
+
+    private Context migration;
+    private long migrationStartNanos;
+    private Map<String, StatementProfile> statements;
+    private String lastSql;
+
+    /**
+     * @param dryRun       whether migrations are applied to an embedded copy of the schema
+     * @param historyTable the name of the schema history table of Flyway
+     */
+    public MigrationProfiler(boolean dryRun, String historyTable) {
+        this.dryRun = dryRun;
+        this.historyTable = historyTable.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns a data source whose statements are recorded by this profiler.
+     */
+    public DataSource profile(DataSource dataSource) {
+        return new ProfilingDataSource(dataSource, this);
+    }
+
+    /**
+     * Returns the migrations recorded so far.
+     */
+    public MigrationReport report() {
+        return new MigrationReport(database, dryRun, startedAt != null ? startedAt : Instant.now(),
+                List.copyOf(migrations));
+    }
+
+    @Override
+    public boolean supports(Event event, Context context) {
+        return switch (event) {
+            case BEFORE_MIGRATE, BEFORE_EACH_MIGRATE, AFTER_EACH_MIGRATE, AFTER_EACH_MIGRATE_ERROR -> true;
+            default -> false;
+        };
+    }
+
+    @Override
+    public boolean canHandleInTransaction(Event event, Context context) {
+        return true;
+    }
+
+    @Override
+    public void handle(Event event, Context context) {
+        switch (event) {
+            case BEFORE_MIGRATE -> {
+                startedAt = Instant.now();
+                database = urlOf(context);
+            }
+            case BEFORE_EACH_MIGRATE -> {
+                migration = context;
+                statements = new LinkedHashMap<>();
+                lastSql = null;
+                migrationStartNanos = System.nanoTime();
+            }
+            case AFTER_EACH_MIGRATE -> finishMigration(context, true);
+            case AFTER_EACH_MIGRATE_ERROR -> finishMigration(context, false);
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public String getCallbackName() {
+        return "migration-profiler";
+    }
+
+    /**
+     * Runs a statement and records it when a migration is running.
+     */
+    Object execute(String sql, StatementCall call) throws Throwable {
+        if (statements == null || sql == null || sql.toLowerCase(Locale.ROOT).contains(historyTable)) {
+            return call.execute();
+        }
+        long startNanos = System.nanoTime();
+        try {
+            var result = call.execute();
+            record(StatementProfile.first(sql, System.nanoTime() - startNanos, rowsOf(result), null));
+            return result;
+        } catch (Throwable e) {
+            record(StatementProfile.first(sql, System.nanoTime() - startNanos, -1, String.valueOf(e.getMessage())));
+            throw e;
+        }
+    }
+
+    /**
+     * Adds an update count read after {@code Statement.execute()} to the last recorded statement.
+     */
+    void addUpdateCount(long updateCount) {
+        if (statements != null && lastSql != null) {
+            statements.computeIfPresent(lastSql, (sql, statement) -> statement.withRows(updateCount));
+        }
+    }
+
+    private void record(StatementProfile statement) {
+        statements.merge(statement.sql(), statement, StatementProfile::plus);
+        lastSql = statement.sql();
+    }
+
+    private void finishMigration(Context context, boolean success) {
+        if (statements == null) {
+            return;
+        }
+        var info = (context.getMigrationInfo() != null ? context : migration).getMigrationInfo();
+        migrations.add(new MigrationProfile(
+                info.getVersion() != null ? info.getVersion().getVersion() : null,
+                info.getDescription(),
+                info.getScript(),
+                System.nanoTime() - migrationStartNanos,
+                success,
+                List.copyOf(statements.values())));
+        migration = null;
+        statements = null;
+        lastSql = null;
+    }
+
+    private static long rowsOf(Object result) {
+        if (result instanceof Number number) {
+            return number.longValue();
+        }
+        long rows = -1;
+        if (result instanceof int[] counts) {
+            for (int count : counts) {
+                rows = count >= 0 ? Math.max(rows, 0) + count : rows;
+            }
+        } else if (result instanceof long[] counts) {
+            for (long count : counts) {
+                rows = count >= 0 ? Math.max(rows, 0) + count : rows;
+            }
+        }
+        return rows;
+    }
+
+    private static String urlOf(Context context) {
+        try {
+            return context.getConnection().getMetaData().getURL();
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    interface StatementCall {
+
+        Object execute() throws Throwable;
+    }
+}
@@ -0,0 +1,105 @@
+package com.verong.demo.database.flyway.profiling;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Runs Flyway with a {@link MigrationProfiler} and writes its {@link MigrationReport}.
+ */
+public final class MigrationProfiling {
+
+    private static final String DRY_RUN_URL =
+            "jdbc:h2:mem:flyway-dry-run-%s;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+
+    private MigrationProfiling() {
+    }
+
+    /**
+     * Applies pending migrations to the configured database and writes the report to the file,
+     * also when a migration fails.
+     *
+     * @return the written report
+     */
+    public static MigrationReport migrate(Configuration configuration, Path reportFile) {
+        var profiler = new MigrationProfiler(false, configuration.getTable());
+        try {
+            profiled(configuration, configuration.getDataSource(), profiler).migrate();
+        } finally {
+            profiler.report().writeTo(reportFile);
+        }
+        return profiler.report();
+    }
+
+    /**
+     * Times pending migrations without touching the configured database. An embedded H2 database
+     * (in the PostgreSQL mode) is migrated up to the current version of the configured database, if a data source is
+     * configured, then {@code seed} may fill it with data representative of production, and then pending migrations
+     * are applied and profiled. Timings on the embedded database only hint at the ones on the real one, but slow
+     * statements and statements that lock or rewrite tables show up before they reach production.
+     *
+     * @return the written report
+     */
+    public static MigrationReport dryRun(Configuration configuration, Consumer<DataSource> seed, Path reportFile) {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL(DRY_RUN_URL.formatted(UUID.randomUUID()));
+        dataSource.setUser("sa");
+        try {
+            var currentVersion = currentVersionOf(configuration);
+            if (currentVersion != null) {
+                Flyway.configure()
+                        .configuration(configuration)
+                        .dataSource(dataSource)
+                        .target(currentVersion)
+                        .load()
+                        .migrate();
+            }
+            seed.accept(dataSource);
+            var profiler = new MigrationProfiler(true, configuration.getTable());
+            try {
+                profiled(configuration, dataSource, profiler).migrate();
+            } finally {
+                profiler.report().writeTo(reportFile);
+            }
+            return profiler.report();
+        } finally {
+            shutdown(dataSource);
+        }
+    }
+
+    private static Flyway profiled(Configuration configuration, DataSource dataSource, MigrationProfiler profiler) {
+        var callbacks = Arrays.copyOf(configuration.getCallbacks(), configuration.getCallbacks().length + 1,
+                Callback[].class);
+        callbacks[callbacks.length - 1] = profiler;
+        return Flyway.configure()
+                .configuration(configuration)
+                .dataSource(profiler.profile(dataSource))
+                .callbacks(callbacks)
+                .load();
+    }
+
+    private static MigrationVersion currentVersionOf(Configuration configuration) {
+        if (configuration.getDataSource() == null) {
+            return null;
+        }
+        var current = Flyway.configure().configuration(configuration).load().info().current();
+        return current != null ? current.getVersion() : null;
+    }
+
+    private static void shutdown(JdbcDataSource dataSource) {
+        try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        } catch (SQLException ignored) {
+            // the database is dropped with the JVM anyway
+        }
+    }
+}
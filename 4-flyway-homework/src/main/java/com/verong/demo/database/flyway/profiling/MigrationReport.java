@@ -0,0 +1,114 @@
+package com.verong.demo.database.flyway.profiling;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of a profiled Flyway run; it is written as JSON by {@link #writeTo(Path)}.
+ *
+ * @param database   the JDBC url of the migrated database
+ * @param dryRun     whether migrations have been applied to an embedded copy of the schema instead of the database
+ * @param startedAt  when the run has started
+ * @param migrations the applied migrations in the order of execution, including a failed one
+ */
+public record MigrationReport(String database, boolean dryRun, Instant startedAt, List<MigrationProfile> migrations) {
+
+    /**
+     * Returns the wall time of all migrations.
+     */
+    public long nanos() {
+        return migrations.stream().mapToLong(MigrationProfile::nanos).sum();
+    }
+
+    /**
+     * Writes the report as a JSON document, creating the parent directories of the file if needed.
+     *
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void writeTo(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, toJson());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the migration report to %s".formatted(file), e);
+        }
+    }
+
+    public String toJson() {
+        var json = new StringBuilder(1024);
+        json.append("{\n  \"database\": ").append(quote(database))
+                .append(",\n  \"dryRun\": ").append(dryRun)
+                .append(",\n  \"startedAt\": ").append(quote(startedAt.toString()))
+                .append(",\n  \"millis\": ").append(millis(nanos()))
+                .append(",\n  \"migrations\": [");
+        for (int i = 0; i < migrations.size(); i++) {
+            var migration = migrations.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\n      \"version\": ").append(quote(migration.version()))
+                    .append(",\n      \"description\": ").append(quote(migration.description()))
+                    .append(",\n      \"script\": ").append(quote(migration.script()))
+                    .append(",\n      \"success\": ").append(migration.success())
+                    .append(",\n      \"millis\": ").append(millis(migration.nanos()))
+                    .append(",\n      \"rows\": ").append(migration.rows())
+                    .append(",\n      \"risks\": ").append(names(migration.risks()))
+                    .append(",\n      \"statements\": [");
+            var statements = migration.statements();
+            for (int j = 0; j < statements.size(); j++) {
+                var statement = statements.get(j);
+                json.append(j == 0 ? "\n" : ",\n")
+                        .append("        {\"sql\": ").append(quote(statement.sql()))
+                        .append(", \"executions\": ").append(statement.executions())
+                        .append(", \"millis\": ").append(millis(statement.nanos()))
+                        .append(", \"maxMillis\": ").append(millis(statement.maxNanos()))
+                        .append(", \"rows\": ").append(statement.rows())
+                        .append(", \"risks\": ").append(names(statement.risks()))
+                        .append(", \"error\": ").append(quote(statement.error()))
+                        .append('}');
+            }
+            json.append(statements.isEmpty() ? "]\n    }" : "\n      ]\n    }");
+        }
+        return json.append(migrations.isEmpty() ? "]\n}\n" : "\n  ]\n}\n").toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static String names(Collection<StatementRisk> risks) {
+        return risks.stream().sorted().map(risk -> quote(risk.name())).toList().toString();
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        var quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append("\\u%04x".formatted((int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
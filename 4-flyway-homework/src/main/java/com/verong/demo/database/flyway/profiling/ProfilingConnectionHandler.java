@@ -0,0 +1,62 @@
+package com.verong.demo.database.flyway.profiling;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Handles calls of a {@link Connection} handed out by {@link ProfilingDataSource}: the statements it creates are
+ * wrapped by {@link ProfilingStatementHandler}.
+ */
+final class ProfilingConnectionHandler implements InvocationHandler {
+
+    private final Connection connection;
+    private final MigrationProfiler profiler;
+
+    private ProfilingConnectionHandler(Connection connection, MigrationProfiler profiler) {
+        this.connection = connection;
+        this.profiler = profiler;
+    }
+
+    static Connection newProxy(Connection connection, MigrationProfiler profiler) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ProfilingConnectionHandler(connection, profiler));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals" -> {
+                return proxy == args[0];
+            }
+            case "hashCode" -> {
+                return System.identityHashCode(proxy);
+            }
+            case "toString" -> {
+                return "ProfilingConnection[%s]".formatted(connection);
+            }
+            default -> {
+            }
+        }
+        Object result;
+        try {
+            result = method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+        return switch (result) {
+            case CallableStatement statement -> ProfilingStatementHandler.newProxy(statement, CallableStatement.class,
+                    (String) args[0], (Connection) proxy, profiler);
+            case PreparedStatement statement -> ProfilingStatementHandler.newProxy(statement, PreparedStatement.class,
+                    (String) args[0], (Connection) proxy, profiler);
+            case Statement statement -> ProfilingStatementHandler.newProxy(statement, Statement.class,
+                    null, (Connection) proxy, profiler);
+            case null, default -> result;
+        };
+    }
+}
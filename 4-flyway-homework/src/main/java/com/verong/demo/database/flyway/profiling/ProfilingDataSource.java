@@ -0,0 +1,73 @@
+package com.verong.demo.database.flyway.profiling;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+/**
+ * A {@link DataSource} whose connections report their statements to a {@link MigrationProfiler}.
+ * <br>
+ * {@code InstrumentedDataSource} of {@code jdbc-instrumentation} is not used here although it times statements
+ * the same way: it measures statement shapes, so two statements that differ only in literals are merged, while
+ * a migration report lists the exact text that {@link StatementRisk} is matched against. It also accumulates
+ * counters of all connections since it has been created and has no hook per execution, so the error message and
+ * the slowest execution of a statement could not be attributed to the migration that has run it.
+ */
+final class ProfilingDataSource implements DataSource {
+
+    private final DataSource target;
+    private final MigrationProfiler profiler;
+
+    ProfilingDataSource(DataSource target, MigrationProfiler profiler) {
+        this.target = target;
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return ProfilingConnectionHandler.newProxy(target.getConnection(), profiler);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return ProfilingConnectionHandler.newProxy(target.getConnection(username, password), profiler);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return target.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        target.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        target.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return target.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return target.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,100 @@
+package com.verong.demo.database.flyway.profiling;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handles calls of a {@link Statement} created by a connection of {@link ProfilingDataSource}: every execution is
+ * reported to {@link MigrationProfiler} together with the update count read after it, which is reported
+ * once however many times it is read.
+ */
+final class ProfilingStatementHandler implements InvocationHandler {
+
+    private final Statement statement;
+    private final String preparedSql;
+    private final Connection connectionProxy;
+    private final MigrationProfiler profiler;
+    private final List<String> batch = new ArrayList<>();
+    /**
+     * Whether the update count of the current result has been reported: by {@code executeUpdate} or a batch, or by
+     * the first {@code getUpdateCount()} after {@code execute}. Flyway reads the count more than once.
+     */
+    private boolean updateCountReported;
+
+    private ProfilingStatementHandler(Statement statement, String preparedSql, Connection connectionProxy,
+                                      MigrationProfiler profiler) {
+        this.statement = statement;
+        this.preparedSql = preparedSql;
+        this.connectionProxy = connectionProxy;
+        this.profiler = profiler;
+    }
+
+    static <T extends Statement> T newProxy(T statement, Class<T> type, String preparedSql, Connection connectionProxy,
+                                            MigrationProfiler profiler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new ProfilingStatementHandler(statement, preparedSql, connectionProxy, profiler)));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        var name = method.getName();
+        switch (name) {
+            case "equals" -> {
+                return proxy == args[0];
+            }
+            case "hashCode" -> {
+                return System.identityHashCode(proxy);
+            }
+            case "toString" -> {
+                return "ProfilingStatement[%s]".formatted(statement);
+            }
+            case "getConnection" -> {
+                return connectionProxy;
+            }
+            case "addBatch" -> {
+                if (args != null && args.length == 1 && args[0] instanceof String sql) {
+                    batch.add(sql);
+                }
+            }
+            case "clearBatch" -> batch.clear();
+            case "execute", "executeQuery", "executeUpdate", "executeLargeUpdate" -> {
+                var sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+                // the result of executeUpdate is the update count and is recorded with the execution
+                updateCountReported = name.endsWith("Update");
+                return profiler.execute(sql, () -> invokeTarget(method, args));
+            }
+            case "executeBatch", "executeLargeBatch" -> {
+                var sql = batch.isEmpty() ? preparedSql : String.join(";\n", batch);
+                batch.clear();
+                updateCountReported = true;
+                return profiler.execute(sql, () -> invokeTarget(method, args));
+            }
+            case "getMoreResults" -> updateCountReported = false;
+            case "getUpdateCount", "getLargeUpdateCount" -> {
+                var updateCount = (Number) invokeTarget(method, args);
+                if (!updateCountReported) {
+                    profiler.addUpdateCount(updateCount.longValue());
+                    updateCountReported = true;
+                }
+                return updateCount;
+            }
+            default -> {
+            }
+        }
+        return invokeTarget(method, args);
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.verong.demo.database.flyway.profiling;
+
+import java.util.Set;
+
+/**
+ * A statement executed by a migration; executions of the same statement text within a migration are summed up,
+ * so a chunked migration is reported with one entry per statement rather than per chunk.
+ *
+ * @param sql        the text of the statement
+ * @param executions how many times the statement has been executed
+ * @param nanos      the wall time of all executions
+ * @param maxNanos   the wall time of the slowest execution
+ * @param rows       the number of rows changed by all executions, or {@code -1} when none has reported any
+ * @param risks      the reasons why the statement is likely to lock or rewrite a table
+ * @param error      the message of the exception thrown by the last failed execution, or {@code null}
+ */
+public record StatementProfile(String sql, int executions, long nanos, long maxNanos, long rows,
+                               Set<StatementRisk> risks, String error) {
+
+    static StatementProfile first(String sql, long nanos, long rows, String error) {
+        return new StatementProfile(sql, 1, nanos, nanos, rows, StatementRisk.of(sql), error);
+    }
+
+    StatementProfile plus(StatementProfile next) {
+        return new StatementProfile(sql, executions + next.executions, nanos + next.nanos,
+                Math.max(maxNanos, next.maxNanos), addRows(next.rows), risks, next.error != null ? next.error : error);
+    }
+
+    StatementProfile withRows(long updateCount) {
+        return new StatementProfile(sql, executions, nanos, maxNanos, addRows(updateCount), risks, error);
+    }
+
+    private long addRows(long moreRows) {
+        if (moreRows < 0) {
+            return rows;
+        }
+        return rows < 0 ? moreRows : rows + moreRows;
+    }
+}
@@ -0,0 +1,69 @@
+package com.verong.demo.database.flyway.profiling;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * A reason why a migration statement is likely to lock or rewrite a table on a production-sized database.
+ * The statement text is only matched against patterns, so the result is a hint for a review, not a proof.
+ */
+public enum StatementRisk {
+
+    /**
+     * {@code ALTER TABLE ... ADD COLUMN ... DEFAULT} or a change of a column type: the database may rewrite
+     * every row while holding an exclusive lock.
+     */
+    TABLE_REWRITE(pattern("^ALTER TABLE .*\\bADD (COLUMN )?(?!CONSTRAINT\\b)\\S+ .*\\bDEFAULT\\b")
+            .or(pattern("^ALTER TABLE .*\\bALTER (COLUMN )?\\S+ (SET DATA )?TYPE\\b"))),
+
+    /**
+     * {@code UPDATE} or {@code DELETE} without {@code WHERE}: it locks every row of the table in one transaction.
+     */
+    UNBOUNDED_WRITE(pattern("^(UPDATE|DELETE FROM) ").and(pattern("\\bWHERE\\b").negate())),
+
+    /**
+     * {@code CREATE INDEX} without {@code CONCURRENTLY}: writes to the table wait until the index is built.
+     */
+    BLOCKING_INDEX_BUILD(pattern("^CREATE (UNIQUE )?INDEX (?!CONCURRENTLY\\b)")),
+
+    /**
+     * A new foreign key, check or {@code NOT NULL} constraint that is validated by scanning the whole table
+     * under a lock ({@code NOT VALID} constraints are not).
+     */
+    FULL_TABLE_VALIDATION(pattern("^ALTER TABLE .*\\b(FOREIGN KEY|CHECK ?\\(|SET NOT NULL)")
+            .and(pattern("\\bNOT VALID\\b").negate())),
+
+    /**
+     * A statement that takes an exclusive lock of the whole table by design.
+     */
+    EXCLUSIVE_LOCK(pattern("^(LOCK TABLE|LOCK |TRUNCATE|VACUUM FULL|CLUSTER)\\b"));
+
+    private static final Pattern COMMENTS = Pattern.compile("--[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Predicate<String> matcher;
+
+    StatementRisk(Predicate<String> matcher) {
+        this.matcher = matcher;
+    }
+
+    /**
+     * Returns the risks of the passed SQL statement.
+     */
+    public static Set<StatementRisk> of(String sql) {
+        var normalized = WHITESPACE.matcher(COMMENTS.matcher(sql).replaceAll(" ")).replaceAll(" ").strip();
+        var risks = EnumSet.noneOf(StatementRisk.class);
+        for (var risk : values()) {
+            if (risk.matcher.test(normalized)) {
+                risks.add(risk);
+            }
+        }
+        return risks;
+    }
+
+    private static Predicate<String> pattern(String regex) {
+        return Pattern.compile(regex, Pattern.CASE_INSENSITIVE).asPredicate();
+    }
+}
@@ -0,0 +1,22 @@
+package db.migration;
+
+import com.verong.demo.database.flyway.migration.ChunkedBackfillMigration;
+
+/**
+ * Sets the default status and scholarship of students that have none, a chunk of students at a time.
+ */
+public class V3__Update_default_values extends ChunkedBackfillMigration {
+
+    @Override
+    protected String tableName() {
+        return "students";
+    }
+
+    @Override
+    protected String chunkSql() {
+        return """
+                UPDATE students
+                SET status = COALESCE(status, 'ACTIVE'), scholarship = COALESCE(scholarship, FALSE)
+                WHERE id > ? AND id <= ? AND (status IS NULL OR scholarship IS NULL)""";
+    }
+}
@@ -0,0 +1,10 @@
+CREATE TABLE students
+(
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email       VARCHAR(255) NOT NULL UNIQUE,
+    first_name  VARCHAR(255),
+    last_name   VARCHAR(255),
+    birthday    DATE,
+    scholarship BOOLEAN,
+    status      VARCHAR(32)
+);
@@ -0,0 +1,4 @@
+INSERT INTO students (email, first_name, last_name, birthday, scholarship, status)
+VALUES ('roberto.nash@mail.com', 'Roberto', 'Nash', DATE '2001-01-01', TRUE, 'ACTIVE'),
+       ('emma.stone@mail.com', 'Emma', 'Stone', DATE '2002-03-15', NULL, NULL),
+       ('liam.brooks@mail.com', 'Liam', 'Brooks', DATE '2000-07-30', FALSE, NULL);
@@ -0,0 +1,65 @@
+package com.verong.demo.database.flyway;
+
+import com.verong.demo.database.flyway.profiling.MigrationProfile;
+import com.verong.demo.database.flyway.profiling.MigrationProfiling;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the dry run of {@link Application} with its seed against an embedded database that stands for the configured
+ * one and checks that pending migrations are profiled on the seeded students.
+ */
+class ApplicationTest {
+
+    @TempDir
+    Path reportDirectory;
+
+    private FluentConfiguration configuration;
+
+    @BeforeEach
+    void setUp() {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:%s;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+                .formatted(UUID.randomUUID()));
+        configuration = Flyway.configure().dataSource(dataSource);
+    }
+
+    @Test
+    void pendingMigrationsAreProfiledOnTheSeededStudents() {
+        Flyway.configure().configuration(configuration).target("2").load().migrate();
+
+        var report = MigrationProfiling.dryRun(configuration, Application::seedStudents,
+                reportDirectory.resolve("report.json"));
+
+        assertEquals(List.of("3", "4"), report.migrations().stream().map(MigrationProfile::version).toList());
+        // a third of the seeded students and two of the three inserted by V2 have no status or scholarship
+        var backfill = report.migrations().get(0).statements().stream()
+                .filter(statement -> statement.sql().strip().startsWith("UPDATE students"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(Application.SEED_STUDENTS / 3 + 2, backfill.rows());
+        // the configured database is not migrated by a dry run
+        assertEquals("2", Flyway.configure().configuration(configuration).load().info().current().getVersion()
+                .getVersion());
+    }
+
+    @Test
+    void databaseWithoutTheStudentsTableIsNotSeeded() {
+        var report = MigrationProfiling.dryRun(configuration, Application::seedStudents,
+                reportDirectory.resolve("report.json"));
+
+        assertEquals(List.of("1", "2", "3", "4"),
+                report.migrations().stream().map(MigrationProfile::version).toList());
+        assertEquals(3, report.migrations().get(1).rows());
+    }
+}
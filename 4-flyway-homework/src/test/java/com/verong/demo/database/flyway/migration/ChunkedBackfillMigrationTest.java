@@ -0,0 +1,130 @@
+package com.verong.demo.database.flyway.migration;
+
+import db.backfill.V2__Touch_items;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@code db.backfill.V2__Touch_items} on an embedded database with ten items whose ids have gaps, three items
+ * per chunk, and checks that every item is changed exactly once however often the migration is interrupted.
+ */
+class ChunkedBackfillMigrationTest {
+
+    private static final List<Long> IDS = List.of(1L, 2L, 3L, 5L, 8L, 13L, 21L, 34L, 55L, 89L);
+
+    private JdbcDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:%s;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+                .formatted(UUID.randomUUID()));
+    }
+
+    @Test
+    void changesEveryRowOnce() throws SQLException {
+        V2__Touch_items.interruptEvery(0);
+
+        flyway().migrate();
+
+        assertEquals(List.of(1), touchedCounts());
+        assertFalse(hasCheckpoint());
+    }
+
+    @Test
+    void resumesAfterTheLastCommittedChunk() throws SQLException {
+        V2__Touch_items.interruptEvery(3);
+
+        assertThrows(FlywayException.class, () -> flyway().migrate());
+        // two chunks have been committed together with their checkpoint
+        assertEquals(List.of(13L, 6L, 6L), checkpoint());
+        assertEquals(List.of(1, 1, 1, 1, 1, 1, 0, 0, 0, 0), touched());
+
+        var flyway = flyway();
+        flyway.repair();
+        flyway.migrate();
+
+        assertEquals(List.of(1), touchedCounts());
+        assertFalse(hasCheckpoint());
+    }
+
+    @Test
+    void resumesAfterEveryInterruption() throws SQLException {
+        // each run commits one chunk and fails before the next one; the fourth run commits the last chunk
+        V2__Touch_items.interruptEvery(2);
+        for (int run = 1; run <= 3; run++) {
+            var flyway = flyway();
+            flyway.repair();
+            assertThrows(FlywayException.class, flyway::migrate);
+            assertEquals(List.of(IDS.get(3 * run - 1), 3L * run), checkpoint().subList(0, 2));
+        }
+
+        var flyway = flyway();
+        flyway.repair();
+        flyway.migrate();
+
+        assertEquals(List.of(1), touchedCounts());
+        assertFalse(hasCheckpoint());
+    }
+
+    private Flyway flyway() {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/backfill")
+                .placeholders(Map.of(ChunkedBackfillMigration.BATCH_SIZE_PLACEHOLDER, "3"))
+                .load();
+    }
+
+    private List<Integer> touched() throws SQLException {
+        var touched = new ArrayList<Integer>();
+        try (var connection = dataSource.getConnection();
+             var statement = connection.createStatement();
+             var resultSet = statement.executeQuery("SELECT id, touched FROM items ORDER BY id")) {
+            var ids = new ArrayList<Long>();
+            while (resultSet.next()) {
+                ids.add(resultSet.getLong(1));
+                touched.add(resultSet.getInt(2));
+            }
+            assertEquals(IDS, ids);
+        }
+        return touched;
+    }
+
+    private List<Integer> touchedCounts() throws SQLException {
+        return touched().stream().distinct().toList();
+    }
+
+    private List<Long> checkpoint() throws SQLException {
+        try (var connection = dataSource.getConnection();
+             var statement = connection.createStatement();
+             var resultSet = statement.executeQuery("SELECT last_id, rows_scanned, rows_changed FROM "
+                     + ChunkedBackfillMigration.PROGRESS_TABLE)) {
+            assertTrue(resultSet.next());
+            return List.of(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3));
+        }
+    }
+
+    private boolean hasCheckpoint() throws SQLException {
+        try (var connection = dataSource.getConnection();
+             var statement = connection.createStatement();
+             var resultSet = statement.executeQuery("SELECT COUNT(*) FROM "
+                     + ChunkedBackfillMigration.PROGRESS_TABLE)) {
+            resultSet.next();
+            return resultSet.getLong(1) > 0;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.verong.demo.database.flyway.profiling;
+
+import com.verong.demo.database.flyway.migration.ChunkedBackfillMigration;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Profiles a dry run of the migrations of the module (the SQL migrations V1, V2 and V4 and the chunked Java
+ * migration V3) and of {@code db.profiling.V5__Read_update_counts_again} on an embedded database and checks what
+ * the report says about every statement.
+ */
+class MigrationProfilerTest {
+
+    @TempDir
+    Path reportDirectory;
+
+    @Test
+    void reportsTheStatementsOfEveryMigration() throws IOException {
+        var reportFile = reportDirectory.resolve("report.json");
+
+        var report = dryRun(reportFile);
+
+        assertTrue(report.dryRun());
+        assertEquals(List.of("1", "2", "3", "4", "5"),
+                report.migrations().stream().map(MigrationProfile::version).toList());
+        for (var migration : report.migrations()) {
+            assertTrue(migration.success(), migration.script());
+            assertFalse(migration.statements().isEmpty(), migration.script());
+            long statementNanos = 0;
+            for (var statement : migration.statements()) {
+                assertTrue(statement.executions() > 0, statement.sql());
+                assertTrue(statement.maxNanos() > 0, statement.sql());
+                assertTrue(statement.maxNanos() <= statement.nanos(), statement.sql());
+                assertEquals(null, statement.error(), statement.sql());
+                assertFalse(statement.sql().contains("flyway_schema_history"), statement.sql());
+                statementNanos += statement.nanos();
+            }
+            assertTrue(migration.nanos() >= statementNanos, migration.script());
+        }
+        assertTrue(Files.readString(reportFile).contains("\"script\": \"V2__insert_default_values.sql\""));
+    }
+
+    @Test
+    void updateCountOfAStatementIsCountedOnce() {
+        var report = dryRun(reportDirectory.resolve("report.json"));
+
+        // Flyway runs SQL migrations with execute() and reads the update count afterwards
+        var insert = statement(report.migrations().get(1), "INSERT INTO students");
+        assertEquals(1, insert.executions());
+        assertEquals(3, insert.rows());
+        assertEquals(3, report.migrations().get(1).rows());
+
+        var readAgain = report.migrations().get(4);
+        var execute = statement(readAgain, "UPDATE students SET phone = '555-0100'");
+        assertEquals(1, execute.executions());
+        assertEquals(1, execute.rows());
+        var executeUpdate = statement(readAgain, "UPDATE students SET phone = ?");
+        assertEquals(1, executeUpdate.executions());
+        assertEquals(2, executeUpdate.rows());
+        assertEquals(3, readAgain.rows());
+    }
+
+    @Test
+    void executionsOfAStatementInChunksAreSummedUp() {
+        var report = dryRun(reportDirectory.resolve("report.json"));
+
+        // three students, one per chunk; two of them have no status
+        var chunk = statement(report.migrations().get(2), "UPDATE students");
+        assertEquals(3, chunk.executions());
+        assertEquals(2, chunk.rows());
+        assertTrue(chunk.maxNanos() < chunk.nanos());
+        var checkpoint = statement(report.migrations().get(2), "UPDATE " + ChunkedBackfillMigration.PROGRESS_TABLE);
+        assertEquals(2, checkpoint.executions());
+        assertEquals(2, checkpoint.rows());
+    }
+
+    @Test
+    void risksOfAStatementAreReported() {
+        var report = dryRun(reportDirectory.resolve("report.json"));
+
+        var alter = statement(report.migrations().get(3), "ALTER TABLE students");
+        assertEquals(Set.of(), alter.risks());
+        assertEquals(0, report.migrations().get(3).rows());
+    }
+
+    private static MigrationReport dryRun(Path reportFile) {
+        var configuration = Flyway.configure()
+                .locations("classpath:db/migration", "classpath:db/profiling")
+                .placeholders(Map.of(ChunkedBackfillMigration.BATCH_SIZE_PLACEHOLDER, "1"));
+        return MigrationProfiling.dryRun(configuration, dataSource -> {
+        }, reportFile);
+    }
+
+    private static StatementProfile statement(MigrationProfile migration, String prefix) {
+        var statements = migration.statements().stream()
+                .filter(statement -> statement.sql().strip().startsWith(prefix))
+                .toList();
+        assertEquals(1, statements.size(), () -> "%s in %s".formatted(prefix, migration.statements()));
+        return statements.get(0);
+    }
+}
@@ -0,0 +1,35 @@
+package db.backfill;
+
+import com.verong.demo.database.flyway.migration.ChunkedBackfillMigration;
+
+/**
+ * Counts how many times each item has been changed, so a test sees rows that are changed twice or not at all.
+ * Every {@link #interruptEvery(int) n-th} chunk, counted over all runs, fails before it changes any row, as
+ * a migration killed in the middle would.
+ */
+public class V2__Touch_items extends ChunkedBackfillMigration {
+
+    private static int interruptEvery;
+    private static int chunks;
+
+    /**
+     * Makes every n-th chunk fail from now on, or none for {@code 0}.
+     */
+    public static void interruptEvery(int n) {
+        interruptEvery = n;
+        chunks = 0;
+    }
+
+    @Override
+    protected String tableName() {
+        return "items";
+    }
+
+    @Override
+    protected String chunkSql() {
+        if (interruptEvery > 0 && ++chunks % interruptEvery == 0) {
+            throw new IllegalStateException("Interrupted before chunk %d".formatted(chunks));
+        }
+        return "UPDATE items SET touched = touched + 1 WHERE id > ? AND id <= ?";
+    }
+}
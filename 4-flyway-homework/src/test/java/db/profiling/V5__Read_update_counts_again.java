@@ -0,0 +1,26 @@
+package db.profiling;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Reads the update counts of its statements more than once, as JDBC callers may; each count has to be profiled once.
+ */
+public class V5__Read_update_counts_again extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (var statement = context.getConnection().createStatement()) {
+            statement.execute("UPDATE students SET phone = '555-0100' WHERE id = 1");
+            statement.getUpdateCount();
+            statement.getUpdateCount();
+            statement.getLargeUpdateCount();
+        }
+        try (var update = context.getConnection().prepareStatement("UPDATE students SET phone = ? WHERE id > ?")) {
+            update.setString(1, "555-0101");
+            update.setLong(2, 1);
+            update.executeUpdate();
+            update.getUpdateCount();
+        }
+    }
+}
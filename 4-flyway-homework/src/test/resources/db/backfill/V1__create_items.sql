@@ -0,0 +1,7 @@
+CREATE TABLE items
+(
+    id      BIGINT PRIMARY KEY,
+    touched INT NOT NULL DEFAULT 0
+);
+INSERT INTO items (id)
+VALUES (1), (2), (3), (5), (8), (13), (21), (34), (55), (89);
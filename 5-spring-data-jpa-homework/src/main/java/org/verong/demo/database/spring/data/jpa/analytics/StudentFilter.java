@@ -0,0 +1,33 @@
+package org.verong.demo.database.spring.data.jpa.analytics;
+
+import lombok.Builder;
+import org.verong.demo.database.spring.data.jpa.persistence.model.StudentStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Conditions a student of {@link StudentSnapshot} has to meet; a condition that is not set matches every student.
+ * Like in SQL, a student whose column is not set does not match a condition on that column.
+ *
+ * @param status      the status of the student
+ * @param scholarship whether the student has a scholarship
+ * @param bornFrom    the earliest birthday, inclusive
+ * @param bornTo      the latest birthday, inclusive
+ */
+@Builder
+public record StudentFilter(
+        StudentStatus status,
+        Boolean scholarship,
+        LocalDate bornFrom,
+        LocalDate bornTo
+) {
+
+    private static final StudentFilter ANY = StudentFilter.builder().build();
+
+    /**
+     * Returns a filter that matches every student.
+     */
+    public static StudentFilter any() {
+        return ANY;
+    }
+}
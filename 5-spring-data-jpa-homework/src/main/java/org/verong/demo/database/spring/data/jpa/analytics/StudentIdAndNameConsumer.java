@@ -0,0 +1,11 @@
+package org.verong.demo.database.spring.data.jpa.analytics;
+
+/**
+ * Receives the columns of {@link org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto}
+ * without the dto being created.
+ */
+@FunctionalInterface
+public interface StudentIdAndNameConsumer {
+
+    void accept(long id, String firstName, String lastName);
+}
@@ -0,0 +1,226 @@
+package org.verong.demo.database.spring.data.jpa.analytics;
+
+import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A read-only copy of the students table stored by columns, so filtering and counting read a few primitive arrays
+ * instead of creating an object per row:
+ * <ul>
+ *     <li>ids are a {@code long[]} sorted ascending;</li>
+ *     <li>a status is the byte of its ordinal, {@value #NO_STATUS} when it is not set;</li>
+ *     <li>scholarships are two bitsets: whether it is set and whether it is {@code true};</li>
+ *     <li>a birthday is its epoch day, {@value #NO_BIRTHDAY} when it is not set;</li>
+ *     <li>first and last names are indexes in one dictionary of distinct names, {@value #NO_NAME} when not set.</li>
+ * </ul>
+ * A snapshot never changes: {@link StudentSnapshotService} replaces it with a new one on refresh, so it can be read
+ * by many threads at once without locking.
+ */
+public final class StudentSnapshot {
+
+    static final byte NO_STATUS = -1;
+    static final int NO_BIRTHDAY = Integer.MIN_VALUE;
+    static final int NO_NAME = -1;
+
+    private final int size;
+    private final long[] ids;
+    private final byte[] statuses;
+    private final long[] scholarshipSet;
+    private final long[] scholarship;
+    private final int[] birthdays;
+    private final String[] names;
+    private final int[] firstNames;
+    private final int[] lastNames;
+    private final Instant refreshedAt;
+
+    StudentSnapshot(int size, long[] ids, byte[] statuses, long[] scholarshipSet, long[] scholarship, int[] birthdays,
+                    String[] names, int[] firstNames, int[] lastNames, Instant refreshedAt) {
+        this.size = size;
+        this.ids = ids;
+        this.statuses = statuses;
+        this.scholarshipSet = scholarshipSet;
+        this.scholarship = scholarship;
+        this.birthdays = birthdays;
+        this.names = names;
+        this.firstNames = firstNames;
+        this.lastNames = lastNames;
+        this.refreshedAt = refreshedAt;
+    }
+
+    static StudentSnapshot empty() {
+        return new StudentSnapshot(0, new long[0], new byte[0], new long[0], new long[0], new int[0], new String[0],
+                new int[0], new int[0], Instant.EPOCH);
+    }
+
+    /**
+     * Returns the number of students in the snapshot.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns when the snapshot was last brought up to date with the database.
+     */
+    public Instant refreshedAt() {
+        return refreshedAt;
+    }
+
+    /**
+     * Returns the number of students matching the filter.
+     */
+    public long count(StudentFilter filter) {
+        var matcher = new Matcher(filter);
+        long count = 0;
+        for (int row = 0; row < size; row++) {
+            if (matcher.matches(row)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Passes the id and the names of every student matching the filter, ordered by id, to the consumer; the names are
+     * the instances held by the dictionary of the snapshot, so nothing is allocated per row.
+     */
+    public void forEachIdAndName(StudentFilter filter, StudentIdAndNameConsumer consumer) {
+        var matcher = new Matcher(filter);
+        for (int row = 0; row < size; row++) {
+            if (matcher.matches(row)) {
+                consumer.accept(ids[row], nameAt(firstNames[row]), nameAt(lastNames[row]));
+            }
+        }
+    }
+
+    /**
+     * Returns the id and the names of every student matching the filter, ordered by id.
+     */
+    public List<StudentIdAndNameDto> findIdAndName(StudentFilter filter) {
+        var result = new ArrayList<StudentIdAndNameDto>();
+        forEachIdAndName(filter, (id, firstName, lastName) -> result.add(new StudentIdAndNameDto(id, firstName, lastName)));
+        return result;
+    }
+
+    StudentSnapshot withRefreshedAt(Instant refreshedAt) {
+        return new StudentSnapshot(size, ids, statuses, scholarshipSet, scholarship, birthdays, names, firstNames,
+                lastNames, refreshedAt);
+    }
+
+    long highestId() {
+        return size == 0 ? Long.MIN_VALUE : ids[size - 1];
+    }
+
+    long idAt(int row) {
+        return ids[row];
+    }
+
+    byte statusAt(int row) {
+        return statuses[row];
+    }
+
+    /**
+     * Returns {@code Boolean.TRUE}, {@code Boolean.FALSE} or {@code null} when the scholarship is not set.
+     */
+    Boolean scholarshipAt(int row) {
+        return isSet(scholarshipSet, row) ? Boolean.valueOf(isSet(scholarship, row)) : null;
+    }
+
+    int birthdayAt(int row) {
+        return birthdays[row];
+    }
+
+    int firstNameAt(int row) {
+        return firstNames[row];
+    }
+
+    int lastNameAt(int row) {
+        return lastNames[row];
+    }
+
+    String[] names() {
+        return names;
+    }
+
+    long[] ids() {
+        return ids;
+    }
+
+    byte[] statuses() {
+        return statuses;
+    }
+
+    long[] scholarshipSet() {
+        return scholarshipSet;
+    }
+
+    long[] scholarship() {
+        return scholarship;
+    }
+
+    int[] birthdays() {
+        return birthdays;
+    }
+
+    int[] firstNames() {
+        return firstNames;
+    }
+
+    int[] lastNames() {
+        return lastNames;
+    }
+
+    String nameAt(int index) {
+        return index == NO_NAME ? null : names[index];
+    }
+
+    static int words(int size) {
+        return (size + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    static boolean isSet(long[] bits, int row) {
+        return (bits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * Decodes a filter once into the primitives the columns are compared with.
+     */
+    private final class Matcher {
+
+        private final boolean anyStatus;
+        private final byte status;
+        private final boolean anyScholarship;
+        private final boolean scholarshipValue;
+        private final boolean anyBirthday;
+        private final int bornFrom;
+        private final int bornTo;
+
+        private Matcher(StudentFilter filter) {
+            this.anyStatus = filter.status() == null;
+            this.status = anyStatus ? NO_STATUS : (byte) filter.status().ordinal();
+            this.anyScholarship = filter.scholarship() == null;
+            this.scholarshipValue = !anyScholarship && filter.scholarship();
+            this.anyBirthday = filter.bornFrom() == null && filter.bornTo() == null;
+            this.bornFrom = filter.bornFrom() == null ? Integer.MIN_VALUE + 1 : (int) filter.bornFrom().toEpochDay();
+            this.bornTo = filter.bornTo() == null ? Integer.MAX_VALUE : (int) filter.bornTo().toEpochDay();
+        }
+
+        private boolean matches(int row) {
+            if (!anyStatus && statuses[row] != status) {
+                return false;
+            }
+            if (!anyScholarship
+                    && (!isSet(scholarshipSet, row) || isSet(scholarship, row) != scholarshipValue)) {
+                return false;
+            }
+            if (anyBirthday) {
+                return true;
+            }
+            int birthday = birthdays[row];
+            return birthday >= bornFrom && birthday <= bornTo;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.verong.demo.database.spring.data.jpa.analytics;
+
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects rows into the columns of a {@link StudentSnapshot}. Rows have to be appended in ascending order of ids.
+ */
+final class StudentSnapshotBuilder {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Integer> nameIndexes;
+    private String[] names;
+    private long[] ids;
+    private byte[] statuses;
+    private long[] scholarshipSet;
+    private long[] scholarship;
+    private int[] birthdays;
+    private int[] firstNames;
+    private int[] lastNames;
+    private int size;
+
+    StudentSnapshotBuilder() {
+        this(new String[0], INITIAL_CAPACITY);
+    }
+
+    /**
+     * Starts with the dictionary of names of another snapshot, so the name indexes of its rows stay valid.
+     */
+    private StudentSnapshotBuilder(String[] names, int capacity) {
+        this.nameIndexes = new HashMap<>(Math.max(16, names.length * 2));
+        for (int i = 0; i < names.length; i++) {
+            nameIndexes.put(names[i], i);
+        }
+        this.names = Arrays.copyOf(names, Math.max(16, names.length));
+        capacity = Math.max(16, capacity);
+        this.ids = new long[capacity];
+        this.statuses = new byte[capacity];
+        this.scholarshipSet = new long[StudentSnapshot.words(capacity)];
+        this.scholarship = new long[StudentSnapshot.words(capacity)];
+        this.birthdays = new int[capacity];
+        this.firstNames = new int[capacity];
+        this.lastNames = new int[capacity];
+    }
+
+    /**
+     * Returns a snapshot with the rows of the base snapshot, where rows of the same id are replaced by the upserted
+     * students, other upserted students are added and rows of the deleted ids are removed.
+     *
+     * @param upserts students ordered by id
+     */
+    static StudentSnapshot merge(StudentSnapshot base, List<Student> upserts, Set<Long> deletedIds, Instant refreshedAt) {
+        var builder = new StudentSnapshotBuilder(base.names(), base.size() + upserts.size());
+        int row = 0;
+        int upsert = 0;
+        while (row < base.size() || upsert < upserts.size()) {
+            long baseId = row < base.size() ? base.idAt(row) : Long.MAX_VALUE;
+            long upsertId = upsert < upserts.size() ? upserts.get(upsert).getId() : Long.MAX_VALUE;
+            if (upsertId <= baseId) {
+                builder.append(upserts.get(upsert++));
+                if (upsertId == baseId) {
+                    row++;
+                }
+            } else {
+                if (!deletedIds.contains(baseId)) {
+                    builder.appendRow(base, row);
+                }
+                row++;
+            }
+        }
+        return builder.build(refreshedAt);
+    }
+
+    void append(Student student) {
+        if (size > 0 && student.getId() <= ids[size - 1]) {
+            throw new IllegalArgumentException("Students have to be appended in ascending order of ids, but %d follows %d"
+                    .formatted(student.getId(), ids[size - 1]));
+        }
+        ensureCapacity();
+        ids[size] = student.getId();
+        statuses[size] = student.getStatus() == null ? StudentSnapshot.NO_STATUS : (byte) student.getStatus().ordinal();
+        setScholarship(student.getScholarship());
+        birthdays[size] = student.getBirthday() == null
+                ? StudentSnapshot.NO_BIRTHDAY
+                : (int) student.getBirthday().toEpochDay();
+        firstNames[size] = indexOf(student.getFirstName());
+        lastNames[size] = indexOf(student.getLastName());
+        size++;
+    }
+
+    private void appendRow(StudentSnapshot snapshot, int row) {
+        ensureCapacity();
+        ids[size] = snapshot.idAt(row);
+        statuses[size] = snapshot.statusAt(row);
+        setScholarship(snapshot.scholarshipAt(row));
+        birthdays[size] = snapshot.birthdayAt(row);
+        firstNames[size] = snapshot.firstNameAt(row);
+        lastNames[size] = snapshot.lastNameAt(row);
+        size++;
+    }
+
+    StudentSnapshot build(Instant refreshedAt) {
+        int words = StudentSnapshot.words(size);
+        return new StudentSnapshot(size, Arrays.copyOf(ids, size), Arrays.copyOf(statuses, size),
+                Arrays.copyOf(scholarshipSet, words), Arrays.copyOf(scholarship, words), Arrays.copyOf(birthdays, size),
+                Arrays.copyOf(names, nameIndexes.size()), Arrays.copyOf(firstNames, size), Arrays.copyOf(lastNames, size),
+                refreshedAt);
+    }
+
+    private void setScholarship(Boolean value) {
+        if (value != null) {
+            scholarshipSet[size >>> 6] |= 1L << size;
+            if (value) {
+                scholarship[size >>> 6] |= 1L << size;
+            }
+        }
+    }
+
+    private int indexOf(String name) {
+        if (name == null) {
+            return StudentSnapshot.NO_NAME;
+        }
+        return nameIndexes.computeIfAbsent(name, key -> {
+            int index = nameIndexes.size();
+            if (index == names.length) {
+                names = Arrays.copyOf(names, index * 2);
+            }
+            names[index] = key;
+            return index;
+        });
+    }
+
+    private void ensureCapacity() {
+        if (size < ids.length) {
+            return;
+        }
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        scholarshipSet = Arrays.copyOf(scholarshipSet, StudentSnapshot.words(capacity));
+        scholarship = Arrays.copyOf(scholarship, StudentSnapshot.words(capacity));
+        birthdays = Arrays.copyOf(birthdays, capacity);
+        firstNames = Arrays.copyOf(firstNames, capacity);
+        lastNames = Arrays.copyOf(lastNames, capacity);
+    }
+}
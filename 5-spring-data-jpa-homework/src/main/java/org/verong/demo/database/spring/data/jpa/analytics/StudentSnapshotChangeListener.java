@@ -0,0 +1,46 @@
+package org.verong.demo.database.spring.data.jpa.analytics;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+
+/**
+ * A JPA entity listener of {@link Student} that tells {@link StudentSnapshotService} which students have been changed,
+ * so the next refresh reads them again. A change is reported only after its transaction has been committed:
+ * a refresh running earlier would read the previous row and forget the change.
+ * <p>
+ * Hibernate gets the listener from Spring, which injects the service only when the snapshot is enabled.
+ */
+@Component
+@RequiredArgsConstructor
+public class StudentSnapshotChangeListener {
+
+    private final ObjectProvider<StudentSnapshotService> snapshotService;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Student student) {
+        var service = snapshotService.getIfAvailable();
+        if (service == null || student.getId() == null) {
+            return;
+        }
+        long id = student.getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    service.markChanged(id);
+                }
+            });
+        } else {
+            service.markChanged(id);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.verong.demo.database.spring.data.jpa.analytics;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Stores a {@link StudentSnapshot} in a memory-mapped file, so an application can start with the snapshot it had
+ * instead of reading the whole table. The file holds a header, the dictionary of names and then every column
+ * one after another in little-endian order; a column is copied with one bulk read of the mapped buffer.
+ * <p>
+ * A snapshot is written to a temporary file that is then moved over the previous one, so a reader never sees
+ * a file that is only partly written.
+ */
+final class StudentSnapshotFile {
+
+    private static final int MAGIC = 0x53545553; // "STUS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES + Long.BYTES;
+
+    private StudentSnapshotFile() {
+    }
+
+    static void write(StudentSnapshot snapshot, Path file) throws IOException {
+        var names = snapshot.names();
+        var encodedNames = new byte[names.length][];
+        long namesSize = 0;
+        for (int i = 0; i < names.length; i++) {
+            encodedNames[i] = names[i].getBytes(StandardCharsets.UTF_8);
+            namesSize += Integer.BYTES + encodedNames[i].length;
+        }
+        int size = snapshot.size();
+        int words = StudentSnapshot.words(size);
+        long fileSize = HEADER_SIZE + namesSize + (long) size * (Long.BYTES + 1 + 3 * Integer.BYTES)
+                + 2L * words * Long.BYTES;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot of %d students is too large for one mapped file".formatted(size));
+        }
+
+        var directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        var temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (var channel = FileChannel.open(temporaryFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                var mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+                var buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC)
+                        .putInt(FORMAT_VERSION)
+                        .putInt(size)
+                        .putInt(names.length)
+                        .putLong(snapshot.refreshedAt().toEpochMilli());
+                for (var name : encodedNames) {
+                    buffer.putInt(name.length).put(name);
+                }
+                buffer.asLongBuffer().put(snapshot.ids(), 0, size);
+                buffer.position(buffer.position() + size * Long.BYTES);
+                buffer.put(snapshot.statuses(), 0, size);
+                buffer.asLongBuffer().put(snapshot.scholarshipSet(), 0, words).put(snapshot.scholarship(), 0, words);
+                buffer.position(buffer.position() + 2 * words * Long.BYTES);
+                buffer.asIntBuffer()
+                        .put(snapshot.birthdays(), 0, size)
+                        .put(snapshot.firstNames(), 0, size)
+                        .put(snapshot.lastNames(), 0, size);
+                mapped.force();
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write(StudentSnapshot, Path)}.
+     *
+     * @throws IOException if the file cannot be read or has not been written by this version of the application
+     */
+    static StudentSnapshot read(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        var buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("%s is not a student snapshot of format version %d".formatted(file, FORMAT_VERSION));
+            }
+            int size = buffer.getInt();
+            var names = new String[buffer.getInt()];
+            var refreshedAt = Instant.ofEpochMilli(buffer.getLong());
+            for (int i = 0; i < names.length; i++) {
+                var name = new byte[buffer.getInt()];
+                buffer.get(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+            }
+            int words = StudentSnapshot.words(size);
+            var ids = new long[size];
+            var statuses = new byte[size];
+            var scholarshipSet = new long[words];
+            var scholarship = new long[words];
+            var birthdays = new int[size];
+            var firstNames = new int[size];
+            var lastNames = new int[size];
+            buffer.asLongBuffer().get(ids);
+            buffer.position(buffer.position() + size * Long.BYTES);
+            buffer.get(statuses);
+            buffer.asLongBuffer().get(scholarshipSet).get(scholarship);
+            buffer.position(buffer.position() + 2 * words * Long.BYTES);
+            buffer.asIntBuffer().get(birthdays).get(firstNames).get(lastNames);
+            return new StudentSnapshot(size, ids, statuses, scholarshipSet, scholarship, birthdays, names, firstNames,
+                    lastNames, refreshedAt);
+        } catch (RuntimeException e) {
+            throw new IOException("%s is not a valid student snapshot".formatted(file), e);
+        }
+    }
+}
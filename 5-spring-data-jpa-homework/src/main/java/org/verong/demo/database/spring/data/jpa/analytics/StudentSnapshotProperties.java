@@ -0,0 +1,34 @@
+package org.verong.demo.database.spring.data.jpa.analytics;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of {@link StudentSnapshotService}, which is created when {@code students.snapshot.enabled} is
+ * {@code true}.
+ *
+ * @param refreshInterval     how often students added or changed since the last refresh are read into the snapshot
+ * @param fullRefreshInterval how often the whole table is read again; it brings in rows changed without JPA
+ *                            (e.g. by SQL) and drops names that are no longer used
+ * @param fetchSize           the number of rows fetched from a database per round trip
+ * @param file                the file the snapshot is stored in after a full refresh and on shutdown, and read from
+ *                            on startup; the snapshot is kept only in memory when it is not set
+ */
+@ConfigurationProperties(prefix = "students.snapshot")
+public record StudentSnapshotProperties(
+        @DefaultValue("10s") Duration refreshInterval,
+        @DefaultValue("10m") Duration fullRefreshInterval,
+        @DefaultValue("1000") int fetchSize,
+        Path file
+) {
+
+    public StudentSnapshotProperties {
+        if (!refreshInterval.isPositive() || !fullRefreshInterval.isPositive() || fetchSize <= 0) {
+            throw new IllegalArgumentException("Refresh intervals and fetch size must be positive, but were %s, %s and %d"
+                    .formatted(refreshInterval, fullRefreshInterval, fetchSize));
+        }
+    }
+}
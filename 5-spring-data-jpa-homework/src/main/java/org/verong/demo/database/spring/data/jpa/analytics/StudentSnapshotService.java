@@ -0,0 +1,148 @@
+package org.verong.demo.database.spring.data.jpa.analytics;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Service;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.JdbcTemplateStudentRepository;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.StudentRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a {@link StudentSnapshot} of the students table for reporting queries, so they do not reach the database.
+ * <p>
+ * On startup the snapshot is read from the snapshot file when there is one, otherwise from the database. Every
+ * {@code refresh-interval} it reads the students whose id is greater than the greatest id it has, and again
+ * the students changed through JPA (see {@link StudentSnapshotChangeListener}); every {@code full-refresh-interval}
+ * it reads the whole table. A refresh builds a new snapshot and replaces the current one, so a query always sees
+ * one consistent snapshot.
+ * <p>
+ * Students changed while the application was stopped are not in a snapshot read from the file until the first
+ * full refresh.
+ */
+@Service
+@ConditionalOnProperty(prefix = "students.snapshot", name = "enabled", havingValue = "true")
+@EnableScheduling
+@EnableConfigurationProperties(StudentSnapshotProperties.class)
+@RequiredArgsConstructor
+public class StudentSnapshotService implements SchedulingConfigurer {
+
+    private static final System.Logger LOGGER = System.getLogger(StudentSnapshotService.class.getName());
+
+    private final JdbcTemplateStudentRepository jdbcTemplateStudentRepository;
+    private final StudentRepository studentRepository;
+    private final StudentSnapshotProperties properties;
+    private final Set<Long> changedIds = ConcurrentHashMap.newKeySet();
+    private volatile StudentSnapshot snapshot = StudentSnapshot.empty();
+
+    /**
+     * Returns the current snapshot; it is empty until the application is ready.
+     */
+    public StudentSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Makes the next refresh read the student again; a student that no longer exists is removed from the snapshot.
+     */
+    public void markChanged(long id) {
+        changedIds.add(id);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        var file = properties.file();
+        if (file != null && Files.exists(file)) {
+            try {
+                snapshot = StudentSnapshotFile.read(file);
+                LOGGER.log(System.Logger.Level.INFO, "Student snapshot of %d students taken at %s has been read from %s"
+                        .formatted(snapshot.size(), snapshot.refreshedAt(), file));
+                return;
+            } catch (IOException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Student snapshot cannot be read, the table is read instead", e);
+            }
+        }
+        fullRefresh();
+    }
+
+    /**
+     * Reads the students added since the last refresh and the students changed through JPA.
+     */
+    public synchronized void refresh() {
+        var current = snapshot;
+        var refreshedAt = Instant.now();
+        var ids = List.copyOf(changedIds);
+        changedIds.removeAll(ids);
+        try {
+            var upserts = new ArrayList<Student>();
+            jdbcTemplateStudentRepository.forEachStudentAfter(current.highestId(), properties.fetchSize(), upserts::add);
+            var deletedIds = new HashSet<>(ids);
+            for (int from = 0; from < ids.size(); from += properties.fetchSize()) {
+                var chunk = ids.subList(from, Math.min(ids.size(), from + properties.fetchSize()));
+                for (var student : studentRepository.findAllById(chunk)) {
+                    deletedIds.remove(student.getId());
+                    if (student.getId() <= current.highestId()) {
+                        upserts.add(student);
+                    }
+                }
+            }
+            upserts.sort(Comparator.comparing(Student::getId));
+            snapshot = upserts.isEmpty() && deletedIds.isEmpty()
+                    ? current.withRefreshedAt(refreshedAt)
+                    : StudentSnapshotBuilder.merge(current, upserts, deletedIds, refreshedAt);
+        } catch (RuntimeException e) {
+            changedIds.addAll(ids);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the whole table and stores the new snapshot in the snapshot file.
+     */
+    public synchronized void fullRefresh() {
+        var refreshedAt = Instant.now();
+        changedIds.clear();
+        var builder = new StudentSnapshotBuilder();
+        jdbcTemplateStudentRepository.forEachStudent(properties.fetchSize(), builder::append);
+        snapshot = builder.build(refreshedAt);
+        store();
+    }
+
+    @PreDestroy
+    public void store() {
+        var file = properties.file();
+        if (file == null) {
+            return;
+        }
+        try {
+            StudentSnapshotFile.write(snapshot, file);
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Student snapshot cannot be written to %s".formatted(file), e);
+        }
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(new FixedDelayTask(this::refresh, properties.refreshInterval(),
+                properties.refreshInterval()));
+        registrar.addFixedDelayTask(new FixedDelayTask(this::fullRefresh, properties.fullRefreshInterval(),
+                properties.fullRefreshInterval()));
+    }
+}
@@ -0,0 +1,65 @@
+package org.verong.demo.database.spring.data.jpa.export;
+
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+
+import java.io.IOException;
+import java.io.Writer;
+
+final class CsvStudentExportWriter implements StudentExportWriter {
+
+    private static final String HEADER = "id,email,first_name,last_name,birthday,scholarship,status\r\n";
+
+    private final Writer writer;
+
+    CsvStudentExportWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        writer.write(HEADER);
+    }
+
+    @Override
+    public void write(Student student) throws IOException {
+        writeValue(student.getId());
+        writer.write(',');
+        writeValue(student.getEmail());
+        writer.write(',');
+        writeValue(student.getFirstName());
+        writer.write(',');
+        writeValue(student.getLastName());
+        writer.write(',');
+        writeValue(student.getBirthday());
+        writer.write(',');
+        writeValue(student.getScholarship());
+        writer.write(',');
+        writeValue(student.getStatus());
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        var text = value.toString();
+        if (!needsQuotes(text)) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static boolean needsQuotes(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,46 @@
+package org.verong.demo.database.spring.data.jpa.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A format of the student export.
+ */
+public enum ExportFormat {
+
+    /**
+     * Newline-delimited JSON: one JSON object per line.
+     */
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+
+    /**
+     * Comma-separated values with a header line (RFC 4180).
+     */
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv");
+
+    private final MediaType mediaType;
+    private final String fileExtension;
+
+    ExportFormat(MediaType mediaType, String fileExtension) {
+        this.mediaType = mediaType;
+        this.fileExtension = fileExtension;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String fileExtension() {
+        return fileExtension;
+    }
+
+    StudentExportWriter newWriter(Writer writer, ObjectMapper objectMapper) throws IOException {
+        return switch (this) {
+            case NDJSON -> new NdjsonStudentExportWriter(writer, objectMapper);
+            case CSV -> new CsvStudentExportWriter(writer);
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package org.verong.demo.database.spring.data.jpa.export;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of {@link StudentExportService}.
+ *
+ * @param fetchSize  the number of rows fetched from a database per round trip
+ * @param flushEvery the number of written students after which the output is flushed to the client
+ *                   (the first student is always flushed at once)
+ */
+@ConfigurationProperties(prefix = "students.export")
+public record ExportProperties(
+        @DefaultValue("500") int fetchSize,
+        @DefaultValue("500") int flushEvery
+) {
+
+    public ExportProperties {
+        if (fetchSize <= 0 || flushEvery <= 0) {
+            throw new IllegalArgumentException("Fetch size and flush interval must be positive, but were %d and %d"
+                    .formatted(fetchSize, flushEvery));
+        }
+    }
+}
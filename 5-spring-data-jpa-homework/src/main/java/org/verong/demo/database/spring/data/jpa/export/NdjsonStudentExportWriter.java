@@ -0,0 +1,34 @@
+package org.verong.demo.database.spring.data.jpa.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+
+import java.io.IOException;
+import java.io.Writer;
+
+final class NdjsonStudentExportWriter implements StudentExportWriter {
+
+    private final Writer writer;
+    private final SequenceWriter sequenceWriter;
+
+    NdjsonStudentExportWriter(Writer writer, ObjectMapper objectMapper) throws IOException {
+        this.writer = writer;
+        this.sequenceWriter = objectMapper.writerFor(Student.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(writer);
+    }
+
+    @Override
+    public void write(Student student) throws IOException {
+        sequenceWriter.write(student);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        sequenceWriter.flush();
+        writer.flush();
+    }
+}
@@ -0,0 +1,60 @@
+package org.verong.demo.database.spring.data.jpa.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.JdbcTemplateStudentRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes all students to an output stream while reading them from a database, so neither the time to the first byte
+ * nor the memory used depends on the number of students. Writing blocks when the client reads slower than
+ * the database is read, which in turn stops fetching rows; when writing fails (e.g. the client has disconnected)
+ * the query is cancelled and its connection is released.
+ */
+@Service
+@RequiredArgsConstructor
+@EnableConfigurationProperties(ExportProperties.class)
+public class StudentExportService {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final JdbcTemplateStudentRepository jdbcTemplateStudentRepository;
+    private final ObjectMapper objectMapper;
+    private final ExportProperties properties;
+
+    /**
+     * Writes all students in the passed format and flushes the output stream, but does not close it.
+     *
+     * @return the number of written students
+     * @throws UncheckedIOException if the output stream cannot be written
+     */
+    public long export(ExportFormat format, OutputStream out) {
+        var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        try {
+            var exportWriter = format.newWriter(writer, objectMapper);
+            var written = new long[1];
+            jdbcTemplateStudentRepository.forEachStudent(properties.fetchSize(), student -> {
+                try {
+                    exportWriter.write(student);
+                    if (++written[0] == 1 || written[0] % properties.flushEvery() == 0) {
+                        exportWriter.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            exportWriter.flush();
+            return written[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
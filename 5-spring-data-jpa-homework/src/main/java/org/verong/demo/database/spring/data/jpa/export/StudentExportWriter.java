@@ -0,0 +1,14 @@
+package org.verong.demo.database.spring.data.jpa.export;
+
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes students one by one in an {@link ExportFormat}.
+ */
+interface StudentExportWriter extends Flushable {
+
+    void write(Student student) throws IOException;
+}
@@ -0,0 +1,59 @@
+package org.verong.demo.database.spring.data.jpa.persistence.instrumentation;
+
+import com.verong.demo.database.instrumentation.InstrumentationConfig;
+import com.verong.demo.database.instrumentation.InstrumentedDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the data source of the application with {@link InstrumentedDataSource}, so every statement executed by
+ * Hibernate and {@link org.springframework.jdbc.core.JdbcTemplate} is measured.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "students.instrumentation", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(InstrumentationProperties.class)
+public class InstrumentationConfiguration {
+
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    /**
+     * Has to be static: a bean post processor is created before the other beans, and an instance method would
+     * create this configuration too early.
+     */
+    @Bean
+    public static BeanPostProcessor instrumentedDataSourcePostProcessor(ObjectProvider<InstrumentationProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!DATA_SOURCE_BEAN.equals(beanName) || !(bean instanceof DataSource dataSource)) {
+                    return bean;
+                }
+                return instrument(dataSource, properties.getObject());
+            }
+        };
+    }
+
+    /**
+     * A {@link LazyConnectionDataSourceProxy} (see read-write routing) hands out connections before the physical
+     * one is taken, so the instrumentation goes under it to measure the real connection acquire time.
+     */
+    private static DataSource instrument(DataSource dataSource, InstrumentationProperties properties) {
+        var config = InstrumentationConfig.builder()
+                .slowQueryThreshold(properties.slowQueryThreshold())
+                .nPlusOneThreshold(properties.nPlusOneThreshold())
+                .maxShapes(properties.maxShapes())
+                .build();
+        if (dataSource instanceof LazyConnectionDataSourceProxy lazyDataSource) {
+            lazyDataSource.setTargetDataSource(new InstrumentedDataSource(lazyDataSource.getTargetDataSource(), config));
+            return lazyDataSource;
+        }
+        return new InstrumentedDataSource(dataSource, config);
+    }
+}
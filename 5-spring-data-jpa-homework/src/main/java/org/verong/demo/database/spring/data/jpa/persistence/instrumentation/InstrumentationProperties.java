@@ -0,0 +1,23 @@
+package org.verong.demo.database.spring.data.jpa.persistence.instrumentation;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the {@link com.verong.demo.database.instrumentation.InstrumentedDataSource} that wraps the data source
+ * of the application when {@code students.instrumentation.enabled} is {@code true}.
+ *
+ * @param slowQueryThreshold statements running at least this long are logged; {@code 0} turns the log off
+ * @param nPlusOneThreshold  how many times a query may run on one connection before it is logged as a possible
+ *                           N+1 problem; {@code 0} turns the detection off
+ * @param maxShapes          how many distinct statement shapes are measured separately
+ */
+@ConfigurationProperties(prefix = "students.instrumentation")
+public record InstrumentationProperties(
+        @DefaultValue("100ms") Duration slowQueryThreshold,
+        @DefaultValue("10") int nPlusOneThreshold,
+        @DefaultValue("500") int maxShapes
+) {
+}
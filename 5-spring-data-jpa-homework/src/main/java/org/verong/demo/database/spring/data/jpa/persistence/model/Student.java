@@ -1,6 +1,9 @@
 package org.verong.demo.database.spring.data.jpa.persistence.model;
 
+import jakarta.persistence.*;
 import lombok.*;
+import org.verong.demo.database.spring.data.jpa.analytics.StudentSnapshotChangeListener;
+import org.verong.demo.database.spring.data.jpa.search.StudentSearchIndexListener;
 
 import java.time.LocalDate;
 
@@ -9,19 +12,27 @@ import java.time.LocalDate;
 @AllArgsConstructor
 @EqualsAndHashCode(of = "id")
 @Builder
+@Entity
+@Table(name = "students")
+@EntityListeners({StudentSnapshotChangeListener.class, StudentSearchIndexListener.class})
 public class Student {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     private String email;
 
+    @Column(name = "first_name")
     private String firstName;
 
+    @Column(name = "last_name")
     private String lastName;
 
     private LocalDate birthday;
 
     private Boolean scholarship;
 
+    @Enumerated(EnumType.STRING)
     private StudentStatus status;
 }
@@ -0,0 +1,42 @@
+package org.verong.demo.database.spring.data.jpa.persistence.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student_;
+
+import java.util.List;
+
+@Repository
+@Transactional(readOnly = true)
+public class EntityManagerStudentRepositoryImpl implements EntityManagerStudentRepository {
+
+    private static final String SELECT_BY_SCHOLARSHIP_JPQL = """
+            select new org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto(s.id, s.firstName, s.lastName)
+            from Student s
+            where s.scholarship = :scholarship""";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<StudentIdAndNameDto> findByScholarshipUsingJPQL(Boolean scholarship) {
+        return entityManager.createQuery(SELECT_BY_SCHOLARSHIP_JPQL, StudentIdAndNameDto.class)
+                .setParameter("scholarship", scholarship)
+                .getResultList();
+    }
+
+    @Override
+    public List<StudentIdAndNameDto> findByScholarshipUsingCriteriaApi(Boolean scholarship) {
+        var criteriaBuilder = entityManager.getCriteriaBuilder();
+        var query = criteriaBuilder.createQuery(StudentIdAndNameDto.class);
+        var student = query.from(Student.class);
+        query.select(criteriaBuilder.construct(StudentIdAndNameDto.class,
+                        student.get(Student_.id), student.get(Student_.firstName), student.get(Student_.lastName)))
+                .where(criteriaBuilder.equal(student.get(Student_.scholarship), scholarship));
+        return entityManager.createQuery(query).getResultList();
+    }
+}
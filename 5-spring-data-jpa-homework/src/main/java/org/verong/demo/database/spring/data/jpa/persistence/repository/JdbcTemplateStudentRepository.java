@@ -4,6 +4,7 @@ import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndName
 import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface JdbcTemplateStudentRepository {
 
@@ -15,4 +16,26 @@ public interface JdbcTemplateStudentRepository {
      */
     List<StudentIdAndNameDto> findByScholarshipUsingSQL(Boolean scholarship);
 
+    /**
+     * This method passes every {@link Student} ordered by id to the action while reading them from a database:
+     * at most {@code fetchSize} rows are held in memory at once, whatever the size of the table is.
+     * The method returns after the last student; an exception thrown by the action stops reading and is rethrown.
+     * IMPORTANT: this method has to be implemented using JdbcTemplate and RowCallbackHandler;
+     *
+     * @param fetchSize the number of rows fetched from a database per round trip
+     * @param action    an action to perform for every student
+     */
+    void forEachStudent(int fetchSize, Consumer<Student> action);
+
+    /**
+     * This method does the same as {@link #forEachStudent(int, Consumer)}, but only for students whose id is greater
+     * than the passed one, so a reader that remembers the last id it has seen can read only the rows added since.
+     * IMPORTANT: this method has to be implemented using JdbcTemplate and RowCallbackHandler;
+     *
+     * @param afterId   the id after which students are read
+     * @param fetchSize the number of rows fetched from a database per round trip
+     * @param action    an action to perform for every student
+     */
+    void forEachStudentAfter(long afterId, int fetchSize, Consumer<Student> action);
+
 }
@@ -0,0 +1,88 @@
+package org.verong.demo.database.spring.data.jpa.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+import org.verong.demo.database.spring.data.jpa.persistence.model.StudentStatus;
+
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Repository
+@RequiredArgsConstructor
+public class JdbcTemplateStudentRepositoryImpl implements JdbcTemplateStudentRepository {
+
+    private static final String SELECT_BY_SCHOLARSHIP_SQL =
+            "SELECT id, first_name, last_name FROM students WHERE scholarship = ?";
+
+    private static final String SELECT_ALL_ORDERED_SQL =
+            "SELECT id, email, first_name, last_name, birthday, scholarship, status FROM students ORDER BY id";
+
+    private static final String SELECT_AFTER_ID_ORDERED_SQL =
+            "SELECT id, email, first_name, last_name, birthday, scholarship, status FROM students WHERE id > ? ORDER BY id";
+
+    private static final RowMapper<Student> STUDENT_ROW_MAPPER = (resultSet, rowNum) -> {
+        var status = resultSet.getString("status");
+        return Student.builder()
+                .id(resultSet.getLong("id"))
+                .email(resultSet.getString("email"))
+                .firstName(resultSet.getString("first_name"))
+                .lastName(resultSet.getString("last_name"))
+                .birthday(resultSet.getObject("birthday", LocalDate.class))
+                .scholarship(resultSet.getObject("scholarship", Boolean.class))
+                .status(status == null ? null : StudentStatus.valueOf(status))
+                .build();
+    };
+
+    private static final RowMapper<StudentIdAndNameDto> ID_AND_NAME_ROW_MAPPER = (resultSet, rowNum) ->
+            new StudentIdAndNameDto(resultSet.getLong("id"), resultSet.getString("first_name"),
+                    resultSet.getString("last_name"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<StudentIdAndNameDto> findByScholarshipUsingSQL(Boolean scholarship) {
+        return jdbcTemplate.query(SELECT_BY_SCHOLARSHIP_SQL, ID_AND_NAME_ROW_MAPPER, scholarship);
+    }
+
+    /**
+     * Runs in a read-only transaction: some drivers (e.g. PostgreSQL) honor the fetch size only
+     * when auto-commit is off, otherwise they read the whole result into memory.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachStudent(int fetchSize, Consumer<Student> action) {
+        forEachStudent(fetchSize, action, SELECT_ALL_ORDERED_SQL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachStudentAfter(long afterId, int fetchSize, Consumer<Student> action) {
+        forEachStudent(fetchSize, action, SELECT_AFTER_ID_ORDERED_SQL, afterId);
+    }
+
+    private void forEachStudent(int fetchSize, Consumer<Student> action, String sql, Object... args) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive, but was %d".formatted(fetchSize));
+        }
+        PreparedStatementCreator select = connection -> {
+            var statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+            return statement;
+        };
+        jdbcTemplate.query(select, (RowCallbackHandler) resultSet ->
+                action.accept(STUDENT_ROW_MAPPER.mapRow(resultSet, resultSet.getRow())));
+    }
+}
@@ -1,6 +1,14 @@
 package org.verong.demo.database.spring.data.jpa.persistence.repository;
 
-public interface StudentRepository {
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+import org.verong.demo.database.spring.data.jpa.persistence.model.StudentStatus;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface StudentRepository extends JpaRepository<Student, Long> {
 
     /*
     *   This repository should extend JpaRepository. It will make it possible to create queries to database
@@ -10,4 +18,13 @@ public interface StudentRepository {
     *   https://docs.spring.io/spring-data/jpa/reference/jpa/query-methods.html
     * */
 
+    @Transactional(readOnly = true)
+    Optional<Student> findByEmail(String email);
+
+    @Transactional(readOnly = true)
+    List<Student> findAllByStatus(StudentStatus status);
+
+    @Transactional(readOnly = true)
+    List<Student> findAllByScholarshipAndStatus(Boolean scholarship, StudentStatus status);
+
 }
@@ -0,0 +1,35 @@
+package org.verong.demo.database.spring.data.jpa.persistence.repository.async;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+@Configuration
+@EnableConfigurationProperties(AsyncRepositoryProperties.class)
+public class AsyncRepositoryConfiguration {
+
+    /**
+     * The pool size used when the data source is not a {@link HikariDataSource}; it is the default of HikariCP.
+     */
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public BoundedVirtualThreadExecutor asyncRepositoryExecutor(AsyncRepositoryProperties properties, DataSource dataSource) {
+        int maxConcurrency = properties.maxConcurrency() > 0 ? properties.maxConcurrency() : poolSizeOf(dataSource);
+        return new BoundedVirtualThreadExecutor(maxConcurrency, properties.acquireTimeout());
+    }
+
+    private static int poolSizeOf(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class)
+                    ? dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize()
+                    : DEFAULT_POOL_SIZE;
+        } catch (SQLException e) {
+            return DEFAULT_POOL_SIZE;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.verong.demo.database.spring.data.jpa.persistence.repository.async;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of {@link AsyncStudentRepository}.
+ *
+ * @param maxConcurrency the maximum number of repository calls running at the same time; {@code 0} (the default)
+ *                       means the maximum size of the connection pool, so calls wait for a permit instead of
+ *                       waiting for a connection inside the pool
+ * @param acquireTimeout how long a call waits for a permit before it fails
+ */
+@ConfigurationProperties(prefix = "students.async")
+public record AsyncRepositoryProperties(
+        @DefaultValue("0") int maxConcurrency,
+        @DefaultValue("30s") Duration acquireTimeout
+) {
+}
@@ -0,0 +1,81 @@
+package org.verong.demo.database.spring.data.jpa.persistence.repository.async;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+import org.verong.demo.database.spring.data.jpa.persistence.model.StudentStatus;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.EntityManagerStudentRepository;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.JdbcTemplateStudentRepository;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.StudentRepository;
+import org.verong.demo.database.spring.data.jpa.persistence.routing.ReadWriteRoutingDataSource;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous variants of {@link StudentRepository}, {@link EntityManagerStudentRepository} and
+ * {@link JdbcTemplateStudentRepository}. Every call runs on a virtual thread of {@link BoundedVirtualThreadExecutor},
+ * so several lookups can be started at once and joined afterwards:
+ * <pre>{@code
+ * var student = asyncStudentRepository.findById(id);
+ * var scholars = asyncStudentRepository.findByScholarshipUsingSQL(true);
+ * CompletableFuture.allOf(student, scholars).join();
+ * }</pre>
+ * Each call is a transaction of its own, as it runs on another thread than the caller. With a replica configured,
+ * a call reads from the primary within the sticky window of a write made by the caller or by another call started
+ * by it (see {@link ReadWriteRoutingDataSource}).
+ */
+@Repository
+@RequiredArgsConstructor
+public class AsyncStudentRepository {
+
+    private final StudentRepository studentRepository;
+    private final EntityManagerStudentRepository entityManagerStudentRepository;
+    private final JdbcTemplateStudentRepository jdbcTemplateStudentRepository;
+    private final BoundedVirtualThreadExecutor executor;
+
+    public CompletableFuture<Student> save(Student student) {
+        return executor.submit(() -> studentRepository.save(student));
+    }
+
+    public CompletableFuture<Optional<Student>> findById(Long id) {
+        return executor.submit(() -> studentRepository.findById(id));
+    }
+
+    public CompletableFuture<List<Student>> findAllById(Iterable<Long> ids) {
+        return executor.submit(() -> studentRepository.findAllById(ids));
+    }
+
+    public CompletableFuture<Optional<Student>> findByEmail(String email) {
+        return executor.submit(() -> studentRepository.findByEmail(email));
+    }
+
+    public CompletableFuture<List<Student>> findAllByStatus(StudentStatus status) {
+        return executor.submit(() -> studentRepository.findAllByStatus(status));
+    }
+
+    public CompletableFuture<List<Student>> findAllByScholarshipAndStatus(Boolean scholarship, StudentStatus status) {
+        return executor.submit(() -> studentRepository.findAllByScholarshipAndStatus(scholarship, status));
+    }
+
+    public CompletableFuture<Void> deleteById(Long id) {
+        return executor.submit(() -> {
+            studentRepository.deleteById(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<StudentIdAndNameDto>> findByScholarshipUsingJPQL(Boolean scholarship) {
+        return executor.submit(() -> entityManagerStudentRepository.findByScholarshipUsingJPQL(scholarship));
+    }
+
+    public CompletableFuture<List<StudentIdAndNameDto>> findByScholarshipUsingCriteriaApi(Boolean scholarship) {
+        return executor.submit(() -> entityManagerStudentRepository.findByScholarshipUsingCriteriaApi(scholarship));
+    }
+
+    public CompletableFuture<List<StudentIdAndNameDto>> findByScholarshipUsingSQL(Boolean scholarship) {
+        return executor.submit(() -> jdbcTemplateStudentRepository.findByScholarshipUsingSQL(scholarship));
+    }
+}
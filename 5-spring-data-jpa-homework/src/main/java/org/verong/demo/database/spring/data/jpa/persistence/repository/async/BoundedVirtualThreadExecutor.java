@@ -0,0 +1,99 @@
+package org.verong.demo.database.spring.data.jpa.persistence.repository.async;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.verong.demo.database.spring.data.jpa.persistence.routing.ReadWriteRoutingDataSource;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs every task on its own virtual thread, but lets at most {@code maxConcurrency} tasks run at the same time.
+ * <br>
+ * A task waits for a permit on its virtual thread, so callers are never blocked and waiting tasks cost only
+ * a parked virtual thread. The number of permits, not the number of threads, bounds the load on the database:
+ * with permits equal to the pool size no task waits for a connection inside the pool, where a waiting virtual
+ * thread could pin its carrier thread.
+ */
+public class BoundedVirtualThreadExecutor implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long acquireTimeoutNanos;
+
+    public BoundedVirtualThreadExecutor(int maxConcurrency, Duration acquireTimeout) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Max concurrency must be positive, but was %d".formatted(maxConcurrency));
+        }
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("async-repository-", 0).factory());
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    /**
+     * Runs the task asynchronously. The returned future fails with {@link DataAccessResourceFailureException}
+     * if no permit has been acquired within the acquire timeout. A task whose future has been cancelled before
+     * it got a permit is not run.
+     * <p>
+     * The task shares the read-your-writes window of {@link ReadWriteRoutingDataSource} with the calling thread,
+     * so it reads what the caller has just written, and the caller reads what the task has written.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        var future = new CompletableFuture<T>();
+        executor.execute(ReadWriteRoutingDataSource.inheritStickyWindow(() -> run(task, future)));
+        return future;
+    }
+
+    public int maxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the number of tasks that are running now.
+     */
+    public int activeCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Returns the estimated number of tasks waiting for a permit.
+     */
+    public int queuedCount() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private <T> void run(Supplier<T> task, CompletableFuture<T> future) {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                future.completeExceptionally(new DataAccessResourceFailureException(
+                        "No permit for a repository call within %s, %d calls are running"
+                                .formatted(Duration.ofNanos(acquireTimeoutNanos), maxConcurrency)));
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return;
+        }
+        try {
+            if (!future.isDone()) {
+                future.complete(task.get());
+            }
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.verong.demo.database.spring.data.jpa.persistence.repository.writebehind;
+
+import com.verong.demo.database.instrumentation.LatencyHistogram;
+
+/**
+ * The state of {@link WriteBehindStudentRepository}.
+ *
+ * @param durability      the durability the repository has been configured with
+ * @param queueDepth      the number of students buffered now
+ * @param saves           the number of saves accepted so far
+ * @param coalescedSaves  the number of saves that replaced a buffered save of the same student instead of adding
+ *                        a write
+ * @param writtenStudents the number of students written by flushes
+ * @param failedStudents  the number of students that could not be written; their futures have failed
+ * @param coalescingRatio the share of saves that did not need a write of their own, from {@code 0} (every save
+ *                        was written) towards {@code 1}
+ * @param flushLatency    the time the transaction writing one batch takes, including its commit
+ */
+public record WriteBehindMetrics(
+        WriteDurability durability,
+        int queueDepth,
+        long saves,
+        long coalescedSaves,
+        long writtenStudents,
+        long failedStudents,
+        double coalescingRatio,
+        LatencyHistogram.Snapshot flushLatency
+) {
+}
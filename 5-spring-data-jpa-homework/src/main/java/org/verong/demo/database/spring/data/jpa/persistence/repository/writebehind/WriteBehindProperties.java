@@ -0,0 +1,24 @@
+package org.verong.demo.database.spring.data.jpa.persistence.repository.writebehind;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of {@link WriteBehindStudentRepository}.
+ *
+ * @param durability    whether a save is buffered or written before {@code save} returns
+ * @param maxBatchSize  the most students written in one transaction; a flush starts as soon as this many are buffered
+ * @param flushInterval the longest time a buffered student waits to be written
+ * @param maxPending    the most students buffered at once; a save that finds the buffer full writes it first,
+ *                      so callers are slowed down to the speed of the database instead of running out of memory
+ */
+@ConfigurationProperties(prefix = "students.write-behind")
+public record WriteBehindProperties(
+        @DefaultValue("WRITE_BEHIND") WriteDurability durability,
+        @DefaultValue("500") int maxBatchSize,
+        @DefaultValue("200ms") Duration flushInterval,
+        @DefaultValue("10000") int maxPending
+) {
+}
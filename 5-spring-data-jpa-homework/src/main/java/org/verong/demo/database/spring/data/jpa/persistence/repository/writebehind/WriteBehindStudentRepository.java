@@ -0,0 +1,422 @@
+package org.verong.demo.database.spring.data.jpa.persistence.repository.writebehind;
+
+import com.verong.demo.database.instrumentation.LatencyHistogram;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Saves students through {@link StudentRepository} in batches: a save is buffered, and a later save of the same
+ * student replaces the buffered one, so a student updated many times between two flushes is written once.
+ * <p>
+ * The buffer is flushed when it holds {@code max-batch-size} students and every {@code flush-interval}. A flush
+ * writes a batch in one transaction: the buffered students that have an id are loaded with one query and
+ * updated by dirty checking, the new ones are persisted. If the transaction fails, the students of the batch are
+ * written one by one, so one bad student fails only its own future. Flushes never run at the same time, so a
+ * save of a student is never overtaken by an earlier save of it.
+ * <p>
+ * The repository is stopped before the rest of the application context, and stopping it writes the whole buffer;
+ * saves made after that are written synchronously, but still after the buffered save of the same student. With
+ * {@link WriteDurability#SYNCHRONOUS} nothing is buffered.
+ * <p>
+ * A buffered save is lost if the process dies before it is flushed, and the students read from the database
+ * do not see it until then.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "students.write-behind", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(WriteBehindProperties.class)
+public class WriteBehindStudentRepository implements SmartLifecycle {
+
+    private static final System.Logger LOGGER = System.getLogger(WriteBehindStudentRepository.class.getName());
+
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WriteBehindProperties properties;
+
+    /**
+     * Guards {@link #pendingById}, {@link #pendingInserts} and {@link #running}.
+     */
+    private final ReentrantLock bufferLock = new ReentrantLock();
+    private final Map<Long, PendingWrite> pendingById = new LinkedHashMap<>();
+    private final List<PendingWrite> pendingInserts = new ArrayList<>();
+    private boolean running;
+
+    /**
+     * Held for the whole write of a batch, so batches are written one after another.
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile ScheduledExecutorService flusher;
+
+    private final LongAdder saves = new LongAdder();
+    private final LongAdder coalescedSaves = new LongAdder();
+    private final LongAdder writtenStudents = new LongAdder();
+    private final LongAdder failedStudents = new LongAdder();
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+
+    public WriteBehindStudentRepository(StudentRepository studentRepository,
+                                        PlatformTransactionManager transactionManager,
+                                        WriteBehindProperties properties) {
+        if (properties.maxBatchSize() <= 0 || properties.maxPending() <= 0) {
+            throw new IllegalArgumentException("Max batch size and max pending must be positive, but were %d and %d"
+                    .formatted(properties.maxBatchSize(), properties.maxPending()));
+        }
+        this.studentRepository = studentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    /**
+     * Buffers the student and returns a future completed with the saved student once it has been written. The
+     * student is copied, so changing it after the call does not change what is written; like the result of
+     * {@link StudentRepository#save}, the saved student is the one to use afterwards, as only it has the id
+     * of a new student.
+     * <p>
+     * When the buffer is full, the caller writes a batch before its student is buffered.
+     */
+    public CompletableFuture<Student> save(Student student) {
+        Objects.requireNonNull(student, "Student must not be null");
+        saves.increment();
+        if (properties.durability() == WriteDurability.SYNCHRONOUS) {
+            return writeNow(student);
+        }
+        var copy = copyOf(student);
+        var future = new CompletableFuture<Student>();
+        boolean buffered = false;
+        int depth = 0;
+        while (true) {
+            bufferLock.lock();
+            try {
+                if (!running) {
+                    break;
+                }
+                if (pendingCount() < properties.maxPending()) {
+                    buffer(copy, future);
+                    buffered = true;
+                    depth = pendingCount();
+                    break;
+                }
+            } finally {
+                bufferLock.unlock();
+            }
+            flushBatch();
+        }
+        if (!buffered) {
+            return writeAfterStop(copy);
+        }
+        if (depth >= properties.maxBatchSize()) {
+            requestFlush();
+        }
+        return future;
+    }
+
+    /**
+     * Writes every buffered student, including those buffered while the flush is running, and returns when
+     * they have been written.
+     */
+    public void flush() {
+        while (flushBatch()) {
+            // the next batch
+        }
+    }
+
+    public WriteBehindMetrics metrics() {
+        int depth;
+        bufferLock.lock();
+        try {
+            depth = pendingCount();
+        } finally {
+            bufferLock.unlock();
+        }
+        long saveCount = saves.sum();
+        long coalescedCount = coalescedSaves.sum();
+        return new WriteBehindMetrics(properties.durability(), depth, saveCount, coalescedCount,
+                writtenStudents.sum(), failedStudents.sum(),
+                saveCount == 0 ? 0 : (double) coalescedCount / saveCount, flushLatency.snapshot());
+    }
+
+    @Override
+    public void start() {
+        bufferLock.lock();
+        try {
+            if (running) {
+                return;
+            }
+            running = true;
+        } finally {
+            bufferLock.unlock();
+        }
+        var interval = properties.flushInterval().toNanos();
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("student-write-behind").daemon().factory());
+        flusher.scheduleWithFixedDelay(this::scheduledFlush, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops buffering and writes the buffer. As the phase is {@link SmartLifecycle#DEFAULT_PHASE}, it runs before
+     * the web server stops and before the data source is closed.
+     */
+    @Override
+    public void stop() {
+        bufferLock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+        } finally {
+            bufferLock.unlock();
+        }
+        flusher.shutdown();
+        int depth = metrics().queueDepth();
+        flush();
+        LOGGER.log(System.Logger.Level.INFO, "Write-behind buffer of %d students has been drained".formatted(depth));
+    }
+
+    @Override
+    public boolean isRunning() {
+        bufferLock.lock();
+        try {
+            return running;
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    private void buffer(Student student, CompletableFuture<Student> future) {
+        if (student.getId() == null) {
+            pendingInserts.add(new PendingWrite(student, future));
+            return;
+        }
+        var pending = pendingById.get(student.getId());
+        if (pending == null) {
+            pendingById.put(student.getId(), new PendingWrite(student, future));
+        } else {
+            pending.replace(student, future);
+            coalescedSaves.increment();
+        }
+    }
+
+    private int pendingCount() {
+        return pendingById.size() + pendingInserts.size();
+    }
+
+    private void requestFlush() {
+        var executor = flusher;
+        if (executor != null && flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::scheduledFlush);
+            } catch (RejectedExecutionException e) {
+                // stopping, and stop() writes the buffer
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private void scheduledFlush() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Write-behind flush has failed", e);
+        }
+    }
+
+    /**
+     * Writes one batch, returns {@code false} if the buffer was empty.
+     */
+    private boolean flushBatch() {
+        flushLock.lock();
+        try {
+            var batch = takeBatch();
+            if (batch.isEmpty()) {
+                return false;
+            }
+            write(batch);
+            return true;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private List<PendingWrite> takeBatch() {
+        bufferLock.lock();
+        try {
+            var batch = new ArrayList<PendingWrite>(Math.min(properties.maxBatchSize(), pendingCount()));
+            var iterator = pendingById.values().iterator();
+            while (batch.size() < properties.maxBatchSize() && iterator.hasNext()) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            int inserts = Math.min(properties.maxBatchSize() - batch.size(), pendingInserts.size());
+            var taken = pendingInserts.subList(0, inserts);
+            batch.addAll(taken);
+            taken.clear();
+            return batch;
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    private void write(List<PendingWrite> batch) {
+        List<Student> saved;
+        long start = System.nanoTime();
+        try {
+            saved = transactionTemplate.execute(status -> writeInTransaction(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                failedStudents.increment();
+                batch.getFirst().completeExceptionally(e);
+                return;
+            }
+            LOGGER.log(System.Logger.Level.WARNING, "Write-behind batch of %d students has failed, they are written one by one"
+                    .formatted(batch.size()), e);
+            for (var pending : batch) {
+                write(List.of(pending));
+            }
+            return;
+        } finally {
+            flushLatency.record(System.nanoTime() - start);
+        }
+        writtenStudents.add(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(saved.get(i));
+        }
+    }
+
+    /**
+     * Loads the students of the batch that have an id with one query and copies the buffered state onto them,
+     * so the commit updates them in JDBC batches instead of each {@code merge} selecting its row. The rest are
+     * saved as {@link StudentRepository#save} does: new students are persisted, and so is a student whose row
+     * no longer exists.
+     */
+    private List<Student> writeInTransaction(List<PendingWrite> batch) {
+        var ids = batch.stream()
+                .map(pending -> pending.student().getId())
+                .filter(Objects::nonNull)
+                .toList();
+        var managed = new HashMap<Long, Student>();
+        if (!ids.isEmpty()) {
+            studentRepository.findAllById(ids).forEach(student -> managed.put(student.getId(), student));
+        }
+        var saved = new ArrayList<Student>(batch.size());
+        for (var pending : batch) {
+            var student = pending.student();
+            var current = student.getId() == null ? null : managed.get(student.getId());
+            if (current == null) {
+                // a copy, so a rolled back persist does not leave its id on the buffered student
+                saved.add(studentRepository.save(copyOf(student)));
+            } else {
+                copyState(student, current);
+                saved.add(current);
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Writes a save made after {@link #stop()} under the flush lock, so it waits for a batch being drained, and
+     * writes the buffered save of the same student first: the drain must not overwrite it with an older state.
+     */
+    private CompletableFuture<Student> writeAfterStop(Student student) {
+        flushLock.lock();
+        try {
+            if (student.getId() != null) {
+                PendingWrite pending;
+                bufferLock.lock();
+                try {
+                    pending = pendingById.remove(student.getId());
+                } finally {
+                    bufferLock.unlock();
+                }
+                if (pending != null) {
+                    write(List.of(pending));
+                }
+            }
+            return writeNow(student);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private CompletableFuture<Student> writeNow(Student student) {
+        long start = System.nanoTime();
+        try {
+            var saved = studentRepository.save(student);
+            writtenStudents.increment();
+            return CompletableFuture.completedFuture(saved);
+        } catch (RuntimeException e) {
+            failedStudents.increment();
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            flushLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private static Student copyOf(Student student) {
+        var copy = new Student();
+        copy.setId(student.getId());
+        copyState(student, copy);
+        return copy;
+    }
+
+    private static void copyState(Student source, Student target) {
+        target.setEmail(source.getEmail());
+        target.setFirstName(source.getFirstName());
+        target.setLastName(source.getLastName());
+        target.setBirthday(source.getBirthday());
+        target.setScholarship(source.getScholarship());
+        target.setStatus(source.getStatus());
+    }
+
+    /**
+     * The latest buffered state of a student and the futures of every save it stands for.
+     */
+    private static final class PendingWrite {
+
+        private Student student;
+        private final List<CompletableFuture<Student>> futures = new ArrayList<>(1);
+
+        private PendingWrite(Student student, CompletableFuture<Student> future) {
+            this.student = student;
+            this.futures.add(future);
+        }
+
+        private Student student() {
+            return student;
+        }
+
+        private void replace(Student student, CompletableFuture<Student> future) {
+            this.student = student;
+            this.futures.add(future);
+        }
+
+        private void complete(Student saved) {
+            futures.forEach(future -> future.complete(saved));
+        }
+
+        private void completeExceptionally(Throwable failure) {
+            futures.forEach(future -> future.completeExceptionally(failure));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.verong.demo.database.spring.data.jpa.persistence.repository.writebehind;
+
+/**
+ * When a student saved through {@link WriteBehindStudentRepository} reaches the database.
+ */
+public enum WriteDurability {
+
+    /**
+     * The student is buffered and written by a later flush; it is lost if the process dies before that flush.
+     */
+    WRITE_BEHIND,
+
+    /**
+     * The student is written in a transaction of its own before {@code save} returns, as
+     * {@link org.verong.demo.database.spring.data.jpa.persistence.repository.StudentRepository#save} does.
+     */
+    SYNCHRONOUS
+}
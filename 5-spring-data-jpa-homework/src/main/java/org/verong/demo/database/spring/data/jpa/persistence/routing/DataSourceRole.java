@@ -0,0 +1,17 @@
+package org.verong.demo.database.spring.data.jpa.persistence.routing;
+
+/**
+ * A database that {@link ReadWriteRoutingDataSource} routes connections to.
+ */
+public enum DataSourceRole {
+
+    /**
+     * The database that accepts writes; it is also used for reads whenever the replica must not be used.
+     */
+    PRIMARY,
+
+    /**
+     * A read-only copy of the primary database that may lag behind it.
+     */
+    REPLICA
+}
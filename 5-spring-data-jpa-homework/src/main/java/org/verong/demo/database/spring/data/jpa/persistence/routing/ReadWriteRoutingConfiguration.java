@@ -0,0 +1,61 @@
+package org.verong.demo.database.spring.data.jpa.persistence.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the data source of Spring Boot with {@link ReadWriteRoutingDataSource} when a replica is configured.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "students.routing.replica", name = "url")
+@EnableConfigurationProperties({DataSourceProperties.class, ReadWriteRoutingProperties.class})
+public class ReadWriteRoutingConfiguration {
+
+    /**
+     * The connection timeout of the replica pool unless {@code students.routing.replica.hikari.connection-timeout}
+     * is set. A read that finds the replica down waits this long before it falls back to the primary, so it is much
+     * shorter than the 30 seconds HikariCP waits by default.
+     */
+    static final long REPLICA_CONNECTION_TIMEOUT_MILLIS = 1000;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("students.routing.replica.hikari")
+    public HikariDataSource replicaDataSource(ReadWriteRoutingProperties properties) {
+        var replica = properties.replica();
+        var dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(replica.url())
+                .username(replica.username())
+                .password(replica.password())
+                .build();
+        // the hikari properties are bound after the bean is created, so they override the default
+        dataSource.setConnectionTimeout(REPLICA_CONNECTION_TIMEOUT_MILLIS);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") HikariDataSource replicaDataSource,
+                                 ReadWriteRoutingProperties properties) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource,
+                properties.stickyWindow(), properties.replicaRetryAfter()));
+    }
+}
@@ -0,0 +1,168 @@
+package org.verong.demo.database.spring.data.jpa.persistence.routing;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * A {@link DataSource} that gives connections of read-only transactions to a replica and all other connections to
+ * the primary database.
+ * <p>
+ * Reads stay on the primary when:
+ * <ul>
+ *     <li>they run outside of a transaction or in a read-write one;</li>
+ *     <li>the same thread, or a task it has handed to {@code AsyncStudentRepository}, has committed a read-write
+ *     transaction less than {@code stickyWindow} ago, so it reads its own writes even if the replica has not caught
+ *     up yet;</li>
+ *     <li>the replica has failed to give a connection less than {@code replicaRetryAfter} ago.</li>
+ * </ul>
+ * The transaction has to be known when a connection is requested, so this data source has to be wrapped into
+ * a {@link LazyConnectionDataSourceProxy}: transaction managers get a connection before they mark the transaction
+ * as read-only.
+ * <p>
+ * The sticky window belongs to a thread, not to a client: the next request of the same client runs on another thread
+ * and may read from a replica that has not caught up with its previous request yet. Tasks run on other threads share
+ * the window of the submitting thread only when they are wrapped with {@link #inheritStickyWindow(Runnable)}.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final System.Logger LOGGER = System.getLogger(ReadWriteRoutingDataSource.class.getName());
+
+    private static final ThreadLocal<LastWrite> LAST_WRITE = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long stickyWindowNanos;
+    private final long replicaRetryAfterNanos;
+
+    private volatile long replicaRetryAtNanos = System.nanoTime();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica,
+                                      Duration stickyWindow, Duration replicaRetryAfter) {
+        if (stickyWindow.isNegative() || replicaRetryAfter.isNegative()) {
+            throw new IllegalArgumentException("Sticky window and replica retry delay must not be negative, but were %s and %s"
+                    .formatted(stickyWindow, replicaRetryAfter));
+        }
+        this.primary = primary;
+        this.replica = replica;
+        this.stickyWindowNanos = stickyWindow.toNanos();
+        this.replicaRetryAfterNanos = replicaRetryAfter.toNanos();
+        setTargetDataSources(Map.of(DataSourceRole.PRIMARY, primary, DataSourceRole.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Returns a task that shares the sticky window with the calling thread while it runs: it reads from the primary
+     * after a write of the calling thread, and its own writes keep the calling thread and its other tasks on the
+     * primary in turn.
+     */
+    public static Runnable inheritStickyWindow(Runnable task) {
+        var lastWrite = lastWriteOfCurrentThread();
+        return () -> {
+            var previous = LAST_WRITE.get();
+            LAST_WRITE.set(lastWrite);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    LAST_WRITE.set(previous);
+                } else {
+                    LAST_WRITE.remove();
+                }
+            }
+        };
+    }
+
+    @Override
+    protected DataSourceRole determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || isSticky()
+                || System.nanoTime() - replicaRetryAtNanos < 0) {
+            return DataSourceRole.PRIMARY;
+        }
+        return DataSourceRole.REPLICA;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection getConnection(ConnectionFactory connectionFactory) throws SQLException {
+        if (determineCurrentLookupKey() == DataSourceRole.PRIMARY) {
+            trackWrite();
+            return connectionFactory.connect(primary);
+        }
+        try {
+            return connectionFactory.connect(replica);
+        } catch (SQLException e) {
+            replicaRetryAtNanos = System.nanoTime() + replicaRetryAfterNanos;
+            LOGGER.log(System.Logger.Level.WARNING, "Replica is unavailable, reads go to the primary for %d ms"
+                    .formatted(Duration.ofNanos(replicaRetryAfterNanos).toMillis()), e);
+            return connectionFactory.connect(primary);
+        }
+    }
+
+    private boolean isSticky() {
+        var lastWrite = LAST_WRITE.get();
+        return lastWrite != null && lastWrite.written && System.nanoTime() - lastWrite.nanos < stickyWindowNanos;
+    }
+
+    private static LastWrite lastWriteOfCurrentThread() {
+        var lastWrite = LAST_WRITE.get();
+        if (lastWrite == null) {
+            lastWrite = new LastWrite();
+            LAST_WRITE.set(lastWrite);
+        }
+        return lastWrite;
+    }
+
+    /**
+     * Starts the sticky window of the current thread when its read-write transaction commits.
+     */
+    private void trackWrite() {
+        if (stickyWindowNanos == 0
+                || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return;
+        }
+        var lastWrite = lastWriteOfCurrentThread();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastWrite.nanos = System.nanoTime();
+                lastWrite.written = true;
+            }
+        });
+    }
+
+    /**
+     * When the last read-write transaction of a thread and of the tasks sharing its sticky window has committed.
+     */
+    private static final class LastWrite {
+
+        private volatile long nanos;
+        private volatile boolean written;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionFactory {
+
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+}
@@ -0,0 +1,28 @@
+package org.verong.demo.database.spring.data.jpa.persistence.routing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of {@link ReadWriteRoutingDataSource}. The pool of the replica is configured with
+ * {@code students.routing.replica.hikari.*} the same way as the pool of the primary with
+ * {@code spring.datasource.hikari.*}, except that its connection timeout is 1 second by default, so a read
+ * falls back to the primary quickly when the replica is down.
+ *
+ * @param replica           the connection settings of the replica; routing is off when its url is not set
+ * @param stickyWindow      how long a thread and the async repository calls it starts read from the primary
+ *                          after one of them has committed a write
+ * @param replicaRetryAfter how long reads go to the primary after the replica has failed to give a connection
+ */
+@ConfigurationProperties(prefix = "students.routing")
+public record ReadWriteRoutingProperties(
+        Replica replica,
+        @DefaultValue("1s") Duration stickyWindow,
+        @DefaultValue("30s") Duration replicaRetryAfter
+) {
+
+    public record Replica(String url, String username, String password) {
+    }
+}
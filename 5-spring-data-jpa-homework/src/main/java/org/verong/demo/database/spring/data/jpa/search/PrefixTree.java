@@ -0,0 +1,307 @@
+package org.verong.demo.database.spring.data.jpa.search;
+
+import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable radix tree from keys to the students that have them. An edge is labelled with a {@code char[]} of
+ * all the characters on its path, so a chain of nodes with one child each takes one node; a node holds the
+ * students whose key ends there, ordered by id, and its children ordered by the first character of their label.
+ * <p>
+ * A change copies only the nodes on the path of its key and returns a new tree that shares the rest with the old
+ * one, so readers use a tree without locking while a writer builds the next one.
+ */
+final class PrefixTree {
+
+    private static final char[] NO_LABEL = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final StudentIdAndNameDto[] NO_STUDENTS = new StudentIdAndNameDto[0];
+    private static final PrefixTree EMPTY = new PrefixTree(new Node(NO_LABEL, NO_CHILDREN, NO_STUDENTS));
+
+    private final Node root;
+
+    private PrefixTree(Node root) {
+        this.root = root;
+    }
+
+    static PrefixTree empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds a tree of keys and students given in two lists of the same size, ordered by key and then by id.
+     */
+    static PrefixTree build(List<String> keys, List<StudentIdAndNameDto> students) {
+        return keys.isEmpty() ? EMPTY : new PrefixTree(build(NO_LABEL, keys, students, 0, keys.size(), 0));
+    }
+
+    private static Node build(char[] label, List<String> keys, List<StudentIdAndNameDto> students,
+                              int from, int to, int depth) {
+        int firstChild = from;
+        while (firstChild < to && keys.get(firstChild).length() == depth) {
+            firstChild++;
+        }
+        var values = firstChild == from ? NO_STUDENTS : students.subList(from, firstChild).toArray(NO_STUDENTS);
+        var children = new ArrayList<Node>();
+        int start = firstChild;
+        while (start < to) {
+            char first = keys.get(start).charAt(depth);
+            int end = start + 1;
+            while (end < to && keys.get(end).charAt(depth) == first) {
+                end++;
+            }
+            // the keys are ordered, so the prefix of the first and the last one is the prefix of them all
+            var firstKey = keys.get(start);
+            int common = depth + commonPrefix(firstKey, depth, keys.get(end - 1));
+            children.add(build(firstKey.substring(depth, common).toCharArray(), keys, students, start, end, common));
+            start = end;
+        }
+        return new Node(label, children.toArray(NO_CHILDREN), values);
+    }
+
+    /**
+     * Returns a tree in which the student is found by the key, replacing a student of the same id that has it.
+     */
+    PrefixTree with(String key, StudentIdAndNameDto student) {
+        return new PrefixTree(insert(root, key, 0, student));
+    }
+
+    /**
+     * Returns a tree in which the student of the id is no longer found by the key.
+     */
+    PrefixTree without(String key, long id) {
+        var node = remove(root, key, 0, id);
+        if (node == root) {
+            return this;
+        }
+        return node == null ? EMPTY : new PrefixTree(node);
+    }
+
+    /**
+     * Adds the students whose key starts with the prefix to the result, ordered by key and then by id, until
+     * the result holds {@code limit} students.
+     */
+    void collect(String prefix, int limit, List<StudentIdAndNameDto> result) {
+        var node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            int index = node.childIndex(prefix.charAt(position));
+            if (index < 0) {
+                return;
+            }
+            node = node.children[index];
+            int length = Math.min(node.label.length, prefix.length() - position);
+            for (int i = 1; i < length; i++) {
+                if (node.label[i] != prefix.charAt(position + i)) {
+                    return;
+                }
+            }
+            position += length;
+        }
+        collectAll(node, limit, result);
+    }
+
+    private static void collectAll(Node node, int limit, List<StudentIdAndNameDto> result) {
+        for (var student : node.students) {
+            if (result.size() == limit) {
+                return;
+            }
+            result.add(student);
+        }
+        for (var child : node.children) {
+            if (result.size() == limit) {
+                return;
+            }
+            collectAll(child, limit, result);
+        }
+    }
+
+    private static Node insert(Node node, String key, int position, StudentIdAndNameDto student) {
+        if (position == key.length()) {
+            return node.withStudent(student);
+        }
+        int index = node.childIndex(key.charAt(position));
+        if (index < 0) {
+            var leaf = new Node(key.substring(position).toCharArray(), NO_CHILDREN, new StudentIdAndNameDto[]{student});
+            return node.withChildAt(-index - 1, leaf);
+        }
+        var child = node.children[index];
+        int common = commonPrefix(child.label, key, position);
+        if (common < child.label.length) {
+            // the key leaves the label in the middle, so the label is split there
+            var rest = new Node(Arrays.copyOfRange(child.label, common, child.label.length), child.children,
+                    child.students);
+            child = new Node(Arrays.copyOf(child.label, common), new Node[]{rest}, NO_STUDENTS);
+        }
+        return node.withChildReplaced(index, insert(child, key, position + common, student));
+    }
+
+    /**
+     * Returns the node without the student, the same node if it is not there, or {@code null} if the node is
+     * left without students and children.
+     */
+    private static Node remove(Node node, String key, int position, long id) {
+        if (position == key.length()) {
+            var students = node.studentsWithout(id);
+            return students == node.students ? node : compact(node, node.children, students);
+        }
+        int index = node.childIndex(key.charAt(position));
+        if (index < 0) {
+            return node;
+        }
+        var child = node.children[index];
+        int common = commonPrefix(child.label, key, position);
+        if (common < child.label.length) {
+            return node;
+        }
+        var removed = remove(child, key, position + common, id);
+        if (removed == child) {
+            return node;
+        }
+        Node[] children;
+        if (removed == null) {
+            children = new Node[node.children.length - 1];
+            System.arraycopy(node.children, 0, children, 0, index);
+            System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        } else {
+            children = node.children.clone();
+            children[index] = removed;
+        }
+        return compact(node, children, node.students);
+    }
+
+    /**
+     * Drops a node left empty and merges a node without students into its only child; the root keeps its empty
+     * label so it is never merged.
+     */
+    private static Node compact(Node node, Node[] children, StudentIdAndNameDto[] students) {
+        if (students.length == 0 && children.length == 0) {
+            return null;
+        }
+        if (students.length == 0 && children.length == 1 && node.label.length > 0) {
+            var child = children[0];
+            var label = Arrays.copyOf(node.label, node.label.length + child.label.length);
+            System.arraycopy(child.label, 0, label, node.label.length, child.label.length);
+            return new Node(label, child.children, child.students);
+        }
+        return new Node(node.label, children, students);
+    }
+
+    /**
+     * Returns the length of the common prefix of the label and the key from the position on.
+     */
+    private static int commonPrefix(char[] label, String key, int position) {
+        int length = Math.min(label.length, key.length() - position);
+        int i = 0;
+        while (i < length && label[i] == key.charAt(position + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int commonPrefix(String first, int from, String last) {
+        int length = Math.min(first.length(), last.length());
+        int i = from;
+        while (i < length && first.charAt(i) == last.charAt(i)) {
+            i++;
+        }
+        return i - from;
+    }
+
+    private static final class Node {
+
+        private final char[] label;
+        private final Node[] children;
+        private final StudentIdAndNameDto[] students;
+
+        private Node(char[] label, Node[] children, StudentIdAndNameDto[] students) {
+            this.label = label;
+            this.children = children;
+            this.students = students;
+        }
+
+        /**
+         * Returns the index of the child whose label starts with the character, or {@code -(insertion point) - 1}.
+         */
+        private int childIndex(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char middleFirst = children[middle].label[0];
+                if (middleFirst < first) {
+                    low = middle + 1;
+                } else if (middleFirst > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -low - 1;
+        }
+
+        private Node withChildAt(int index, Node child) {
+            var copy = new Node[children.length + 1];
+            System.arraycopy(children, 0, copy, 0, index);
+            copy[index] = child;
+            System.arraycopy(children, index, copy, index + 1, children.length - index);
+            return new Node(label, copy, students);
+        }
+
+        private Node withChildReplaced(int index, Node child) {
+            var copy = children.clone();
+            copy[index] = child;
+            return new Node(label, copy, students);
+        }
+
+        private Node withStudent(StudentIdAndNameDto student) {
+            int index = indexOf(student.id());
+            StudentIdAndNameDto[] copy;
+            if (index >= 0) {
+                copy = students.clone();
+                copy[index] = student;
+            } else {
+                int insertion = -index - 1;
+                copy = new StudentIdAndNameDto[students.length + 1];
+                System.arraycopy(students, 0, copy, 0, insertion);
+                copy[insertion] = student;
+                System.arraycopy(students, insertion, copy, insertion + 1, students.length - insertion);
+            }
+            return new Node(label, children, copy);
+        }
+
+        private StudentIdAndNameDto[] studentsWithout(long id) {
+            int index = indexOf(id);
+            if (index < 0) {
+                return students;
+            }
+            if (students.length == 1) {
+                return NO_STUDENTS;
+            }
+            var copy = new StudentIdAndNameDto[students.length - 1];
+            System.arraycopy(students, 0, copy, 0, index);
+            System.arraycopy(students, index + 1, copy, index, copy.length - index);
+            return copy;
+        }
+
+        private int indexOf(long id) {
+            int low = 0;
+            int high = students.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long middleId = students[middle].id();
+                if (middleId < id) {
+                    low = middle + 1;
+                } else if (middleId > id) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -low - 1;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.verong.demo.database.spring.data.jpa.search;
+
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * A field of {@link Student} that {@link StudentSearchIndex} finds students by.
+ */
+public enum StudentSearchField {
+
+    EMAIL(Student::getEmail),
+    FIRST_NAME(Student::getFirstName),
+    LAST_NAME(Student::getLastName);
+
+    private final Function<Student, String> getter;
+
+    StudentSearchField(Function<Student, String> getter) {
+        this.getter = getter;
+    }
+
+    /**
+     * Returns the value of the field in the form it is indexed and looked up in, or {@code null} when it is not set.
+     */
+    String keyOf(Student student) {
+        var value = getter.apply(student);
+        return value == null ? null : normalize(value);
+    }
+
+    /**
+     * Lookups ignore case, so keys and prefixes are compared in lower case.
+     */
+    static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,208 @@
+package org.verong.demo.database.spring.data.jpa.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Service;
+import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.JdbcTemplateStudentRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Finds students by the prefix of their email, first name or last name, ignoring case, without reaching the
+ * database. Every field has a {@link PrefixTree}, so a lookup walks the characters of the prefix and then reads
+ * the first {@code limit} students below it, whatever the number of students is.
+ * <p>
+ * The index is built from the whole table when the application is ready and every {@code rebuild-interval}, and
+ * is kept current by the changes made through JPA (see {@link StudentSearchIndexListener}). A change replaces
+ * the trees of the index at once, so a lookup always sees one consistent index; changes made while the table is
+ * being read are applied to the new index again, so a rebuild does not lose them.
+ */
+@Service
+@ConditionalOnProperty(prefix = "students.search", name = "enabled", havingValue = "true")
+@EnableScheduling
+@EnableConfigurationProperties(StudentSearchProperties.class)
+@RequiredArgsConstructor
+public class StudentSearchIndex implements SchedulingConfigurer {
+
+    private static final System.Logger LOGGER = System.getLogger(StudentSearchIndex.class.getName());
+    private static final StudentSearchField[] FIELDS = StudentSearchField.values();
+
+    private final JdbcTemplateStudentRepository jdbcTemplateStudentRepository;
+    private final StudentSearchProperties properties;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * The tree of every field by its ordinal.
+     */
+    private volatile PrefixTree[] trees = emptyTrees();
+
+    /**
+     * The indexed state of every student, so a change knows which keys to remove; guarded by {@code this}.
+     */
+    private final Map<Long, IndexedStudent> students = new HashMap<>();
+
+    /**
+     * The changes made since the running rebuild started, {@code null} when no rebuild is running;
+     * guarded by {@code this}.
+     */
+    private List<Change> changesDuringRebuild;
+
+    /**
+     * Returns at most {@code limit} students whose field starts with the prefix, ignoring case, ordered by the field
+     * and then by id.
+     *
+     * @throws IllegalArgumentException if the limit is not positive or greater than {@code max-limit}
+     */
+    public List<StudentIdAndNameDto> findByPrefix(StudentSearchField field, String prefix, int limit) {
+        if (limit <= 0 || limit > properties.maxLimit()) {
+            throw new IllegalArgumentException("Limit must be between 1 and %d, but was %d"
+                    .formatted(properties.maxLimit(), limit));
+        }
+        var result = new ArrayList<StudentIdAndNameDto>(Math.min(limit, 16));
+        trees[field.ordinal()].collect(StudentSearchField.normalize(prefix), limit, result);
+        return result;
+    }
+
+    /**
+     * Indexes the student as it is now, replacing what has been indexed for its id.
+     */
+    public synchronized void index(Student student) {
+        apply(new Change(student.getId(), IndexedStudent.of(student)));
+    }
+
+    /**
+     * Removes the student of the id from the index.
+     */
+    public synchronized void remove(long id) {
+        apply(new Change(id, null));
+    }
+
+    /**
+     * Reads the whole table and replaces the index with one built from it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            synchronized (this) {
+                changesDuringRebuild = new ArrayList<>();
+            }
+            try {
+                var scanned = new ArrayList<IndexedStudent>();
+                jdbcTemplateStudentRepository.forEachStudent(properties.fetchSize(),
+                        student -> scanned.add(IndexedStudent.of(student)));
+                var built = new PrefixTree[FIELDS.length];
+                for (var field : FIELDS) {
+                    built[field.ordinal()] = build(field, scanned);
+                }
+                synchronized (this) {
+                    students.clear();
+                    scanned.forEach(student -> students.put(student.student().id(), student));
+                    trees = built;
+                    // apply records into changesDuringRebuild, so the changes are replayed once it is cleared
+                    var changes = changesDuringRebuild;
+                    changesDuringRebuild = null;
+                    changes.forEach(this::apply);
+                }
+                LOGGER.log(System.Logger.Level.INFO, "Student search index of %d students has been built"
+                        .formatted(scanned.size()));
+            } finally {
+                synchronized (this) {
+                    changesDuringRebuild = null;
+                }
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(new FixedDelayTask(this::rebuild, properties.rebuildInterval(),
+                properties.rebuildInterval()));
+    }
+
+    private static PrefixTree build(StudentSearchField field, List<IndexedStudent> scanned) {
+        int ordinal = field.ordinal();
+        var sorted = scanned.stream()
+                .filter(student -> student.keys()[ordinal] != null)
+                .sorted(Comparator.<IndexedStudent, String>comparing(student -> student.keys()[ordinal])
+                        .thenComparing(student -> student.student().id()))
+                .toList();
+        var keys = new ArrayList<String>(sorted.size());
+        var values = new ArrayList<StudentIdAndNameDto>(sorted.size());
+        for (var student : sorted) {
+            keys.add(student.keys()[ordinal]);
+            values.add(student.student());
+        }
+        return PrefixTree.build(keys, values);
+    }
+
+    /**
+     * Replaces the keys the student had with the keys it has now; must be called holding {@code this}.
+     */
+    private void apply(Change change) {
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(change);
+        }
+        long id = change.id();
+        var current = change.student();
+        var previous = current == null ? students.remove(id) : students.put(id, current);
+        var next = trees.clone();
+        for (int field = 0; field < next.length; field++) {
+            var previousKey = previous == null ? null : previous.keys()[field];
+            var currentKey = current == null ? null : current.keys()[field];
+            if (previousKey != null && !previousKey.equals(currentKey)) {
+                next[field] = next[field].without(previousKey, id);
+            }
+            if (currentKey != null && (!currentKey.equals(previousKey) || !previous.student().equals(current.student()))) {
+                next[field] = next[field].with(currentKey, current.student());
+            }
+        }
+        trees = next;
+    }
+
+    private static PrefixTree[] emptyTrees() {
+        var empty = new PrefixTree[FIELDS.length];
+        Arrays.fill(empty, PrefixTree.empty());
+        return empty;
+    }
+
+    /**
+     * A change of a student; {@code student} is {@code null} when it has been removed.
+     */
+    private record Change(long id, IndexedStudent student) {
+    }
+
+    /**
+     * What a lookup returns for a student and its keys by the ordinal of their field, {@code null} when not set.
+     */
+    private record IndexedStudent(StudentIdAndNameDto student, String[] keys) {
+
+        private static IndexedStudent of(Student student) {
+            Objects.requireNonNull(student.getId(), "Only a saved student can be indexed");
+            var keys = new String[FIELDS.length];
+            for (var field : FIELDS) {
+                keys[field.ordinal()] = field.keyOf(student);
+            }
+            return new IndexedStudent(
+                    new StudentIdAndNameDto(student.getId(), student.getFirstName(), student.getLastName()), keys);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.verong.demo.database.spring.data.jpa.search;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+
+import java.util.function.Consumer;
+
+/**
+ * A JPA entity listener of {@link Student} that applies inserts, updates and deletes to {@link StudentSearchIndex}
+ * once their transaction has been committed, so a lookup never finds a change that has been rolled back.
+ * <p>
+ * Hibernate gets the listener from Spring, which injects the index only when the search is enabled.
+ */
+@Component
+@RequiredArgsConstructor
+public class StudentSearchIndexListener {
+
+    private final ObjectProvider<StudentSearchIndex> searchIndex;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Student student) {
+        afterCommit(student, index -> index.index(student));
+    }
+
+    @PostRemove
+    public void onRemove(Student student) {
+        afterCommit(student, index -> index.remove(student.getId()));
+    }
+
+    private void afterCommit(Student student, Consumer<StudentSearchIndex> change) {
+        var index = searchIndex.getIfAvailable();
+        if (index == null || student.getId() == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.accept(index);
+                }
+            });
+        } else {
+            change.accept(index);
+        }
+    }
+}
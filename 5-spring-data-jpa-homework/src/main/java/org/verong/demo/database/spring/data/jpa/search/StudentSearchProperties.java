@@ -0,0 +1,29 @@
+package org.verong.demo.database.spring.data.jpa.search;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of {@link StudentSearchIndex}, which is created when {@code students.search.enabled} is {@code true}.
+ *
+ * @param rebuildInterval how often the index is built again from the whole table; it brings in rows changed
+ *                        without JPA (e.g. by SQL)
+ * @param fetchSize       the number of rows fetched from a database per round trip while the index is built
+ * @param maxLimit        the most students a lookup may return
+ */
+@ConfigurationProperties(prefix = "students.search")
+public record StudentSearchProperties(
+        @DefaultValue("1h") Duration rebuildInterval,
+        @DefaultValue("1000") int fetchSize,
+        @DefaultValue("100") int maxLimit
+) {
+
+    public StudentSearchProperties {
+        if (!rebuildInterval.isPositive() || fetchSize <= 0 || maxLimit <= 0) {
+            throw new IllegalArgumentException("Rebuild interval, fetch size and max limit must be positive, but were %s, %d and %d"
+                    .formatted(rebuildInterval, fetchSize, maxLimit));
+        }
+    }
+}
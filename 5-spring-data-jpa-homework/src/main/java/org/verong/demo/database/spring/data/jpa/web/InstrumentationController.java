@@ -0,0 +1,30 @@
+package org.verong.demo.database.spring.data.jpa.web;
+
+import com.verong.demo.database.instrumentation.InstrumentationMetrics;
+import com.verong.demo.database.instrumentation.InstrumentedDataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+@RestController
+@RequestMapping("/instrumentation")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "students.instrumentation", name = "enabled", havingValue = "true")
+public class InstrumentationController {
+
+    private final DataSource dataSource;
+
+    /**
+     * Returns the connection acquire time and the statistics of every statement shape, the most expensive
+     * (mean latency times executions) first.
+     */
+    @GetMapping("/queries")
+    public InstrumentationMetrics queries() throws SQLException {
+        return dataSource.unwrap(InstrumentedDataSource.class).getMetrics();
+    }
+}
@@ -0,0 +1,54 @@
+package org.verong.demo.database.spring.data.jpa.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.verong.demo.database.spring.data.jpa.analytics.StudentFilter;
+import org.verong.demo.database.spring.data.jpa.analytics.StudentSnapshotService;
+import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto;
+import org.verong.demo.database.spring.data.jpa.persistence.model.StudentStatus;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Reporting queries answered from the student snapshot instead of the database; their results may be behind
+ * the database by up to {@code students.snapshot.refresh-interval}.
+ */
+@RestController
+@RequestMapping("/students/analytics")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "students.snapshot", name = "enabled", havingValue = "true")
+public class StudentAnalyticsController {
+
+    private final StudentSnapshotService studentSnapshotService;
+
+    @GetMapping("/count")
+    public long count(@RequestParam(required = false) StudentStatus status,
+                      @RequestParam(required = false) Boolean scholarship,
+                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornFrom,
+                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornTo) {
+        return studentSnapshotService.snapshot().count(filter(status, scholarship, bornFrom, bornTo));
+    }
+
+    @GetMapping("/names")
+    public List<StudentIdAndNameDto> names(@RequestParam(required = false) StudentStatus status,
+                                           @RequestParam(required = false) Boolean scholarship,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornFrom,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornTo) {
+        return studentSnapshotService.snapshot().findIdAndName(filter(status, scholarship, bornFrom, bornTo));
+    }
+
+    private static StudentFilter filter(StudentStatus status, Boolean scholarship, LocalDate bornFrom, LocalDate bornTo) {
+        return StudentFilter.builder()
+                .status(status)
+                .scholarship(scholarship)
+                .bornFrom(bornFrom)
+                .bornTo(bornTo)
+                .build();
+    }
+}
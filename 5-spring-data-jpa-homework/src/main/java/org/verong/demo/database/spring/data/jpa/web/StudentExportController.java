@@ -0,0 +1,103 @@
+package org.verong.demo.database.spring.data.jpa.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.verong.demo.database.spring.data.jpa.export.ExportFormat;
+import org.verong.demo.database.spring.data.jpa.export.StudentExportService;
+
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/students")
+@RequiredArgsConstructor
+public class StudentExportController {
+
+    private static final int GZIP_BUFFER_SIZE = 8 * 1024;
+
+    private final StudentExportService studentExportService;
+
+    /**
+     * Streams all students as {@code ndjson} (default) or {@code csv}, gzip-compressed when the client accepts it.
+     * The compressed stream is created with sync flush, so every flush of the export reaches the client.
+     * <br>
+     * The export runs as an async request, so {@code spring.mvc.async.request-timeout} has to be long enough for
+     * the whole table; it is turned off in {@code application.properties}.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        var exportFormat = parseFormat(format);
+        var gzip = acceptEncoding != null && acceptsGzip(acceptEncoding);
+        var response = ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("students." + exportFormat.fileExtension())
+                        .build()
+                        .toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            return response.body(out -> studentExportService.export(exportFormat, out));
+        }
+        return response
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(out -> {
+                    var gzipOut = new GZIPOutputStream(out, GZIP_BUFFER_SIZE, true);
+                    studentExportService.export(exportFormat, gzipOut);
+                    gzipOut.finish();
+                });
+    }
+
+    /**
+     * Returns whether the {@code Accept-Encoding} header accepts gzip, either by name or by {@code *}, with a
+     * non-zero quality; e.g. {@code gzip;q=0} refuses it.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        Boolean gzip = null;
+        Boolean any = null;
+        for (var coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            var parameters = coding.split(";");
+            var name = parameters[0].trim();
+            var accepted = true;
+            for (int i = 1; i < parameters.length; i++) {
+                var parameter = parameters[i].trim();
+                if (parameter.startsWith("q=")) {
+                    accepted = isPositive(parameter.substring(2).trim());
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = accepted;
+            } else if (name.equals("*")) {
+                any = accepted;
+            }
+        }
+        return gzip != null ? gzip : any != null && any;
+    }
+
+    private static boolean isPositive(String quality) {
+        try {
+            return Double.parseDouble(quality) > 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static ExportFormat parseFormat(String format) {
+        try {
+            return ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format, e);
+        }
+    }
+}
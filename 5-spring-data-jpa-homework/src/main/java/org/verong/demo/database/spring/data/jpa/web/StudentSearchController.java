@@ -0,0 +1,41 @@
+package org.verong.demo.database.spring.data.jpa.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto;
+import org.verong.demo.database.spring.data.jpa.search.StudentSearchField;
+import org.verong.demo.database.spring.data.jpa.search.StudentSearchIndex;
+
+import java.util.List;
+
+/**
+ * Typeahead lookups answered from the student search index instead of the database.
+ */
+@RestController
+@RequestMapping("/students/search")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "students.search", name = "enabled", havingValue = "true")
+public class StudentSearchController {
+
+    private final StudentSearchIndex studentSearchIndex;
+
+    /**
+     * Returns the students whose field starts with the prefix, ignoring case, ordered by the field and then by id.
+     */
+    @GetMapping
+    public List<StudentIdAndNameDto> search(@RequestParam StudentSearchField field,
+                                            @RequestParam String prefix,
+                                            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return studentSearchIndex.findByPrefix(field, prefix, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+}
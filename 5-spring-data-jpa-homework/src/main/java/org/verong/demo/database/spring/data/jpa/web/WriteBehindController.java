@@ -0,0 +1,26 @@
+package org.verong.demo.database.spring.data.jpa.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.writebehind.WriteBehindMetrics;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.writebehind.WriteBehindStudentRepository;
+
+@RestController
+@RequestMapping("/students/write-behind")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "students.write-behind", name = "enabled", havingValue = "true")
+public class WriteBehindController {
+
+    private final WriteBehindStudentRepository writeBehindStudentRepository;
+
+    /**
+     * Returns the queue depth, the coalescing ratio and the flush latency of the write-behind buffer.
+     */
+    @GetMapping("/metrics")
+    public WriteBehindMetrics metrics() {
+        return writeBehindStudentRepository.metrics();
+    }
+}
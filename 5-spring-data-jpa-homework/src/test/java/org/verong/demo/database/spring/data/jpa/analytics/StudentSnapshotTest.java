@@ -0,0 +1,186 @@
+package org.verong.demo.database.spring.data.jpa.analytics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+import org.verong.demo.database.spring.data.jpa.persistence.model.StudentStatus;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.StudentRepository;
+
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the answers of {@link StudentSnapshot} with the same queries run in SQL on an in-memory H2 database, for
+ * every combination of a status, a scholarship and a birthday range, including students whose columns are not set.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:snapshot;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "students.snapshot.enabled=true",
+        "students.snapshot.refresh-interval=1h",
+        "students.snapshot.full-refresh-interval=1h"
+})
+class StudentSnapshotTest {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO students(email, first_name, last_name, birthday, scholarship, status) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String[] FIRST_NAMES = {"Roberto", "Ann", "Li", null};
+    private static final String[] LAST_NAMES = {"Nash", "Smith", "O'Brien", null};
+    private static final List<StudentFilter> FILTERS = filters();
+
+    @Autowired
+    private StudentSnapshotService snapshotService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM students");
+        insertStudents(0, 500);
+        snapshotService.fullRefresh();
+    }
+
+    @Test
+    void fullRefreshMatchesTheTable() {
+        assertEquals(500, snapshotService.snapshot().size());
+        assertMatchesTheTable(snapshotService.snapshot());
+    }
+
+    @Test
+    void refreshBringsInJpaChangesAndNewRows() {
+        var ids = jdbcTemplate.queryForList("SELECT id FROM students ORDER BY id", Long.class);
+        var changed = studentRepository.findById(ids.get(10)).orElseThrow();
+        changed.setStatus(StudentStatus.DROPPED);
+        changed.setScholarship(null);
+        changed.setFirstName("Changed");
+        studentRepository.save(changed);
+        studentRepository.deleteById(ids.get(20));
+        studentRepository.save(Student.builder()
+                .email("jpa@mail.com")
+                .firstName("New")
+                .birthday(LocalDate.of(1999, 1, 1))
+                .scholarship(true)
+                .status(StudentStatus.ACTIVE)
+                .build());
+        insertStudents(500, 50);
+
+        snapshotService.refresh();
+
+        assertEquals(550, snapshotService.snapshot().size());
+        assertMatchesTheTable(snapshotService.snapshot());
+    }
+
+    @Test
+    void fullRefreshBringsInSqlChanges() {
+        jdbcTemplate.update("UPDATE students SET status = 'ACTIVE', scholarship = NULL WHERE MOD(id, 3) = 0");
+        jdbcTemplate.update("DELETE FROM students WHERE MOD(id, 7) = 0");
+
+        snapshotService.fullRefresh();
+
+        assertMatchesTheTable(snapshotService.snapshot());
+    }
+
+    @Test
+    void snapshotReadFromItsFileMatchesTheTable(@TempDir Path directory) throws Exception {
+        var file = directory.resolve("students.bin");
+
+        StudentSnapshotFile.write(snapshotService.snapshot(), file);
+        var read = StudentSnapshotFile.read(file);
+
+        assertEquals(snapshotService.snapshot().size(), read.size());
+        // the file keeps the refresh time in milliseconds
+        assertEquals(snapshotService.snapshot().refreshedAt().truncatedTo(ChronoUnit.MILLIS), read.refreshedAt());
+        assertMatchesTheTable(read);
+    }
+
+    private void assertMatchesTheTable(StudentSnapshot snapshot) {
+        assertEquals(18, FILTERS.size());
+        for (var filter : FILTERS) {
+            var expected = selectIdAndName(filter);
+            assertEquals(expected.size(), snapshot.count(filter), filter.toString());
+            assertEquals(expected, snapshot.findIdAndName(filter), filter.toString());
+        }
+    }
+
+    private List<StudentIdAndNameDto> selectIdAndName(StudentFilter filter) {
+        var sql = new StringBuilder("SELECT id, first_name, last_name FROM students WHERE 1 = 1");
+        var parameters = new ArrayList<>();
+        if (filter.status() != null) {
+            sql.append(" AND status = ?");
+            parameters.add(filter.status().name());
+        }
+        if (filter.scholarship() != null) {
+            sql.append(" AND scholarship = ?");
+            parameters.add(filter.scholarship());
+        }
+        if (filter.bornFrom() != null) {
+            sql.append(" AND birthday >= ?");
+            parameters.add(Date.valueOf(filter.bornFrom()));
+        }
+        if (filter.bornTo() != null) {
+            sql.append(" AND birthday <= ?");
+            parameters.add(Date.valueOf(filter.bornTo()));
+        }
+        sql.append(" ORDER BY id");
+        return jdbcTemplate.query(sql.toString(), (resultSet, row) -> new StudentIdAndNameDto(
+                resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3)), parameters.toArray());
+    }
+
+    private void insertStudents(int from, int count) {
+        var random = new Random(from);
+        var statuses = Stream.concat(Arrays.stream(StudentStatus.values()).map(Enum::name), Stream.of((String) null))
+                .toArray(String[]::new);
+        var scholarships = new Boolean[]{true, false, null};
+        var rows = new ArrayList<Object[]>(count);
+        for (int i = from; i < from + count; i++) {
+            rows.add(new Object[]{
+                    "student%d@mail.com".formatted(i),
+                    FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                    LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                    random.nextInt(10) == 0 ? null : Date.valueOf(LocalDate.of(1995, 1, 1).plusDays(random.nextInt(4000))),
+                    scholarships[random.nextInt(scholarships.length)],
+                    statuses[random.nextInt(statuses.length)]
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    /**
+     * Every combination of no status, a common and a rare status; no, a true and a false scholarship; and no birthday
+     * range or a range from March 1998 to June 2001.
+     */
+    private static List<StudentFilter> filters() {
+        var filters = new ArrayList<StudentFilter>();
+        for (var status : Arrays.asList(null, StudentStatus.ACTIVE, StudentStatus.DROPPED)) {
+            for (var scholarship : Arrays.asList(null, true, false)) {
+                for (var ranged : List.of(false, true)) {
+                    filters.add(StudentFilter.builder()
+                            .status(status)
+                            .scholarship(scholarship)
+                            .bornFrom(ranged ? LocalDate.of(1998, 3, 1) : null)
+                            .bornTo(ranged ? LocalDate.of(2001, 6, 30) : null)
+                            .build());
+                }
+            }
+        }
+        return filters;
+    }
+}
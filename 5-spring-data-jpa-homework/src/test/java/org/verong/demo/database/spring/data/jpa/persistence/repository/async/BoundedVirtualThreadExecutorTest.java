@@ -0,0 +1,127 @@
+package org.verong.demo.database.spring.data.jpa.persistence.repository.async;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs tasks that block on a latch through {@link BoundedVirtualThreadExecutor} without a Spring context and checks
+ * how many of them run at once, what happens to the ones that wait for a permit, and that a failing task gives its
+ * permit back.
+ */
+class BoundedVirtualThreadExecutorTest {
+
+    private static final Duration LONG_TIMEOUT = Duration.ofSeconds(30);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Test
+    void atMostMaxConcurrencyTasksRunAtOnce() throws Exception {
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var futures = new ArrayList<CompletableFuture<Integer>>();
+        try (var executor = new BoundedVirtualThreadExecutor(3, LONG_TIMEOUT)) {
+            for (int i = 0; i < 20; i++) {
+                var task = i;
+                futures.add(executor.submit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    await(release);
+                    running.decrementAndGet();
+                    return task;
+                }));
+            }
+            awaitUntil(() -> executor.queuedCount() == 17);
+            assertEquals(3, executor.activeCount());
+            assertEquals(3, running.get());
+
+            release.countDown();
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i, futures.get(i).get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(3, maxRunning.get());
+            awaitUntil(() -> executor.activeCount() == 0);
+        }
+    }
+
+    @Test
+    void taskWithoutAPermitWithinTheAcquireTimeoutFails() throws Exception {
+        var taskRun = new AtomicBoolean();
+        try (var executor = new BoundedVirtualThreadExecutor(1, Duration.ofMillis(100))) {
+            var blocking = executor.submit(() -> await(release));
+            awaitUntil(() -> executor.activeCount() == 1);
+
+            var waiting = executor.submit(() -> taskRun.getAndSet(true));
+
+            var exception = assertThrows(ExecutionException.class, () -> waiting.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(DataAccessResourceFailureException.class, exception.getCause());
+            release.countDown();
+            assertTrue(blocking.get(10, TimeUnit.SECONDS));
+        }
+        assertFalse(taskRun.get());
+    }
+
+    @Test
+    void taskCancelledWhileWaitingForAPermitIsNotRun() throws Exception {
+        var taskRun = new AtomicBoolean();
+        CompletableFuture<Boolean> waiting;
+        try (var executor = new BoundedVirtualThreadExecutor(1, LONG_TIMEOUT)) {
+            executor.submit(() -> await(release));
+            waiting = executor.submit(() -> taskRun.getAndSet(true));
+            awaitUntil(() -> executor.queuedCount() == 1);
+
+            assertTrue(waiting.cancel(true));
+            release.countDown();
+            // closing waits until the cancelled task has got the permit and given it back
+        }
+        assertTrue(waiting.isCancelled());
+        assertFalse(taskRun.get());
+    }
+
+    @Test
+    void permitIsReleasedWhenATaskThrows() throws Exception {
+        var failure = new IllegalStateException("Replica is not available");
+        try (var executor = new BoundedVirtualThreadExecutor(1, Duration.ofSeconds(5))) {
+            var failing = executor.submit(() -> {
+                throw failure;
+            });
+
+            var exception = assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+            assertSame(failure, exception.getCause());
+            assertEquals("next", executor.submit(() -> "next").get(10, TimeUnit.SECONDS));
+            awaitUntil(() -> executor.activeCount() == 0);
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition has not been met within 10 seconds");
+            Thread.sleep(10);
+        }
+    }
+}
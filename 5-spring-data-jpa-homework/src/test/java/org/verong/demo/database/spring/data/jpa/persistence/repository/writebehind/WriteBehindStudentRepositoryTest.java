@@ -0,0 +1,209 @@
+package org.verong.demo.database.spring.data.jpa.persistence.repository.writebehind;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+import org.verong.demo.database.spring.data.jpa.persistence.model.StudentStatus;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.StudentRepository;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link WriteBehindStudentRepository} against an in-memory H2 database. Every test builds its own repository
+ * with a flush interval long enough that only the flushes the test asks for happen.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:write-behind;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class WriteBehindStudentRepositoryTest {
+
+    private static final Duration NO_SCHEDULED_FLUSH = Duration.ofHours(1);
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<WriteBehindStudentRepository> repositories = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        studentRepository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repositories.forEach(WriteBehindStudentRepository::stop);
+    }
+
+    @Test
+    void savesOfTheSameStudentAreCoalesced() throws Exception {
+        var repository = start(studentRepository, 500);
+        var student = studentRepository.save(newStudent("coalesced@mail.com"));
+
+        var futures = new ArrayList<CompletableFuture<Student>>();
+        for (int i = 0; i < 5; i++) {
+            student.setFirstName("Name" + i);
+            futures.add(repository.save(student));
+        }
+        assertFalse(futures.getFirst().isDone());
+        assertEquals(1, repository.metrics().queueDepth());
+
+        repository.flush();
+
+        for (var future : futures) {
+            assertEquals("Name4", future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getFirstName());
+        }
+        assertEquals("Name4", studentRepository.findById(student.getId()).orElseThrow().getFirstName());
+        var metrics = repository.metrics();
+        assertEquals(5, metrics.saves());
+        assertEquals(4, metrics.coalescedSaves());
+        assertEquals(1, metrics.writtenStudents());
+    }
+
+    @Test
+    void buffersNewStudentsUntilTheyAreFlushed() throws Exception {
+        var repository = start(studentRepository, 500);
+
+        var first = repository.save(newStudent("first@mail.com"));
+        var second = repository.save(newStudent("second@mail.com"));
+        assertEquals(0, studentRepository.count());
+
+        repository.flush();
+
+        assertNotNull(first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getId());
+        assertNotNull(second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getId());
+        assertEquals(2, studentRepository.count());
+    }
+
+    @Test
+    void fullBatchIsFlushedWithoutWaitingForTheInterval() throws Exception {
+        var repository = start(studentRepository, 3);
+
+        var futures = new ArrayList<CompletableFuture<Student>>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(repository.save(newStudent("batch%d@mail.com".formatted(i))));
+        }
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(3, studentRepository.count());
+    }
+
+    @Test
+    void badStudentFailsOnlyItsOwnSave() throws Exception {
+        var repository = start(studentRepository, 500);
+        var bad = newStudent("bad@mail.com");
+        bad.setFirstName("x".repeat(1000));
+
+        var good = repository.save(newStudent("good@mail.com"));
+        var failed = repository.save(bad);
+        repository.flush();
+
+        assertNotNull(good.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getId());
+        assertThrows(ExecutionException.class, () -> failed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, studentRepository.count());
+        assertEquals(1, repository.metrics().failedStudents());
+    }
+
+    @Test
+    void stopWritesTheBufferAndLaterSavesAreWrittenAtOnce() throws Exception {
+        var repository = start(studentRepository, 500);
+        var buffered = repository.save(newStudent("buffered@mail.com"));
+
+        repository.stop();
+
+        assertTrue(buffered.isDone());
+        var later = repository.save(newStudent("later@mail.com"));
+        assertTrue(later.isDone());
+        assertEquals(2, studentRepository.count());
+    }
+
+    @Test
+    void saveMadeWhileTheBufferIsDrainedIsNotOverwrittenByTheDrain() throws Exception {
+        var student = studentRepository.save(newStudent("drained@mail.com"));
+        var drainStarted = new CountDownLatch(1);
+        var drainMayGoOn = new CountDownLatch(1);
+        // the drain loads the buffered students first; it waits there until the later save has been made
+        var blockingRepository = (StudentRepository) Proxy.newProxyInstance(StudentRepository.class.getClassLoader(),
+                new Class<?>[]{StudentRepository.class}, (proxy, method, args) -> {
+                    if ("findAllById".equals(method.getName())) {
+                        drainStarted.countDown();
+                        drainMayGoOn.await();
+                    }
+                    try {
+                        return method.invoke(studentRepository, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        var repository = start(blockingRepository, 500);
+
+        student.setFirstName("Older");
+        var older = repository.save(student);
+        var stopping = Thread.ofVirtual().start(repository::stop);
+        assertTrue(drainStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        student.setFirstName("Newer");
+        var newer = CompletableFuture.supplyAsync(() -> repository.save(student).join());
+        Thread.sleep(200);
+        drainMayGoOn.countDown();
+        stopping.join();
+
+        assertEquals("Older", older.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getFirstName());
+        assertEquals("Newer", newer.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getFirstName());
+        assertEquals("Newer", studentRepository.findById(student.getId()).orElseThrow().getFirstName());
+    }
+
+    @Test
+    void synchronousSaveIsWrittenBeforeItReturns() throws Exception {
+        var repository = new WriteBehindStudentRepository(studentRepository, transactionManager,
+                new WriteBehindProperties(WriteDurability.SYNCHRONOUS, 500, NO_SCHEDULED_FLUSH, 10_000));
+
+        var saved = repository.save(newStudent("synchronous@mail.com"));
+
+        assertTrue(saved.isDone());
+        assertSame(saved.get(), saved.get());
+        assertEquals(1, studentRepository.count());
+        assertEquals(0, repository.metrics().queueDepth());
+    }
+
+    private WriteBehindStudentRepository start(StudentRepository target, int maxBatchSize) {
+        var repository = new WriteBehindStudentRepository(target, transactionManager,
+                new WriteBehindProperties(WriteDurability.WRITE_BEHIND, maxBatchSize, NO_SCHEDULED_FLUSH, 10_000));
+        repository.start();
+        repositories.add(repository);
+        return repository;
+    }
+
+    private static Student newStudent(String email) {
+        return Student.builder()
+                .email(email)
+                .firstName("Roberto")
+                .lastName("Nash")
+                .scholarship(true)
+                .status(StudentStatus.ACTIVE)
+                .build();
+    }
+}
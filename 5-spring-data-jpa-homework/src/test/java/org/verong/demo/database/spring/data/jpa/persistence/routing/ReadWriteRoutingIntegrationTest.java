@@ -0,0 +1,222 @@
+package org.verong.demo.database.spring.data.jpa.persistence.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+import org.verong.demo.database.spring.data.jpa.persistence.model.StudentStatus;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.EntityManagerStudentRepository;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.JdbcTemplateStudentRepository;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.StudentRepository;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.async.AsyncStudentRepository;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the application against two in-memory H2 databases standing in for the primary and the replica. Each database
+ * holds one student with its own email, so the emails a query returns tell which database has answered it.
+ */
+class ReadWriteRoutingIntegrationTest {
+
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS students (
+                id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                email       VARCHAR(255) NOT NULL UNIQUE,
+                first_name  VARCHAR(255),
+                last_name   VARCHAR(255),
+                birthday    DATE,
+                scholarship BOOLEAN,
+                status      VARCHAR(32)
+            )""";
+    private static final String INSERT_SQL =
+            "INSERT INTO students(email, first_name, last_name, scholarship, status) VALUES (?, ?, ?, TRUE, 'ACTIVE')";
+
+    private static final String PRIMARY_EMAIL = "primary@mail.com";
+    private static final String REPLICA_EMAIL = "replica@mail.com";
+    private static final long STICKY_WINDOW_MILLIS = 500;
+
+    @Nested
+    @SpringBootTest(properties = {
+            "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "students.routing.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+            "students.routing.sticky-window=" + STICKY_WINDOW_MILLIS + "ms"
+    })
+    class ReplicaAvailable {
+
+        @Autowired
+        private StudentRepository studentRepository;
+
+        @Autowired
+        private EntityManagerStudentRepository entityManagerStudentRepository;
+
+        @Autowired
+        private JdbcTemplateStudentRepository jdbcTemplateStudentRepository;
+
+        @Autowired
+        private AsyncStudentRepository asyncStudentRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        @Qualifier("primaryDataSource")
+        private HikariDataSource primaryDataSource;
+
+        @Autowired
+        @Qualifier("replicaDataSource")
+        private HikariDataSource replicaDataSource;
+
+        @BeforeEach
+        void setUp() {
+            resetDatabase(new JdbcTemplate(primaryDataSource), PRIMARY_EMAIL);
+            resetDatabase(new JdbcTemplate(replicaDataSource), REPLICA_EMAIL);
+        }
+
+        @Test
+        void readOnlyQueriesGoToTheReplica() {
+            assertEquals(Set.of(REPLICA_EMAIL), emailsOf(studentRepository.findAllByStatus(StudentStatus.ACTIVE)));
+            assertEquals(Set.of(REPLICA_EMAIL),
+                    emailsOf(studentRepository.findAllByScholarshipAndStatus(true, StudentStatus.ACTIVE)));
+            assertEquals(Set.of(REPLICA_EMAIL), namesOf(entityManagerStudentRepository.findByScholarshipUsingJPQL(true)));
+            assertEquals(Set.of(REPLICA_EMAIL),
+                    namesOf(entityManagerStudentRepository.findByScholarshipUsingCriteriaApi(true)));
+            assertEquals(Set.of(REPLICA_EMAIL), namesOf(jdbcTemplateStudentRepository.findByScholarshipUsingSQL(true)));
+        }
+
+        @Test
+        void queriesOutsideOfTransactionsGoToThePrimary() {
+            assertEquals(List.of(PRIMARY_EMAIL), jdbcTemplate.queryForList("SELECT email FROM students", String.class));
+        }
+
+        @Test
+        void readsStayOnThePrimaryWithinTheStickyWindowAfterAWrite() throws Exception {
+            // the sticky window belongs to a thread, so the write is made on a thread of its own
+            try (var writer = Executors.newSingleThreadExecutor(); var otherReader = Executors.newSingleThreadExecutor()) {
+                var readActive = (Callable<Set<String>>) () ->
+                        emailsOf(studentRepository.findAllByStatus(StudentStatus.ACTIVE));
+
+                var ownReads = writer.submit(() -> {
+                    studentRepository.save(newStudent("written@mail.com"));
+                    return readActive.call();
+                }).get();
+                assertEquals(Set.of(PRIMARY_EMAIL, "written@mail.com"), ownReads);
+                assertEquals(Set.of(REPLICA_EMAIL), otherReader.submit(readActive).get());
+
+                Thread.sleep(STICKY_WINDOW_MILLIS + 100);
+                assertEquals(Set.of(REPLICA_EMAIL), writer.submit(readActive).get());
+            }
+        }
+
+        @Test
+        void asyncCallsShareTheStickyWindowWithTheirCaller() throws Exception {
+            try (var writer = Executors.newSingleThreadExecutor(); var asyncWriter = Executors.newSingleThreadExecutor();
+                 var otherReader = Executors.newSingleThreadExecutor()) {
+                var readActiveAsync = (Callable<Set<String>>) () ->
+                        emailsOf(asyncStudentRepository.findAllByStatus(StudentStatus.ACTIVE).join());
+
+                // a write of the caller keeps its async reads on the primary
+                var readsAfterOwnWrite = writer.submit(() -> {
+                    studentRepository.save(newStudent("written@mail.com"));
+                    return readActiveAsync.call();
+                }).get();
+                assertEquals(Set.of(PRIMARY_EMAIL, "written@mail.com"), readsAfterOwnWrite);
+
+                // a write of an async call keeps the caller and its other async calls on the primary
+                var readsAfterAsyncWrite = asyncWriter.submit(() -> {
+                    asyncStudentRepository.save(newStudent("written-async@mail.com")).join();
+                    return List.of(emailsOf(studentRepository.findAllByStatus(StudentStatus.ACTIVE)),
+                            readActiveAsync.call());
+                }).get();
+                var primaryEmails = Set.of(PRIMARY_EMAIL, "written@mail.com", "written-async@mail.com");
+                assertEquals(List.of(primaryEmails, primaryEmails), readsAfterAsyncWrite);
+
+                assertEquals(Set.of(REPLICA_EMAIL), otherReader.submit(readActiveAsync).get());
+            }
+        }
+
+        @Test
+        void replicaPoolWaitsForAConnectionShortly() {
+            assertEquals(ReadWriteRoutingConfiguration.REPLICA_CONNECTION_TIMEOUT_MILLIS,
+                    replicaDataSource.getConnectionTimeout());
+            assertEquals(Duration.ofSeconds(30).toMillis(), primaryDataSource.getConnectionTimeout());
+        }
+    }
+
+    @Nested
+    @SpringBootTest(properties = {
+            "spring.datasource.url=jdbc:h2:mem:fallback-primary;DB_CLOSE_DELAY=-1",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            // nothing listens on port 1, so every connection attempt is refused
+            "students.routing.replica.url=jdbc:h2:tcp://localhost:1/mem:fallback-replica",
+            "students.routing.replica.hikari.connection-timeout=250",
+            "students.routing.replica-retry-after=1m"
+    })
+    class ReplicaUnreachable {
+
+        @Autowired
+        private StudentRepository studentRepository;
+
+        @Autowired
+        @Qualifier("primaryDataSource")
+        private DataSource primaryDataSource;
+
+        @BeforeEach
+        void setUp() {
+            resetDatabase(new JdbcTemplate(primaryDataSource), PRIMARY_EMAIL);
+        }
+
+        @Test
+        void readsFallBackToThePrimary() {
+            assertEquals(Set.of(PRIMARY_EMAIL), emailsOf(studentRepository.findAllByStatus(StudentStatus.ACTIVE)));
+
+            // the replica is not asked again until the retry delay has passed
+            var startNanos = System.nanoTime();
+            assertEquals(Set.of(PRIMARY_EMAIL),
+                    emailsOf(studentRepository.findAllByScholarshipAndStatus(true, StudentStatus.ACTIVE)));
+            assertTrue(Duration.ofNanos(System.nanoTime() - startNanos).toMillis() < 250);
+        }
+    }
+
+    private static void resetDatabase(JdbcTemplate jdbcTemplate, String email) {
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+        jdbcTemplate.update("DELETE FROM students");
+        jdbcTemplate.update(INSERT_SQL, email, email, "Nash");
+    }
+
+    private static Student newStudent(String email) {
+        return Student.builder()
+                .email(email)
+                .firstName(email)
+                .lastName("Nash")
+                .scholarship(true)
+                .status(StudentStatus.ACTIVE)
+                .build();
+    }
+
+    private static Set<String> emailsOf(List<Student> students) {
+        return students.stream().map(Student::getEmail).collect(Collectors.toSet());
+    }
+
+    /**
+     * The first name of a marker student is its email.
+     */
+    private static Set<String> namesOf(List<StudentIdAndNameDto> students) {
+        return students.stream().map(StudentIdAndNameDto::firstName).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,142 @@
+package org.verong.demo.database.spring.data.jpa.search;
+
+import org.junit.jupiter.api.Test;
+import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Runs random changes and lookups on a {@link PrefixTree} and on a {@link TreeMap} model of it, and compares their
+ * answers. The keys are short words over a few letters, so labels are split and merged again all the time.
+ */
+class PrefixTreeTest {
+
+    private static final String ALPHABET = "abc";
+    private static final int MAX_KEY_LENGTH = 6;
+    private static final int MAX_ID = 200;
+
+    @Test
+    void randomChangesMatchTheModel() {
+        var random = new Random(7);
+        var tree = PrefixTree.empty();
+        var model = new TreeMap<String, TreeMap<Long, StudentIdAndNameDto>>();
+        for (int step = 0; step < 20_000; step++) {
+            var key = randomKey(random);
+            long id = random.nextInt(MAX_ID);
+            if (random.nextInt(3) == 0) {
+                tree = tree.without(key, id);
+                var students = model.get(key);
+                if (students != null && students.remove(id) != null && students.isEmpty()) {
+                    model.remove(key);
+                }
+            } else {
+                var student = new StudentIdAndNameDto(id, key, "step" + step);
+                tree = tree.with(key, student);
+                model.computeIfAbsent(key, k -> new TreeMap<>()).put(id, student);
+            }
+            if (step % 100 == 0) {
+                assertMatches(model, tree, random);
+            }
+        }
+        assertMatches(model, tree, random);
+    }
+
+    @Test
+    void builtTreeMatchesTheModel() {
+        var random = new Random(11);
+        var model = new TreeMap<String, TreeMap<Long, StudentIdAndNameDto>>();
+        for (int i = 0; i < 2_000; i++) {
+            var key = randomKey(random);
+            long id = random.nextInt(MAX_ID * 10);
+            model.computeIfAbsent(key, k -> new TreeMap<>()).put(id, new StudentIdAndNameDto(id, key, "built"));
+        }
+        var keys = new ArrayList<String>();
+        var students = new ArrayList<StudentIdAndNameDto>();
+        model.forEach((key, byId) -> byId.values().forEach(student -> {
+            keys.add(key);
+            students.add(student);
+        }));
+
+        var tree = PrefixTree.build(keys, students);
+
+        assertMatches(model, tree, random);
+        for (int i = 0; i < students.size(); i += 2) {
+            tree = tree.without(keys.get(i), students.get(i).id());
+            model.get(keys.get(i)).remove(students.get(i).id());
+        }
+        model.values().removeIf(Map::isEmpty);
+        assertMatches(model, tree, random);
+    }
+
+    @Test
+    void changeLeavesTheOldTreeAsItWas() {
+        var first = new StudentIdAndNameDto(1L, "Ann", "Smith");
+        var second = new StudentIdAndNameDto(2L, "Anna", "Nash");
+        var tree = PrefixTree.empty().with("ann", first);
+
+        var changed = tree.with("anna", second).without("ann", 1L);
+
+        assertEquals(List.of(first), collect(tree, "an", 10));
+        assertEquals(List.of(second), collect(changed, "an", 10));
+    }
+
+    @Test
+    void removingWhatIsNotThereReturnsTheSameTree() {
+        var tree = PrefixTree.empty().with("ann", new StudentIdAndNameDto(1L, "Ann", "Smith"));
+
+        assertSame(tree, tree.without("ann", 2L));
+        assertSame(tree, tree.without("an", 1L));
+        assertSame(tree, tree.without("anna", 1L));
+        assertSame(tree, tree.without("bob", 1L));
+        assertSame(PrefixTree.empty(), tree.without("ann", 1L));
+    }
+
+    private static void assertMatches(TreeMap<String, TreeMap<Long, StudentIdAndNameDto>> model, PrefixTree tree,
+                                      Random random) {
+        assertEquals(expected(model, "", Integer.MAX_VALUE), collect(tree, "", Integer.MAX_VALUE));
+        for (int i = 0; i < 50; i++) {
+            var prefix = randomKey(random);
+            int limit = random.nextBoolean() ? Integer.MAX_VALUE : 1 + random.nextInt(5);
+            assertEquals(expected(model, prefix, limit), collect(tree, prefix, limit), "prefix " + prefix);
+        }
+    }
+
+    private static List<StudentIdAndNameDto> expected(TreeMap<String, TreeMap<Long, StudentIdAndNameDto>> model,
+                                                      String prefix, int limit) {
+        var result = new ArrayList<StudentIdAndNameDto>();
+        for (var entry : model.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            for (var student : entry.getValue().values()) {
+                if (result.size() == limit) {
+                    return result;
+                }
+                result.add(student);
+            }
+        }
+        return result;
+    }
+
+    private static List<StudentIdAndNameDto> collect(PrefixTree tree, String prefix, int limit) {
+        var result = new ArrayList<StudentIdAndNameDto>();
+        tree.collect(prefix, limit, result);
+        return result;
+    }
+
+    private static String randomKey(Random random) {
+        var key = new StringBuilder();
+        int length = random.nextInt(MAX_KEY_LENGTH + 1);
+        for (int i = 0; i < length; i++) {
+            key.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return key.toString();
+    }
+}
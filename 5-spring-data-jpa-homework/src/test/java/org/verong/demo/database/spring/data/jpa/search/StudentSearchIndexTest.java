@@ -0,0 +1,97 @@
+package org.verong.demo.database.spring.data.jpa.search;
+
+import org.junit.jupiter.api.Test;
+import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.JdbcTemplateStudentRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs {@link StudentSearchIndex} on a table kept in a list, so a test decides what a rebuild reads and which
+ * changes happen while it reads.
+ */
+class StudentSearchIndexTest {
+
+    private static final int LIMIT = 10;
+
+    @Test
+    void changesMadeDuringRebuildAreAppliedToTheNewIndex() {
+        var table = List.of(student(1, "ann@mail.com", "Ann"), student(2, "bob@mail.com", "Bob"));
+        var index = new StudentSearchIndex[1];
+        index[0] = new StudentSearchIndex(new TableRepository(table, () -> {
+            index[0].index(student(3, "carl@mail.com", "Carl"));
+            index[0].index(student(4, "dora@mail.com", "Dora"));
+            index[0].index(student(2, "bea@mail.com", "Bea"));
+            index[0].remove(1);
+        }), properties());
+
+        index[0].rebuild();
+
+        assertEquals(List.of(dto(2, "Bea"), dto(3, "Carl"), dto(4, "Dora")),
+                index[0].findByPrefix(StudentSearchField.EMAIL, "", LIMIT));
+        assertEquals(List.of(dto(2, "Bea")), index[0].findByPrefix(StudentSearchField.FIRST_NAME, "b", LIMIT));
+    }
+
+    @Test
+    void changesAreNotReplayedByTheNextRebuild() {
+        var table = List.of(student(1, "ann@mail.com", "Ann"));
+        var duringFirstRebuild = new boolean[]{true};
+        var index = new StudentSearchIndex[1];
+        index[0] = new StudentSearchIndex(new TableRepository(table, () -> {
+            if (duringFirstRebuild[0]) {
+                index[0].index(student(2, "bob@mail.com", "Bob"));
+            }
+        }), properties());
+        index[0].rebuild();
+        assertEquals(List.of(dto(1, "Ann"), dto(2, "Bob")), index[0].findByPrefix(StudentSearchField.EMAIL, "", LIMIT));
+
+        duringFirstRebuild[0] = false;
+        index[0].rebuild();
+
+        assertEquals(List.of(dto(1, "Ann")), index[0].findByPrefix(StudentSearchField.EMAIL, "", LIMIT));
+    }
+
+    private static StudentSearchProperties properties() {
+        return new StudentSearchProperties(Duration.ofHours(1), 100, 100);
+    }
+
+    private static Student student(long id, String email, String firstName) {
+        return Student.builder().id(id).email(email).firstName(firstName).lastName("Smith").build();
+    }
+
+    private static StudentIdAndNameDto dto(long id, String firstName) {
+        return new StudentIdAndNameDto(id, firstName, "Smith");
+    }
+
+    /**
+     * Reads the students of the list and runs {@code duringScan} after the first one, as a write made by another
+     * thread while the table is being read would.
+     */
+    private record TableRepository(List<Student> table, Runnable duringScan) implements JdbcTemplateStudentRepository {
+
+        @Override
+        public List<StudentIdAndNameDto> findByScholarshipUsingSQL(Boolean scholarship) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void forEachStudent(int fetchSize, Consumer<Student> action) {
+            for (int i = 0; i < table.size(); i++) {
+                action.accept(table.get(i));
+                if (i == 0) {
+                    duringScan.run();
+                }
+            }
+        }
+
+        @Override
+        public void forEachStudentAfter(long afterId, int fetchSize, Consumer<Student> action) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
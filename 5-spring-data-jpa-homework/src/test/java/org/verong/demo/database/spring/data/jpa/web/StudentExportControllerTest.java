@@ -0,0 +1,182 @@
+package org.verong.demo.database.spring.data.jpa.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Calls {@code GET /students/export} over HTTP against an in-memory H2 database.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:export;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "students.export.fetch-size=100",
+        "students.export.flush-every=100"
+})
+class StudentExportControllerTest {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO students(email, first_name, last_name, birthday, scholarship, status)
+            VALUES (?, ?, 'Nash', DATE '2001-01-01', TRUE, 'ACTIVE')""";
+    private static final long DISCONNECT_TIMEOUT_MILLIS = 10_000;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM students");
+    }
+
+    @Test
+    void ndjsonHasOneLinePerStudent() throws Exception {
+        insertStudents(250);
+
+        var response = get("/students/export", null);
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/x-ndjson", response.headers().firstValue("Content-Type").orElseThrow());
+        assertTrue(response.headers().firstValue("Content-Disposition").orElseThrow().contains("students.ndjson"));
+        var lines = lines(response.body());
+        assertEquals(250, lines.size());
+        var first = objectMapper.readTree(lines.getFirst());
+        assertEquals("student0@mail.com", first.get("email").asText());
+        assertEquals("2001-01-01", first.get("birthday").asText());
+    }
+
+    @Test
+    void csvQuotesValuesThatNeedIt() throws Exception {
+        jdbcTemplate.update(INSERT_SQL, "quoted@mail.com", "Roberto, \"Bob\"");
+        var id = jdbcTemplate.queryForObject("SELECT id FROM students", Long.class);
+
+        var response = get("/students/export?format=csv", null);
+
+        assertEquals(200, response.statusCode());
+        assertEquals(List.of(
+                "id,email,first_name,last_name,birthday,scholarship,status",
+                id + ",quoted@mail.com,\"Roberto, \"\"Bob\"\"\",Nash,2001-01-01,true,ACTIVE"
+        ), lines(response.body()));
+    }
+
+    @Test
+    void unknownFormatIsRejected() throws Exception {
+        assertEquals(400, get("/students/export?format=xml", null).statusCode());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "gzip                      | true",
+            "GZIP                      | true",
+            "deflate, x-gzip           | true",
+            "gzip;q=0.5, br            | true",
+            "gzip ; q=1.0              | true",
+            "*                         | true",
+            "gzip;q=0                  | false",
+            "gzip;q=0.000              | false",
+            "gzip;q=abc                | false",
+            "*;q=0                     | false",
+            "gzip;q=0, *               | false",
+            "*;q=0, gzip               | true",
+            "identity                  | false",
+            "br, deflate               | false"
+    })
+    void gzipIsUsedWhenTheClientAcceptsIt(String acceptEncoding, boolean gzip) throws Exception {
+        insertStudents(3);
+
+        var response = get("/students/export", acceptEncoding);
+
+        assertEquals(200, response.statusCode());
+        assertEquals(gzip, response.headers().firstValue("Content-Encoding").filter("gzip"::equals).isPresent());
+        var body = gzip ? new GZIPInputStream(new ByteArrayInputStream(response.body())).readAllBytes() : response.body();
+        assertEquals(3, lines(body).size());
+    }
+
+    @Test
+    void gzippedExportIsTheSameAsThePlainOne() throws Exception {
+        insertStudents(1_000);
+
+        var plain = get("/students/export?format=csv", null).body();
+        var gzipped = get("/students/export?format=csv", "gzip").body();
+
+        assertTrue(gzipped.length < plain.length);
+        assertEquals(new String(plain, StandardCharsets.UTF_8), new String(
+                new GZIPInputStream(new ByteArrayInputStream(gzipped)).readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void disconnectedClientReleasesTheConnection() throws Exception {
+        // far more than the socket buffers hold, so the export is still running when the client goes away
+        insertStudents(100_000);
+
+        try (var socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write("""
+                    GET /students/export HTTP/1.1\r
+                    Host: localhost\r
+                    \r
+                    """.getBytes(StandardCharsets.US_ASCII));
+            var in = socket.getInputStream();
+            assertTrue(in.readNBytes(64 * 1024).length > 0);
+            assertEquals(1, dataSource.getHikariPoolMXBean().getActiveConnections());
+        }
+
+        long deadline = System.currentTimeMillis() + DISCONNECT_TIMEOUT_MILLIS;
+        while (dataSource.getHikariPoolMXBean().getActiveConnections() > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, dataSource.getHikariPoolMXBean().getActiveConnections());
+    }
+
+    private HttpResponse<byte[]> get(String path, String acceptEncoding) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:%d%s".formatted(port, path)));
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private void insertStudents(int count) {
+        var rows = new ArrayList<Object[]>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{"student%d@mail.com".formatted(i), "Roberto" + i});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    private static List<String> lines(byte[] body) {
+        return new String(body, StandardCharsets.UTF_8).lines().toList();
+    }
+}
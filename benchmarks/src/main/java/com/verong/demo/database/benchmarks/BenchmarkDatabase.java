@@ -0,0 +1,116 @@
+package com.verong.demo.database.benchmarks;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An embedded H2 database shared by all benchmarks: the schema is created by Flyway from {@code db/migration}
+ * and the table {@code students} is filled with {@link #STUDENTS} rows, so every stack works with the same data.
+ */
+final class BenchmarkDatabase {
+
+    static final int STUDENTS = 10_000;
+    static final String STATUS_ACTIVE = "ACTIVE";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO students(email, first_name, last_name, birthday, scholarship, status) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_WITH_ID_SQL =
+            "INSERT INTO students(email, first_name, last_name, birthday, scholarship, status, id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String RESTART_ID_SEQUENCE_SQL =
+            "ALTER SEQUENCE students_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM students)";
+    private static final AtomicLong EMAIL_SEQUENCE = new AtomicLong();
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Creates a new in-memory database with the passed name, migrates and fills it.
+     */
+    static JdbcDataSource create(String name) {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL(url(name));
+        dataSource.setUser("sa");
+        migrate(dataSource);
+        seedWithIds(dataSource, STUDENTS);
+        return dataSource;
+    }
+
+    static String url(String name) {
+        return "jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1".formatted(name);
+    }
+
+    static void migrate(DataSource dataSource) {
+        Flyway.configure().dataSource(dataSource).load().migrate();
+    }
+
+    /**
+     * Fills a table whose ids are generated one by one, e.g. by an identity column, so they are 1 to {@code count}.
+     */
+    static void seed(DataSource dataSource, int count) {
+        insert(dataSource, count, false);
+    }
+
+    /**
+     * Fills the table created by Flyway with ids 1 to {@code count}, which {@link #randomId()} expects, and moves
+     * {@code students_id_seq} past them: the sequence gives ids in blocks of 50, so rows inserted with the default id
+     * would not get consecutive ids.
+     */
+    private static void seedWithIds(DataSource dataSource, int count) {
+        insert(dataSource, count, true);
+        try (var connection = dataSource.getConnection();
+             var statement = connection.createStatement()) {
+            statement.execute(RESTART_ID_SEQUENCE_SQL);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot seed benchmark database", e);
+        }
+    }
+
+    private static void insert(DataSource dataSource, int count, boolean withIds) {
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(withIds ? INSERT_WITH_ID_SQL : INSERT_SQL)) {
+            for (int i = 1; i <= count; i++) {
+                statement.setString(1, nextEmail());
+                statement.setString(2, "First" + i);
+                statement.setString(3, "Last" + i);
+                statement.setDate(4, Date.valueOf(LocalDate.of(2000, 1, 1).plusDays(i % 3650)));
+                statement.setBoolean(5, i % 2 == 0);
+                statement.setString(6, STATUS_ACTIVE);
+                if (withIds) {
+                    statement.setLong(7, i);
+                }
+                statement.addBatch();
+                if (i % 1000 == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot seed benchmark database", e);
+        }
+    }
+
+    static String nextEmail() {
+        return "student%d@mail.com".formatted(EMAIL_SEQUENCE.incrementAndGet());
+    }
+
+    static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, STUDENTS + 1);
+    }
+
+    static List<Long> randomIds(int count) {
+        var ids = new ArrayList<Long>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(randomId());
+        }
+        return ids;
+    }
+}
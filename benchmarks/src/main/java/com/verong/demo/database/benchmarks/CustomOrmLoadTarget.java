@@ -0,0 +1,38 @@
+package com.verong.demo.database.benchmarks;
+
+import com.verong.demo.database.custom.hibernate.persistence.model.Student;
+import com.verong.demo.database.custom.hibernate.persistence.orm.MyEntityManager;
+import com.verong.demo.database.custom.hibernate.persistence.orm.MyEntityManagerImpl;
+import com.verong.demo.database.jdbc.persistence.pool.PoolConfig;
+import com.verong.demo.database.jdbc.persistence.pool.PooledDataSource;
+
+/**
+ * The custom ORM ({@link MyEntityManager}) with its default settings; it has no writes.
+ */
+final class CustomOrmLoadTarget implements LoadTarget {
+
+    private final PooledDataSource dataSource;
+    private final MyEntityManager entityManager;
+
+    CustomOrmLoadTarget(LoadTestOptions options, LoadRecorder recorder) {
+        dataSource = new PooledDataSource(BenchmarkDatabase.create("load_custom_orm"), PoolConfig.builder()
+                .maximumPoolSize(options.poolSize())
+                .build());
+        entityManager = new MyEntityManagerImpl(new PoolWaitDataSource(dataSource, recorder));
+    }
+
+    @Override
+    public void read(long id) {
+        entityManager.findById(Student.class, id);
+    }
+
+    @Override
+    public void write(long id) {
+        throw new UnsupportedOperationException("The custom ORM has no writes");
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
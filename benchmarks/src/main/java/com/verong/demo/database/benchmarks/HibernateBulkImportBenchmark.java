@@ -0,0 +1,74 @@
+package com.verong.demo.database.benchmarks;
+
+import com.verong.demo.database.hibernate.persistence.dao.StudentDao;
+import com.verong.demo.database.hibernate.persistence.dao.StudentDaoImpl;
+import com.verong.demo.database.hibernate.persistence.model.Student;
+import com.verong.demo.database.hibernate.persistence.model.StudentStatus;
+import com.verong.demo.database.jdbc.persistence.pool.PoolConfig;
+import com.verong.demo.database.jdbc.persistence.pool.PooledDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Storing {@code size} students with the Hibernate {@link StudentDao}: {@link StudentDao#create(Student)}
+ * in a loop against {@link StudentDao#importAll(Stream, int)}. Each invocation is a whole import,
+ * so the score is the time of an import.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class HibernateBulkImportBenchmark {
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    private PooledDataSource dataSource;
+    private EntityManagerFactory entityManagerFactory;
+    private StudentDao studentDao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new PooledDataSource(BenchmarkDatabase.create("hibernate_import"), PoolConfig.builder().build());
+        entityManagerFactory = Persistence.createEntityManagerFactory("students", Map.of(
+                "jakarta.persistence.nonJtaDataSource", dataSource));
+        studentDao = new StudentDaoImpl(entityManagerFactory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManagerFactory.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public int createInLoop() {
+        students().forEach(studentDao::create);
+        return size;
+    }
+
+    @Benchmark
+    public long importAll() {
+        return studentDao.importAll(students());
+    }
+
+    private Stream<Student> students() {
+        return Stream.generate(() -> Student.builder()
+                        .email(BenchmarkDatabase.nextEmail())
+                        .firstName("Roberto")
+                        .lastName("Nash")
+                        .birthday(LocalDate.of(2001, 1, 1))
+                        .scholarship(true)
+                        .status(StudentStatus.ACTIVE)
+                        .build())
+                .limit(size);
+    }
+}
@@ -0,0 +1,46 @@
+package com.verong.demo.database.benchmarks;
+
+import com.verong.demo.database.hibernate.persistence.dao.StudentDao;
+import com.verong.demo.database.hibernate.persistence.dao.StudentDaoImpl;
+import com.verong.demo.database.hibernate.persistence.model.StudentStatus;
+import com.verong.demo.database.jdbc.persistence.pool.PoolConfig;
+import com.verong.demo.database.jdbc.persistence.pool.PooledDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import java.util.Map;
+
+/**
+ * The JPA/Hibernate {@link StudentDao} with its default caches, on the same pool as the JDBC stack.
+ */
+final class HibernateLoadTarget implements LoadTarget {
+
+    private final PooledDataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+    private final StudentDao studentDao;
+
+    HibernateLoadTarget(LoadTestOptions options, LoadRecorder recorder) {
+        dataSource = new PooledDataSource(BenchmarkDatabase.create("load_hibernate"), PoolConfig.builder()
+                .maximumPoolSize(options.poolSize())
+                .build());
+        entityManagerFactory = Persistence.createEntityManagerFactory("students", Map.of(
+                "jakarta.persistence.nonJtaDataSource", new PoolWaitDataSource(dataSource, recorder)));
+        studentDao = new StudentDaoImpl(entityManagerFactory);
+    }
+
+    @Override
+    public void read(long id) {
+        studentDao.findById(id);
+    }
+
+    @Override
+    public void write(long id) {
+        studentDao.updateStatus(id, StudentStatus.GRADUATED);
+    }
+
+    @Override
+    public void close() {
+        entityManagerFactory.close();
+        dataSource.close();
+    }
+}
@@ -0,0 +1,93 @@
+package com.verong.demo.database.benchmarks;
+
+import com.verong.demo.database.hibernate.persistence.dao.Page;
+import com.verong.demo.database.hibernate.persistence.dao.StudentDao;
+import com.verong.demo.database.hibernate.persistence.dao.StudentDaoImpl;
+import com.verong.demo.database.hibernate.persistence.dao.StudentSort;
+import com.verong.demo.database.hibernate.persistence.model.Student;
+import com.verong.demo.database.jdbc.persistence.pool.PoolConfig;
+import com.verong.demo.database.jdbc.persistence.pool.PooledDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A page of the Hibernate {@link StudentDao} at growing depths: OFFSET paging has to skip all previous rows,
+ * while keyset paging by id and by {@code (lastName, id)} should cost the same at any depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HibernatePaginationBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+    private static final String SELECT_PAGE_WITH_OFFSET_JPQL = "select s from Student s order by s.id";
+    private static final String SELECT_BY_LAST_NAME_JPQL = "select s from Student s order by s.lastName, s.id";
+
+    @Param({"0", "1000", "5000", "9900"})
+    private int depth;
+
+    private PooledDataSource dataSource;
+    private EntityManagerFactory entityManagerFactory;
+    private StudentDao studentDao;
+    private long afterId;
+    private String lastNameCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new PooledDataSource(BenchmarkDatabase.create("pagination"), PoolConfig.builder().build());
+        entityManagerFactory = Persistence.createEntityManagerFactory("students", Map.of(
+                "jakarta.persistence.nonJtaDataSource", dataSource));
+        studentDao = new StudentDaoImpl(entityManagerFactory);
+        afterId = depth;
+        lastNameCursor = depth == 0 ? null : StudentSort.LAST_NAME.cursorOf(studentAt(SELECT_BY_LAST_NAME_JPQL, depth - 1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManagerFactory.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<Student> offset() {
+        var entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery(SELECT_PAGE_WITH_OFFSET_JPQL, Student.class)
+                    .setFirstResult(depth)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Benchmark
+    public List<Student> keysetById() {
+        return studentDao.findPage(afterId, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Student> keysetByLastName() {
+        return studentDao.findPage(StudentSort.LAST_NAME, lastNameCursor, PAGE_SIZE);
+    }
+
+    private Student studentAt(String jpql, int position) {
+        var entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery(jpql, Student.class)
+                    .setFirstResult(position)
+                    .setMaxResults(1)
+                    .getSingleResult();
+        } finally {
+            entityManager.close();
+        }
+    }
+}
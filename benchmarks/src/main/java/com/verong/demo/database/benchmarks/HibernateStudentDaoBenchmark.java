@@ -0,0 +1,101 @@
+package com.verong.demo.database.benchmarks;
+
+import com.verong.demo.database.hibernate.persistence.dao.StudentDao;
+import com.verong.demo.database.hibernate.persistence.dao.StudentDaoImpl;
+import com.verong.demo.database.hibernate.persistence.dto.StudentIdAndNameDto;
+import com.verong.demo.database.hibernate.persistence.model.Student;
+import com.verong.demo.database.hibernate.persistence.model.StudentStatus;
+import com.verong.demo.database.jdbc.persistence.pool.PoolConfig;
+import com.verong.demo.database.jdbc.persistence.pool.PooledDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JPA/Hibernate {@link StudentDao} using the same pool as the JDBC benchmark, with and without
+ * the second-level and query caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HibernateStudentDaoBenchmark {
+
+    @Param({"true", "false"})
+    private boolean cache;
+
+    private PooledDataSource dataSource;
+    private EntityManagerFactory entityManagerFactory;
+    private StudentDao studentDao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new PooledDataSource(BenchmarkDatabase.create("hibernate"), PoolConfig.builder().build());
+        entityManagerFactory = Persistence.createEntityManagerFactory("students", Map.of(
+                "jakarta.persistence.nonJtaDataSource", dataSource,
+                "hibernate.cache.use_second_level_cache", cache,
+                "hibernate.cache.use_query_cache", cache));
+        studentDao = new StudentDaoImpl(entityManagerFactory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManagerFactory.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Student insert() {
+        var student = Student.builder()
+                .email(BenchmarkDatabase.nextEmail())
+                .firstName("Roberto")
+                .lastName("Nash")
+                .birthday(LocalDate.of(2001, 1, 1))
+                .scholarship(true)
+                .status(StudentStatus.ACTIVE)
+                .build();
+        studentDao.create(student);
+        return student;
+    }
+
+    @Benchmark
+    public Optional<Student> findById() {
+        return studentDao.findById(BenchmarkDatabase.randomId());
+    }
+
+    @Benchmark
+    public void findById100(Blackhole blackhole) {
+        for (Long id : BenchmarkDatabase.randomIds(100)) {
+            blackhole.consume(studentDao.findById(id));
+        }
+    }
+
+    @Benchmark
+    public List<Student> findAll() {
+        return studentDao.findAll();
+    }
+
+    @Benchmark
+    public List<StudentIdAndNameDto> findByScholarshipUsingJPQL() {
+        return studentDao.findByScholarshipUsingJPQL(true);
+    }
+
+    @Benchmark
+    public List<StudentIdAndNameDto> findByScholarshipUsingCriteriaApi() {
+        return studentDao.findByScholarshipUsingCriteriaApi(true);
+    }
+
+    @Benchmark
+    public void updateStatus() {
+        studentDao.updateStatus(BenchmarkDatabase.randomId(), StudentStatus.GRADUATED);
+    }
+}
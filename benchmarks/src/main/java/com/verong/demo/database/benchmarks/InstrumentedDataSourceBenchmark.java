@@ -0,0 +1,74 @@
+package com.verong.demo.database.benchmarks;
+
+import com.verong.demo.database.instrumentation.InstrumentationConfig;
+import com.verong.demo.database.instrumentation.InstrumentedDataSource;
+import com.verong.demo.database.jdbc.persistence.dao.StudentDao;
+import com.verong.demo.database.jdbc.persistence.dao.StudentDaoImpl;
+import com.verong.demo.database.jdbc.persistence.model.Student;
+import com.verong.demo.database.jdbc.persistence.model.StudentStatus;
+import com.verong.demo.database.jdbc.persistence.pool.PoolConfig;
+import com.verong.demo.database.jdbc.persistence.pool.PooledDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The overhead of {@link InstrumentedDataSource}: the raw JDBC {@link StudentDao} on top of {@link PooledDataSource}
+ * with and without the instrumentation. {@code findAll} reads 10 000 rows through the result set proxy, so it shows
+ * the worst case per row; {@code findById} shows the cost per statement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentedDataSourceBenchmark {
+
+    @Param({"false", "true"})
+    private boolean instrumented;
+
+    private PooledDataSource pool;
+    private StudentDao studentDao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var database = BenchmarkDatabase.create("instrumented_" + instrumented);
+        pool = new PooledDataSource(database, PoolConfig.builder().build());
+        studentDao = new StudentDaoImpl(instrumented
+                ? new InstrumentedDataSource(pool, InstrumentationConfig.builder().build())
+                : pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public Optional<Student> findById() {
+        return studentDao.findById(BenchmarkDatabase.randomId());
+    }
+
+    @Benchmark
+    public List<Student> findAll() {
+        return studentDao.findAll();
+    }
+
+    @Benchmark
+    public Student insert() {
+        var student = Student.builder()
+                .email(BenchmarkDatabase.nextEmail())
+                .firstName("Roberto")
+                .lastName("Nash")
+                .birthday(LocalDate.of(2001, 1, 1))
+                .scholarship(true)
+                .status(StudentStatus.ACTIVE)
+                .build();
+        studentDao.create(student);
+        return student;
+    }
+}
@@ -0,0 +1,50 @@
+package com.verong.demo.database.benchmarks;
+
+import com.verong.demo.database.jdbc.persistence.dao.StudentDao;
+import com.verong.demo.database.jdbc.persistence.dao.StudentDaoImpl;
+import com.verong.demo.database.jdbc.persistence.model.Student;
+import com.verong.demo.database.jdbc.persistence.model.StudentStatus;
+import com.verong.demo.database.jdbc.persistence.pool.PoolConfig;
+import com.verong.demo.database.jdbc.persistence.pool.PooledDataSource;
+
+import java.time.LocalDate;
+
+/**
+ * The raw JDBC {@link StudentDao} on top of {@link PooledDataSource}; a write replaces a whole student without
+ * checking its version.
+ */
+final class JdbcLoadTarget implements LoadTarget {
+
+    private final PooledDataSource dataSource;
+    private final StudentDao studentDao;
+
+    JdbcLoadTarget(LoadTestOptions options, LoadRecorder recorder) {
+        dataSource = new PooledDataSource(BenchmarkDatabase.create("load_jdbc"), PoolConfig.builder()
+                .maximumPoolSize(options.poolSize())
+                .build());
+        studentDao = new StudentDaoImpl(new PoolWaitDataSource(dataSource, recorder));
+    }
+
+    @Override
+    public void read(long id) {
+        studentDao.findById(id);
+    }
+
+    @Override
+    public void write(long id) {
+        studentDao.update(Student.builder()
+                .id(id)
+                .email("load%d@mail.com".formatted(id))
+                .firstName("Roberto")
+                .lastName("Nash")
+                .birthday(LocalDate.of(2001, 1, 1))
+                .scholarship(true)
+                .status(StudentStatus.GRADUATED)
+                .build());
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,103 @@
+package com.verong.demo.database.benchmarks;
+
+import com.verong.demo.database.jdbc.persistence.dao.StudentDao;
+import com.verong.demo.database.jdbc.persistence.dao.StudentDaoImpl;
+import com.verong.demo.database.jdbc.persistence.model.Student;
+import com.verong.demo.database.jdbc.persistence.model.StudentStatus;
+import com.verong.demo.database.jdbc.persistence.pool.PoolConfig;
+import com.verong.demo.database.jdbc.persistence.pool.PooledDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The raw JDBC {@link StudentDao} on top of {@link PooledDataSource} with and without the statement cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JdbcStudentDaoBenchmark {
+
+    @Param({"32", "0"})
+    private int statementCacheSize;
+
+    private PooledDataSource dataSource;
+    private StudentDao studentDao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var database = BenchmarkDatabase.create("jdbc_" + statementCacheSize);
+        dataSource = new PooledDataSource(database, PoolConfig.builder().statementCacheSize(statementCacheSize).build());
+        studentDao = new StudentDaoImpl(dataSource);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Student insert() {
+        var student = newStudent();
+        studentDao.create(student);
+        return student;
+    }
+
+    @Benchmark
+    public Optional<Student> findById() {
+        return studentDao.findById(BenchmarkDatabase.randomId());
+    }
+
+    @Benchmark
+    public void findById100(Blackhole blackhole) {
+        for (Long id : BenchmarkDatabase.randomIds(100)) {
+            blackhole.consume(studentDao.findById(id));
+        }
+    }
+
+    @Benchmark
+    public List<Student> findAll() {
+        return studentDao.findAll();
+    }
+
+    @Benchmark
+    public long streamAll() {
+        try (var students = studentDao.streamAll()) {
+            return students.count();
+        }
+    }
+
+    @Benchmark
+    public long streamAllPartitioned() {
+        try (var students = studentDao.streamAllPartitioned(Runtime.getRuntime().availableProcessors(),
+                StudentDao.DEFAULT_FETCH_SIZE, false)) {
+            return students.count();
+        }
+    }
+
+    @Benchmark
+    public void updateStatus() {
+        var student = newStudent();
+        student.setId(BenchmarkDatabase.randomId());
+        student.setEmail("updated%d@mail.com".formatted(student.getId()));
+        studentDao.update(student);
+    }
+
+    private static Student newStudent() {
+        return Student.builder()
+                .email(BenchmarkDatabase.nextEmail())
+                .firstName("Roberto")
+                .lastName("Nash")
+                .birthday(LocalDate.of(2001, 1, 1))
+                .scholarship(true)
+                .status(StudentStatus.ACTIVE)
+                .build();
+    }
+}
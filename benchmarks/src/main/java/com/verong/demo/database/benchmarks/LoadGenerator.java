@@ -0,0 +1,170 @@
+package com.verong.demo.database.benchmarks;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the operations of a {@link LoadTest} on virtual threads, one per user of the closed model or one per
+ * operation of the open model, and prints the statistics of every report interval while they run.
+ * <p>
+ * Every operation has the time it should have started: its arrival for the open model, its slot for a paced
+ * user of the closed model. Its response time is measured from that time, so an operation delayed by a stall
+ * of the database, the pool or the generator itself is counted as slow instead of being left out.
+ */
+final class LoadGenerator {
+
+    /**
+     * How long after the end of an interval it is reported, so operations that ended just before have been recorded.
+     */
+    private static final long REPORT_GRACE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+
+    private final LoadTestOptions options;
+    private final LoadTarget target;
+    private final LoadRecorder recorder;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    LoadGenerator(LoadTestOptions options, LoadTarget target, LoadRecorder recorder) {
+        this.options = options;
+        this.target = target;
+        this.recorder = recorder;
+    }
+
+    void run(PrintStream out) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + options.warmup().toNanos() + options.duration().toNanos();
+        recorder.start(start);
+        var load = options.model() == LoadModel.OPEN
+                ? Thread.ofPlatform().name("load-arrivals").start(() -> arrive(start, end))
+                : Thread.ofPlatform().name("load-users").start(() -> runUsers(start, end));
+
+        LoadReport.printHeader(out, options);
+        long intervalNanos = options.reportInterval().toNanos();
+        for (int interval = 0; interval < recorder.intervalCount() - 1; interval++) {
+            parkUntil(Math.min(start + (interval + 1) * intervalNanos, end) + REPORT_GRACE_NANOS);
+            LoadReport.printInterval(out, recorder, interval, options.reportInterval(), inFlight.get());
+        }
+        load.join();
+        LoadReport.printSummary(out, options, recorder);
+    }
+
+    /**
+     * The open model: starts operations at the arrival rate until the end, waiting only when
+     * {@code max-in-flight} operations are running. Arrivals still waiting at the end are not started.
+     */
+    private void arrive(long start, long end) {
+        var permits = new Semaphore(options.maxInFlight());
+        double periodNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        long arrivals = (long) Math.ceil((end - start) / periodNanos);
+        for (long arrival = 0; arrival < arrivals; arrival++) {
+            long intendedStart = start + (long) (arrival * periodNanos);
+            if (System.nanoTime() >= end) {
+                recorder.recordNotStarted(arrivals - arrival);
+                break;
+            }
+            parkUntil(intendedStart);
+            permits.acquireUninterruptibly();
+            Thread.ofVirtual().start(() -> {
+                try {
+                    execute(intendedStart);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+        drain(permits);
+    }
+
+    /**
+     * The closed model: every user runs operations one after another, each in its slot when a rate is set.
+     * Slots a paced user is still behind on at the end are not started.
+     */
+    private void runUsers(long start, long end) {
+        int users = options.users();
+        long periodNanos = options.rate() > 0 ? (long) (users * (TimeUnit.SECONDS.toNanos(1) / options.rate())) : 0;
+        long thinkNanos = options.thinkTime().toNanos();
+        var threads = new ArrayList<Thread>(users);
+        for (int user = 0; user < users; user++) {
+            // the slots of the users are spread over the period, so they do not all start at once
+            long firstSlot = start + periodNanos * user / users;
+            threads.add(Thread.ofVirtual().name("load-user-", user).start(() -> {
+                long slot = firstSlot;
+                while (true) {
+                    long intendedStart;
+                    if (periodNanos > 0) {
+                        parkUntil(slot);
+                        intendedStart = slot;
+                        slot += periodNanos;
+                    } else {
+                        intendedStart = System.nanoTime();
+                    }
+                    if (intendedStart >= end) {
+                        return;
+                    }
+                    if (System.nanoTime() >= end) {
+                        // an unpaced user has no slots, it just stops when the time is up
+                        if (periodNanos > 0) {
+                            recorder.recordNotStarted((end - intendedStart + periodNanos - 1) / periodNanos);
+                        }
+                        return;
+                    }
+                    execute(intendedStart);
+                    if (periodNanos == 0 && thinkNanos > 0) {
+                        LockSupport.parkNanos(thinkNanos);
+                    }
+                }
+            }));
+        }
+        for (var thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void execute(long intendedStart) {
+        inFlight.incrementAndGet();
+        var random = ThreadLocalRandom.current();
+        boolean write = random.nextDouble() < options.writeRatio();
+        long id = BenchmarkDatabase.randomId();
+        long start = System.nanoTime();
+        try {
+            if (write) {
+                target.write(id);
+            } else {
+                target.read(id);
+            }
+            recorder.recordSuccess(write, intendedStart, start, System.nanoTime());
+        } catch (RuntimeException e) {
+            recorder.recordError(System.nanoTime(), e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void drain(Semaphore permits) {
+        try {
+            if (!permits.tryAcquire(options.maxInFlight(), DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.printf("%d operations have not ended %d s after the load has stopped%n",
+                        inFlight.get(), DRAIN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void parkUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
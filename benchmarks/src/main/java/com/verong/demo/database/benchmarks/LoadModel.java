@@ -0,0 +1,22 @@
+package com.verong.demo.database.benchmarks;
+
+/**
+ * How {@link LoadGenerator} decides when the next operation starts.
+ */
+enum LoadModel {
+
+    /**
+     * Operations arrive at a fixed rate whatever the latency is, like requests of many independent clients.
+     * A slow database makes operations pile up, and their latency is measured from the time they should have
+     * started, so the queueing is part of it.
+     */
+    OPEN,
+
+    /**
+     * A fixed number of users each run one operation after another, like a pool of workers; a slow database
+     * lowers the throughput. With a rate the users are paced and latency is measured from the time an operation
+     * should have started, so a stall is counted for every operation it has delayed; without a rate a user
+     * starts an operation as soon as the previous one is done and only the service time can be measured.
+     */
+    CLOSED
+}
@@ -0,0 +1,107 @@
+package com.verong.demo.database.benchmarks;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Records every operation in the statistics of the report interval it has ended in, and, after the warm-up, in
+ * the statistics of the whole measurement. An interval is kept until it has been reported, so the memory
+ * does not grow with the duration of a soak test.
+ */
+final class LoadRecorder {
+
+    private final long intervalNanos;
+    private final long warmupNanos;
+    private final AtomicReferenceArray<LoadStats> intervals;
+    private final LoadStats total = new LoadStats();
+    private final AtomicReference<Throwable> firstError = new AtomicReference<>();
+    private volatile long startNanos;
+    private volatile boolean started;
+
+    LoadRecorder(LoadTestOptions options) {
+        this.intervalNanos = options.reportInterval().toNanos();
+        this.warmupNanos = options.warmup().toNanos();
+        long runNanos = warmupNanos + options.duration().toNanos();
+        // one more for the operations still running when the load stops
+        this.intervals = new AtomicReferenceArray<>((int) ((runNanos + intervalNanos - 1) / intervalNanos) + 1);
+    }
+
+    void start(long startNanos) {
+        this.startNanos = startNanos;
+        this.started = true;
+    }
+
+    void recordSuccess(boolean write, long intendedStartNanos, long startNanos, long endNanos) {
+        record(endNanos, stats -> {
+            (write ? stats.writes : stats.reads).increment();
+            stats.responseTime.record(endNanos - intendedStartNanos);
+            stats.serviceTime.record(endNanos - startNanos);
+        });
+    }
+
+    void recordError(long endNanos, Throwable error) {
+        firstError.compareAndSet(null, error);
+        record(endNanos, stats -> stats.errors.increment());
+    }
+
+    /**
+     * Counts operations that should have started before the end but have not, as the load was more than the stack
+     * or the generator could take.
+     */
+    void recordNotStarted(long count) {
+        total.notStarted.add(count);
+    }
+
+    void recordPoolWait(long endNanos, long waitNanos) {
+        record(endNanos, stats -> stats.poolWait.record(waitNanos));
+    }
+
+    /**
+     * Removes and returns the statistics of the interval, empty if nothing ended in it.
+     */
+    LoadStats takeInterval(int index) {
+        var stats = intervals.getAndSet(index, null);
+        return stats == null ? new LoadStats() : stats;
+    }
+
+    int intervalCount() {
+        return intervals.length();
+    }
+
+    boolean isWarmup(int interval) {
+        return (long) interval * intervalNanos < warmupNanos;
+    }
+
+    LoadStats total() {
+        return total;
+    }
+
+    Throwable firstError() {
+        return firstError.get();
+    }
+
+    private void record(long endNanos, Consumer<LoadStats> action) {
+        if (!started) {
+            return;
+        }
+        long elapsed = endNanos - startNanos;
+        if (elapsed < 0) {
+            return;
+        }
+        int index = (int) Math.min(elapsed / intervalNanos, intervals.length() - 1);
+        action.accept(interval(index));
+        if (elapsed >= warmupNanos) {
+            action.accept(total);
+        }
+    }
+
+    private LoadStats interval(int index) {
+        var stats = intervals.get(index);
+        if (stats == null) {
+            intervals.compareAndSet(index, null, new LoadStats());
+            stats = intervals.get(index);
+        }
+        return stats;
+    }
+}
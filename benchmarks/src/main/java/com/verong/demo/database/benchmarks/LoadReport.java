@@ -0,0 +1,91 @@
+package com.verong.demo.database.benchmarks;
+
+import com.verong.demo.database.instrumentation.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+
+/**
+ * Prints the statistics of a {@link LoadTest}: a line per report interval while the load runs and a summary of
+ * the measurement at the end. Times are in milliseconds.
+ */
+final class LoadReport {
+
+    private static final String LINE_FORMAT = "%8s %-7s %10s %8s %9s | %9s %9s %9s %9s | %9s | %9s %9s%n";
+
+    private LoadReport() {
+    }
+
+    static void printHeader(PrintStream out, LoadTestOptions options) {
+        out.printf("Load test of %s, %s model, %s, write ratio %s, pool size %d, warm-up %s, duration %s%n",
+                options.stack(), options.model(), load(options), options.writeRatio(), options.poolSize(),
+                seconds(options.warmup()), seconds(options.duration()));
+        out.printf(LINE_FORMAT, "time", "phase", "ops/s", "errors/s", "in-flight",
+                "resp p50", "p99", "p99.9", "max", "svc p99", "pool p99", "pool max");
+    }
+
+    static void printInterval(PrintStream out, LoadRecorder recorder, int interval, Duration length, int inFlight) {
+        var stats = recorder.takeInterval(interval);
+        var response = stats.responseTime.snapshot();
+        var poolWait = stats.poolWait.snapshot();
+        double seconds = length.toNanos() / 1e9;
+        out.printf(LINE_FORMAT,
+                seconds(length.multipliedBy(interval + 1L)),
+                recorder.isWarmup(interval) ? "warm-up" : "measure",
+                "%.1f".formatted((stats.reads.sum() + stats.writes.sum()) / seconds),
+                "%.1f".formatted(stats.errors.sum() / seconds),
+                inFlight,
+                millis(response.p50()), millis(response.p99()), millis(response.p999()), millis(response.max()),
+                millis(stats.serviceTime.snapshot().p99()),
+                millis(poolWait.p99()), millis(poolWait.max()));
+    }
+
+    static void printSummary(PrintStream out, LoadTestOptions options, LoadRecorder recorder) {
+        var total = recorder.total();
+        long operations = total.operations();
+        long errors = total.errors.sum();
+        double seconds = options.duration().toNanos() / 1e9;
+        out.printf("%nSummary of %s of measurement%n", seconds(options.duration()));
+        out.printf("  operations    %d (%d reads, %d writes), %.1f ops/s%n",
+                operations - errors, total.reads.sum(), total.writes.sum(), (operations - errors) / seconds);
+        out.printf("  errors        %d (%.3f %%)%n", errors, operations == 0 ? 0.0 : 100.0 * errors / operations);
+        if (total.notStarted.sum() > 0) {
+            out.printf("  not started   %d operations were due before the end but never started: the load is more "
+                    + "than the stack or the generator can take%n", total.notStarted.sum());
+        }
+        if (recorder.firstError() != null) {
+            out.printf("  first error   %s%n", recorder.firstError());
+        }
+        out.printf("  %-13s %9s %9s %9s %9s %9s %9s%n", "", "count", "mean", "p50", "p99", "p99.9", "max");
+        printDistribution(out, "response", total.responseTime);
+        printDistribution(out, "service", total.serviceTime);
+        printDistribution(out, "pool wait", total.poolWait);
+        if (options.model() == LoadModel.CLOSED && options.rate() == 0) {
+            out.println("  Unpaced users have no intended start, so the response time is the service time "
+                    + "(not corrected for coordinated omission); set --rate to correct it.");
+        }
+    }
+
+    private static void printDistribution(PrintStream out, String name, LatencyHistogram histogram) {
+        var snapshot = histogram.snapshot();
+        out.printf("  %-13s %9d %9s %9s %9s %9s %9s%n", name, snapshot.count(), millis(snapshot.mean()),
+                millis(snapshot.p50()), millis(snapshot.p99()), millis(snapshot.p999()), millis(snapshot.max()));
+    }
+
+    private static String load(LoadTestOptions options) {
+        if (options.model() == LoadModel.OPEN) {
+            return "%s ops/s (max %d in flight)".formatted(options.rate(), options.maxInFlight());
+        }
+        return options.rate() > 0
+                ? "%d users paced to %s ops/s".formatted(options.users(), options.rate())
+                : "%d users".formatted(options.users());
+    }
+
+    private static String millis(Duration duration) {
+        return "%.3f".formatted(duration.toNanos() / 1e6);
+    }
+
+    private static String seconds(Duration duration) {
+        return "%ds".formatted(duration.toSeconds());
+    }
+}
@@ -0,0 +1,32 @@
+package com.verong.demo.database.benchmarks;
+
+import com.verong.demo.database.instrumentation.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What {@link LoadRecorder} has recorded in one report interval or in the whole measurement. Failed operations
+ * are only counted, so a fast failure does not make the latency look better.
+ */
+final class LoadStats {
+
+    /**
+     * From the time an operation should have started to its end, corrected for coordinated omission.
+     */
+    final LatencyHistogram responseTime = new LatencyHistogram();
+
+    /**
+     * From the time an operation has actually started to its end.
+     */
+    final LatencyHistogram serviceTime = new LatencyHistogram();
+
+    final LatencyHistogram poolWait = new LatencyHistogram();
+    final LongAdder reads = new LongAdder();
+    final LongAdder writes = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LongAdder notStarted = new LongAdder();
+
+    long operations() {
+        return reads.sum() + writes.sum() + errors.sum();
+    }
+}
@@ -0,0 +1,14 @@
+package com.verong.demo.database.benchmarks;
+
+/**
+ * The operations {@link LoadGenerator} runs against one persistence stack.
+ */
+interface LoadTarget extends AutoCloseable {
+
+    void read(long id);
+
+    void write(long id);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,32 @@
+package com.verong.demo.database.benchmarks;
+
+/**
+ * Puts one persistence stack under a mixed read/write load for a while and reports throughput, latency
+ * percentiles, errors and connection pool wait over time, e.g. to size the connection pool or to compare
+ * two builds:
+ * <pre>{@code
+ * java -cp target/benchmarks.jar com.verong.demo.database.benchmarks.LoadTest \
+ *         --stack=spring-data --model=open --rate=5000 --write-ratio=0.2 --pool-size=20 --duration=5m
+ * }</pre>
+ * Every stack runs against its own embedded H2 database filled like the JMH benchmarks, so the numbers show
+ * the cost of the stack and its pool rather than of a real database. See {@link LoadTestOptions#USAGE}
+ * for all options.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadTestOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        var recorder = new LoadRecorder(options);
+        try (var target = options.stack().open(options, recorder)) {
+            new LoadGenerator(options, target, recorder).run(System.out);
+        }
+    }
+}
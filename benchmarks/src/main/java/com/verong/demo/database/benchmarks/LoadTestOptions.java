@@ -0,0 +1,124 @@
+package com.verong.demo.database.benchmarks;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Settings of a {@link LoadTest} run, parsed from {@code --name=value} arguments.
+ *
+ * @param stack          the persistence stack under load
+ * @param model          how operations are started
+ * @param rate           operations per second; required by the open model, paces the users of the closed model
+ *                       when positive
+ * @param users          the number of users (virtual threads) of the closed model
+ * @param maxInFlight    the most operations of the open model running at once; arrivals beyond it wait, and
+ *                       their waiting is part of their latency
+ * @param writeRatio     the share of operations that update a student, the rest read one by id
+ * @param duration       how long the load is measured
+ * @param warmup         how long the load runs before it is measured
+ * @param reportInterval how often a line of statistics is printed
+ * @param poolSize       the maximum size of the connection pool
+ * @param thinkTime      how long a user of the closed model without a rate pauses between operations
+ */
+record LoadTestOptions(
+        LoadTestStack stack,
+        LoadModel model,
+        double rate,
+        int users,
+        int maxInFlight,
+        double writeRatio,
+        Duration duration,
+        Duration warmup,
+        Duration reportInterval,
+        int poolSize,
+        Duration thinkTime
+) {
+
+    static final String USAGE = """
+            Usage: java -cp benchmarks.jar com.verong.demo.database.benchmarks.LoadTest [--name=value]...
+              --stack=jdbc|hibernate|custom-orm|spring-data   the persistence stack (jdbc)
+              --model=open|closed                             fixed arrival rate or fixed number of users (closed)
+              --rate=N                                        operations per second, required by the open model (0)
+              --users=N                                       users of the closed model (64)
+              --max-in-flight=N                               operations of the open model running at once (10000)
+              --write-ratio=R                                 share of updates, 0..1 (0.1)
+              --duration=D                                    measured time, e.g. 60s or 5m (30s)
+              --warmup=D                                      time before the measurement (5s)
+              --report-interval=D                             time between report lines (1s)
+              --pool-size=N                                   maximum connections in the pool (10)
+              --think-time=D                                  pause of an unpaced closed-model user (0s)
+            """;
+
+    LoadTestOptions {
+        if (model == LoadModel.OPEN && rate <= 0) {
+            throw new IllegalArgumentException("The open model needs a positive --rate");
+        }
+        if (rate < 0 || users <= 0 || maxInFlight <= 0 || poolSize <= 0) {
+            throw new IllegalArgumentException("Rate must not be negative, users, max in flight and pool size must be positive");
+        }
+        if (writeRatio < 0 || writeRatio > 1) {
+            throw new IllegalArgumentException("Write ratio must be between 0 and 1, but was %s".formatted(writeRatio));
+        }
+        if (writeRatio > 0 && !stack.supportsWrites()) {
+            throw new IllegalArgumentException("%s has no writes, use --write-ratio=0".formatted(stack));
+        }
+        if (!duration.isPositive() || warmup.isNegative() || !reportInterval.isPositive() || thinkTime.isNegative()) {
+            throw new IllegalArgumentException("Duration and report interval must be positive, warmup and think time must not be negative");
+        }
+    }
+
+    static LoadTestOptions parse(String... args) {
+        var values = new HashMap<String, String>();
+        for (var arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, but was " + arg);
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        var options = new LoadTestOptions(
+                constant(LoadTestStack.class, take(values, "stack", "jdbc")),
+                constant(LoadModel.class, take(values, "model", "closed")),
+                Double.parseDouble(take(values, "rate", "0")),
+                Integer.parseInt(take(values, "users", "64")),
+                Integer.parseInt(take(values, "max-in-flight", "10000")),
+                Double.parseDouble(take(values, "write-ratio", "0.1")),
+                duration(take(values, "duration", "30s")),
+                duration(take(values, "warmup", "5s")),
+                duration(take(values, "report-interval", "1s")),
+                Integer.parseInt(take(values, "pool-size", "10")),
+                duration(take(values, "think-time", "0s")));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + values.keySet());
+        }
+        return options;
+    }
+
+    private static String take(Map<String, String> values, String name, String defaultValue) {
+        var value = values.remove(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private static <E extends Enum<E>> E constant(Class<E> type, String value) {
+        return Enum.valueOf(type, value.toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    /**
+     * Parses a number with the unit {@code ms}, {@code s}, {@code m} or {@code h}.
+     */
+    static Duration duration(String value) {
+        var text = value.trim().toLowerCase(Locale.ROOT);
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        long amount = Long.parseLong(text.substring(0, text.length() - 1));
+        return switch (text.charAt(text.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Expected a duration like 500ms, 30s, 5m or 1h, but was " + value);
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package com.verong.demo.database.benchmarks;
+
+import java.util.function.BiFunction;
+
+/**
+ * A persistence stack {@link LoadTest} can put under load; each one gets its own embedded database.
+ */
+enum LoadTestStack {
+
+    JDBC(JdbcLoadTarget::new, true),
+    HIBERNATE(HibernateLoadTarget::new, true),
+    CUSTOM_ORM(CustomOrmLoadTarget::new, false),
+    SPRING_DATA(SpringDataLoadTarget::new, true);
+
+    private final BiFunction<LoadTestOptions, LoadRecorder, LoadTarget> factory;
+    private final boolean supportsWrites;
+
+    LoadTestStack(BiFunction<LoadTestOptions, LoadRecorder, LoadTarget> factory, boolean supportsWrites) {
+        this.factory = factory;
+        this.supportsWrites = supportsWrites;
+    }
+
+    /**
+     * Creates and fills the database and sets up the stack with a pool whose connection waits go to the recorder.
+     */
+    LoadTarget open(LoadTestOptions options, LoadRecorder recorder) {
+        return factory.apply(options, recorder);
+    }
+
+    boolean supportsWrites() {
+        return supportsWrites;
+    }
+}
@@ -0,0 +1,84 @@
+package com.verong.demo.database.benchmarks;
+
+import com.verong.demo.database.custom.hibernate.persistence.model.Student;
+import com.verong.demo.database.custom.hibernate.persistence.orm.MyEntityManager;
+import com.verong.demo.database.custom.hibernate.persistence.orm.MyEntityManagerConfig;
+import com.verong.demo.database.custom.hibernate.persistence.orm.MyEntityManagerImpl;
+import com.verong.demo.database.jdbc.persistence.pool.PoolConfig;
+import com.verong.demo.database.jdbc.persistence.pool.PooledDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The custom ORM ({@link MyEntityManager}): single and batched lookups, the second-level cache and
+ * coalescing of concurrent lookups. The custom ORM has neither writes nor projections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MyEntityManagerBenchmark {
+
+    private static final int CONCURRENT_THREADS = 16;
+
+    private PooledDataSource dataSource;
+    private MyEntityManager entityManager;
+    private MyEntityManager cachedEntityManager;
+    private MyEntityManager coalescingEntityManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new PooledDataSource(BenchmarkDatabase.create("custom_orm"), PoolConfig.builder().build());
+        entityManager = new MyEntityManagerImpl(dataSource);
+        cachedEntityManager = new MyEntityManagerImpl(dataSource, MyEntityManagerConfig.builder()
+                .secondLevelCacheSize(BenchmarkDatabase.STUDENTS)
+                .build());
+        coalescingEntityManager = new MyEntityManagerImpl(dataSource, MyEntityManagerConfig.builder()
+                .coalescing(true)
+                .build());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Student findById() {
+        return entityManager.findById(Student.class, BenchmarkDatabase.randomId());
+    }
+
+    @Benchmark
+    public void findById100(Blackhole blackhole) {
+        for (Long id : BenchmarkDatabase.randomIds(100)) {
+            blackhole.consume(entityManager.findById(Student.class, id));
+        }
+    }
+
+    @Benchmark
+    public List<Student> findAllById100() {
+        return entityManager.findAllById(Student.class, BenchmarkDatabase.randomIds(100));
+    }
+
+    @Benchmark
+    public Student findByIdSecondLevelCache() {
+        return cachedEntityManager.findById(Student.class, BenchmarkDatabase.randomId());
+    }
+
+    @Benchmark
+    @Threads(CONCURRENT_THREADS)
+    public Student findByIdConcurrent() {
+        return entityManager.findById(Student.class, BenchmarkDatabase.randomId());
+    }
+
+    @Benchmark
+    @Threads(CONCURRENT_THREADS)
+    public Student findByIdConcurrentCoalesced() {
+        return coalescingEntityManager.findById(Student.class, BenchmarkDatabase.randomId());
+    }
+}
@@ -0,0 +1,32 @@
+package com.verong.demo.database.benchmarks;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Measures how long {@link #getConnection()} of the connection pool takes, which under load is the time spent
+ * waiting for a free connection.
+ */
+final class PoolWaitDataSource extends DelegatingDataSource {
+
+    private final LoadRecorder recorder;
+
+    PoolWaitDataSource(DataSource pool, LoadRecorder recorder) {
+        super(pool);
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return super.getConnection();
+        } finally {
+            long end = System.nanoTime();
+            recorder.recordPoolWait(end, end - start);
+        }
+    }
+}
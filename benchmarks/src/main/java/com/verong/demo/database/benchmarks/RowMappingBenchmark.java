@@ -0,0 +1,119 @@
+package com.verong.demo.database.benchmarks;
+
+import com.verong.demo.database.custom.hibernate.persistence.model.Student;
+import com.verong.demo.database.custom.hibernate.persistence.model.StudentStatus;
+import com.verong.demo.database.custom.hibernate.persistence.model.Student_MyMapper;
+import com.verong.demo.database.custom.hibernate.persistence.orm.mapper.EntityMapper;
+import com.verong.demo.database.custom.hibernate.persistence.orm.mapper.RuntimeEntityMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of a single, already fetched row to {@link Student}: reflection resolving fields on every call,
+ * reflection with cached fields, {@link RuntimeEntityMapper} and the compile-time generated {@link Student_MyMapper}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    private static final String[] COLUMNS = {"id", "email", "first_name", "last_name", "birthday", "scholarship", "status"};
+
+    private static final String SELECT_ROW_SQL = """
+            SELECT CAST(1 AS BIGINT) AS id, 'student1@mail.com' AS email, 'Roberto' AS first_name, 'Nash' AS last_name,
+                   DATE '2001-01-01' AS birthday, TRUE AS scholarship, 'ACTIVE' AS status""";
+
+    private Connection connection;
+    private ResultSet resultSet;
+    private Field[] cachedFields;
+    private EntityMapper<Student> runtimeMapper;
+    private EntityMapper<Student> generatedMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(BenchmarkDatabase.url("row_mapping"), "sa", "");
+        resultSet = connection.createStatement().executeQuery(SELECT_ROW_SQL);
+        resultSet.next();
+        cachedFields = fieldsOf(Student.class);
+        runtimeMapper = RuntimeEntityMapper.of(Student.class);
+        generatedMapper = new Student_MyMapper();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public Student reflection() throws Exception {
+        return mapWithReflection(resultSet, fieldsOf(Student.class));
+    }
+
+    @Benchmark
+    public Student reflectionCachedFields() throws Exception {
+        return mapWithReflection(resultSet, cachedFields);
+    }
+
+    @Benchmark
+    public Student runtimeMapper() throws SQLException {
+        return runtimeMapper.mapRow(resultSet);
+    }
+
+    @Benchmark
+    public Student generatedMapper() throws SQLException {
+        return generatedMapper.mapRow(resultSet);
+    }
+
+    private static Field[] fieldsOf(Class<?> type) {
+        var fields = new Field[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            try {
+                fields[i] = type.getDeclaredField(toCamelCase(COLUMNS[i]));
+                fields[i].setAccessible(true);
+            } catch (NoSuchFieldException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return fields;
+    }
+
+    private static Student mapWithReflection(ResultSet resultSet, Field[] fields) throws Exception {
+        var student = Student.class.getDeclaredConstructor().newInstance();
+        for (int i = 0; i < fields.length; i++) {
+            var field = fields[i];
+            Object value = resultSet.getObject(COLUMNS[i]);
+            if (field.getType() == LocalDate.class) {
+                value = ((Date) value).toLocalDate();
+            } else if (field.getType() == StudentStatus.class) {
+                value = StudentStatus.valueOf((String) value);
+            }
+            field.set(student, value);
+        }
+        return student;
+    }
+
+    private static String toCamelCase(String column) {
+        var name = new StringBuilder();
+        boolean upper = false;
+        for (char c : column.toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                name.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+}
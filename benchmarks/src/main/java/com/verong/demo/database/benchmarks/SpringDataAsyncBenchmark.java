@@ -0,0 +1,84 @@
+package com.verong.demo.database.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.verong.demo.database.spring.data.jpa.Application;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.StudentRepository;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.async.AsyncStudentRepository;
+
+import javax.sql.DataSource;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A load test of {@link AsyncStudentRepository}: every operation is a request handler that needs {@code fanOut}
+ * students, running on {@value #HANDLERS} threads at once. The synchronous handler looks the students up one after
+ * another, the asynchronous one starts all lookups at once and joins them, bounded by the pool of
+ * {@value #POOL_SIZE} connections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(SpringDataAsyncBenchmark.HANDLERS)
+public class SpringDataAsyncBenchmark {
+
+    static final int HANDLERS = 8;
+    private static final int POOL_SIZE = 10;
+
+    @Param({"1", "4", "16"})
+    private int fanOut;
+
+    private ConfigurableApplicationContext context;
+    private StudentRepository studentRepository;
+    private AsyncStudentRepository asyncStudentRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "spring.datasource.url=" + BenchmarkDatabase.url("spring_data_async"),
+                        "spring.datasource.username=sa",
+                        "spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                        "spring.jpa.hibernate.ddl-auto=none",
+                        "spring.jpa.open-in-view=false")
+                .run();
+        BenchmarkDatabase.seed(context.getBean(DataSource.class), BenchmarkDatabase.STUDENTS);
+        studentRepository = context.getBean(StudentRepository.class);
+        asyncStudentRepository = context.getBean(AsyncStudentRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        for (int i = 0; i < fanOut; i++) {
+            blackhole.consume(studentRepository.findById(BenchmarkDatabase.randomId()));
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void async(Blackhole blackhole) {
+        var lookups = new CompletableFuture[fanOut];
+        for (int i = 0; i < fanOut; i++) {
+            lookups[i] = asyncStudentRepository.findById(BenchmarkDatabase.randomId());
+        }
+        CompletableFuture.allOf(lookups).join();
+        for (CompletableFuture<Optional<Student>> lookup : lookups) {
+            blackhole.consume(lookup.join());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.verong.demo.database.benchmarks;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.verong.demo.database.spring.data.jpa.Application;
+import org.verong.demo.database.spring.data.jpa.persistence.model.StudentStatus;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.StudentRepository;
+
+import javax.sql.DataSource;
+
+/**
+ * {@link StudentRepository} in a Spring Boot context with HikariCP; a write loads a student and changes its status
+ * in one transaction.
+ */
+final class SpringDataLoadTarget implements LoadTarget {
+
+    private final ConfigurableApplicationContext context;
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    SpringDataLoadTarget(LoadTestOptions options, LoadRecorder recorder) {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .initializers(context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+                    @Override
+                    public Object postProcessAfterInitialization(Object bean, String beanName) {
+                        return "dataSource".equals(beanName) && bean instanceof DataSource pool
+                                ? new PoolWaitDataSource(pool, recorder)
+                                : bean;
+                    }
+                }))
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=warn",
+                        "spring.datasource.url=" + BenchmarkDatabase.url("load_spring_data"),
+                        "spring.datasource.username=sa",
+                        "spring.datasource.hikari.maximum-pool-size=" + options.poolSize(),
+                        "spring.jpa.hibernate.ddl-auto=none",
+                        "spring.jpa.open-in-view=false")
+                .run();
+        BenchmarkDatabase.seed(context.getBean(DataSource.class), BenchmarkDatabase.STUDENTS);
+        studentRepository = context.getBean(StudentRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+    }
+
+    @Override
+    public void read(long id) {
+        studentRepository.findById(id);
+    }
+
+    @Override
+    public void write(long id) {
+        transactionTemplate.executeWithoutResult(status -> studentRepository.findById(id)
+                .orElseThrow()
+                .setStatus(StudentStatus.GRADUATED));
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
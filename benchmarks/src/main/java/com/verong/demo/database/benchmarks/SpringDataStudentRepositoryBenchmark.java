@@ -0,0 +1,112 @@
+package com.verong.demo.database.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.verong.demo.database.spring.data.jpa.Application;
+import org.verong.demo.database.spring.data.jpa.persistence.dto.StudentIdAndNameDto;
+import org.verong.demo.database.spring.data.jpa.persistence.model.Student;
+import org.verong.demo.database.spring.data.jpa.persistence.model.StudentStatus;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.EntityManagerStudentRepository;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.JdbcTemplateStudentRepository;
+import org.verong.demo.database.spring.data.jpa.persistence.repository.StudentRepository;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Spring Data module: {@link StudentRepository}, {@link EntityManagerStudentRepository} and
+ * {@link JdbcTemplateStudentRepository} in a Spring Boot context with its default HikariCP pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpringDataStudentRepositoryBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private StudentRepository studentRepository;
+    private EntityManagerStudentRepository entityManagerStudentRepository;
+    private JdbcTemplateStudentRepository jdbcTemplateStudentRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=warn",
+                        "spring.datasource.url=" + BenchmarkDatabase.url("spring_data"),
+                        "spring.datasource.username=sa",
+                        "spring.jpa.hibernate.ddl-auto=none",
+                        "spring.jpa.open-in-view=false")
+                .run();
+        BenchmarkDatabase.seed(context.getBean(DataSource.class), BenchmarkDatabase.STUDENTS);
+        studentRepository = context.getBean(StudentRepository.class);
+        entityManagerStudentRepository = context.getBean(EntityManagerStudentRepository.class);
+        jdbcTemplateStudentRepository = context.getBean(JdbcTemplateStudentRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Student insert() {
+        return studentRepository.save(Student.builder()
+                .email(BenchmarkDatabase.nextEmail())
+                .firstName("Roberto")
+                .lastName("Nash")
+                .birthday(LocalDate.of(2001, 1, 1))
+                .scholarship(true)
+                .status(StudentStatus.ACTIVE)
+                .build());
+    }
+
+    @Benchmark
+    public Optional<Student> findById() {
+        return studentRepository.findById(BenchmarkDatabase.randomId());
+    }
+
+    @Benchmark
+    public List<Student> findAllById100() {
+        return studentRepository.findAllById(BenchmarkDatabase.randomIds(100));
+    }
+
+    @Benchmark
+    public List<Student> findAll() {
+        return studentRepository.findAll();
+    }
+
+    @Benchmark
+    public List<StudentIdAndNameDto> findByScholarshipUsingJPQL() {
+        return entityManagerStudentRepository.findByScholarshipUsingJPQL(true);
+    }
+
+    @Benchmark
+    public List<StudentIdAndNameDto> findByScholarshipUsingCriteriaApi() {
+        return entityManagerStudentRepository.findByScholarshipUsingCriteriaApi(true);
+    }
+
+    @Benchmark
+    public List<StudentIdAndNameDto> findByScholarshipUsingSQL() {
+        return jdbcTemplateStudentRepository.findByScholarshipUsingSQL(true);
+    }
+
+    @Benchmark
+    public void updateStatus() {
+        transactionTemplate.executeWithoutResult(status -> studentRepository.findById(BenchmarkDatabase.randomId())
+                .orElseThrow()
+                .setStatus(StudentStatus.GRADUATED));
+    }
+}
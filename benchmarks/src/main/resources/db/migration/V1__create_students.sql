@@ -0,0 +1,12 @@
+CREATE TABLE students
+(
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email       VARCHAR(255) NOT NULL UNIQUE,
+    first_name  VARCHAR(255),
+    last_name   VARCHAR(255),
+    birthday    DATE,
+    scholarship BOOLEAN,
+    status      VARCHAR(32)
+);
+
+CREATE INDEX students_scholarship_idx ON students (scholarship);
@@ -0,0 +1 @@
+CREATE INDEX students_last_name_id_idx ON students (last_name, id);
@@ -0,0 +1 @@
+ALTER TABLE students ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,6 @@
+-- Ids come from a sequence that Hibernate reserves in blocks of 50 (a pooled generator), so it can batch its inserts;
+-- an insert that leaves the id to its default takes the last id of a block, which no generator hands out again
+CREATE SEQUENCE students_id_seq INCREMENT BY 50;
+ALTER SEQUENCE students_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM students);
+ALTER TABLE students ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE students ALTER COLUMN id SET DEFAULT NEXT VALUE FOR students_id_seq;
@@ -0,0 +1,37 @@
+package com.verong.demo.database.instrumentation;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Settings of {@link InstrumentedDataSource}. All settings have defaults that are cheap enough to be left on
+ * in production.
+ */
+@Value
+@Builder
+public class InstrumentationConfig {
+
+    /**
+     * A statement that runs at least this long is logged as a slow query. {@link Duration#ZERO} disables the log.
+     */
+    @Builder.Default
+    Duration slowQueryThreshold = Duration.ofMillis(100);
+
+    /**
+     * A query of the same shape executed this many times on one connection is reported as a possible N+1 problem:
+     * a connection that is borrowed for one transaction or session is one unit of work. {@code 0} disables
+     * the detection.
+     */
+    @Builder.Default
+    int nPlusOneThreshold = 10;
+
+    /**
+     * The maximum number of statement shapes that are measured separately; statements of further shapes are
+     * measured together under {@link SqlShapes#OTHER}, so an application that builds SQL with literals cannot
+     * exhaust the memory.
+     */
+    @Builder.Default
+    int maxShapes = 500;
+}
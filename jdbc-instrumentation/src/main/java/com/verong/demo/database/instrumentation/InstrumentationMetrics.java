@@ -0,0 +1,12 @@
+package com.verong.demo.database.instrumentation;
+
+import java.util.List;
+
+/**
+ * A snapshot of the measurements of {@link InstrumentedDataSource}.
+ *
+ * @param connectionAcquire the time {@code getConnection()} of the target data source has taken
+ * @param queries           statement shapes, the ones with the largest total time first
+ */
+public record InstrumentationMetrics(LatencyHistogram.Snapshot connectionAcquire, List<QueryStatistics> queries) {
+}
@@ -0,0 +1,149 @@
+package com.verong.demo.database.instrumentation;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+/**
+ * A {@link DataSource} wrapper that measures every statement executed through its connections, whatever
+ * stack executes them (plain JDBC, Hibernate, Spring):
+ * <ul>
+ *     <li>a latency histogram (p50, p99, p999, max) and the number of rows per statement shape, see {@link SqlShapes};</li>
+ *     <li>the time it takes to get a connection from the target data source (e.g. waiting for a pool);</li>
+ *     <li>statements slower than {@link InstrumentationConfig#getSlowQueryThreshold()} are logged;</li>
+ *     <li>a query repeated {@link InstrumentationConfig#getNPlusOneThreshold()} times on one connection is logged
+ *     as a possible N+1 problem (e.g. {@code findById} called in a loop instead of one query for all ids).</li>
+ * </ul>
+ * A statement costs two {@link System#nanoTime()} calls and a few atomic increments on top of delegation,
+ * so the wrapper can be left on in production. Measurements are read with {@link #getMetrics()}.
+ */
+public class InstrumentedDataSource implements DataSource, AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(InstrumentedDataSource.class.getName());
+
+    private final DataSource target;
+    private final InstrumentationConfig config;
+    private final SqlShapes shapes;
+    private final LatencyHistogram connectionAcquire = new LatencyHistogram();
+    private final long slowQueryThresholdNanos;
+
+    public InstrumentedDataSource(DataSource target, InstrumentationConfig config) {
+        Objects.requireNonNull(target, "Target DataSource must not be null");
+        Objects.requireNonNull(config, "Instrumentation config must not be null");
+        if (config.getNPlusOneThreshold() < 0 || config.getMaxShapes() <= 0 || config.getSlowQueryThreshold().isNegative()) {
+            throw new IllegalArgumentException("Invalid instrumentation config: %s".formatted(config));
+        }
+        this.target = target;
+        this.config = config;
+        this.shapes = new SqlShapes(config.getMaxShapes());
+        this.slowQueryThresholdNanos = config.getSlowQueryThreshold().isZero()
+                ? Long.MAX_VALUE
+                : config.getSlowQueryThreshold().toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        var connection = target.getConnection();
+        connectionAcquire.record(System.nanoTime() - start);
+        return new InstrumentedConnection(connection, this);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        var connection = target.getConnection(username, password);
+        connectionAcquire.record(System.nanoTime() - start);
+        return new InstrumentedConnection(connection, this);
+    }
+
+    /**
+     * Returns the measurements taken since this data source has been created.
+     */
+    public InstrumentationMetrics getMetrics() {
+        var queries = shapes.all().stream()
+                .map(StatementStatistics::snapshot)
+                .sorted(Comparator.comparingDouble((QueryStatistics query) ->
+                        query.latency().mean().toNanos() * (double) query.executions()).reversed())
+                .toList();
+        return new InstrumentationMetrics(connectionAcquire.snapshot(), queries);
+    }
+
+    public DataSource getTarget() {
+        return target;
+    }
+
+    /**
+     * Closes the target data source if it can be closed (e.g. a connection pool).
+     */
+    @Override
+    public void close() throws Exception {
+        if (target instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    StatementStatistics statisticsOf(String sql) {
+        return shapes.statisticsOf(sql);
+    }
+
+    int nPlusOneThreshold() {
+        return config.getNPlusOneThreshold();
+    }
+
+    void recordExecution(StatementStatistics statistics, long nanos, boolean failed) {
+        boolean slow = nanos >= slowQueryThresholdNanos;
+        statistics.recordExecution(nanos, failed, slow);
+        if (slow) {
+            LOGGER.log(System.Logger.Level.WARNING, "Slow query (%d ms): %s"
+                    .formatted(Duration.ofNanos(nanos).toMillis(), statistics.shape()));
+        }
+    }
+
+    void reportNPlusOne(StatementStatistics statistics) {
+        statistics.recordNPlusOne();
+        LOGGER.log(System.Logger.Level.WARNING, "Possible N+1 problem: the query has been executed %d times on one connection, consider fetching all rows at once: %s"
+                .formatted(config.getNPlusOneThreshold(), statistics.shape()));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return target.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        target.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        target.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return target.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return target.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+}
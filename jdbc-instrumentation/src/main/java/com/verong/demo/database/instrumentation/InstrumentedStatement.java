@@ -0,0 +1,405 @@
+package com.verong.demo.database.instrumentation;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+/**
+ * A {@link Statement} created by a connection of {@link InstrumentedDataSource}: every execution is timed, and the
+ * rows of its result sets (see {@link InstrumentedResultSet}) or its update counts are added to the statistics of
+ * the statement shape. All other calls are delegated to the physical statement.
+ * <p>
+ * The JDBC wrappers of this package are plain delegating classes rather than dynamic proxies: reflective dispatch
+ * boxes every argument and result, which doubled the cost of reading a large result set.
+ */
+class InstrumentedStatement implements Statement {
+
+    private final Statement statement;
+    private final StatementStatistics preparedStatistics;
+    final InstrumentedConnection connection;
+    private StatementStatistics lastStatistics;
+    private StatementStatistics batchStatistics;
+    /**
+     * Whether the update count of the current result has been added to {@link #lastStatistics}: by
+     * {@code executeUpdate} or a batch, or by the first {@code getUpdateCount()} after {@code execute}. Callers such
+     * as Spring and Flyway read the count more than once, and it must be counted once per result.
+     */
+    private boolean updateCountRecorded;
+
+    InstrumentedStatement(Statement statement, StatementStatistics preparedStatistics,
+                          InstrumentedConnection connection) {
+        this.statement = statement;
+        this.preparedStatistics = preparedStatistics;
+        this.connection = connection;
+    }
+
+    @FunctionalInterface
+    interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    <T> T timed(StatementStatistics statistics, SqlCall<T> call) throws SQLException {
+        lastStatistics = statistics;
+        updateCountRecorded = false;
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.call();
+        } catch (SQLException | RuntimeException e) {
+            connection.recordExecution(statistics, System.nanoTime() - start, true);
+            throw e;
+        }
+        connection.recordExecution(statistics, System.nanoTime() - start, false);
+        return result;
+    }
+
+    ResultSet timedQuery(StatementStatistics statistics, SqlCall<ResultSet> call) throws SQLException {
+        return wrap(timed(statistics, call), statistics);
+    }
+
+    int timedUpdate(StatementStatistics statistics, SqlCall<Integer> call) throws SQLException {
+        int rows = timed(statistics, call);
+        statistics.addRows(rows);
+        updateCountRecorded = true;
+        return rows;
+    }
+
+    long timedLargeUpdate(StatementStatistics statistics, SqlCall<Long> call) throws SQLException {
+        long rows = timed(statistics, call);
+        statistics.addRows(rows);
+        updateCountRecorded = true;
+        return rows;
+    }
+
+    private ResultSet wrap(ResultSet resultSet, StatementStatistics statistics) {
+        return resultSet == null ? null : new InstrumentedResultSet(resultSet, this, statistics);
+    }
+
+    private StatementStatistics takeBatchStatistics() {
+        var statistics = batchStatistics != null ? batchStatistics : preparedStatistics;
+        batchStatistics = null;
+        return statistics;
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        return timedQuery(connection.statisticsOf(sql), () -> statement.executeQuery(sql));
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        return timedUpdate(connection.statisticsOf(sql), () -> statement.executeUpdate(sql));
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return timedUpdate(connection.statisticsOf(sql), () -> statement.executeUpdate(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return timedUpdate(connection.statisticsOf(sql), () -> statement.executeUpdate(sql, columnIndexes));
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        return timedUpdate(connection.statisticsOf(sql), () -> statement.executeUpdate(sql, columnNames));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        return timedLargeUpdate(connection.statisticsOf(sql), () -> statement.executeLargeUpdate(sql));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return timedLargeUpdate(connection.statisticsOf(sql), () -> statement.executeLargeUpdate(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return timedLargeUpdate(connection.statisticsOf(sql), () -> statement.executeLargeUpdate(sql, columnIndexes));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        return timedLargeUpdate(connection.statisticsOf(sql), () -> statement.executeLargeUpdate(sql, columnNames));
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        return timed(connection.statisticsOf(sql), () -> statement.execute(sql));
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        return timed(connection.statisticsOf(sql), () -> statement.execute(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        return timed(connection.statisticsOf(sql), () -> statement.execute(sql, columnIndexes));
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        return timed(connection.statisticsOf(sql), () -> statement.execute(sql, columnNames));
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        if (batchStatistics == null) {
+            batchStatistics = connection.statisticsOf(sql);
+        }
+        statement.addBatch(sql);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        batchStatistics = null;
+        statement.clearBatch();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        var statistics = takeBatchStatistics();
+        if (statistics == null) {
+            return statement.executeBatch();
+        }
+        int[] counts = timed(statistics, statement::executeBatch);
+        for (int count : counts) {
+            statistics.addRows(count);
+        }
+        updateCountRecorded = true;
+        return counts;
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        var statistics = takeBatchStatistics();
+        if (statistics == null) {
+            return statement.executeLargeBatch();
+        }
+        long[] counts = timed(statistics, statement::executeLargeBatch);
+        for (long count : counts) {
+            statistics.addRows(count);
+        }
+        updateCountRecorded = true;
+        return counts;
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        int updateCount = statement.getUpdateCount();
+        recordUpdateCount(updateCount);
+        return updateCount;
+    }
+
+    @Override
+    public long getLargeUpdateCount() throws SQLException {
+        long updateCount = statement.getLargeUpdateCount();
+        recordUpdateCount(updateCount);
+        return updateCount;
+    }
+
+    private void recordUpdateCount(long updateCount) {
+        if (!updateCountRecorded && lastStatistics != null) {
+            lastStatistics.addRows(updateCount);
+            updateCountRecorded = true;
+        }
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return wrap(statement.getResultSet(), lastStatistics);
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return wrap(statement.getGeneratedKeys(), null);
+    }
+
+    @Override
+    public Connection getConnection() {
+        return connection;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : statement.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || statement.isWrapperFor(iface);
+    }
+
+    @Override
+    public String toString() {
+        return "InstrumentedStatement[%s]".formatted(statement);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        statement.close();
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        return statement.getMaxFieldSize();
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        statement.setMaxFieldSize(max);
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return statement.getMaxRows();
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        statement.setMaxRows(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        statement.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return statement.getQueryTimeout();
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        statement.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        statement.cancel();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return statement.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        statement.clearWarnings();
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        statement.setCursorName(name);
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        updateCountRecorded = false;
+        return statement.getMoreResults();
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        statement.setFetchDirection(direction);
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return statement.getFetchDirection();
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        statement.setFetchSize(rows);
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return statement.getFetchSize();
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        return statement.getResultSetConcurrency();
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        return statement.getResultSetType();
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        updateCountRecorded = false;
+        return statement.getMoreResults(current);
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        return statement.getResultSetHoldability();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return statement.isClosed();
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        statement.setPoolable(poolable);
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        return statement.isPoolable();
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        statement.closeOnCompletion();
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        return statement.isCloseOnCompletion();
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        statement.setLargeMaxRows(max);
+    }
+
+    @Override
+    public long getLargeMaxRows() throws SQLException {
+        return statement.getLargeMaxRows();
+    }
+
+    @Override
+    public String enquoteLiteral(String val) throws SQLException {
+        return statement.enquoteLiteral(val);
+    }
+
+    @Override
+    public String enquoteIdentifier(String identifier, boolean alwaysQuote) throws SQLException {
+        return statement.enquoteIdentifier(identifier, alwaysQuote);
+    }
+
+    @Override
+    public boolean isSimpleIdentifier(String identifier) throws SQLException {
+        return statement.isSimpleIdentifier(identifier);
+    }
+
+    @Override
+    public String enquoteNCharLiteral(String val) throws SQLException {
+        return statement.enquoteNCharLiteral(val);
+    }
+}
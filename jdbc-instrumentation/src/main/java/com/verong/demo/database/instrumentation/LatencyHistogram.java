@@ -0,0 +1,111 @@
+package com.verong.demo.database.instrumentation;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds with log-linear buckets, the same layout HdrHistogram uses:
+ * every power of two is split into {@value #SUB_BUCKET_HALF} buckets, so a percentile is reported with an error
+ * of at most ~3% whatever the magnitude of the value is. Recording is one array increment and a few adders,
+ * and the memory is fixed (~10 KB) however many values are recorded.
+ * <p>
+ * Values above ~9 hours are counted in the last bucket.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    private static final int MAX_BUCKET = 45 - SUB_BUCKET_BITS;
+    private static final int LENGTH = (MAX_BUCKET + 1) * SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(LENGTH);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the values recorded so far; recording may go on while a snapshot is being taken.
+     */
+    public Snapshot snapshot() {
+        var snapshot = new long[LENGTH];
+        long total = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        long maxValue = max.get();
+        return new Snapshot(total, total == 0 ? Duration.ZERO : Duration.ofNanos(sum.sum() / Math.max(1, count.sum())),
+                valueAt(snapshot, total, 0.50, maxValue), valueAt(snapshot, total, 0.99, maxValue),
+                valueAt(snapshot, total, 0.999, maxValue), Duration.ofNanos(maxValue));
+    }
+
+    static int indexOf(long value) {
+        int bucket = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1));
+        if (bucket > MAX_BUCKET) {
+            return LENGTH - 1;
+        }
+        int subBucket = (int) (value >>> bucket);
+        return bucket == 0 ? subBucket : (bucket + 1) * SUB_BUCKET_HALF + subBucket - SUB_BUCKET_HALF;
+    }
+
+    /**
+     * Returns the highest value that is counted in the bucket.
+     */
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int bucket = index / SUB_BUCKET_HALF - 1;
+        long subBucket = index % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << bucket) - 1;
+    }
+
+    /**
+     * A bucket is reported by its highest value, which may exceed the largest value actually recorded in it.
+     */
+    private static Duration valueAt(long[] counts, long total, double percentile, long max) {
+        if (total == 0) {
+            return Duration.ZERO;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Duration.ofNanos(Math.min(highestValueAt(i), max));
+            }
+        }
+        return Duration.ofNanos(max);
+    }
+
+    /**
+     * The distribution of recorded durations.
+     *
+     * @param count the number of recorded values
+     * @param mean  the mean of recorded values
+     * @param p50   the median
+     * @param p99   the 99th percentile
+     * @param p999  the 99.9th percentile
+     * @param max   the largest recorded value (exact, not bucketed)
+     */
+    public record Snapshot(long count, Duration mean, Duration p50, Duration p99, Duration p999, Duration max) {
+    }
+}
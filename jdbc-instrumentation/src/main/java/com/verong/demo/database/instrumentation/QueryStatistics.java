@@ -0,0 +1,27 @@
+package com.verong.demo.database.instrumentation;
+
+/**
+ * Measurements of all statements of one shape (SQL text with literals replaced by {@code ?}) since
+ * {@link InstrumentedDataSource} has been created.
+ *
+ * @param shape              the normalized SQL text
+ * @param latency            the time of executions (without reading the rows of a result)
+ * @param rows               rows returned by queries or changed by updates
+ * @param errors             executions that have thrown an exception
+ * @param slowExecutions     executions that have reached {@link InstrumentationConfig#getSlowQueryThreshold()}
+ * @param nPlusOneDetections units of work (connections) that have executed the query at least
+ *                           {@link InstrumentationConfig#getNPlusOneThreshold()} times
+ */
+public record QueryStatistics(
+        String shape,
+        LatencyHistogram.Snapshot latency,
+        long rows,
+        long errors,
+        long slowExecutions,
+        long nPlusOneDetections
+) {
+
+    public long executions() {
+        return latency.count();
+    }
+}
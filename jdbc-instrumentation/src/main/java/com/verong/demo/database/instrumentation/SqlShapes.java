@@ -0,0 +1,68 @@
+package com.verong.demo.database.instrumentation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Maps SQL text to its shape: literals are replaced with {@code ?}, lists of parameters are collapsed and whitespace
+ * is normalized, so {@code where id = 1} and {@code where id = 2} are measured as one statement. Every text is
+ * normalized once; after that a statement is resolved with a single map lookup.
+ */
+final class SqlShapes {
+
+    static final String OTHER = "<other>";
+
+    private static final int MAX_CACHED_TEXTS = 10_000;
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.\"])[-+]?\\d+(?:\\.\\d+)?(?:[eE][-+]?\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int maxShapes;
+    private final Map<String, StatementStatistics> byText = new ConcurrentHashMap<>();
+    private final Map<String, StatementStatistics> byShape = new ConcurrentHashMap<>();
+    private final StatementStatistics other = new StatementStatistics(OTHER);
+
+    SqlShapes(int maxShapes) {
+        this.maxShapes = maxShapes;
+    }
+
+    /**
+     * Returns the statistics of the shape of the text.
+     */
+    StatementStatistics statisticsOf(String sql) {
+        var statistics = byText.get(sql);
+        if (statistics != null) {
+            return statistics;
+        }
+        var shape = shapeOf(sql);
+        statistics = byShape.get(shape);
+        if (statistics == null) {
+            statistics = byShape.size() < maxShapes
+                    ? byShape.computeIfAbsent(shape, StatementStatistics::new)
+                    : other;
+        }
+        if (byText.size() < MAX_CACHED_TEXTS) {
+            byText.put(sql, statistics);
+        }
+        return statistics;
+    }
+
+    List<StatementStatistics> all() {
+        var all = new ArrayList<>(byShape.values());
+        if (other.executions() > 0) {
+            all.add(other);
+        }
+        return all;
+    }
+
+    static String shapeOf(String sql) {
+        var shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").strip();
+        return PARAMETER_LIST.matcher(shape).replaceAll("(?, ...)");
+    }
+}
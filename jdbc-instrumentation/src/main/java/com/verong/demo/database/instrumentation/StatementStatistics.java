@@ -0,0 +1,63 @@
+package com.verong.demo.database.instrumentation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates measurements of one statement shape; all methods can be called from many threads at once.
+ */
+final class StatementStatistics {
+
+    private final String shape;
+    private final boolean query;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder slowExecutions = new LongAdder();
+    private final LongAdder nPlusOneDetections = new LongAdder();
+
+    StatementStatistics(String shape) {
+        this.shape = shape;
+        var start = shape.stripLeading();
+        this.query = start.regionMatches(true, 0, "select", 0, 6) || start.regionMatches(true, 0, "with", 0, 4);
+    }
+
+    String shape() {
+        return shape;
+    }
+
+    /**
+     * Whether the statement reads rows; only queries are checked for N+1 problems.
+     */
+    boolean isQuery() {
+        return query;
+    }
+
+    long executions() {
+        return latency.count();
+    }
+
+    void recordExecution(long nanos, boolean failed, boolean slow) {
+        latency.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+        if (slow) {
+            slowExecutions.increment();
+        }
+    }
+
+    void addRows(long count) {
+        if (count > 0) {
+            rows.add(count);
+        }
+    }
+
+    void recordNPlusOne() {
+        nPlusOneDetections.increment();
+    }
+
+    QueryStatistics snapshot() {
+        return new QueryStatistics(shape, latency.snapshot(), rows.sum(), errors.sum(), slowExecutions.sum(),
+                nPlusOneDetections.sum());
+    }
+}
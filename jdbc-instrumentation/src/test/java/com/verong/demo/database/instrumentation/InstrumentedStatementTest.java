@@ -0,0 +1,118 @@
+package com.verong.demo.database.instrumentation;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the executions and rows that {@link InstrumentedDataSource} records for the statements of an in-memory
+ * database with three students.
+ */
+class InstrumentedStatementTest {
+
+    private static final String UPDATE_SQL = "UPDATE students SET scholarship = TRUE WHERE id > ?";
+
+    private InstrumentedDataSource dataSource;
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        var target = new JdbcDataSource();
+        target.setURL("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID()));
+        dataSource = new InstrumentedDataSource(target, InstrumentationConfig.builder().build());
+        connection = dataSource.getConnection();
+        try (var setup = target.getConnection();
+             var statement = setup.createStatement()) {
+            statement.execute("CREATE TABLE students (id BIGINT PRIMARY KEY, scholarship BOOLEAN)");
+            statement.execute("INSERT INTO students VALUES (1, FALSE), (2, FALSE), (3, FALSE)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connection.close();
+        dataSource.close();
+    }
+
+    @Test
+    void rowsOfAResultSetAreCounted() throws SQLException {
+        try (var statement = connection.prepareStatement("SELECT id FROM students WHERE id > ?")) {
+            statement.setLong(1, 1);
+            try (var resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    resultSet.getLong(1);
+                }
+            }
+        }
+
+        var query = statisticsOf("SELECT id FROM students WHERE id > ?");
+        assertEquals(1, query.executions());
+        assertEquals(2, query.rows());
+    }
+
+    @Test
+    void updateCountReadAfterExecuteUpdateIsNotCountedAgain() throws SQLException {
+        try (var statement = connection.prepareStatement(UPDATE_SQL)) {
+            statement.setLong(1, 1);
+            assertEquals(2, statement.executeUpdate());
+            assertEquals(2, statement.getUpdateCount());
+            assertEquals(2, statement.getLargeUpdateCount());
+        }
+
+        var update = statisticsOf(UPDATE_SQL);
+        assertEquals(1, update.executions());
+        assertEquals(2, update.rows());
+    }
+
+    @Test
+    void updateCountOfExecuteIsCountedOncePerExecution() throws SQLException {
+        try (var statement = connection.prepareStatement(UPDATE_SQL)) {
+            statement.setLong(1, 1);
+            statement.execute();
+            assertEquals(2, statement.getUpdateCount());
+            assertEquals(2, statement.getUpdateCount());
+            assertEquals(2, statement.getLargeUpdateCount());
+
+            statement.setLong(1, 0);
+            statement.execute();
+            assertEquals(3, statement.getUpdateCount());
+            assertEquals(3, statement.getUpdateCount());
+        }
+
+        var update = statisticsOf(UPDATE_SQL);
+        assertEquals(2, update.executions());
+        assertEquals(5, update.rows());
+    }
+
+    @Test
+    void updateCountsOfABatchAreCountedOnce() throws SQLException {
+        try (var statement = connection.prepareStatement(UPDATE_SQL)) {
+            statement.setLong(1, 2);
+            statement.addBatch();
+            statement.setLong(1, 0);
+            statement.addBatch();
+            statement.executeBatch();
+            statement.getUpdateCount();
+        }
+
+        var update = statisticsOf(UPDATE_SQL);
+        assertEquals(1, update.executions());
+        assertEquals(4, update.rows());
+    }
+
+    private QueryStatistics statisticsOf(String sql) {
+        var shape = SqlShapes.shapeOf(sql);
+        var queries = dataSource.getMetrics().queries().stream()
+                .filter(query -> query.shape().equals(shape))
+                .toList();
+        assertEquals(1, queries.size(), shape);
+        return queries.get(0);
+    }
+}
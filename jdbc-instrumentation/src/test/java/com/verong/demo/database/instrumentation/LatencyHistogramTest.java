@@ -0,0 +1,135 @@
+package com.verong.demo.database.instrumentation;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the bucket layout of {@link LatencyHistogram} and its percentiles against exact ones.
+ */
+class LatencyHistogramTest {
+
+    private static final int LAST_INDEX = LatencyHistogram.indexOf(Long.MAX_VALUE);
+    private static final double MAX_RELATIVE_ERROR = 1.0 / 32;
+
+    @Test
+    void smallValuesHaveABucketEach() {
+        for (int value = 0; value < 64; value++) {
+            assertEquals(value, LatencyHistogram.indexOf(value));
+            assertEquals(value, LatencyHistogram.highestValueAt(value));
+        }
+    }
+
+    @Test
+    void bucketsFollowEachOtherWithoutGaps() {
+        for (int index = 0; index < LAST_INDEX; index++) {
+            long highest = LatencyHistogram.highestValueAt(index);
+            assertEquals(index, LatencyHistogram.indexOf(highest), "highest value of bucket " + index);
+            assertEquals(index + 1, LatencyHistogram.indexOf(highest + 1), "value after bucket " + index);
+        }
+    }
+
+    @Test
+    void bucketIsNeverWiderThanTheRelativeError() {
+        for (int index = 64; index < LAST_INDEX; index++) {
+            long lowest = LatencyHistogram.highestValueAt(index - 1) + 1;
+            long width = LatencyHistogram.highestValueAt(index) - lowest + 1;
+            assertTrue(width <= lowest * MAX_RELATIVE_ERROR, "width of bucket " + index);
+        }
+    }
+
+    @Test
+    void valuesAboveTheRangeAreCountedInTheLastBucket() {
+        long nineHours = TimeUnit.HOURS.toNanos(9);
+        assertTrue(LatencyHistogram.indexOf(nineHours) < LAST_INDEX);
+        assertEquals(LAST_INDEX, LatencyHistogram.indexOf(TimeUnit.HOURS.toNanos(10)));
+        assertEquals(LAST_INDEX, LatencyHistogram.indexOf(Long.MAX_VALUE));
+
+        var histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        var snapshot = histogram.snapshot();
+        assertEquals(Duration.ofNanos(Long.MAX_VALUE), snapshot.max());
+        assertEquals(Duration.ofNanos(LatencyHistogram.highestValueAt(LAST_INDEX)), snapshot.p50());
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        var snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(new LatencyHistogram.Snapshot(0, Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO,
+                Duration.ZERO), snapshot);
+    }
+
+    @Test
+    void negativeValueIsRecordedAsZero() {
+        var histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        var snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.count());
+        assertEquals(Duration.ZERO, snapshot.max());
+        assertEquals(Duration.ZERO, snapshot.p999());
+    }
+
+    @Test
+    void percentilesAreWithinTheRelativeErrorOfTheExactOnes() {
+        var random = new Random(42);
+        var histogram = new LatencyHistogram();
+        var values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // log-uniform from 1 µs to ~1 s, like query latencies
+            values[i] = (long) Math.pow(10, 3 + random.nextDouble() * 6);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        var snapshot = histogram.snapshot();
+
+        assertEquals(values.length, snapshot.count());
+        assertEquals(values[values.length - 1], snapshot.max().toNanos());
+        assertEquals(Arrays.stream(values).sum() / values.length, snapshot.mean().toNanos());
+        assertPercentile(values, 0.50, snapshot.p50());
+        assertPercentile(values, 0.99, snapshot.p99());
+        assertPercentile(values, 0.999, snapshot.p999());
+    }
+
+    @Test
+    void concurrentRecordingLosesNoValue() throws InterruptedException {
+        var histogram = new LatencyHistogram();
+        var threads = new ArrayList<Thread>();
+        for (int thread = 0; thread < 8; thread++) {
+            long value = (thread + 1) * 1_000L;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(value);
+                }
+            }));
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        var snapshot = histogram.snapshot();
+        assertEquals(800_000, snapshot.count());
+        assertEquals(800_000, histogram.count());
+        assertEquals(Duration.ofNanos(8_000), snapshot.max());
+        assertEquals(Duration.ofNanos(4_500), snapshot.mean());
+    }
+
+    /**
+     * A percentile is reported by the highest value of its bucket, so it is never below the exact one.
+     */
+    private static void assertPercentile(long[] sorted, double percentile, Duration reported) {
+        long exact = sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+        long value = reported.toNanos();
+        assertTrue(value >= exact && value <= exact * (1 + MAX_RELATIVE_ERROR),
+                "p%s is %d ns, but %d ns exactly".formatted(percentile * 100, value, exact));
+    }
+}
@@ -0,0 +1,87 @@
+package com.verong.demo.database.instrumentation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks how {@link SqlShapes} normalizes SQL text and caps the number of shapes.
+ */
+class SqlShapesTest {
+
+    @Test
+    void literalsAreReplaced() {
+        assertEquals("select * from students where id = ?",
+                SqlShapes.shapeOf("select * from students where id = 42"));
+        assertEquals("select * from students where email = ? and first_name = ?",
+                SqlShapes.shapeOf("select * from students where email = 'a@mail.com' and first_name = 'O''Brien'"));
+        assertEquals("update students set score = ?, rate = ?, delta = ? where id = ?",
+                SqlShapes.shapeOf("update students set score = 1.5, rate = 2e-3, delta = -7 where id = 1"));
+        assertEquals("select * from students limit ? offset ?",
+                SqlShapes.shapeOf("select * from students limit 10 offset 20"));
+    }
+
+    @Test
+    void digitsOfIdentifiersAreKept() {
+        assertEquals("select s1.id, s1.\"col2\", t.x3 from students s1 join t2 t on t.id = s1.id where s1.id = ?",
+                SqlShapes.shapeOf("select s1.id, s1.\"col2\", t.x3 from students s1 join t2 t on t.id = s1.id where s1.id = 5"));
+    }
+
+    @Test
+    void literalInsideAStringIsReplacedWithTheString() {
+        assertEquals("select * from students where email = ? and id = ?",
+                SqlShapes.shapeOf("select * from students where email = 'it''s 42, or 7' and id = 3"));
+    }
+
+    @Test
+    void listsOfParametersAreCollapsed() {
+        assertEquals("select * from students where id in (?, ...)",
+                SqlShapes.shapeOf("select * from students where id in (1, 2, 3)"));
+        assertEquals("select * from students where id in (?, ...)",
+                SqlShapes.shapeOf("select * from students where id in ( ?,?,  ? , ?)"));
+        assertEquals("insert into students(email, status) values (?, ...)",
+                SqlShapes.shapeOf("insert into students(email, status) values ('a@mail.com', 'ACTIVE')"));
+        assertEquals("select * from students where id in (?)",
+                SqlShapes.shapeOf("select * from students where id in (?)"));
+    }
+
+    @Test
+    void whitespaceIsNormalized() {
+        assertEquals("select id from students where id = ?",
+                SqlShapes.shapeOf("  select id\n\tfrom   students\r\n where id = ?  "));
+    }
+
+    @Test
+    void textsOfOneShapeShareTheirStatistics() {
+        var shapes = new SqlShapes(10);
+
+        var first = shapes.statisticsOf("select * from students where id = 1");
+        var second = shapes.statisticsOf("select *   from students where id = 2");
+
+        assertSame(first, second);
+        assertSame(first, shapes.statisticsOf("select * from students where id = 1"));
+        assertEquals("select * from students where id = ?", first.shape());
+        assertNotSame(first, shapes.statisticsOf("select * from students where email = ?"));
+    }
+
+    @Test
+    void shapesAboveTheLimitAreCountedAsOther() {
+        var shapes = new SqlShapes(2);
+        var first = shapes.statisticsOf("select id from students");
+        var second = shapes.statisticsOf("select email from students");
+
+        var third = shapes.statisticsOf("select status from students");
+
+        assertEquals(SqlShapes.OTHER, third.shape());
+        assertSame(third, shapes.statisticsOf("select birthday from students"));
+        assertSame(first, shapes.statisticsOf("select id from students"));
+        assertEquals(Set.of(first, second), Set.copyOf(shapes.all()));
+
+        third.recordExecution(1_000, false, false);
+        assertEquals(3, shapes.all().size());
+    }
+}